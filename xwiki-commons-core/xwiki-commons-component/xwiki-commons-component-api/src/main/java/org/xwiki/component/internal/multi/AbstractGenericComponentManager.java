@@ -48,6 +48,12 @@ public abstract class AbstractGenericComponentManager extends DelegateComponentM
      */
     private ComponentManager internalParent;
 
+    /**
+     * Cache the Component Managers resolved for a key so that the lookups don't have to go through the
+     * {@link ComponentManagerManager}, created when first needed.
+     */
+    private volatile ComponentManagerResolutionCache resolvedComponentManagers;
+
     /**
      * @return the key (any String) representing the current Component Manager. For example in the case of a User
      *         Component Manager the key can be the current user in the execution context so that we can register/lookup
@@ -79,22 +85,38 @@ public ComponentManager getComponentManager()
     protected ComponentManager getComponentManagerInternal()
     {
         String key = getKey();
-        return key != null ? this.componentManagerManager.getComponentManager(key, false) : null;
+        return key != null ? getResolvedComponentManagers().get(key) : null;
+    }
+
+    private ComponentManagerResolutionCache getResolvedComponentManagers()
+    {
+        if (this.resolvedComponentManagers == null) {
+            synchronized (this) {
+                if (this.resolvedComponentManagers == null) {
+                    ComponentManagerResolutionCache cache =
+                        new ComponentManagerResolutionCache(this.componentManagerManager);
+                    // Listen before resolving anything so that no invalidation is missed
+                    this.componentManagerManager.addListener(cache);
+                    this.resolvedComponentManagers = cache;
+                }
+            }
+        }
+
+        return this.resolvedComponentManagers;
     }
 
     @Override
     public <T> void registerComponent(ComponentDescriptor<T> componentDescriptor, T componentInstance)
         throws ComponentRepositoryException
     {
-        synchronized (this) {
-            // Make sure the ComponentManager associated to the current key exists
-            ComponentManager componentManager = this.componentManagerManager.getComponentManager(getKey(), true);
-
-            if (componentInstance == null) {
-                componentManager.registerComponent(componentDescriptor);
-            } else {
-                componentManager.registerComponent(componentDescriptor, componentInstance);
-            }
+        // Make sure the ComponentManager associated to the current key exists (the ComponentManagerManager takes care
+        // of creating only one ComponentManager per key)
+        ComponentManager componentManager = this.componentManagerManager.getComponentManager(getKey(), true);
+
+        if (componentInstance == null) {
+            componentManager.registerComponent(componentDescriptor);
+        } else {
+            componentManager.registerComponent(componentDescriptor, componentInstance);
         }
     }
 
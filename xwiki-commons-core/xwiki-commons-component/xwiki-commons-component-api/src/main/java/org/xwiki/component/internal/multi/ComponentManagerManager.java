@@ -41,4 +41,26 @@
      *         <code>create</code> is false
      */
     ComponentManager getComponentManager(String id, boolean create);
+
+    /**
+     * Forget the {@link ComponentManager} associated to the passed id (for example because the namespace it represents
+     * has been deleted). Disposing it is the responsibility of the caller.
+     *
+     * @param id the identifier of the {@link ComponentManager} to remove
+     * @return the removed {@link ComponentManager} or null if none was associated to the provided id
+     * @since 7.4M1
+     */
+    ComponentManager removeComponentManager(String id);
+
+    /**
+     * @param listener the listener to notify when a {@link ComponentManager} is created or removed
+     * @since 7.4M1
+     */
+    void addListener(ComponentManagerManagerListener listener);
+
+    /**
+     * @param listener the listener to stop notifying
+     * @since 7.4M1
+     */
+    void removeListener(ComponentManagerManagerListener listener);
 }
@@ -0,0 +1,43 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Notified when the {@link ComponentManagerManager} creates or removes a {@link ComponentManager}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public interface ComponentManagerManagerListener
+{
+    /**
+     * @param id the identifier of the created {@link ComponentManager}
+     * @param componentManager the created {@link ComponentManager}
+     */
+    void onComponentManagerCreated(String id, ComponentManager componentManager);
+
+    /**
+     * @param id the identifier of the removed {@link ComponentManager}
+     * @param componentManager the removed {@link ComponentManager}
+     */
+    void onComponentManagerRemoved(String id, ComponentManager componentManager);
+}
@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Cache the {@link ComponentManager} resolved for a key, including the keys without any {@link ComponentManager}. The
+ * entries are invalidated when the {@link ComponentManagerManager} creates or removes a {@link ComponentManager}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class ComponentManagerResolutionCache implements ComponentManagerManagerListener
+{
+    /**
+     * The maximum number of cached keys, the cache is emptied when it's reached (the keys can be users for example).
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * Cached for the keys without any {@link ComponentManager}.
+     */
+    private static final Object NONE = new Object();
+
+    private final ComponentManagerManager componentManagerManager;
+
+    private final ConcurrentMap<String, Object> entries = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Incremented before each invalidation so that a resolution racing with it is not cached.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param componentManagerManager the component manager manager to resolve the keys with
+     */
+    ComponentManagerResolutionCache(ComponentManagerManager componentManagerManager)
+    {
+        this.componentManagerManager = componentManagerManager;
+    }
+
+    /**
+     * @param key the key of the component manager
+     * @return the component manager associated to the key or null if there is none
+     */
+    ComponentManager get(String key)
+    {
+        Object entry = this.entries.get(key);
+        if (entry != null) {
+            return entry != NONE ? (ComponentManager) entry : null;
+        }
+
+        long currentVersion = this.version.get();
+
+        ComponentManager componentManager = this.componentManagerManager.getComponentManager(key, false);
+
+        if (this.entries.size() >= MAX_SIZE) {
+            this.entries.clear();
+        }
+        this.entries.put(key, componentManager != null ? componentManager : NONE);
+
+        // A component manager has been created or removed in the meantime, the resolution might be stale
+        if (this.version.get() != currentVersion) {
+            this.entries.remove(key);
+        }
+
+        return componentManager;
+    }
+
+    private void invalidate(String id)
+    {
+        this.version.incrementAndGet();
+        this.entries.remove(id);
+    }
+
+    @Override
+    public void onComponentManagerCreated(String id, ComponentManager componentManager)
+    {
+        invalidate(id);
+    }
+
+    @Override
+    public void onComponentManagerRemoved(String id, ComponentManager componentManager)
+    {
+        invalidate(id);
+    }
+}
@@ -19,8 +19,10 @@
  */
 package org.xwiki.component.internal.multi;
 
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -55,7 +57,21 @@ public class DefaultComponentManagerManager implements ComponentManagerManager
     /**
      * Holds Component Managers based on identifiers.
      */
-    private Map<String, ComponentManager> componentManagers = new ConcurrentHashMap<String, ComponentManager>();
+    private ConcurrentMap<String, ComponentManager> componentManagers =
+        new ConcurrentHashMap<String, ComponentManager>();
+
+    /**
+     * The locks used to make sure only one Component Manager is created for a given identifier, without blocking the
+     * creation of the Component Managers of other identifiers. A lock is removed as soon as the Component Manager it
+     * protects has been created.
+     */
+    private ConcurrentMap<String, Object> creationLocks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The listeners to notify when a Component Manager is created or removed.
+     */
+    private List<ComponentManagerManagerListener> listeners =
+        new CopyOnWriteArrayList<ComponentManagerManagerListener>();
 
     @Override
     public ComponentManager getComponentManager(String path, boolean create)
@@ -66,14 +82,82 @@ public ComponentManager getComponentManager(String path, boolean create)
         } else {
             componentManager = this.componentManagers.get(path);
             if (componentManager == null && create) {
-                componentManager = createComponentManager(path);
-                this.componentManagers.put(path, componentManager);
+                Object lock = getCreationLock(path);
+                synchronized (lock) {
+                    componentManager = this.componentManagers.get(path);
+                    if (componentManager == null) {
+                        componentManager = createComponentManager(path);
+                        this.componentManagers.put(path, componentManager);
+
+                        for (ComponentManagerManagerListener listener : this.listeners) {
+                            listener.onComponentManagerCreated(path, componentManager);
+                        }
+                    }
+
+                    // The lock is not needed anymore once the component manager exists: the threads still waiting for
+                    // it will find the component manager and the next ones won't ask for a lock
+                    this.creationLocks.remove(path, lock);
+                }
             }
         }
 
         return componentManager;
     }
 
+    @Override
+    public ComponentManager removeComponentManager(String id)
+    {
+        if (id == null) {
+            return null;
+        }
+
+        ComponentManager componentManager;
+        // Don't remove a Component Manager while it's being created
+        Object lock = getCreationLock(id);
+        synchronized (lock) {
+            componentManager = this.componentManagers.remove(id);
+            if (componentManager != null) {
+                for (ComponentManagerManagerListener listener : this.listeners) {
+                    listener.onComponentManagerRemoved(id, componentManager);
+                }
+            }
+
+            this.creationLocks.remove(id, lock);
+        }
+
+        return componentManager;
+    }
+
+    @Override
+    public void addListener(ComponentManagerManagerListener listener)
+    {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(ComponentManagerManagerListener listener)
+    {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * @param path the identifier of the component manager
+     * @return the lock protecting the creation of the component manager
+     */
+    private Object getCreationLock(String path)
+    {
+        Object lock = this.creationLocks.get(path);
+        if (lock == null) {
+            lock = new Object();
+            Object existingLock = this.creationLocks.putIfAbsent(path, lock);
+            if (existingLock != null) {
+                lock = existingLock;
+            }
+        }
+
+        return lock;
+    }
+
     /**
      * Create a new {@link ComponentManager} for the provided id.
      *
@@ -20,6 +20,7 @@
 package org.xwiki.component.annotation;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -31,10 +32,13 @@
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -44,10 +48,14 @@
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.embed.EmbeddableComponentManager;
 import org.xwiki.component.internal.RoleHint;
+import org.xwiki.component.internal.index.ComponentIndexCache;
+import org.xwiki.component.internal.index.IndexedComponentDeclaration;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.stability.Unstable;
 
 /**
  * Dynamically loads all components defined using Annotations and declared in META-INF/components.txt files.
@@ -82,11 +90,101 @@
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(ComponentAnnotationLoader.class);
 
+    /**
+     * The number of component declarations below which the descriptors are not created in parallel since the cost of
+     * the threads would be higher than what they save.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Create the descriptors of a range of component declarations, splitting the range between several threads.
+     *
+     * @version $Id$
+     */
+    private final class ComponentsDescriptorsTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ComponentDeclaration> componentDeclarations;
+
+        private final ClassLoader classLoader;
+
+        private final List<? extends ComponentDescriptor>[] results;
+
+        private final int start;
+
+        private final int end;
+
+        ComponentsDescriptorsTask(List<ComponentDeclaration> componentDeclarations, ClassLoader classLoader,
+            List<? extends ComponentDescriptor>[] results, int start, int end)
+        {
+            this.componentDeclarations = componentDeclarations;
+            this.classLoader = classLoader;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.end - this.start <= PARALLEL_THRESHOLD / 2) {
+                for (int i = this.start; i < this.end; ++i) {
+                    this.results[i] = getComponentsDescriptors(this.componentDeclarations.get(i), this.classLoader);
+                }
+            } else {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new ComponentsDescriptorsTask(this.componentDeclarations, this.classLoader, this.results,
+                    this.start, middle), new ComponentsDescriptorsTask(this.componentDeclarations, this.classLoader,
+                    this.results, middle, this.end));
+            }
+        }
+    }
+
     /**
      * Factory to create a Component Descriptor from an annotated class.
      */
     private ComponentDescriptorFactory factory = new ComponentDescriptorFactory();
 
+    /**
+     * @see #setParallelism(int)
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @see #setIndexCache(File)
+     */
+    private ComponentIndexCache indexCache = ComponentIndexCache.fromSystemProperty();
+
+    /**
+     * By default the loading of the classes and the annotations parsing of big lists of components are split between
+     * as many threads as there are available processors. With a parallelism of 1 the components descriptors are created
+     * sequentially.
+     *
+     * @param parallelism the maximum number of threads to use to create the component descriptors
+     * @since 7.4M1
+     */
+    @Unstable
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The descriptors created from the component list of a JAR can be stored in a folder so that the next time the same
+     * JAR is loaded its components are registered without parsing their annotations. By default the folder indicated
+     * by the {@value ComponentIndexCache#PROPERTY_FOLDER} system property is used and nothing is cached if it's not
+     * set.
+     *
+     * @param folder the folder where to store the component indexes or {@code null} to disable the cache
+     * @since 7.4M1
+     */
+    @Unstable
+    public void setIndexCache(File folder)
+    {
+        this.indexCache = folder != null ? new ComponentIndexCache(folder) : null;
+    }
+
     /**
      * Loads all components defined using annotations.
      *
@@ -109,7 +207,7 @@ public void initialize(ComponentManager manager, ClassLoader classLoader)
                 // Since the old way to declare an override was to define it in both a component.txt and a
                 // component-overrides.txt file we first need to remove the override component declaration stored in
                 // componentDeclarations.
-                componentDeclarations.remove(componentOverrideDeclaration);
+                removeDeclaration(componentDeclarations, componentOverrideDeclaration);
                 // Add it to the end of the list with the highest priority.
                 componentDeclarations.add(new ComponentDeclaration(componentOverrideDeclaration
                     .getImplementationClassName(), 0));
@@ -123,6 +221,24 @@ public void initialize(ComponentManager manager, ClassLoader classLoader)
         }
     }
 
+    /**
+     * Indexed declarations are not equal to the declarations parsed from a component list so they have to be compared
+     * by class name and priority.
+     */
+    private void removeDeclaration(List<ComponentDeclaration> componentDeclarations,
+        ComponentDeclaration declarationToRemove)
+    {
+        for (Iterator<ComponentDeclaration> it = componentDeclarations.iterator(); it.hasNext();) {
+            ComponentDeclaration componentDeclaration = it.next();
+            if (componentDeclaration.getImplementationClassName().equals(
+                declarationToRemove.getImplementationClassName())
+                && componentDeclaration.getPriority() == declarationToRemove.getPriority()) {
+                it.remove();
+                break;
+            }
+        }
+    }
+
     /**
      * @param manager the component manager to use to dynamically register components
      * @param classLoader the classloader to use to look for the Component list declaration file (
@@ -153,34 +269,30 @@ public void register(ComponentManager manager, ClassLoader classLoader,
                 new HashMap<RoleHint<?>, ComponentDescriptor<?>>();
             Map<RoleHint<?>, Integer> priorityMap = new HashMap<RoleHint<?>, Integer>();
 
-            for (ComponentDeclaration componentDeclaration : componentDeclarations) {
-                Class<?> componentClass;
-                try {
-                    componentClass = classLoader.loadClass(componentDeclaration.getImplementationClassName());
-                } catch (Exception e) {
-                    throw new RuntimeException(
-                        String.format("Failed to load component class [%s] for annotation parsing",
-                            componentDeclaration.getImplementationClassName()), e);
-                }
+            List<? extends ComponentDescriptor>[] componentsDescriptors =
+                getComponentsDescriptors(componentDeclarations, classLoader);
 
-                // Look for ComponentRole annotations and register one component per ComponentRole found
-                for (Type componentRoleType : findComponentRoleTypes(componentClass)) {
-                    for (ComponentDescriptor<?> componentDescriptor : this.factory.createComponentDescriptors(
-                        componentClass, componentRoleType)) {
-                        // If there's already a existing role/hint in the list of descriptors then decide which one
-                        // to keep by looking at their priorities. Highest priority wins (i.e. lowest integer value).
-                        RoleHint<?> roleHint =
-                            new RoleHint(componentDescriptor.getRoleType(), componentDescriptor.getRoleHint());
-
-                        addComponent(descriptorMap, priorityMap, roleHint, componentDescriptor, componentDeclaration,
-                            true);
-                    }
+            for (int i = 0; i < componentsDescriptors.length; ++i) {
+                ComponentDeclaration componentDeclaration = componentDeclarations.get(i);
+                for (ComponentDescriptor<?> componentDescriptor : componentsDescriptors[i]) {
+                    // If there's already a existing role/hint in the list of descriptors then decide which one
+                    // to keep by looking at their priorities. Highest priority wins (i.e. lowest integer value).
+                    RoleHint<?> roleHint =
+                        new RoleHint(componentDescriptor.getRoleType(), componentDescriptor.getRoleHint());
+
+                    addComponent(descriptorMap, priorityMap, roleHint, componentDescriptor, componentDeclaration,
+                        true);
                 }
             }
 
             // 3) Activate all component descriptors
-            for (ComponentDescriptor<?> descriptor : descriptorMap.values()) {
-                manager.registerComponent(descriptor);
+            if (manager instanceof EmbeddableComponentManager) {
+                // Register all the components before sending the corresponding events
+                ((EmbeddableComponentManager) manager).registerComponents(descriptorMap.values());
+            } else {
+                for (ComponentDescriptor<?> descriptor : descriptorMap.values()) {
+                    manager.registerComponent(descriptor);
+                }
             }
         } catch (Exception e) {
             // Make sure we make the calling code fail in order to fail fast and prevent the application to start
@@ -189,6 +301,46 @@ public void register(ComponentManager manager, ClassLoader classLoader,
         }
     }
 
+    private List<? extends ComponentDescriptor>[] getComponentsDescriptors(
+        List<ComponentDeclaration> componentDeclarations, ClassLoader classLoader)
+    {
+        List<? extends ComponentDescriptor>[] componentsDescriptors = new List[componentDeclarations.size()];
+
+        if (this.parallelism > 1 && componentDeclarations.size() >= PARALLEL_THRESHOLD) {
+            ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+            try {
+                pool.invoke(new ComponentsDescriptorsTask(componentDeclarations, classLoader, componentsDescriptors, 0,
+                    componentsDescriptors.length));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (int i = 0; i < componentsDescriptors.length; ++i) {
+                componentsDescriptors[i] = getComponentsDescriptors(componentDeclarations.get(i), classLoader);
+            }
+        }
+
+        return componentsDescriptors;
+    }
+
+    private List<? extends ComponentDescriptor> getComponentsDescriptors(ComponentDeclaration componentDeclaration,
+        ClassLoader classLoader)
+    {
+        if (componentDeclaration instanceof IndexedComponentDeclaration) {
+            return ((IndexedComponentDeclaration) componentDeclaration).getComponentDescriptors();
+        }
+
+        Class<?> componentClass;
+        try {
+            componentClass = classLoader.loadClass(componentDeclaration.getImplementationClassName());
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("Failed to load component class [%s] for annotation parsing",
+                componentDeclaration.getImplementationClassName()), e);
+        }
+
+        return getComponentsDescriptors(componentClass);
+    }
+
     private void addComponent(Map<RoleHint<?>, ComponentDescriptor<?>> descriptorMap,
         Map<RoleHint<?>, Integer> priorityMap, RoleHint<?> roleHint, ComponentDescriptor<?> componentDescriptor,
         ComponentDeclaration componentDeclaration, boolean warn)
@@ -440,21 +592,60 @@ private List<ComponentDeclaration> getDeclaredComponents(ClassLoader classLoader
     {
         List<ComponentDeclaration> annotatedClassNames = new ArrayList<ComponentDeclaration>();
         Enumeration<URL> urls = classLoader.getResources(location);
+        ComponentIndexCache cache = COMPONENT_LIST.equals(location) ? this.indexCache : null;
         while (urls.hasMoreElements()) {
             URL url = urls.nextElement();
 
-            LOGGER.debug("Loading declared component definitions from [{}]", url);
+            if (cache != null && cache.isCacheable(url)) {
+                annotatedClassNames.addAll(getIndexedComponents(url, classLoader, cache));
+            } else {
+                annotatedClassNames.addAll(getDeclaredComponents(url));
+            }
+        }
 
-            InputStream componentListStream = url.openStream();
+        return annotatedClassNames;
+    }
 
-            try {
-                annotatedClassNames.addAll(getDeclaredComponents(componentListStream));
-            } finally {
-                componentListStream.close();
+    private List<ComponentDeclaration> getDeclaredComponents(URL url) throws IOException
+    {
+        LOGGER.debug("Loading declared component definitions from [{}]", url);
+
+        InputStream componentListStream = url.openStream();
+
+        try {
+            return getDeclaredComponents(componentListStream);
+        } finally {
+            componentListStream.close();
+        }
+    }
+
+    /**
+     * Get the components listed in the passed component list from the index cache, or index them if the cache does
+     * not contain an up to date index.
+     */
+    private List<ComponentDeclaration> getIndexedComponents(URL url, ClassLoader classLoader,
+        ComponentIndexCache cache) throws IOException
+    {
+        List<ComponentDeclaration> indexedDeclarations = cache.read(url, classLoader);
+
+        if (indexedDeclarations == null) {
+            List<ComponentDeclaration> componentDeclarations = getDeclaredComponents(url);
+            List<? extends ComponentDescriptor>[] componentsDescriptors =
+                getComponentsDescriptors(componentDeclarations, classLoader);
+
+            cache.write(url, componentDeclarations, componentsDescriptors);
+
+            // Keep the descriptors so that the annotations are not parsed again when registering the components
+            indexedDeclarations = new ArrayList<ComponentDeclaration>(componentDeclarations.size());
+            for (int i = 0; i < componentsDescriptors.length; ++i) {
+                ComponentDeclaration componentDeclaration = componentDeclarations.get(i);
+                indexedDeclarations.add(new IndexedComponentDeclaration(
+                    componentDeclaration.getImplementationClassName(), componentDeclaration.getPriority(),
+                    (List) componentsDescriptors[i]));
             }
         }
 
-        return annotatedClassNames;
+        return indexedDeclarations;
     }
 
     /**
@@ -47,9 +47,23 @@
      * Load all Component Descriptor Factories implementations using the JDK's Service Loader facility. Note that we
      * cannot use Components to do this since it would be a chicken and egg issue since this factory class is used to
      * initialize Components...
+     * <p>
+     * The factories are listed eagerly since iterating a {@link ServiceLoader} is not thread safe and descriptors can
+     * be created from several threads (see {@link ComponentAnnotationLoader#setParallelism(int)}).
      */
-    private ServiceLoader<ComponentDependencyFactory> componentDependencyFactories = ServiceLoader
-        .load(ComponentDependencyFactory.class);
+    private final List<ComponentDependencyFactory> componentDependencyFactories;
+
+    /**
+     * Default constructor.
+     */
+    public ComponentDescriptorFactory()
+    {
+        List<ComponentDependencyFactory> factories = new ArrayList<ComponentDependencyFactory>();
+        for (ComponentDependencyFactory factory : ServiceLoader.load(ComponentDependencyFactory.class)) {
+            factories.add(factory);
+        }
+        this.componentDependencyFactories = factories;
+    }
 
     /**
      * Create component descriptors for the passed component implementation class and component role class. There can be
@@ -0,0 +1,50 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Create the instances of a component and inject their dependencies. An injector is created once per component
+ * descriptor (see {@link ComponentInjectorFactory}) and reused for each new instance of the component, so it's the
+ * right place to cache anything that can be resolved in advance (constructor, fields, etc).
+ *
+ * @param <T> the type of the component implementation
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public interface ComponentInjector<T>
+{
+    /**
+     * @return a new instance of the component, without any dependency injected
+     * @throws Exception when failing to create the instance
+     */
+    T newInstance() throws Exception;
+
+    /**
+     * @param instance the component instance
+     * @param index the index of the dependency in the list returned by
+     *            {@link org.xwiki.component.descriptor.ComponentDescriptor#getComponentDependencies()}
+     * @param value the value to inject
+     * @throws Exception when failing to inject the dependency
+     */
+    void inject(T instance, int index, Object value) throws Exception;
+}
@@ -0,0 +1,42 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Create the {@link ComponentInjector} used by {@link EmbeddableComponentManager} to instantiate a component. Allow
+ * plugging other injection strategies (generated injector classes, etc.).
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public interface ComponentInjectorFactory
+{
+    /**
+     * @param <T> the type of the component implementation
+     * @param descriptor the descriptor of the component
+     * @return the injector to use to create the instances of the passed component
+     * @throws Exception when failing to create the injector
+     */
+    <T> ComponentInjector<T> createInjector(ComponentDescriptor<T> descriptor) throws Exception;
+}
@@ -0,0 +1,132 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Statistics about the lookups and instantiations of the components of an {@link EmbeddableComponentManager}. They
+ * are not gathered until enabled.
+ * <p>
+ * The number of recorded components is bounded: once {@link #MAX_COMPONENTS} role/hint couples have been recorded
+ * (lookups of components which don't exist and dynamic hints included) the new ones are all counted in a single entry
+ * with a {@code null} role type.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public interface ComponentManagerStatistics
+{
+    /**
+     * The maximum number of role/hint couples for which statistics are kept.
+     */
+    int MAX_COMPONENTS = 10000;
+
+    /**
+     * The statistics of a component.
+     *
+     * @version $Id$
+     */
+    interface ComponentEntry
+    {
+        /**
+         * @return the role of the component or {@code null} for the entry gathering the components recorded after
+         *         {@link ComponentManagerStatistics#MAX_COMPONENTS} was reached
+         */
+        Type getRoleType();
+
+        /**
+         * @return the hint of the component or {@code null} for the lookups of all the components of the role (
+         *         {@link org.xwiki.component.manager.ComponentManager#getInstanceList(Type)} and
+         *         {@link org.xwiki.component.manager.ComponentManager#getInstanceMap(Type)})
+         */
+        String getRoleHint();
+
+        /**
+         * @return the number of times the component has been looked up
+         */
+        long getLookups();
+
+        /**
+         * @return the number of times the component has been instantiated
+         */
+        long getInstantiations();
+
+        /**
+         * @return the total time spent instantiating the component, including the instantiation of its dependencies,
+         *         in nanoseconds
+         */
+        long getInstantiationTime();
+
+        /**
+         * @return the total time spent in the lifecycle handlers (initialization, etc.) of the component, in
+         *         nanoseconds
+         */
+        long getLifecycleTime();
+    }
+
+    /**
+     * The statistics of a lifecycle handler.
+     *
+     * @version $Id$
+     */
+    interface HandlerEntry
+    {
+        /**
+         * @return the number of times the handler has been called
+         */
+        long getCalls();
+
+        /**
+         * @return the total time spent in the handler, in nanoseconds
+         */
+        long getTime();
+    }
+
+    /**
+     * @return true if the statistics are gathered
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled true if the statistics should be gathered
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the statistics of the components looked up or instantiated since the statistics are enabled
+     */
+    Collection<? extends ComponentEntry> getComponents();
+
+    /**
+     * @return the statistics of the lifecycle handlers indexed by class name
+     */
+    Map<String, ? extends HandlerEntry> getHandlers();
+
+    /**
+     * Forget all the statistics.
+     */
+    void reset();
+}
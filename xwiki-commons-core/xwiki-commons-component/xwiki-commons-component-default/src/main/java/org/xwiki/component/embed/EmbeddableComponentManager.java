@@ -20,7 +20,9 @@
 package org.xwiki.component.embed;
 
 import java.lang.reflect.Type;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -29,6 +31,8 @@
 import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Provider;
 
@@ -41,6 +45,9 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
 import org.xwiki.component.internal.RoleHint;
+import org.xwiki.component.internal.StackingComponentEventManager;
+import org.xwiki.component.internal.embed.ComponentStatistics;
+import org.xwiki.component.internal.embed.MethodHandleComponentInjectorFactory;
 import org.xwiki.component.manager.ComponentEventManager;
 import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -50,6 +57,7 @@
 import org.xwiki.component.manager.NamespacedComponentManager;
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.stability.Unstable;
 
 /**
  * Simple implementation of {@link ComponentManager} to be used when using some XWiki modules standalone.
@@ -64,6 +72,11 @@ public class EmbeddableComponentManager implements NamespacedComponentManager, D
      */
     private static final Logger SHUTDOWN_LOGGER = LoggerFactory.getLogger("org.xwiki.shutdown");
 
+    /**
+     * The hint used when none is provided.
+     */
+    private static final String DEFAULT_HINT = "default";
+
     /**
      * @see #getNamespace()
      */
@@ -91,6 +104,11 @@ public class EmbeddableComponentManager implements NamespacedComponentManager, D
          */
         public volatile R instance;
 
+        /**
+         * Injector used to create the instances of the component. Lazily initialized when needed.
+         */
+        public volatile ComponentInjector<R> injector;
+
         public ComponentEntry(ComponentDescriptor<R> descriptor, R instance)
         {
             this.descriptor = descriptor;
@@ -98,7 +116,53 @@ public ComponentEntry(ComponentDescriptor<R> descriptor, R instance)
         }
     }
 
-    private Map<RoleHint<?>, ComponentEntry<?>> componentEntries = new ConcurrentHashMap<>();
+    /**
+     * The components of a role, indexed by hint.
+     */
+    private static class RoleEntries
+    {
+        /**
+         * The components indexed by hint.
+         */
+        public final Map<String, ComponentEntry<?>> entries = new ConcurrentHashMap<>();
+
+        /**
+         * Incremented each time the components of the role are modified.
+         */
+        public final AtomicInteger version = new AtomicInteger();
+
+        /**
+         * The memoized instances of the components, {@code null} when some of them are not singletons.
+         */
+        public volatile InstancesMemo instances;
+    }
+
+    /**
+     * Memoized instances of the components of a role.
+     */
+    private static class InstancesMemo
+    {
+        /**
+         * The version of the role components from which the instances were computed.
+         */
+        public final int version;
+
+        /**
+         * The instances indexed by hint.
+         */
+        public final Map<String, Object> instances;
+
+        public InstancesMemo(int version, Map<String, Object> instances)
+        {
+            this.version = version;
+            this.instances = instances;
+        }
+    }
+
+    /**
+     * The components indexed by role and hint.
+     */
+    private ConcurrentMap<Type, RoleEntries> componentEntries = new ConcurrentHashMap<>();
 
     private Logger logger = LoggerFactory.getLogger(EmbeddableComponentManager.class);
 
@@ -107,6 +171,21 @@ public ComponentEntry(ComponentDescriptor<R> descriptor, R instance)
      */
     private ServiceLoader<LifecycleHandler> lifecycleHandlers = ServiceLoader.load(LifecycleHandler.class);
 
+    /**
+     * Used to create the injectors of the components.
+     */
+    private ComponentInjectorFactory injectorFactory = new MethodHandleComponentInjectorFactory();
+
+    /**
+     * Lookups and instantiations statistics, only gathered when enabled.
+     */
+    private final ComponentStatistics statistics = new ComponentStatistics();
+
+    /**
+     * @see #isRegisterComponentOverridden()
+     */
+    private final boolean registerComponentOverridden = isRegisterComponentOverridden();
+
     public EmbeddableComponentManager()
     {
         registerThis();
@@ -165,13 +244,13 @@ public void initialize(ClassLoader classLoader)
     @Override
     public boolean hasComponent(Type role)
     {
-        return hasComponent(role, "default");
+        return hasComponent(role, DEFAULT_HINT);
     }
 
     @Override
     public boolean hasComponent(Type role, String hint)
     {
-        if (this.componentEntries.containsKey(new RoleHint<>(role, hint))) {
+        if (getComponentEntry(role, hint) != null) {
             return true;
         }
 
@@ -181,62 +260,144 @@ public boolean hasComponent(Type role, String hint)
     @Override
     public <T> T getInstance(Type roleType) throws ComponentLookupException
     {
-        return getComponentInstance(new RoleHint<T>(roleType));
+        if (this.statistics.isEnabled()) {
+            this.statistics.recordLookup(roleType, DEFAULT_HINT);
+        }
+
+        return getComponentInstance(roleType, DEFAULT_HINT);
     }
 
     @Override
     public <T> T getInstance(Type roleType, String roleHint) throws ComponentLookupException
     {
-        return getComponentInstance(new RoleHint<T>(roleType, roleHint));
+        if (this.statistics.isEnabled()) {
+            this.statistics.recordLookup(roleType, roleHint != null ? roleHint : DEFAULT_HINT);
+        }
+
+        return getComponentInstance(roleType, roleHint);
+    }
+
+    /**
+     * @param role the role of the component
+     * @param hint the hint of the component
+     * @return the entry of the component registered in this component manager or {@code null} if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private <T> ComponentEntry<T> getComponentEntry(Type role, String hint)
+    {
+        RoleEntries roleEntries = this.componentEntries.get(role);
+
+        return roleEntries != null ? (ComponentEntry<T>) roleEntries.entries.get(hint != null ? hint : DEFAULT_HINT)
+            : null;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> List<T> getInstanceList(Type role) throws ComponentLookupException
     {
+        if (this.statistics.isEnabled()) {
+            this.statistics.recordRoleLookup(role);
+        }
+
+        if (getParent() == null) {
+            RoleEntries roleEntries = this.componentEntries.get(role);
+
+            if (roleEntries == null || roleEntries.entries.isEmpty()) {
+                return Collections.<T>emptyList();
+            }
+
+            return new ArrayList<T>((Collection<T>) getLocalInstances(role, roleEntries).values());
+        }
+
         // Reuse getInstanceMap to make sure to not return components from parent Component Manager overridden by this
         // Component Manager
-        Map<String, T> objects = getInstanceMap(role);
+        Map<String, T> objects = getInstanceMapInternal(role);
 
         return objects.isEmpty() ? Collections.<T>emptyList() : new ArrayList<T>(objects.values());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> Map<String, T> getInstanceMap(Type role) throws ComponentLookupException
     {
-        Map<String, T> objects = new HashMap<>();
+        if (this.statistics.isEnabled()) {
+            this.statistics.recordRoleLookup(role);
+        }
 
-        for (Map.Entry<RoleHint<?>, ComponentEntry<?>> entry : this.componentEntries.entrySet()) {
-            RoleHint<?> roleHint = entry.getKey();
+        return getInstanceMapInternal(role);
+    }
 
-            if (role.equals(roleHint.getRoleType())) {
-                try {
-                    objects.put(roleHint.getHint(), getComponentInstance((ComponentEntry<T>) entry.getValue()));
-                } catch (Exception e) {
-                    throw new ComponentLookupException("Failed to lookup component [" + roleHint + "]", e);
-                }
-            }
-        }
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, T> getInstanceMapInternal(Type role) throws ComponentLookupException
+    {
+        RoleEntries roleEntries = this.componentEntries.get(role);
 
-        // Add parent's list of components
+        // The returned map belongs to the caller: never return or modify the one of the parent, it might be shared
+        Map<String, T> objects;
         if (getParent() != null) {
+            objects = new HashMap<>(getParent().<T>getInstanceMap(role));
+        } else {
+            objects = new HashMap<>();
+        }
+
+        if (roleEntries != null && !roleEntries.entries.isEmpty()) {
             // If the hint already exists in the children Component Manager then don't add the one from the parent.
-            for (Map.Entry<String, T> entry : getParent().<T>getInstanceMap(role).entrySet()) {
-                if (!objects.containsKey(entry.getKey())) {
-                    objects.put(entry.getKey(), entry.getValue());
-                }
-            }
+            objects.putAll((Map<String, T>) getLocalInstances(role, roleEntries));
         }
 
         return objects;
     }
 
+    /**
+     * @param role the role of the components
+     * @param roleEntries the components registered in this component manager for the role
+     * @return the instances of the components registered in this component manager for the role, memoized as long as
+     *         they are all singletons and no component is registered/unregistered for this role
+     * @throws ComponentLookupException when failing to create an instance
+     */
+    private Map<String, Object> getLocalInstances(Type role, RoleEntries roleEntries) throws ComponentLookupException
+    {
+        int version = roleEntries.version.get();
+
+        InstancesMemo memo = roleEntries.instances;
+        if (memo != null && memo.version == version) {
+            return memo.instances;
+        }
+
+        Map<String, Object> instances = new HashMap<>();
+        boolean singletons = true;
+
+        for (Map.Entry<String, ComponentEntry<?>> entry : roleEntries.entries.entrySet()) {
+            ComponentEntry<?> componentEntry = entry.getValue();
+
+            try {
+                instances.put(entry.getKey(), getComponentInstance(componentEntry));
+            } catch (Exception e) {
+                throw new ComponentLookupException(
+                    "Failed to lookup component [" + new RoleHint<>(role, entry.getKey()) + "]", e);
+            }
+
+            if (componentEntry.descriptor.getInstantiationStrategy() != ComponentInstantiationStrategy.SINGLETON) {
+                singletons = false;
+            }
+        }
+
+        if (singletons) {
+            instances = Collections.unmodifiableMap(instances);
+
+            // Don't memoize instances computed from an outdated state
+            if (roleEntries.version.get() == version) {
+                roleEntries.instances = new InstancesMemo(version, instances);
+            }
+        }
+
+        return instances;
+    }
+
     @Override
-    @SuppressWarnings("unchecked")
     public <T> ComponentDescriptor<T> getComponentDescriptor(Type role, String hint)
     {
         ComponentDescriptor<T> result = null;
-        ComponentEntry<T> componentEntry = (ComponentEntry<T>) this.componentEntries.get(new RoleHint<T>(role, hint));
+        ComponentEntry<T> componentEntry = getComponentEntry(role, hint);
         if (componentEntry == null) {
             // Check in parent!
             if (getParent() != null) {
@@ -255,9 +416,10 @@ public <T> List<ComponentDescriptor<T>> getComponentDescriptorList(Type role)
     {
         Map<String, ComponentDescriptor<T>> descriptors = new HashMap<>();
 
-        for (Map.Entry<RoleHint<?>, ComponentEntry<?>> entry : this.componentEntries.entrySet()) {
-            if (entry.getKey().getRoleType().equals(role)) {
-                descriptors.put(entry.getKey().getHint(), (ComponentDescriptor<T>) entry.getValue().descriptor);
+        RoleEntries roleEntries = this.componentEntries.get(role);
+        if (roleEntries != null) {
+            for (Map.Entry<String, ComponentEntry<?>> entry : roleEntries.entries.entrySet()) {
+                descriptors.put(entry.getKey(), (ComponentDescriptor<T>) entry.getValue().descriptor);
             }
         }
 
@@ -287,6 +449,26 @@ public void setComponentEventManager(ComponentEventManager eventManager)
         this.eventManager = eventManager;
     }
 
+    /**
+     * @return the statistics about the lookups and instantiations of the components of this component manager
+     * @since 7.4M1
+     */
+    @Unstable
+    public ComponentManagerStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
+    /**
+     * @param injectorFactory the factory to use to create the injectors of the components not instantiated yet
+     * @since 7.4M1
+     */
+    @Unstable
+    public void setComponentInjectorFactory(ComponentInjectorFactory injectorFactory)
+    {
+        this.injectorFactory = injectorFactory;
+    }
+
     @Override
     public ComponentManager getParent()
     {
@@ -299,11 +481,36 @@ public void setParent(ComponentManager parentComponentManager)
         this.parent = parentComponentManager;
     }
 
-    private <T> T createInstance(ComponentDescriptor<T> descriptor) throws Exception
+    private <T> T createInstance(ComponentEntry<T> componentEntry) throws Exception
     {
-        T instance = descriptor.getImplementation().newInstance();
+        if (this.statistics.isEnabled()) {
+            long start = System.nanoTime();
+
+            T instance = createInstance(componentEntry, true);
+
+            this.statistics.recordInstantiation(componentEntry.descriptor.getRoleType(),
+                componentEntry.descriptor.getRoleHint(), System.nanoTime() - start);
+
+            return instance;
+        }
+
+        return createInstance(componentEntry, false);
+    }
+
+    private <T> T createInstance(ComponentEntry<T> componentEntry, boolean record) throws Exception
+    {
+        ComponentDescriptor<T> descriptor = componentEntry.descriptor;
+
+        ComponentInjector<T> injector = componentEntry.injector;
+        if (injector == null) {
+            injector = this.injectorFactory.createInjector(descriptor);
+            componentEntry.injector = injector;
+        }
+
+        T instance = injector.newInstance();
 
         // Set each dependency
+        int index = 0;
         for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
 
             // TODO: Handle dependency cycles
@@ -311,15 +518,26 @@ private <T> T createInstance(ComponentDescriptor<T> descriptor) throws Exception
             // Handle different field types
             Object fieldValue = getDependencyInstance(descriptor, instance, dependency);
 
-            // Set the field by introspection
+            // Set the field
             if (fieldValue != null) {
-                ReflectionUtils.setFieldValue(instance, dependency.getName(), fieldValue);
+                injector.inject(instance, index, fieldValue);
             }
+
+            ++index;
         }
 
         // Call Lifecycle Handlers
         for (LifecycleHandler lifecycleHandler : this.lifecycleHandlers) {
-            lifecycleHandler.handle(instance, descriptor, this);
+            if (record) {
+                long start = System.nanoTime();
+
+                lifecycleHandler.handle(instance, descriptor, this);
+
+                this.statistics.recordLifecycle(lifecycleHandler, descriptor.getRoleType(), descriptor.getRoleHint(),
+                    System.nanoTime() - start);
+            } else {
+                lifecycleHandler.handle(instance, descriptor, this);
+            }
         }
 
         return instance;
@@ -380,25 +598,30 @@ protected Object createLogger(Class<?> instanceClass)
         return LoggerFactory.getLogger(instanceClass);
     }
 
-    @SuppressWarnings("unchecked")
     protected <T> T getComponentInstance(RoleHint<T> roleHint) throws ComponentLookupException
+    {
+        return getComponentInstance(roleHint.getRoleType(), roleHint.getHint());
+    }
+
+    private <T> T getComponentInstance(Type role, String hint) throws ComponentLookupException
     {
         T instance;
 
-        ComponentEntry<T> componentEntry = (ComponentEntry<T>) this.componentEntries.get(roleHint);
+        ComponentEntry<T> componentEntry = getComponentEntry(role, hint);
 
         if (componentEntry != null) {
             try {
                 instance = getComponentInstance(componentEntry);
             } catch (Throwable e) {
                 throw new ComponentLookupException(String.format("Failed to lookup component [%s] identified by [%s]",
-                    componentEntry.descriptor.getImplementation().getName(), roleHint.toString()), e);
+                    componentEntry.descriptor.getImplementation().getName(), new RoleHint<>(role, hint)), e);
             }
         } else {
             if (getParent() != null) {
-                instance = getParent().getInstance(roleHint.getRoleType(), roleHint.getHint());
+                instance = getParent().getInstance(role, hint);
             } else {
-                throw new ComponentLookupException("Can't find descriptor for the component [" + roleHint + "]");
+                throw new ComponentLookupException(
+                    "Can't find descriptor for the component [" + new RoleHint<>(role, hint) + "]");
             }
         }
 
@@ -421,13 +644,13 @@ private <T> T getComponentInstance(ComponentEntry<T> componentEntry) throws Exce
                     if (componentEntry.instance != null) {
                         instance = componentEntry.instance;
                     } else {
-                        componentEntry.instance = createInstance(descriptor);
+                        componentEntry.instance = createInstance(componentEntry);
                         instance = componentEntry.instance;
                     }
                 }
             }
         } else {
-            instance = createInstance(descriptor);
+            instance = createInstance(componentEntry);
         }
 
         return instance;
@@ -458,12 +681,79 @@ public <T> void registerComponent(ComponentDescriptor<T> componentDescriptor, T
         addComponent(roleHint, new DefaultComponentDescriptor<T>(componentDescriptor), componentInstance);
     }
 
-    private <T> void addComponent(RoleHint<T> roleHint, ComponentDescriptor<T> descriptor, T instance)
+    /**
+     * Register several components at once. The registration events are sent only when all the components have been
+     * registered so that the listeners see all of them. With a {@link StackingComponentEventManager} they are sent in
+     * one batch.
+     * <p>
+     * When a sub class overrides {@link #registerComponent(ComponentDescriptor, Object)} or
+     * {@link #registerComponent(ComponentDescriptor)} the components are registered one by one through it instead.
+     *
+     * @param componentDescriptors the descriptors of the components to register
+     * @throws ComponentRepositoryException if a component failed to be registered
+     * @since 7.4M1
+     */
+    @Unstable
+    public void registerComponents(Collection<? extends ComponentDescriptor<?>> componentDescriptors)
+        throws ComponentRepositoryException
     {
-        ComponentEntry<T> componentEntry = new ComponentEntry<T>(descriptor, instance);
+        if (this.registerComponentOverridden) {
+            for (ComponentDescriptor<?> componentDescriptor : componentDescriptors) {
+                registerComponent(componentDescriptor);
+            }
 
-        // Register new component
-        this.componentEntries.put(roleHint, componentEntry);
+            return;
+        }
+
+        List<ComponentDescriptor<?>> registeredDescriptors = new ArrayList<>(componentDescriptors.size());
+
+        for (ComponentDescriptor<?> componentDescriptor : componentDescriptors) {
+            registeredDescriptors.add(addComponentEntry(componentDescriptor));
+        }
+
+        // Send events about components registration
+        if (this.eventManager instanceof StackingComponentEventManager) {
+            ((StackingComponentEventManager) this.eventManager).notifyComponentsRegistered(registeredDescriptors,
+                this);
+        } else if (this.eventManager != null) {
+            for (ComponentDescriptor<?> descriptor : registeredDescriptors) {
+                this.eventManager.notifyComponentRegistered(descriptor, this);
+            }
+        }
+    }
+
+    /**
+     * @return true if the current class overrides one of the {@code registerComponent} methods taking a descriptor, in
+     *         which case the bulk registration must not bypass it
+     */
+    private boolean isRegisterComponentOverridden()
+    {
+        try {
+            return getClass().getMethod("registerComponent", ComponentDescriptor.class).getDeclaringClass()
+                != EmbeddableComponentManager.class
+                || getClass().getMethod("registerComponent", ComponentDescriptor.class, Object.class)
+                    .getDeclaringClass() != EmbeddableComponentManager.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private <T> ComponentDescriptor<T> addComponentEntry(ComponentDescriptor<T> componentDescriptor)
+    {
+        RoleHint<T> roleHint = getRoleHint(componentDescriptor);
+
+        // Remove any existing component associated to the provided roleHint
+        removeComponentWithoutException(roleHint);
+
+        ComponentDescriptor<T> descriptor = new DefaultComponentDescriptor<T>(componentDescriptor);
+        addComponentEntry(roleHint, descriptor, null);
+
+        return descriptor;
+    }
+
+    private <T> void addComponent(RoleHint<T> roleHint, ComponentDescriptor<T> descriptor, T instance)
+    {
+        addComponentEntry(roleHint, descriptor, instance);
 
         // Send event about component registration
         if (this.eventManager != null) {
@@ -471,6 +761,23 @@ private <T> void addComponent(RoleHint<T> roleHint, ComponentDescriptor<T> descr
         }
     }
 
+    private <T> void addComponentEntry(RoleHint<T> roleHint, ComponentDescriptor<T> descriptor, T instance)
+    {
+        ComponentEntry<T> componentEntry = new ComponentEntry<T>(descriptor, instance);
+
+        // Register new component
+        RoleEntries roleEntries = this.componentEntries.get(roleHint.getRoleType());
+        if (roleEntries == null) {
+            roleEntries = new RoleEntries();
+            RoleEntries existingRoleEntries = this.componentEntries.putIfAbsent(roleHint.getRoleType(), roleEntries);
+            if (existingRoleEntries != null) {
+                roleEntries = existingRoleEntries;
+            }
+        }
+        roleEntries.entries.put(roleHint.getHint(), componentEntry);
+        roleEntries.version.incrementAndGet();
+    }
+
     // Remove
 
     @Override
@@ -494,19 +801,12 @@ public void unregisterComponent(ComponentDescriptor<?> componentDescriptor)
     public void release(Object component) throws ComponentLifecycleException
     {
         // First find the descriptor matching the passed component
-        RoleHint<?> key = null;
-        ComponentDescriptor<?> oldDescriptor = null;
-        for (Map.Entry<RoleHint<?>, ComponentEntry<?>> entry : this.componentEntries.entrySet()) {
-            if (entry.getValue().instance == component) {
-                key = entry.getKey();
-                oldDescriptor = entry.getValue().descriptor;
-                break;
-            }
-        }
+        Map.Entry<RoleHint<?>, ComponentEntry<?>> entry = findComponent(component);
+
+        if (entry != null) {
+            RoleHint<?> key = entry.getKey();
+            ComponentDescriptor<?> oldDescriptor = entry.getValue().descriptor;
 
-        // Note that we're not removing inside the for loop above since it would cause a Concurrent
-        // exception since we'd modify the map accessed by the iterator.
-        if (key != null) {
             // We do the following:
             // - fire an unregistration event, to tell the world that this reference is now dead
             // - fire a registration event, to tell the world that it could get a new reference for this component
@@ -520,6 +820,28 @@ public void release(Object component) throws ComponentLifecycleException
         }
     }
 
+    /**
+     * @param component the component instance
+     * @return the role and hint and the entry of the passed instance or {@code null} if it's not one of the instances
+     *         of this component manager
+     */
+    private Map.Entry<RoleHint<?>, ComponentEntry<?>> findComponent(Object component)
+    {
+        for (Map.Entry<Type, RoleEntries> roleEntries : this.componentEntries.entrySet()) {
+            // Only the roles implemented by the component can contain it
+            if (ReflectionUtils.getTypeClass(roleEntries.getKey()).isInstance(component)) {
+                for (Map.Entry<String, ComponentEntry<?>> entry : roleEntries.getValue().entries.entrySet()) {
+                    if (entry.getValue().instance == component) {
+                        return new AbstractMap.SimpleImmutableEntry<RoleHint<?>, ComponentEntry<?>>(
+                            new RoleHint<>(roleEntries.getKey(), entry.getKey()), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
     private void releaseInstance(ComponentEntry<?> componentEntry) throws ComponentLifecycleException
     {
         // Make sure the singleton component instance can't be "lost" (impossible to dispose because returned but not
@@ -546,7 +868,7 @@ private void removeComponent(RoleHint<?> roleHint) throws ComponentLifecycleExce
     {
         // Make sure to remove the entry from the map before destroying it to reduce at the minimum the risk of
         // lookupping something invalid
-        ComponentEntry<?> componentEntry = this.componentEntries.remove(roleHint);
+        ComponentEntry<?> componentEntry = removeComponentEntry(roleHint);
 
         if (componentEntry != null) {
             ComponentDescriptor<?> oldDescriptor = componentEntry.descriptor;
@@ -565,6 +887,42 @@ private void removeComponent(RoleHint<?> roleHint) throws ComponentLifecycleExce
         }
     }
 
+    /**
+     * @param roleHint the role and hint of the component
+     * @return the removed entry or {@code null} if there was none
+     */
+    private ComponentEntry<?> removeComponentEntry(RoleHint<?> roleHint)
+    {
+        RoleEntries roleEntries = this.componentEntries.get(roleHint.getRoleType());
+
+        if (roleEntries == null) {
+            return null;
+        }
+
+        ComponentEntry<?> componentEntry = roleEntries.entries.remove(roleHint.getHint());
+        if (componentEntry != null) {
+            roleEntries.version.incrementAndGet();
+        }
+
+        return componentEntry;
+    }
+
+    /**
+     * @return a snapshot of all the components registered in this component manager
+     */
+    private Map<RoleHint<?>, ComponentEntry<?>> getComponentEntries()
+    {
+        Map<RoleHint<?>, ComponentEntry<?>> entries = new HashMap<>();
+
+        for (Map.Entry<Type, RoleEntries> roleEntries : this.componentEntries.entrySet()) {
+            for (Map.Entry<String, ComponentEntry<?>> entry : roleEntries.getValue().entries.entrySet()) {
+                entries.put(new RoleHint<>(roleEntries.getKey(), entry.getKey()), entry.getValue());
+            }
+        }
+
+        return entries;
+    }
+
     /**
      * Note: This method shouldn't exist but register/unregister methods should throw a
      * {@link ComponentLifecycleException} but that would break backward compatibility to add it.
@@ -578,13 +936,13 @@ private <T> void removeComponentWithoutException(RoleHint<T> roleHint)
         }
     }
 
-    private int sortEntry(List<RoleHint<?>> keys, int index)
+    private int sortEntry(Map<RoleHint<?>, ComponentEntry<?>> entries, List<RoleHint<?>> keys, int index)
     {
         int oldIndex = index;
         int newIndex = index;
 
         RoleHint<?> key = keys.get(index);
-        ComponentEntry<?> componentEntry = this.componentEntries.get(key);
+        ComponentEntry<?> componentEntry = entries.get(key);
 
         for (ComponentDependency<?> dependency : componentEntry.descriptor.getComponentDependencies()) {
             RoleHint<?> dependencyRole = new RoleHint<Object>(dependency.getRoleType(), dependency.getRoleHint());
@@ -592,7 +950,7 @@ private int sortEntry(List<RoleHint<?>> keys, int index)
             int dependencyIndex = keys.indexOf(dependencyRole);
 
             if (dependencyIndex != -1 && dependencyIndex < newIndex) {
-                dependencyIndex = sortEntry(keys, dependencyIndex);
+                dependencyIndex = sortEntry(entries, keys, dependencyIndex);
 
                 newIndex = dependencyIndex;
             }
@@ -609,18 +967,19 @@ private int sortEntry(List<RoleHint<?>> keys, int index)
     @Override
     public void dispose()
     {
-        List<RoleHint<?>> keys = new ArrayList<>(this.componentEntries.keySet());
+        final Map<RoleHint<?>, ComponentEntry<?>> entries = getComponentEntries();
+        List<RoleHint<?>> keys = new ArrayList<>(entries.keySet());
 
         // Exclude this component
         RoleHint<ComponentManager> cmRoleHint = new RoleHint<>(ComponentManager.class);
-        ComponentEntry<?> cmEntry = this.componentEntries.get(cmRoleHint);
+        ComponentEntry<?> cmEntry = entries.get(cmRoleHint);
         if (cmEntry != null && cmEntry.instance == this) {
             keys.remove(cmRoleHint);
         }
 
         // Order component based on dependencies relations
         for (int i = 0; i < keys.size(); ++i) {
-            i = sortEntry(keys, i);
+            i = sortEntry(entries, keys, i);
         }
 
         // Sort component by DisposePriority
@@ -634,7 +993,7 @@ public int compare(RoleHint<?> rh1, RoleHint<?> rh2)
 
             private int getPriority(RoleHint<?> rh)
             {
-                Object instance = componentEntries.get(rh).instance;
+                Object instance = entries.get(rh).instance;
                 if (instance == null) {
                     // The component has not been instantiated yet. We don't need to dispose it in this case... :)
                     // Return the default priority since it doesn't matter.
@@ -648,7 +1007,7 @@ private int getPriority(RoleHint<?> rh)
 
         // Dispose old components
         for (RoleHint<?> key : keys) {
-            ComponentEntry<?> componentEntry = this.componentEntries.get(key);
+            ComponentEntry<?> componentEntry = entries.get(key);
 
             synchronized (componentEntry) {
                 Object instance = componentEntry.instance;
@@ -672,7 +1031,7 @@ private int getPriority(RoleHint<?> rh)
         // components that have to use a component already disposed (usually because it dynamically requires it and
         // there is no way for the ComponentManager to know that dependency).
         for (RoleHint<?> key : keys) {
-            this.componentEntries.remove(key);
+            removeComponentEntry(key);
         }
     }
 
@@ -684,9 +1043,11 @@ private int getPriority(RoleHint<?> rh)
     public <T> List<ComponentDescriptor<T>> getComponentDescriptorList(Class<T> role)
     {
         List<ComponentDescriptor<T>> results = new ArrayList<>();
-        for (Map.Entry<RoleHint<?>, ComponentEntry<?>> entry : this.componentEntries.entrySet()) {
-            if (entry.getKey().getRoleClass() == role) {
-                results.add((ComponentDescriptor<T>) entry.getValue().descriptor);
+        for (Map.Entry<Type, RoleEntries> roleEntries : this.componentEntries.entrySet()) {
+            if (ReflectionUtils.getTypeClass(roleEntries.getKey()) == role) {
+                for (ComponentEntry<?> entry : roleEntries.getValue().entries.values()) {
+                    results.add((ComponentDescriptor<T>) entry.descriptor);
+                }
             }
         }
         return results;
@@ -19,13 +19,18 @@
  */
 package org.xwiki.component.internal;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.event.ComponentDescriptorAddedEvent;
 import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
 import org.xwiki.component.manager.ComponentEventManager;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.EventNotification;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
 
@@ -45,14 +50,14 @@ public class StackingComponentEventManager implements ComponentEventManager
     private ObservationManager observationManager;
 
     /**
-     * The event stacked before been given the order to send them.
+     * The event stacked before been given the order to send them. Events can be stacked concurrently without locking.
      */
-    private Stack<ComponentEventEntry> events = new Stack<ComponentEventEntry>();
+    private Deque<ComponentEventEntry> events = new ConcurrentLinkedDeque<ComponentEventEntry>();
 
     /**
      * Indicate if event should be retained to directly sent.
      */
-    private boolean shouldStack = true;
+    private volatile boolean shouldStack = true;
 
     @Override
     public void notifyComponentRegistered(ComponentDescriptor<?> descriptor)
@@ -82,15 +87,44 @@ public void notifyComponentUnregistered(ComponentDescriptor<?> descriptor, Compo
             descriptor, componentManager);
     }
 
+    /**
+     * Send or stack the registration events of several components. When they are sent they are all passed to the
+     * observation manager in one batch.
+     *
+     * @param descriptors the descriptors of the registered components
+     * @param componentManager the component manager where the components have been registered
+     * @since 7.4M1
+     */
+    public void notifyComponentsRegistered(Collection<? extends ComponentDescriptor<?>> descriptors,
+        ComponentManager componentManager)
+    {
+        if (this.shouldStack) {
+            for (ComponentDescriptor<?> descriptor : descriptors) {
+                notifyComponentRegistered(descriptor, componentManager);
+            }
+        } else {
+            List<EventNotification> notifications = new ArrayList<EventNotification>(descriptors.size());
+            for (ComponentDescriptor<?> descriptor : descriptors) {
+                notifications.add(new EventNotification(
+                    new ComponentDescriptorAddedEvent(descriptor.getRoleType(), descriptor.getRoleHint()),
+                    componentManager, descriptor));
+            }
+
+            sendEvents(notifications);
+        }
+    }
+
     /**
      * Force to send all stored events.
      */
     public synchronized void flushEvents()
     {
-        while (!this.events.isEmpty()) {
-            ComponentEventEntry entry = this.events.pop();
-            sendEvent(entry.event, entry.descriptor, entry.componentManager);
+        List<EventNotification> notifications = new ArrayList<EventNotification>(this.events.size());
+        for (ComponentEventEntry entry = this.events.pollFirst(); entry != null; entry = this.events.pollFirst()) {
+            notifications.add(new EventNotification(entry.event, entry.componentManager, entry.descriptor));
         }
+
+        sendEvents(notifications);
     }
 
     /**
@@ -121,9 +155,7 @@ private void notifyComponentEvent(Event event, ComponentDescriptor<?> descriptor
         ComponentManager componentManager)
     {
         if (this.shouldStack) {
-            synchronized (this) {
-                this.events.push(new ComponentEventEntry(event, descriptor, componentManager));
-            }
+            this.events.push(new ComponentEventEntry(event, descriptor, componentManager));
         } else {
             sendEvent(event, descriptor, componentManager);
         }
@@ -143,6 +175,18 @@ private void sendEvent(Event event, ComponentDescriptor<?> descriptor, Component
         }
     }
 
+    /**
+     * Send the events in one batch.
+     *
+     * @param notifications the events to send along with their source and data
+     */
+    private void sendEvents(List<EventNotification> notifications)
+    {
+        if (this.observationManager != null && !notifications.isEmpty()) {
+            this.observationManager.notify(notifications);
+        }
+    }
+
     /**
      * Contains a stacked event.
      *
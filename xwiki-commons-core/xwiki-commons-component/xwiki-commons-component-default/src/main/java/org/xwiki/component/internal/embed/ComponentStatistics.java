@@ -0,0 +1,334 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.component.embed.ComponentManagerStatistics;
+
+/**
+ * Gather statistics about the lookups and instantiations of the components of an
+ * {@link org.xwiki.component.embed.EmbeddableComponentManager}. Disabled by default, in which case the component
+ * manager does not call it at all.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ComponentStatistics implements ComponentManagerStatistics
+{
+    /**
+     * The statistics of a component.
+     *
+     * @version $Id$
+     */
+    public static class ComponentEntry implements ComponentManagerStatistics.ComponentEntry
+    {
+        private final Type roleType;
+
+        private final String roleHint;
+
+        private final StripedCounter lookups = new StripedCounter();
+
+        private final AtomicLong instantiations = new AtomicLong();
+
+        private final AtomicLong instantiationTime = new AtomicLong();
+
+        private final AtomicLong lifecycleTime = new AtomicLong();
+
+        ComponentEntry(Type roleType, String roleHint)
+        {
+            this.roleType = roleType;
+            this.roleHint = roleHint;
+        }
+
+        @Override
+        public Type getRoleType()
+        {
+            return this.roleType;
+        }
+
+        @Override
+        public String getRoleHint()
+        {
+            return this.roleHint;
+        }
+
+        @Override
+        public long getLookups()
+        {
+            return this.lookups.get();
+        }
+
+        @Override
+        public long getInstantiations()
+        {
+            return this.instantiations.get();
+        }
+
+        @Override
+        public long getInstantiationTime()
+        {
+            return this.instantiationTime.get();
+        }
+
+        @Override
+        public long getLifecycleTime()
+        {
+            return this.lifecycleTime.get();
+        }
+
+        private void reset()
+        {
+            this.lookups.reset();
+            this.instantiations.set(0);
+            this.instantiationTime.set(0);
+            this.lifecycleTime.set(0);
+        }
+    }
+
+    /**
+     * The statistics of a lifecycle handler.
+     *
+     * @version $Id$
+     */
+    public static class HandlerEntry implements ComponentManagerStatistics.HandlerEntry
+    {
+        private final AtomicLong calls = new AtomicLong();
+
+        private final AtomicLong time = new AtomicLong();
+
+        @Override
+        public long getCalls()
+        {
+            return this.calls.get();
+        }
+
+        @Override
+        public long getTime()
+        {
+            return this.time.get();
+        }
+
+        private void reset()
+        {
+            this.calls.set(0);
+            this.time.set(0);
+        }
+    }
+
+    private volatile boolean enabled;
+
+    /**
+     * The statistics of the components indexed by role and hint. Two levels are used instead of a
+     * {@link org.xwiki.component.internal.RoleHint} key so that recording a lookup does not allocate anything once the
+     * entry of the component exists.
+     */
+    private final ConcurrentMap<Type, ConcurrentMap<String, ComponentEntry>> components = new ConcurrentHashMap<>();
+
+    /**
+     * The statistics of the lookups of all the components of a role.
+     */
+    private final ConcurrentMap<Type, ComponentEntry> roles = new ConcurrentHashMap<>();
+
+    /**
+     * The number of entries in {@link #components} and {@link #roles}.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Gather the components recorded once {@link #MAX_COMPONENTS} is reached.
+     */
+    private final ComponentEntry overflow = new ComponentEntry(null, null);
+
+    private final ConcurrentMap<String, HandlerEntry> handlers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    private boolean isFull()
+    {
+        return this.size.get() >= MAX_COMPONENTS;
+    }
+
+    private ComponentEntry getComponentEntry(Type role, String hint)
+    {
+        ConcurrentMap<String, ComponentEntry> roleEntries = this.components.get(role);
+        ComponentEntry entry = roleEntries != null ? roleEntries.get(hint) : null;
+
+        if (entry == null) {
+            if (isFull()) {
+                return this.overflow;
+            }
+
+            if (roleEntries == null) {
+                roleEntries = new ConcurrentHashMap<>();
+                ConcurrentMap<String, ComponentEntry> previous = this.components.putIfAbsent(role, roleEntries);
+                if (previous != null) {
+                    roleEntries = previous;
+                }
+            }
+
+            entry = new ComponentEntry(role, hint);
+            ComponentEntry previous = roleEntries.putIfAbsent(hint, entry);
+            if (previous != null) {
+                entry = previous;
+            } else {
+                this.size.incrementAndGet();
+            }
+        }
+
+        return entry;
+    }
+
+    private ComponentEntry getRoleEntry(Type role)
+    {
+        ComponentEntry entry = this.roles.get(role);
+
+        if (entry == null) {
+            if (isFull()) {
+                return this.overflow;
+            }
+
+            entry = new ComponentEntry(role, null);
+            ComponentEntry previous = this.roles.putIfAbsent(role, entry);
+            if (previous != null) {
+                entry = previous;
+            } else {
+                this.size.incrementAndGet();
+            }
+        }
+
+        return entry;
+    }
+
+    private HandlerEntry getHandlerEntry(String handler)
+    {
+        HandlerEntry entry = this.handlers.get(handler);
+        if (entry == null) {
+            entry = new HandlerEntry();
+            HandlerEntry previous = this.handlers.putIfAbsent(handler, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * @param role the role of the component
+     * @param hint the hint of the component
+     */
+    public void recordLookup(Type role, String hint)
+    {
+        getComponentEntry(role, hint).lookups.increment();
+    }
+
+    /**
+     * @param role the role of the components
+     */
+    public void recordRoleLookup(Type role)
+    {
+        getRoleEntry(role).lookups.increment();
+    }
+
+    /**
+     * @param role the role of the component
+     * @param hint the hint of the component
+     * @param nanos the time spent to create the instance, in nanoseconds
+     */
+    public void recordInstantiation(Type role, String hint, long nanos)
+    {
+        ComponentEntry entry = getComponentEntry(role, hint);
+        entry.instantiations.incrementAndGet();
+        entry.instantiationTime.addAndGet(nanos);
+    }
+
+    /**
+     * @param handler the lifecycle handler
+     * @param role the role of the handled component
+     * @param hint the hint of the handled component
+     * @param nanos the time spent in the handler, in nanoseconds
+     */
+    public void recordLifecycle(Object handler, Type role, String hint, long nanos)
+    {
+        HandlerEntry handlerEntry = getHandlerEntry(handler.getClass().getName());
+        handlerEntry.calls.incrementAndGet();
+        handlerEntry.time.addAndGet(nanos);
+
+        getComponentEntry(role, hint).lifecycleTime.addAndGet(nanos);
+    }
+
+    @Override
+    public Collection<ComponentEntry> getComponents()
+    {
+        List<ComponentEntry> entries = new ArrayList<>(this.size.get() + 1);
+        for (Map<String, ComponentEntry> roleEntries : this.components.values()) {
+            entries.addAll(roleEntries.values());
+        }
+        entries.addAll(this.roles.values());
+
+        if (isFull()) {
+            entries.add(this.overflow);
+        }
+
+        return entries;
+    }
+
+    @Override
+    public Map<String, HandlerEntry> getHandlers()
+    {
+        return this.handlers;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (Map<String, ComponentEntry> roleEntries : this.components.values()) {
+            for (ComponentEntry entry : roleEntries.values()) {
+                entry.reset();
+            }
+        }
+        for (ComponentEntry entry : this.roles.values()) {
+            entry.reset();
+        }
+        this.overflow.reset();
+        for (HandlerEntry entry : this.handlers.values()) {
+            entry.reset();
+        }
+    }
+}
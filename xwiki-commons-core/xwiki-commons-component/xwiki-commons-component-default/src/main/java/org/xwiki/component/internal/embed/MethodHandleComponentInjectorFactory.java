@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+
+import org.xwiki.component.descriptor.ComponentDependency;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.embed.ComponentInjector;
+import org.xwiki.component.embed.ComponentInjectorFactory;
+
+/**
+ * Create injectors based on {@link MethodHandle}s: the constructor and the fields to inject are resolved once when the
+ * injector is created instead of for each new instance.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class MethodHandleComponentInjectorFactory implements ComponentInjectorFactory
+{
+    /**
+     * The type of the constructor handles.
+     */
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    /**
+     * The type of the field setter handles.
+     */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Injector based on method handles.
+     *
+     * @param <T> the type of the component implementation
+     * @version $Id$
+     */
+    private static final class MethodHandleComponentInjector<T> implements ComponentInjector<T>
+    {
+        /**
+         * The no argument constructor.
+         */
+        private final MethodHandle constructor;
+
+        /**
+         * The setters of the fields to inject, indexed like the descriptor dependencies ({@code null} when the field
+         * does not exist).
+         */
+        private final MethodHandle[] setters;
+
+        /**
+         * @param constructor the no argument constructor
+         * @param setters the setters of the fields to inject
+         */
+        MethodHandleComponentInjector(MethodHandle constructor, MethodHandle[] setters)
+        {
+            this.constructor = constructor;
+            this.setters = setters;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance() throws Exception
+        {
+            try {
+                return (T) this.constructor.invokeExact();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new Exception(e);
+            }
+        }
+
+        @Override
+        public void inject(T instance, int index, Object value) throws Exception
+        {
+            MethodHandle setter = this.setters[index];
+
+            if (setter != null) {
+                try {
+                    setter.invokeExact((Object) instance, value);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new Exception(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public <T> ComponentInjector<T> createInjector(ComponentDescriptor<T> descriptor) throws Exception
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Class<? extends T> implementation = descriptor.getImplementation();
+
+        Constructor<? extends T> constructor = implementation.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        MethodHandle constructorHandle = lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+
+        Collection<ComponentDependency<?>> dependencies = descriptor.getComponentDependencies();
+        MethodHandle[] setters = new MethodHandle[dependencies.size()];
+        int index = 0;
+        for (ComponentDependency<?> dependency : dependencies) {
+            Field field = getField(implementation, dependency.getName());
+
+            if (field != null) {
+                field.setAccessible(true);
+                setters[index] = getSetter(lookup, field);
+            }
+
+            ++index;
+        }
+
+        return new MethodHandleComponentInjector<>(constructorHandle, setters);
+    }
+
+    /**
+     * @param lookup the lookup to use to create the handle
+     * @param field the field to set
+     * @return the setter of the field with type (Object, Object)void
+     * @throws Exception when failing to create the handle
+     */
+    private MethodHandle getSetter(MethodHandles.Lookup lookup, Field field) throws Exception
+    {
+        if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+            return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        }
+
+        // Direct setters are not allowed for final fields (and don't take any instance for static fields) so we fall
+        // back on the reflection API
+        return lookup.findVirtual(Field.class, "set", SETTER_TYPE).bindTo(field);
+    }
+
+    /**
+     * Find the field to inject the same way {@link org.xwiki.component.util.ReflectionUtils#setFieldValue(Object,
+     * String, Object)} does.
+     *
+     * @param implementation the class of the component
+     * @param fieldName the name of the field
+     * @return the field or {@code null} if none could be found
+     */
+    private Field getField(Class<?> implementation, String fieldName)
+    {
+        for (Class<?> targetClass = implementation; targetClass != null; targetClass = targetClass.getSuperclass()) {
+            for (Field field : targetClass.getDeclaredFields()) {
+                if (field.getName().equalsIgnoreCase(fieldName)) {
+                    return field;
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over several cells so that threads incrementing it concurrently don't all compete for the same
+ * memory location. The value is only computed when read.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class StripedCounter
+{
+    /**
+     * The maximum number of cells.
+     */
+    private static final int MAX_CELLS = 8;
+
+    /**
+     * The number of longs separating two cells, to put each cell in its own cache line.
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    /**
+     * Default constructor.
+     */
+    public StripedCounter()
+    {
+        int size = 1;
+        while (size < MAX_CELLS && size < Runtime.getRuntime().availableProcessors()) {
+            size <<= 1;
+        }
+
+        this.cells = new AtomicLongArray(size * PADDING);
+        this.mask = size - 1;
+    }
+
+    private int getCell()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return ((hash >>> 16) & this.mask) * PADDING;
+    }
+
+    /**
+     * @param value the value to add to the counter
+     */
+    public void add(long value)
+    {
+        this.cells.addAndGet(getCell(), value);
+    }
+
+    /**
+     * Add one to the counter.
+     */
+    public void increment()
+    {
+        this.cells.incrementAndGet(getCell());
+    }
+
+    /**
+     * @return the current value of the counter
+     */
+    public long get()
+    {
+        long sum = 0;
+        for (int i = 0; i < this.cells.length(); i += PADDING) {
+            sum += this.cells.get(i);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Set the counter to 0.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < this.cells.length(); i += PADDING) {
+            this.cells.set(i, 0);
+        }
+    }
+}
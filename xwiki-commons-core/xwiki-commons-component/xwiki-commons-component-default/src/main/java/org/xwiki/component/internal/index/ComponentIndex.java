@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+/**
+ * Constants describing the binary format of the component index files stored by {@link ComponentIndexCache}.
+ * <p>
+ * An index file starts with the identification of the JAR it was created from and then contains, for each component
+ * declared in the JAR, its priority and, when they could be serialized, its component descriptors (roles, hints,
+ * instantiation strategy and dependencies). The declarations which could not be indexed are still listed and fall back
+ * on annotation parsing.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+final class ComponentIndex
+{
+    /**
+     * Identify the index format.
+     */
+    static final int MAGIC = 0x58434958;
+
+    /**
+     * The version of the index format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Indicate a {@link Class} in a serialized type.
+     */
+    static final byte TYPE_CLASS = 'C';
+
+    /**
+     * Indicate a {@link java.lang.reflect.ParameterizedType} in a serialized type.
+     */
+    static final byte TYPE_PARAMETERIZED = 'P';
+
+    /**
+     * Indicate a {@code null} type (for example the owner of a top level parameterized type).
+     */
+    static final byte TYPE_NULL = 'N';
+
+    /**
+     * Utility class.
+     */
+    private ComponentIndex()
+    {
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+
+/**
+ * Persist the component descriptors created from the component list of a JAR so that the next time the same JAR is
+ * loaded its components are registered without loading their classes for annotations parsing.
+ * <p>
+ * Only the component lists located in JAR files are cached (the classes of a directory can change without the
+ * component list changing) and an index is only used as long as the size and the last modification date of its JAR
+ * did not change. Like an index generated when building the JAR, it does not take into account changes to the other
+ * JARs (super classes or role interfaces of the components).
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ComponentIndexCache
+{
+    /**
+     * The name of the system property indicating the folder where to store the component indexes, the indexes are
+     * not cached when not set.
+     */
+    public static final String PROPERTY_FOLDER = "xwiki.component.indexCache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentIndexCache.class);
+
+    private static final String JAR_PROTOCOL = "jar";
+
+    private static final String JAR_SEPARATOR = "!/";
+
+    private static final String FILE_EXTENSION = ".index";
+
+    private final File folder;
+
+    private final ComponentIndexReader reader = new ComponentIndexReader();
+
+    private final ComponentIndexWriter writer = new ComponentIndexWriter();
+
+    /**
+     * @param folder the folder where to store the component indexes
+     */
+    public ComponentIndexCache(File folder)
+    {
+        this.folder = folder;
+    }
+
+    /**
+     * @return the cache configured with the {@value #PROPERTY_FOLDER} system property or {@code null} if none is
+     *         configured
+     */
+    public static ComponentIndexCache fromSystemProperty()
+    {
+        String folder = System.getProperty(PROPERTY_FOLDER);
+
+        return folder != null ? new ComponentIndexCache(new File(folder)) : null;
+    }
+
+    /**
+     * @return the folder where the component indexes are stored
+     */
+    public File getFolder()
+    {
+        return this.folder;
+    }
+
+    /**
+     * @param componentList the location of a component list
+     * @return true if the descriptors of the components of the passed list can be cached
+     */
+    public boolean isCacheable(URL componentList)
+    {
+        return getJarFile(componentList) != null;
+    }
+
+    /**
+     * @param componentList the location of the component list
+     * @param classLoader the classloader used to resolve the classes referenced in the index
+     * @return the component declarations of the component list or {@code null} if no up to date index is available
+     */
+    public List<ComponentDeclaration> read(URL componentList, ClassLoader classLoader)
+    {
+        File jar = getJarFile(componentList);
+        File indexFile = getIndexFile(componentList);
+
+        if (jar == null || indexFile == null || !indexFile.exists()) {
+            return null;
+        }
+
+        LOGGER.debug("Loading indexed component definitions of [{}] from [{}]", componentList, indexFile);
+
+        try {
+            InputStream stream = new FileInputStream(indexFile);
+            try {
+                return this.reader.read(stream, componentList.toExternalForm(), jar, classLoader);
+            } finally {
+                stream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read component index [{}], falling back on annotations parsing: {}", indexFile,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+    }
+
+    /**
+     * @param componentList the location of the component list
+     * @param declarations the component declarations of the component list
+     * @param descriptors the descriptors of each component declaration
+     */
+    public void write(URL componentList, List<ComponentDeclaration> declarations,
+        List<? extends ComponentDescriptor>[] descriptors)
+    {
+        File jar = getJarFile(componentList);
+        File indexFile = getIndexFile(componentList);
+
+        if (jar == null || indexFile == null) {
+            return;
+        }
+
+        try {
+            this.folder.mkdirs();
+
+            File tempFile = File.createTempFile(indexFile.getName(), ".tmp", this.folder);
+            OutputStream stream = new FileOutputStream(tempFile);
+            try {
+                this.writer.write(declarations, descriptors, componentList.toExternalForm(), jar, stream);
+            } finally {
+                stream.close();
+            }
+
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to write component index [{}]: {}", indexFile, ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    /**
+     * @param componentList the location of the component list
+     * @return the JAR file containing the component list or {@code null} if it's not located in a JAR file
+     */
+    private File getJarFile(URL componentList)
+    {
+        if (!JAR_PROTOCOL.equals(componentList.getProtocol())) {
+            return null;
+        }
+
+        String path = componentList.getPath();
+        int index = path.indexOf(JAR_SEPARATOR);
+        if (index == -1) {
+            return null;
+        }
+
+        try {
+            URL jarURL = new URL(path.substring(0, index));
+
+            return "file".equals(jarURL.getProtocol()) ? new File(jarURL.toURI()) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param componentList the location of the component list
+     * @return the file where to store the index of the component list
+     */
+    private File getIndexFile(URL componentList)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(componentList.toExternalForm().getBytes(StandardCharsets.UTF_8));
+
+            return new File(this.folder, String.format("%040x", new BigInteger(1, hash)) + FILE_EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.descriptor.DefaultComponentDependency;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.util.DefaultParameterizedType;
+
+/**
+ * Read a binary component index generated by {@link ComponentIndexWriter}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class ComponentIndexReader
+{
+    /**
+     * A {@link DefaultParameterizedType} displayed like the JVM displays the types it creates, so that the messages
+     * mentioning a role read from the index are the same as the ones mentioning a role found by annotation parsing.
+     *
+     * @version $Id$
+     */
+    private static final class IndexedParameterizedType extends DefaultParameterizedType
+    {
+        IndexedParameterizedType(Type ownerType, Class<?> rawType, Type... actualTypeArguments)
+        {
+            super(ownerType, rawType, actualTypeArguments);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder();
+
+            if (getOwnerType() != null) {
+                builder.append(getOwnerType() instanceof Class ? ((Class<?>) getOwnerType()).getName()
+                    : getOwnerType().toString());
+                builder.append('$');
+                builder.append(((Class<?>) getRawType()).getSimpleName());
+            } else {
+                builder.append(((Class<?>) getRawType()).getName());
+            }
+
+            Type[] arguments = getActualTypeArguments();
+            if (arguments.length > 0) {
+                builder.append('<');
+                for (int i = 0; i < arguments.length; ++i) {
+                    if (i > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(
+                        arguments[i] instanceof Class ? ((Class<?>) arguments[i]).getName() : arguments[i].toString());
+                }
+                builder.append('>');
+            }
+
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Read the component declarations stored in the passed index.
+     * <p>
+     * Indexed declarations are returned as {@link IndexedComponentDeclaration} and don't require any annotation
+     * parsing, the others are returned as standard {@link ComponentDeclaration}.
+     *
+     * @param stream the index content
+     * @param componentList the location of the component list the index was created from
+     * @param jar the JAR containing the component list
+     * @param classLoader the classloader used to resolve the classes referenced in the index
+     * @return the component declarations or {@code null} if the index was created from another version of the JAR
+     * @throws IOException when failing to read the index
+     * @throws ClassNotFoundException when a class referenced in the index cannot be found
+     */
+    List<ComponentDeclaration> read(InputStream stream, String componentList, File jar, ClassLoader classLoader)
+        throws IOException, ClassNotFoundException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+
+        if (input.readInt() != ComponentIndex.MAGIC) {
+            throw new IOException("Invalid component index");
+        }
+        int version = input.readInt();
+        if (version != ComponentIndex.VERSION) {
+            return null;
+        }
+
+        if (!input.readUTF().equals(componentList) || input.readLong() != jar.length()
+            || input.readLong() != jar.lastModified()) {
+            return null;
+        }
+
+        int size = input.readInt();
+        List<ComponentDeclaration> declarations = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            String implementationClassName = input.readUTF();
+            int priority = input.readInt();
+
+            if (input.readBoolean()) {
+                Class<?> implementation = Class.forName(implementationClassName, false, classLoader);
+
+                int descriptorsSize = input.readInt();
+                List<ComponentDescriptor<?>> descriptors = new ArrayList<>(descriptorsSize);
+                for (int j = 0; j < descriptorsSize; ++j) {
+                    descriptors.add(readDescriptor(implementation, input, classLoader));
+                }
+
+                declarations.add(new IndexedComponentDeclaration(implementationClassName, priority, descriptors));
+            } else {
+                declarations.add(new ComponentDeclaration(implementationClassName, priority));
+            }
+        }
+
+        return declarations;
+    }
+
+    private ComponentDescriptor<?> readDescriptor(Class implementation, DataInputStream input,
+        ClassLoader classLoader) throws IOException, ClassNotFoundException
+    {
+        DefaultComponentDescriptor descriptor = new DefaultComponentDescriptor();
+        descriptor.setImplementation(implementation);
+        descriptor.setRoleType(readType(input, classLoader));
+        descriptor.setRoleHint(input.readUTF());
+        descriptor.setInstantiationStrategy(ComponentInstantiationStrategy.valueOf(input.readUTF()));
+
+        int dependenciesSize = input.readInt();
+        for (int i = 0; i < dependenciesSize; ++i) {
+            DefaultComponentDependency dependency = new DefaultComponentDependency();
+            dependency.setRoleType(readType(input, classLoader));
+            dependency.setRoleHint(readString(input));
+            dependency.setName(readString(input));
+
+            int hintsSize = input.readInt();
+            if (hintsSize >= 0) {
+                String[] hints = new String[hintsSize];
+                for (int j = 0; j < hintsSize; ++j) {
+                    hints[j] = input.readUTF();
+                }
+                dependency.setHints(hints);
+            }
+
+            descriptor.addComponentDependency(dependency);
+        }
+
+        return descriptor;
+    }
+
+    private String readString(DataInputStream input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private Type readType(DataInputStream input, ClassLoader classLoader) throws IOException, ClassNotFoundException
+    {
+        byte kind = input.readByte();
+
+        switch (kind) {
+            case ComponentIndex.TYPE_NULL:
+                return null;
+
+            case ComponentIndex.TYPE_CLASS:
+                return Class.forName(input.readUTF(), false, classLoader);
+
+            case ComponentIndex.TYPE_PARAMETERIZED:
+                Type ownerType = readType(input, classLoader);
+                Class<?> rawType = (Class<?>) readType(input, classLoader);
+                Type[] arguments = new Type[input.readInt()];
+                for (int i = 0; i < arguments.length; ++i) {
+                    arguments[i] = readType(input, classLoader);
+                }
+                return new IndexedParameterizedType(ownerType, rawType, arguments);
+
+            default:
+                throw new IOException(String.format("Unknown type kind [%s] in component index", kind));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.descriptor.ComponentDependency;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.DefaultComponentDependency;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+
+/**
+ * Serialize the component descriptors created from a component list in the binary format read by
+ * {@link ComponentIndexReader}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class ComponentIndexWriter
+{
+    /**
+     * Serialize the descriptors of the passed component declarations.
+     *
+     * @param declarations the component declarations to index
+     * @param descriptors the descriptors of each component declaration
+     * @param componentList the location of the component list containing the declarations
+     * @param jar the JAR containing the component list
+     * @param stream the stream where to write the index
+     * @throws IOException when failing to write the index
+     */
+    void write(List<ComponentDeclaration> declarations, List<? extends ComponentDescriptor>[] descriptors,
+        String componentList, File jar, OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+
+        output.writeInt(ComponentIndex.MAGIC);
+        output.writeInt(ComponentIndex.VERSION);
+        output.writeUTF(componentList);
+        output.writeLong(jar.length());
+        output.writeLong(jar.lastModified());
+
+        output.writeInt(declarations.size());
+
+        for (int i = 0; i < declarations.size(); ++i) {
+            ComponentDeclaration declaration = declarations.get(i);
+
+            output.writeUTF(declaration.getImplementationClassName());
+            output.writeInt(declaration.getPriority());
+
+            if (isIndexable(descriptors[i])) {
+                output.writeBoolean(true);
+                output.writeInt(descriptors[i].size());
+                for (ComponentDescriptor<?> descriptor : descriptors[i]) {
+                    writeDescriptor(descriptor, output);
+                }
+            } else {
+                // Will fallback on annotations parsing
+                output.writeBoolean(false);
+            }
+        }
+
+        output.flush();
+    }
+
+    private void writeDescriptor(ComponentDescriptor<?> descriptor, DataOutputStream output) throws IOException
+    {
+        writeType(descriptor.getRoleType(), output);
+        output.writeUTF(descriptor.getRoleHint());
+        output.writeUTF(descriptor.getInstantiationStrategy().name());
+
+        output.writeInt(descriptor.getComponentDependencies().size());
+        for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
+            writeType(dependency.getRoleType(), output);
+            writeString(dependency.getRoleHint(), output);
+            writeString(dependency.getName(), output);
+
+            String[] hints = dependency.getHints();
+            if (hints != null) {
+                output.writeInt(hints.length);
+                for (String hint : hints) {
+                    output.writeUTF(hint);
+                }
+            } else {
+                output.writeInt(-1);
+            }
+        }
+    }
+
+    private void writeString(String value, DataOutputStream output) throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private void writeType(Type type, DataOutputStream output) throws IOException
+    {
+        if (type == null) {
+            output.writeByte(ComponentIndex.TYPE_NULL);
+        } else if (type instanceof Class) {
+            output.writeByte(ComponentIndex.TYPE_CLASS);
+            output.writeUTF(((Class<?>) type).getName());
+        } else {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+
+            output.writeByte(ComponentIndex.TYPE_PARAMETERIZED);
+            writeType(parameterizedType.getOwnerType(), output);
+            writeType(parameterizedType.getRawType(), output);
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            output.writeInt(arguments.length);
+            for (Type argument : arguments) {
+                writeType(argument, output);
+            }
+        }
+    }
+
+    /**
+     * Only standard descriptors made of classes and parameterized types can be indexed. Anything else (custom
+     * descriptors or dependencies, wildcards, type variables, etc.) is left to annotation parsing at runtime.
+     */
+    private boolean isIndexable(List<? extends ComponentDescriptor> descriptors)
+    {
+        for (ComponentDescriptor<?> descriptor : descriptors) {
+            if (descriptor.getClass() != DefaultComponentDescriptor.class || !isIndexable(descriptor.getRoleType())
+                || descriptor.getRoleHint() == null) {
+                return false;
+            }
+
+            for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
+                if (dependency.getClass() != DefaultComponentDependency.class
+                    || !isIndexable(dependency.getRoleType())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIndexable(Type type)
+    {
+        if (type instanceof Class) {
+            return !((Class<?>) type).isArray() && !((Class<?>) type).isPrimitive();
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+
+            if (parameterizedType.getOwnerType() != null && !isIndexable(parameterizedType.getOwnerType())) {
+                return false;
+            }
+
+            for (Type argument : parameterizedType.getActualTypeArguments()) {
+                if (!isIndexable(argument)) {
+                    return false;
+                }
+            }
+
+            return isIndexable(parameterizedType.getRawType());
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+
+/**
+ * A component declaration read from a component index: the descriptors are already known and don't need to be
+ * extracted from the implementation class annotations.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class IndexedComponentDeclaration extends ComponentDeclaration
+{
+    /**
+     * @see #getComponentDescriptors()
+     */
+    private final List<ComponentDescriptor<?>> descriptors;
+
+    /**
+     * @param implementationClassName the component implementation class name
+     * @param priority the priority of the declaration
+     * @param descriptors the descriptors of the component
+     */
+    public IndexedComponentDeclaration(String implementationClassName, int priority,
+        List<ComponentDescriptor<?>> descriptors)
+    {
+        super(implementationClassName, priority);
+
+        this.descriptors = Collections.unmodifiableList(descriptors);
+    }
+
+    /**
+     * @return the descriptors of the component
+     */
+    public List<ComponentDescriptor<?>> getComponentDescriptors()
+    {
+        return this.descriptors;
+    }
+}
@@ -20,6 +20,8 @@
 package org.xwiki.component.annotation;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Named;
@@ -245,6 +247,42 @@ public void testPriorities() throws Exception
         this.loader.initialize(mockManager, this.getClass().getClassLoader());
     }
 
+    /**
+     * Verify that priorities are resolved in declaration order when the descriptors are created in parallel.
+     */
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testPrioritiesWithParallelism() throws Exception
+    {
+        final ComponentManager mockManager = this.mockery.mock(ComponentManager.class);
+        final Logger logger = this.mockery.mock(Logger.class, "parallelLogger");
+
+        List<ComponentDeclaration> declarations = new ArrayList<ComponentDeclaration>();
+        for (int i = 0; i < 100; ++i) {
+            if (i == 50) {
+                declarations.add(new ComponentDeclaration(OverrideRole.class.getName(), 10));
+            } else {
+                declarations.add(new ComponentDeclaration(SimpleRole.class.getName(), 1000 + i));
+            }
+        }
+
+        final ComponentDescriptor descriptor = this.loader.getComponentsDescriptors(OverrideRole.class).get(0);
+
+        this.mockery.checking(new Expectations()
+        {
+            {
+                oneOf(mockManager).registerComponent(descriptor);
+
+                // The overridden declarations are logged
+                ignoring(logger).debug(with(any(String.class)), with(any(Object[].class)));
+            }
+        });
+
+        ComponentAnnotationLoader parallelLoader = new TestableComponentAnnotationLoader(logger);
+        parallelLoader.setParallelism(4);
+        parallelLoader.register(mockManager, this.getClass().getClassLoader(), declarations);
+    }
+
     @Test
     public void testFindComponentRoleTypes()
     {
@@ -21,10 +21,15 @@
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,6 +39,7 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.descriptor.DefaultComponentDependency;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.internal.embed.MethodHandleComponentInjectorFactory;
 import org.xwiki.component.manager.ComponentEventManager;
 import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -306,6 +312,104 @@ public void testGetInstanceListAndMapWhenSomeComponentsInParent() throws Excepti
         Assert.assertSame(roleImpl, instances.get("default"));
     }
 
+    @Test
+    public void testGetInstanceMapDoesNotModifyParentMap() throws Exception
+    {
+        Role parentRole = new RoleImpl();
+        Map<String, Role> parentInstances = new HashMap<String, Role>();
+        parentInstances.put("default", parentRole);
+
+        ComponentManager parent = mock(ComponentManager.class);
+        when(parent.<Role>getInstanceMap(Role.class)).thenReturn(parentInstances);
+
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        ecm.setParent(parent);
+
+        Map<String, Role> instances = ecm.getInstanceMap(Role.class);
+        Assert.assertEquals(parentInstances, instances);
+        Assert.assertNotSame(parentInstances, instances);
+
+        DefaultComponentDescriptor<Role> cd = new DefaultComponentDescriptor<Role>();
+        cd.setRoleType(Role.class);
+        cd.setRoleHint("hint");
+        cd.setImplementation(RoleImpl.class);
+        ecm.registerComponent(cd);
+
+        Assert.assertEquals(2, ecm.getInstanceMap(Role.class).size());
+        Assert.assertEquals(1, parentInstances.size());
+        Assert.assertSame(parentRole, parentInstances.get("default"));
+    }
+
+    @Test
+    public void testInjectorCreatedOncePerComponent() throws Exception
+    {
+        final MethodHandleComponentInjectorFactory defaultFactory = new MethodHandleComponentInjectorFactory();
+        final List<ComponentDescriptor<?>> created = new ArrayList<ComponentDescriptor<?>>();
+
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        ecm.setComponentInjectorFactory(new ComponentInjectorFactory()
+        {
+            @Override
+            public <T> ComponentInjector<T> createInjector(ComponentDescriptor<T> descriptor) throws Exception
+            {
+                created.add(descriptor);
+
+                return defaultFactory.createInjector(descriptor);
+            }
+        });
+
+        DefaultComponentDescriptor<Role> cd = new DefaultComponentDescriptor<Role>();
+        cd.setRoleType(Role.class);
+        cd.setImplementation(RoleImpl.class);
+        cd.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+        ecm.registerComponent(cd);
+
+        Assert.assertNotSame(ecm.getInstance(Role.class), ecm.getInstance(Role.class));
+        ecm.getInstance(Role.class);
+
+        // The constructor and the fields to inject are resolved only once, not for each new instance
+        Assert.assertEquals(1, created.size());
+    }
+
+    @Test
+    public void testGetInstanceListAfterRegistrationChanges() throws Exception
+    {
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+
+        DefaultComponentDescriptor<Role> cd1 = new DefaultComponentDescriptor<Role>();
+        cd1.setRoleType(Role.class);
+        cd1.setImplementation(RoleImpl.class);
+        ecm.registerComponent(cd1);
+
+        List<Role> instanceList = ecm.getInstanceList(Role.class);
+        Assert.assertEquals(1, instanceList.size());
+        Assert.assertSame(instanceList.get(0), ecm.getInstanceList(Role.class).get(0));
+
+        // The returned list can be modified by the caller
+        instanceList.clear();
+        Assert.assertEquals(1, ecm.getInstanceList(Role.class).size());
+
+        DefaultComponentDescriptor<Role> cd2 = new DefaultComponentDescriptor<Role>();
+        cd2.setRoleType(Role.class);
+        cd2.setRoleHint("hint");
+        cd2.setImplementation(OtherRoleImpl.class);
+        cd2.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+        ecm.registerComponent(cd2);
+
+        Map<String, Role> instances = ecm.getInstanceMap(Role.class);
+        Assert.assertEquals(2, instances.size());
+        Assert.assertNotSame(instances.get("hint"), ecm.getInstanceMap(Role.class).get("hint"));
+
+        ecm.unregisterComponent(Role.class, "hint");
+
+        Assert.assertEquals(1, ecm.getInstanceMap(Role.class).size());
+
+        ecm.unregisterComponent(Role.class, "default");
+
+        Assert.assertTrue(ecm.getInstanceList(Role.class).isEmpty());
+        Assert.assertFalse(ecm.hasComponent(Role.class));
+    }
+
     @Test
     public void testHasComponent() throws Exception
     {
@@ -522,6 +626,158 @@ public void testRegisterComponentNotificationOnSecondRegistration() throws Excep
         verify(cem).notifyComponentRegistered(cd2, ecm);
     }
 
+    @Test
+    public void testRegisterComponentsNotification() throws Exception
+    {
+        final EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+
+        final DefaultComponentDescriptor<Role> cd1 = new DefaultComponentDescriptor<Role>();
+        cd1.setRoleType(Role.class);
+        cd1.setRoleHint("hint1");
+        cd1.setImplementation(RoleImpl.class);
+
+        final DefaultComponentDescriptor<Role> cd2 = new DefaultComponentDescriptor<Role>();
+        cd2.setRoleType(Role.class);
+        cd2.setRoleHint("hint2");
+        cd2.setImplementation(OtherRoleImpl.class);
+
+        final List<ComponentDescriptor<?>> notified = new ArrayList<>();
+        ecm.setComponentEventManager(new ComponentEventManager()
+        {
+            @Override
+            public void notifyComponentRegistered(ComponentDescriptor<?> descriptor)
+            {
+                notifyComponentRegistered(descriptor, null);
+            }
+
+            @Override
+            public void notifyComponentRegistered(ComponentDescriptor<?> descriptor, ComponentManager componentManager)
+            {
+                // All the components are registered before the first event is sent
+                Assert.assertTrue(ecm.hasComponent(Role.class, "hint1"));
+                Assert.assertTrue(ecm.hasComponent(Role.class, "hint2"));
+
+                notified.add(descriptor);
+            }
+
+            @Override
+            public void notifyComponentUnregistered(ComponentDescriptor<?> descriptor)
+            {
+            }
+
+            @Override
+            public void notifyComponentUnregistered(ComponentDescriptor<?> descriptor,
+                ComponentManager componentManager)
+            {
+            }
+        });
+
+        ecm.registerComponents(Arrays.asList(cd1, cd2));
+
+        Assert.assertEquals(Arrays.<ComponentDescriptor<?>>asList(cd1, cd2), notified);
+    }
+
+    @Test
+    public void testRegisterComponentsWhenRegisterComponentIsOverridden() throws Exception
+    {
+        final List<ComponentDescriptor<?>> registered = new ArrayList<>();
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager()
+        {
+            @Override
+            public <T> void registerComponent(ComponentDescriptor<T> componentDescriptor, T componentInstance)
+            {
+                registered.add(componentDescriptor);
+
+                super.registerComponent(componentDescriptor, componentInstance);
+            }
+        };
+
+        DefaultComponentDescriptor<Role> cd1 = new DefaultComponentDescriptor<Role>();
+        cd1.setRoleType(Role.class);
+        cd1.setRoleHint("hint1");
+        DefaultComponentDescriptor<Role> cd2 = new DefaultComponentDescriptor<Role>();
+        cd2.setRoleType(Role.class);
+        cd2.setRoleHint("hint2");
+
+        // Forget the component manager registering itself
+        registered.clear();
+
+        ecm.registerComponents(Arrays.asList(cd1, cd2));
+
+        Assert.assertEquals(Arrays.<ComponentDescriptor<?>>asList(cd1, cd2), registered);
+        Assert.assertTrue(ecm.hasComponent(Role.class, "hint1"));
+        Assert.assertTrue(ecm.hasComponent(Role.class, "hint2"));
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        final EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+
+        DefaultComponentDescriptor<Role> cd = new DefaultComponentDescriptor<Role>();
+        cd.setRoleType(Role.class);
+        cd.setImplementation(RoleImpl.class);
+        ecm.registerComponent(cd);
+
+        // Nothing is recorded by default
+        ecm.getInstance(Role.class);
+        Assert.assertTrue(ecm.getStatistics().getComponents().isEmpty());
+
+        ecm.getStatistics().setEnabled(true);
+
+        ecm.unregisterComponent(cd);
+        ecm.registerComponent(cd);
+        ecm.getInstance(Role.class);
+        ecm.getInstance(Role.class, "default");
+
+        ecm.getInstanceList(Role.class);
+        ecm.getInstanceMap(Role.class);
+
+        ComponentManagerStatistics.ComponentEntry entry = getStatistics(ecm, Role.class, "default");
+        Assert.assertEquals(2, entry.getLookups());
+        Assert.assertEquals(1, entry.getInstantiations());
+
+        ComponentManagerStatistics.ComponentEntry roleEntry = getStatistics(ecm, Role.class, null);
+        Assert.assertEquals(2, roleEntry.getLookups());
+
+        ecm.getStatistics().reset();
+
+        Assert.assertEquals(0, entry.getLookups());
+        Assert.assertEquals(0, entry.getInstantiations());
+        Assert.assertEquals(0, roleEntry.getLookups());
+    }
+
+    private ComponentManagerStatistics.ComponentEntry getStatistics(EmbeddableComponentManager ecm, Type role,
+        String hint)
+    {
+        for (ComponentManagerStatistics.ComponentEntry entry : ecm.getStatistics().getComponents()) {
+            if (Objects.equals(role, entry.getRoleType()) && Objects.equals(hint, entry.getRoleHint())) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    public void testStatisticsAreBounded() throws Exception
+    {
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        ecm.getStatistics().setEnabled(true);
+
+        // Lookups of components which don't exist, with dynamic hints
+        for (int i = 0; i < ComponentManagerStatistics.MAX_COMPONENTS + 10; ++i) {
+            try {
+                ecm.getInstance(Role.class, "hint" + i);
+            } catch (ComponentLookupException e) {
+                // Expected
+            }
+        }
+
+        Assert.assertEquals(ComponentManagerStatistics.MAX_COMPONENTS + 1, ecm.getStatistics().getComponents().size());
+        Assert.assertEquals(10, getStatistics(ecm, null, null).getLookups());
+    }
+
     @Test
     public void testDispose() throws Exception
     {
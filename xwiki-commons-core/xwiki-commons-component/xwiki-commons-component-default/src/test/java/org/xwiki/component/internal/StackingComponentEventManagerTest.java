@@ -20,18 +20,25 @@
 package org.xwiki.component.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
 import org.xwiki.component.event.ComponentDescriptorAddedEvent;
 import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.EventNotification;
 import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 
 /**
  * Test {@link StackingComponentEventManager}.
@@ -97,20 +104,68 @@ public void flushEvents()
         final ComponentDescriptorRemovedEvent removedEvent =
             new ComponentDescriptorRemovedEvent(this.descriptor2.getRoleType(), this.descriptor2.getRoleHint());
 
+        final List<EventNotification> notifications = expectNotifications();
+
+        this.eventManager.flushEvents();
+
+        // All the stacked events are sent in one batch, the last stacked first
+        Assert.assertEquals(4, notifications.size());
+        assertNotification(removedEvent, this.mockComponentManager, this.descriptor2, notifications.get(0));
+        assertNotification(removedEvent, null, this.descriptor2, notifications.get(1));
+        assertNotification(addedEvent, this.mockComponentManager, this.descriptor1, notifications.get(2));
+        assertNotification(addedEvent, null, this.descriptor1, notifications.get(3));
+    }
+
+    @Test
+    public void notifyComponentsRegistered()
+    {
+        this.eventManager.shouldStack(false);
+
+        final List<EventNotification> notifications = expectNotifications();
+
+        DefaultComponentDescriptor<CharSequence> descriptor3 = new DefaultComponentDescriptor<CharSequence>();
+        descriptor3.setImplementation(StringBuilder.class);
+        descriptor3.setRoleType(CharSequence.class);
+        descriptor3.setRoleHint("hint3");
+
+        this.eventManager.notifyComponentsRegistered(Arrays.asList(this.descriptor1, descriptor3),
+            this.mockComponentManager);
+
+        Assert.assertEquals(2, notifications.size());
+        assertNotification(new ComponentDescriptorAddedEvent(CharSequence.class, "hint1"), this.mockComponentManager,
+            this.descriptor1, notifications.get(0));
+        assertNotification(new ComponentDescriptorAddedEvent(CharSequence.class, "hint3"), this.mockComponentManager,
+            descriptor3, notifications.get(1));
+    }
+
+    private List<EventNotification> expectNotifications()
+    {
+        final List<EventNotification> notifications = new ArrayList<EventNotification>();
+
         this.mockery.checking(new Expectations()
         {
             {
-                oneOf(mockObservationManager).notify(with(equal(addedEvent)), with(same(mockComponentManager)),
-                    with(same(descriptor1)));
-                oneOf(mockObservationManager).notify(with(equal(addedEvent)), with(aNull(Object.class)),
-                    with(same(descriptor1)));
-                oneOf(mockObservationManager).notify(with(equal(removedEvent)), with(same(mockComponentManager)),
-                    with(same(descriptor2)));
-                oneOf(mockObservationManager).notify(with(equal(removedEvent)), with(aNull(Object.class)),
-                    with(same(descriptor2)));
+                oneOf(mockObservationManager).notify(with(any(Collection.class)));
+                will(new CustomAction("store notifications")
+                {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable
+                    {
+                        notifications.addAll((Collection<EventNotification>) invocation.getParameter(0));
+
+                        return null;
+                    }
+                });
             }
         });
 
-        this.eventManager.flushEvents();
+        return notifications;
+    }
+
+    private void assertNotification(Event event, Object source, Object data, EventNotification notification)
+    {
+        Assert.assertEquals(event, notification.getEvent());
+        Assert.assertSame(source, notification.getSource());
+        Assert.assertSame(data, notification.getData());
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.component.descriptor.DefaultComponentDependency;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.embed.ComponentInjector;
+
+/**
+ * Validate {@link MethodHandleComponentInjectorFactory}.
+ *
+ * @version $Id$
+ */
+public class MethodHandleComponentInjectorFactoryTest
+{
+    public static class ParentComponent
+    {
+        private Object parentField;
+    }
+
+    public static class Component extends ParentComponent
+    {
+        private final Object finalField = null;
+
+        private String field;
+
+        private Component()
+        {
+        }
+    }
+
+    private DefaultComponentDependency<Object> createDependency(String name)
+    {
+        DefaultComponentDependency<Object> dependency = new DefaultComponentDependency<Object>();
+        dependency.setRoleType(Object.class);
+        dependency.setName(name);
+
+        return dependency;
+    }
+
+    @Test
+    public void createInjector() throws Exception
+    {
+        DefaultComponentDescriptor<Component> descriptor = new DefaultComponentDescriptor<Component>();
+        descriptor.setImplementation(Component.class);
+        descriptor.addComponentDependency(createDependency("field"));
+        descriptor.addComponentDependency(createDependency("parentField"));
+        descriptor.addComponentDependency(createDependency("finalField"));
+        descriptor.addComponentDependency(createDependency("missingField"));
+
+        ComponentInjector<Component> injector = new MethodHandleComponentInjectorFactory().createInjector(descriptor);
+
+        Component component1 = injector.newInstance();
+        Component component2 = injector.newInstance();
+
+        Assert.assertNotSame(component1, component2);
+
+        Object value = new Object();
+
+        injector.inject(component1, 0, "value");
+        injector.inject(component1, 1, value);
+        injector.inject(component1, 3, value);
+
+        Assert.assertEquals("value", component1.field);
+        Assert.assertSame(value, ((ParentComponent) component1).parentField);
+        Assert.assertNull(component2.field);
+    }
+}
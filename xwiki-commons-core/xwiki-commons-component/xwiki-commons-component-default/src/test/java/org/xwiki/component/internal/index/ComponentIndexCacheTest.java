@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.ProviderTest;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.internal.multi.DefaultComponentManagerManager;
+
+/**
+ * Validate {@link ComponentIndexCache}.
+ *
+ * @version $Id$
+ */
+public class ComponentIndexCacheTest
+{
+    private static final File FOLDER = new File("target/test/componentindex/");
+
+    private static final List<ComponentDeclaration> DECLARATIONS =
+        Arrays.asList(new ComponentDeclaration(DefaultComponentManagerManager.class.getName()),
+            new ComponentDeclaration(ProviderTest.TestComponentWithProviders.class.getName(), 500),
+            new ComponentDeclaration(ProviderTest.TestProvider1.class.getName()));
+
+    private ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+
+    private File jar;
+
+    private URL componentList;
+
+    private ComponentIndexCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory(FOLDER);
+        FOLDER.mkdirs();
+
+        this.jar = new File(FOLDER, "components.jar");
+        JarOutputStream stream = new JarOutputStream(new FileOutputStream(this.jar));
+        try {
+            stream.putNextEntry(new ZipEntry(ComponentAnnotationLoader.COMPONENT_LIST));
+            for (ComponentDeclaration declaration : DECLARATIONS) {
+                stream.write((declaration.getPriority() + ":" + declaration.getImplementationClassName() + '\n')
+                    .getBytes("UTF-8"));
+            }
+            stream.closeEntry();
+        } finally {
+            stream.close();
+        }
+
+        this.componentList = new URL("jar:" + this.jar.toURI().toURL().toExternalForm() + "!/"
+            + ComponentAnnotationLoader.COMPONENT_LIST);
+
+        this.cache = new ComponentIndexCache(new File(FOLDER, "cache"));
+    }
+
+    private List<? extends ComponentDescriptor>[] getDescriptors() throws Exception
+    {
+        List<? extends ComponentDescriptor>[] descriptors = new List[DECLARATIONS.size()];
+        for (int i = 0; i < descriptors.length; ++i) {
+            descriptors[i] =
+                this.loader.getComponentsDescriptors(Class.forName(DECLARATIONS.get(i).getImplementationClassName()));
+        }
+
+        return descriptors;
+    }
+
+    @Test
+    public void writeAndRead() throws Exception
+    {
+        Assert.assertTrue(this.cache.isCacheable(this.componentList));
+        Assert.assertNull(this.cache.read(this.componentList, getClass().getClassLoader()));
+
+        List<? extends ComponentDescriptor>[] descriptors = getDescriptors();
+        this.cache.write(this.componentList, DECLARATIONS, descriptors);
+
+        List<ComponentDeclaration> indexedDeclarations =
+            this.cache.read(this.componentList, getClass().getClassLoader());
+
+        Assert.assertEquals(DECLARATIONS.size(), indexedDeclarations.size());
+        for (int i = 0; i < DECLARATIONS.size(); ++i) {
+            ComponentDeclaration declaration = DECLARATIONS.get(i);
+            IndexedComponentDeclaration indexedDeclaration = (IndexedComponentDeclaration) indexedDeclarations.get(i);
+
+            Assert.assertEquals(declaration.getImplementationClassName(),
+                indexedDeclaration.getImplementationClassName());
+            Assert.assertEquals(declaration.getPriority(), indexedDeclaration.getPriority());
+            Assert.assertEquals(descriptors[i], indexedDeclaration.getComponentDescriptors());
+        }
+    }
+
+    @Test
+    public void readWhenJarModified() throws Exception
+    {
+        this.cache.write(this.componentList, DECLARATIONS, getDescriptors());
+
+        this.jar.setLastModified(this.jar.lastModified() - 10000);
+
+        Assert.assertNull(this.cache.read(this.componentList, getClass().getClassLoader()));
+    }
+
+    @Test
+    public void isCacheable() throws Exception
+    {
+        Assert.assertFalse(this.cache.isCacheable(FOLDER.toURI().toURL()));
+        Assert.assertFalse(this.cache.isCacheable(new URL("jar:http://host/components.jar!/"
+            + ComponentAnnotationLoader.COMPONENT_LIST)));
+    }
+
+    @Test
+    public void loadFromIndex() throws Exception
+    {
+        // Only expose the component list of the test JAR
+        ClassLoader classLoader =
+            new URLClassLoader(new URL[] {this.jar.toURI().toURL()}, getClass().getClassLoader())
+        {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException
+            {
+                return findResources(name);
+            }
+        };
+
+        this.loader.setIndexCache(this.cache.getFolder());
+
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        this.loader.initialize(componentManager, classLoader);
+
+        Assert.assertNotNull(this.cache.read(this.componentList, classLoader));
+        Assert.assertTrue(componentManager.hasComponent(ProviderTest.TestComponentRole.class));
+
+        componentManager = new EmbeddableComponentManager();
+        this.loader.initialize(componentManager, classLoader);
+
+        Assert.assertTrue(componentManager.hasComponent(ProviderTest.TestComponentRole.class));        Assert.assertNotNull(componentManager.getInstance(ProviderTest.TestComponentRole.class));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.embed.EmbeddableComponentManagerTest.Role;
+import org.xwiki.component.embed.EmbeddableComponentManagerTest.RoleImpl;
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Validate {@link AbstractGenericComponentManager}.
+ *
+ * @version $Id$
+ */
+public class AbstractGenericComponentManagerTest
+{
+    private static class TestComponentManagerManager implements ComponentManagerManager
+    {
+        private final Map<String, ComponentManager> componentManagers = new HashMap<>();
+
+        private final List<ComponentManagerManagerListener> listeners = new ArrayList<>();
+
+        private int calls;
+
+        @Override
+        public ComponentManager getComponentManager(String id, boolean create)
+        {
+            ++this.calls;
+
+            ComponentManager componentManager = this.componentManagers.get(id);
+            if (componentManager == null && create) {
+                componentManager = new EmbeddableComponentManager(id);
+                this.componentManagers.put(id, componentManager);
+
+                for (ComponentManagerManagerListener listener : this.listeners) {
+                    listener.onComponentManagerCreated(id, componentManager);
+                }
+            }
+
+            return componentManager;
+        }
+
+        @Override
+        public ComponentManager removeComponentManager(String id)
+        {
+            ComponentManager componentManager = this.componentManagers.remove(id);
+            if (componentManager != null) {
+                for (ComponentManagerManagerListener listener : this.listeners) {
+                    listener.onComponentManagerRemoved(id, componentManager);
+                }
+            }
+
+            return componentManager;
+        }
+
+        @Override
+        public void addListener(ComponentManagerManagerListener listener)
+        {
+            this.listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(ComponentManagerManagerListener listener)
+        {
+            this.listeners.remove(listener);
+        }
+    }
+
+    private static class TestGenericComponentManager extends AbstractGenericComponentManager
+    {
+        private String key;
+
+        @Override
+        protected String getKey()
+        {
+            return this.key;
+        }
+    }
+
+    private TestComponentManagerManager componentManagerManager;
+
+    private TestGenericComponentManager componentManager;
+
+    private EmbeddableComponentManager parentComponentManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.componentManagerManager = new TestComponentManagerManager();
+        this.parentComponentManager = new EmbeddableComponentManager();
+
+        this.componentManager = new TestGenericComponentManager();
+        this.componentManager.setInternalParent(this.parentComponentManager);
+
+        Field field = AbstractGenericComponentManager.class.getDeclaredField("componentManagerManager");
+        field.setAccessible(true);
+        field.set(this.componentManager, this.componentManagerManager);
+    }
+
+    @Test
+    public void resolveComponentManager() throws Exception
+    {
+        this.componentManager.key = "key1";
+
+        // No Component Manager yet for that key
+        Assert.assertSame(this.parentComponentManager, this.componentManager.getComponentManager());
+        Assert.assertSame(this.parentComponentManager, this.componentManager.getComponentManager());
+        Assert.assertEquals(1, this.componentManagerManager.calls);
+
+        DefaultComponentDescriptor<Role> descriptor = new DefaultComponentDescriptor<>();
+        descriptor.setRoleType(Role.class);
+        descriptor.setImplementation(RoleImpl.class);
+        this.componentManager.registerComponent(descriptor);
+        Assert.assertEquals(2, this.componentManagerManager.calls);
+
+        // The cached absence of Component Manager has been invalidated by the creation
+        ComponentManager keyComponentManager = this.componentManagerManager.componentManagers.get("key1");
+        Assert.assertTrue(keyComponentManager.hasComponent(Role.class));
+        Assert.assertSame(keyComponentManager, this.componentManager.getComponentManager());
+        Assert.assertSame(keyComponentManager, this.componentManager.getComponentManager());
+        Assert.assertEquals(3, this.componentManagerManager.calls);
+
+        this.componentManager.key = "key2";
+
+        Assert.assertSame(this.parentComponentManager, this.componentManager.getComponentManager());
+        Assert.assertEquals(4, this.componentManagerManager.calls);
+    }
+
+    @Test
+    public void resolveComponentManagerCreatedOutsideOfTheProxy() throws Exception
+    {
+        this.componentManager.key = "key";
+
+        Assert.assertSame(this.parentComponentManager, this.componentManager.getComponentManager());
+
+        ComponentManager keyComponentManager = this.componentManagerManager.getComponentManager("key", true);
+
+        Assert.assertSame(keyComponentManager, this.componentManager.getComponentManager());
+    }
+
+    @Test
+    public void resolveRemovedComponentManager() throws Exception
+    {
+        this.componentManager.key = "key";
+
+        ComponentManager keyComponentManager = this.componentManagerManager.getComponentManager("key", true);
+        Assert.assertSame(keyComponentManager, this.componentManager.getComponentManager());
+
+        this.componentManagerManager.removeComponentManager("key");
+
+        Assert.assertSame(this.parentComponentManager, this.componentManager.getComponentManager());
+
+        // A new Component Manager for the same key replaces the removed one
+        ComponentManager newKeyComponentManager = this.componentManagerManager.getComponentManager("key", true);
+        Assert.assertNotSame(keyComponentManager, newKeyComponentManager);
+        Assert.assertSame(newKeyComponentManager, this.componentManager.getComponentManager());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.internal.embed.EmbeddableComponentManagerFactory;
+import org.xwiki.component.manager.ComponentManager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Validate {@link DefaultComponentManagerManager}.
+ *
+ * @version $Id$
+ */
+public class DefaultComponentManagerManagerTest
+{
+    private EmbeddableComponentManager rootComponentManager;
+
+    private ComponentManagerManager componentManagerManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.rootComponentManager = new EmbeddableComponentManager();
+
+        ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+        this.rootComponentManager.registerComponent(
+            loader.getComponentsDescriptors(EmbeddableComponentManagerFactory.class).get(0));
+        this.rootComponentManager.registerComponent(
+            loader.getComponentsDescriptors(DefaultComponentManagerManager.class).get(0));
+
+        this.componentManagerManager = this.rootComponentManager.getInstance(ComponentManagerManager.class);
+    }
+
+    @Test
+    public void getComponentManager() throws Exception
+    {
+        Assert.assertSame(this.rootComponentManager, this.componentManagerManager.getComponentManager(null, false));
+        Assert.assertNull(this.componentManagerManager.getComponentManager("wiki:xwiki", false));
+
+        ComponentManager componentManager = this.componentManagerManager.getComponentManager("wiki:xwiki", true);
+
+        Assert.assertNotNull(componentManager);
+        Assert.assertEquals("wiki:xwiki", ((EmbeddableComponentManager) componentManager).getNamespace());
+        Assert.assertSame(componentManager, this.componentManagerManager.getComponentManager("wiki:xwiki", true));
+        Assert.assertSame(componentManager, this.componentManagerManager.getComponentManager("wiki:xwiki", false));
+
+        // The lock used to create the component manager is released
+        Field field = DefaultComponentManagerManager.class.getDeclaredField("creationLocks");
+        field.setAccessible(true);
+        Assert.assertTrue(((Map<?, ?>) field.get(this.componentManagerManager)).isEmpty());
+    }
+
+    @Test
+    public void removeComponentManager() throws Exception
+    {
+        ComponentManagerManagerListener listener = mock(ComponentManagerManagerListener.class);
+        this.componentManagerManager.addListener(listener);
+
+        Assert.assertNull(this.componentManagerManager.removeComponentManager("wiki:xwiki"));
+
+        ComponentManager componentManager = this.componentManagerManager.getComponentManager("wiki:xwiki", true);
+        verify(listener).onComponentManagerCreated("wiki:xwiki", componentManager);
+
+        Assert.assertSame(componentManager, this.componentManagerManager.removeComponentManager("wiki:xwiki"));
+        verify(listener).onComponentManagerRemoved("wiki:xwiki", componentManager);
+        Assert.assertNull(this.componentManagerManager.getComponentManager("wiki:xwiki", false));
+
+        this.componentManagerManager.removeListener(listener);
+        this.componentManagerManager.getComponentManager("wiki:xwiki", true);
+        verifyNoMoreInteractions(listener);
+    }
+}
@@ -25,6 +25,8 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.context.internal.ExecutionContextProperty;
+import org.xwiki.context.internal.ExecutionContextPropertyTable;
+import org.xwiki.stability.Unstable;
 
 /**
  * Contains all state data related to the current user action. Note that the execution context is independent of the
@@ -41,7 +43,7 @@
     /**
      * @see #getProperty(String)
      */
-    private Map<String, ExecutionContextProperty> properties = new HashMap<String, ExecutionContextProperty>();
+    private ExecutionContextPropertyTable properties = new ExecutionContextPropertyTable();
 
     /**
      * @param key the key under which is stored the property to retrieve
@@ -49,10 +51,31 @@
      */
     public Object getProperty(String key)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        return getPropertyValue(key, ExecutionContextKey.get(key));
+    }
+
+    /**
+     * @param key the key under which is stored the property to retrieve
+     * @return the property matching the passed key
+     * @since 7.4M1
+     */
+    @Unstable
+    public Object getProperty(ExecutionContextKey key)
+    {
+        return getPropertyValue(key.getName(), key);
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @return the value of the property
+     */
+    private Object getPropertyValue(String name, ExecutionContextKey key)
+    {
+        ExecutionContextProperty property = this.properties.get(name, key);
 
         if (property == null) {
-            LOGGER.debug("Getting undefined property {} from execution context.", key);
+            LOGGER.debug("Getting undefined property {} from execution context.", name);
             return null;
         }
 
@@ -75,7 +98,18 @@ public DeclarationBuilder newProperty(String key)
      */
     public boolean hasProperty(String key)
     {
-        return this.properties.containsKey(key);
+        return this.properties.get(key, ExecutionContextKey.get(key)) != null;
+    }
+
+    /**
+     * @param key the key under which is stored the property to retrieve
+     * @return {@code true} if there is a property declared for the given key.
+     * @since 7.4M1
+     */
+    @Unstable
+    public boolean hasProperty(ExecutionContextKey key)
+    {
+        return this.properties.get(key.getName(), key) != null;
     }
 
     /**
@@ -85,7 +119,7 @@ public Map<String, Object> getProperties()
     {
         Map<String, Object> map = new HashMap<String, Object>();
 
-        for (Map.Entry<String, ExecutionContextProperty> entry : this.properties.entrySet()) {
+        for (Map.Entry<String, ExecutionContextProperty> entry : this.properties.getProperties().entrySet()) {
             map.put(entry.getKey(), entry.getValue().getValue());
         }
 
@@ -97,13 +131,16 @@ public Map<String, Object> getProperties()
      */
     public void removeProperty(String key)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        ExecutionContextKey internedKey = ExecutionContextKey.get(key);
+        ExecutionContextProperty property = this.properties.get(key, internedKey);
 
-        if (property != null && property.isFinal()) {
-            throw new PropertyIsFinalException(key);
-        }
+        if (property != null) {
+            if (property.isFinal()) {
+                throw new PropertyIsFinalException(key);
+            }
 
-        this.properties.remove(key);
+            getWritableProperties().remove(key, internedKey);
+        }
     }
 
     /**
@@ -112,14 +149,39 @@ public void removeProperty(String key)
      */
     public void setProperty(String key, Object value)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        setPropertyValue(key, ExecutionContextKey.get(key), value);
+    }
+
+    /**
+     * @param key the key under which to save the passed property value
+     * @param value the value to set
+     * @since 7.4M1
+     */
+    @Unstable
+    public void setProperty(ExecutionContextKey key, Object value)
+    {
+        setPropertyValue(key.getName(), key, value);
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @param value the value to set
+     */
+    private void setPropertyValue(String name, ExecutionContextKey key, Object value)
+    {
+        ExecutionContextProperty property = this.properties.get(name, key);
 
         if (property == null) {
-            LOGGER.debug("Implicit declaration of property {}.", key);
-            newProperty(key).declare();
-            property = this.properties.get(key);
+            LOGGER.debug("Implicit declaration of property {}.", name);
+            newProperty(name).declare();
+            property = this.properties.get(name, key);
         } else if (property.isFinal()) {
-            throw new PropertyIsFinalException(key);
+            throw new PropertyIsFinalException(name);
+        } else if (this.properties.isShared() || !this.properties.isOwned(property)) {
+            // Copy on write
+            property = property.copy();
+            getWritableProperties().put(key, property);
         }
 
         property.setValue(value);
@@ -135,6 +197,18 @@ public void setProperties(Map<String, Object> properties)
         }
     }
 
+    /**
+     * @return the properties storage, copied first if it's shared with inheriting execution contexts
+     */
+    private ExecutionContextPropertyTable getWritableProperties()
+    {
+        if (this.properties.isShared()) {
+            this.properties = this.properties.copy();
+        }
+
+        return this.properties;
+    }
+
     /**
      * Declare a property.
      *
@@ -144,11 +218,13 @@ public void setProperties(Map<String, Object> properties)
      */
     private void declareProperty(ExecutionContextProperty property)
     {
-        if (this.properties.containsKey(property.getKey())) {
+        ExecutionContextKey key = ExecutionContextKey.get(property.getKey());
+
+        if (this.properties.get(property.getKey(), key) != null) {
             throw new PropertyAlreadyExistsException(property.getKey());
         }
 
-        this.properties.put(property.getKey(), property);
+        getWritableProperties().put(key, property);
     }
 
     /**
@@ -157,8 +233,10 @@ private void declareProperty(ExecutionContextProperty property)
      * Inheritance is performed both in {@link Execution#setContext()} and in {@link Execution.pushContext()}, if there
      * is a current execution context.
      *
-     * All properties marked as 'inherited' will be copied into this context, unless the property already is declared in
-     * this context.
+     * All properties marked as 'inherited' will be made visible in this context, unless the property already is
+     * declared in this context. Inherited properties are shared with the given context until one of the contexts
+     * modifies them, except for the properties declared with {@link DeclarationBuilder#cloneValue()} which are cloned
+     * right away.
      *
      * It is an error if this context contain a value that was declared as 'inherited' and 'final' in the inherited
      * execution context and an exception will be thrown.
@@ -169,31 +247,8 @@ private void declareProperty(ExecutionContextProperty property)
      */
     public void inheritFrom(ExecutionContext executionContext)
     {
-        for (ExecutionContextProperty property : executionContext.properties.values()) {
-            if (property.isInherited()) {
-                if (this.properties.containsKey(property.getKey())) {
-                    checkIfInheritedPropertyMayBeIgnored(property);
-                } else {
-                    declareProperty(property.clone());
-                }
-            }
-        }
-    }
-
-    /**
-     * @param property Property to check.
-     * @throws IllegalStateException if the property may not be ignored.
-     */
-    private void checkIfInheritedPropertyMayBeIgnored(ExecutionContextProperty property)
-    {
-        if (property.isFinal()) {
-            ExecutionContextProperty shadowingProperty = this.properties.get(property.getKey());
-            if (!(shadowingProperty == property || shadowingProperty.isClonedFrom(property))) {
-                throw new IllegalStateException(
-                    String.format("Execution context cannot be inherited because it already contains"
-                        + " property [%s] which must be inherited because it is an inherited"
-                        + " final property.", property.getKey()));
-            }
+        if (executionContext != this) {
+            getWritableProperties().inherit(executionContext.properties);
         }
     }
 
@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * An interned execution context property key. Well-known keys (the ones accessed very often, like the Velocity context
+ * or the observation event stack) should be declared as constants using {@link #of(String)}: each interned key gets a
+ * slot in the execution context storage which is accessed without any hashing.
+ * <p>
+ * Properties stored with an interned key are still accessible using the key name through the {@link String} based
+ * methods of {@link ExecutionContext}.
+ * <p>
+ * Interned keys are never released so only constant key names should be interned.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public final class ExecutionContextKey
+{
+    /**
+     * The interned keys indexed by name.
+     */
+    private static final ConcurrentMap<String, ExecutionContextKey> KEYS =
+        new ConcurrentHashMap<String, ExecutionContextKey>();
+
+    /**
+     * Used to allocate slots.
+     */
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * @see #getName()
+     */
+    private final String name;
+
+    /**
+     * @see #getIndex()
+     */
+    private final int index;
+
+    /**
+     * @param name the name of the key
+     * @param index the index of the slot associated to the key
+     */
+    private ExecutionContextKey(String name, int index)
+    {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * @param name the name of the key
+     * @return the interned key for the passed name, created if it does not exist yet
+     */
+    public static ExecutionContextKey of(String name)
+    {
+        if (name == null) {
+            throw new IllegalArgumentException("The key name may not be null");
+        }
+
+        ExecutionContextKey key = KEYS.get(name);
+
+        if (key == null) {
+            synchronized (KEYS) {
+                key = KEYS.get(name);
+                if (key == null) {
+                    key = new ExecutionContextKey(name, COUNTER.getAndIncrement());
+                    KEYS.put(name, key);
+                }
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * @param name the name of the key
+     * @return the interned key for the passed name or {@code null} if the name has not been interned
+     */
+    public static ExecutionContextKey get(String name)
+    {
+        return name != null ? KEYS.get(name) : null;
+    }
+
+    /**
+     * @return the name of the property
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the index of the slot associated to this key in the execution context storage
+     */
+    public int getIndex()
+    {
+        return this.index;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.xwiki.context.Execution;
+import org.xwiki.stability.Unstable;
+
+/**
+ * {@link ExecutorService} wrapper which executes the tasks in the execution context of the thread submitting them.
+ * <p>
+ * The execution context is propagated through an {@link ExecutionContextSnapshot} taken when the tasks are submitted
+ * (a single snapshot is shared by all the tasks of a {@code invokeAll}/{@code invokeAny} call).
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public class ExecutionContextExecutorService implements ExecutorService
+{
+    /**
+     * The actual executor.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Used to access the current execution context.
+     */
+    private final Execution execution;
+
+    /**
+     * @param executor the actual executor
+     * @param execution used to access the current execution context
+     */
+    public ExecutionContextExecutorService(ExecutorService executor, Execution execution)
+    {
+        this.executor = executor;
+        this.execution = execution;
+    }
+
+    /**
+     * @return a snapshot of the current execution context
+     */
+    private ExecutionContextSnapshot capture()
+    {
+        return ExecutionContextSnapshot.capture(this.execution);
+    }
+
+    /**
+     * @param <T> the type of the result of the tasks
+     * @param tasks the tasks to wrap
+     * @return the wrapped tasks
+     */
+    private <T> List<Callable<T>> wrap(Collection<? extends Callable<T>> tasks)
+    {
+        ExecutionContextSnapshot snapshot = capture();
+
+        List<Callable<T>> wrappedTasks = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrappedTasks.add(snapshot.wrap(task));
+        }
+
+        return wrappedTasks;
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        this.executor.execute(capture().wrap(command));
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task)
+    {
+        return this.executor.submit(capture().wrap(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result)
+    {
+        return this.executor.submit(capture().wrap(task), result);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task)
+    {
+        return this.executor.submit(capture().wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException
+    {
+        return this.executor.invokeAll(wrap(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+        throws InterruptedException
+    {
+        return this.executor.invokeAll(wrap(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException
+    {
+        return this.executor.invokeAny(wrap(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return this.executor.invokeAny(wrap(tasks), timeout, unit);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        this.executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        return this.executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return this.executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return this.executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+}
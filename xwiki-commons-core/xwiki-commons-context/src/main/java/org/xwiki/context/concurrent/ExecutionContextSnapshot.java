@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import java.util.concurrent.Callable;
+
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A snapshot of the inherited properties of an {@link ExecutionContext}, used to propagate it to tasks executed in
+ * other threads.
+ * <p>
+ * Taking a snapshot is cheap: nothing is copied and no {@link org.xwiki.context.ExecutionContextInitializer} is
+ * called. Each task gets its own execution context inheriting from the snapshot, the properties being copied only when
+ * the task modifies them. As with {@link ExecutionContext#inheritFrom(ExecutionContext)} only the properties declared
+ * as inherited are propagated. Use {@link ExecutionContextRunnable} when the task needs a fully initialized execution
+ * context.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public final class ExecutionContextSnapshot
+{
+    /**
+     * Used to set the execution context of the tasks.
+     */
+    private final Execution execution;
+
+    /**
+     * The snapshot, {@code null} if there was no current execution context.
+     */
+    private final ExecutionContext context;
+
+    /**
+     * @param execution used to set the execution context of the tasks
+     * @param context the execution context to take a snapshot of, or {@code null}
+     */
+    private ExecutionContextSnapshot(Execution execution, ExecutionContext context)
+    {
+        this.execution = execution;
+
+        if (context != null) {
+            this.context = new ExecutionContext();
+            this.context.inheritFrom(context);
+        } else {
+            this.context = null;
+        }
+    }
+
+    /**
+     * @param execution the execution
+     * @return a snapshot of the current execution context
+     */
+    public static ExecutionContextSnapshot capture(Execution execution)
+    {
+        return new ExecutionContextSnapshot(execution, execution.getContext());
+    }
+
+    /**
+     * @return a new execution context inheriting from the snapshot
+     */
+    public ExecutionContext newContext()
+    {
+        ExecutionContext taskContext = new ExecutionContext();
+
+        if (this.context != null) {
+            taskContext.inheritFrom(this.context);
+        }
+
+        return taskContext;
+    }
+
+    /**
+     * @param runnable the task to wrap
+     * @return a task executing the passed one in an execution context inheriting from the snapshot
+     */
+    public Runnable wrap(final Runnable runnable)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                boolean pushed = begin();
+
+                try {
+                    runnable.run();
+                } finally {
+                    end(pushed);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param <V> the type of the result of the task
+     * @param callable the task to wrap
+     * @return a task executing the passed one in an execution context inheriting from the snapshot
+     */
+    public <V> Callable<V> wrap(final Callable<V> callable)
+    {
+        return new Callable<V>()
+        {
+            @Override
+            public V call() throws Exception
+            {
+                boolean pushed = begin();
+
+                try {
+                    return callable.call();
+                } finally {
+                    end(pushed);
+                }
+            }
+        };
+    }
+
+    /**
+     * Set the execution context of the task.
+     *
+     * @return {@code true} if the context was pushed on top of an existing one
+     */
+    private boolean begin()
+    {
+        ExecutionContext taskContext = newContext();
+
+        // The task might be executed by a thread which already has an execution context (caller runs policy, etc.)
+        if (this.execution.getContext() != null) {
+            this.execution.pushContext(taskContext);
+
+            return true;
+        }
+
+        this.execution.setContext(taskContext);
+
+        return false;
+    }
+
+    /**
+     * Clean the execution context of the task.
+     *
+     * @param pushed {@code true} if the context was pushed on top of an existing one
+     */
+    private void end(boolean pushed)
+    {
+        if (pushed) {
+            this.execution.popContext();
+        } else {
+            this.execution.removeContext();
+        }
+    }
+}
@@ -19,8 +19,6 @@
  */
 package org.xwiki.context.internal;
 
-import java.util.Stack;
-
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
@@ -42,14 +40,14 @@ public class DefaultExecution implements Execution
     /**
      * Isolate the execution context by thread.
      */
-    private ThreadLocal<Stack<ExecutionContext>> context = new ThreadLocal<Stack<ExecutionContext>>();
+    private ThreadLocal<ExecutionContextStack> context = new ThreadLocal<ExecutionContextStack>();
 
     @Override
     public void pushContext(ExecutionContext context)
     {
-        Stack<ExecutionContext> stack = this.context.get();
+        ExecutionContextStack stack = this.context.get();
         if (stack == null) {
-            stack = new Stack<ExecutionContext>();
+            stack = new ExecutionContextStack();
             this.context.set(stack);
         } else if (!stack.isEmpty()) {
             context.inheritFrom(stack.peek());
@@ -67,16 +65,16 @@ public void popContext()
     @Override
     public ExecutionContext getContext()
     {
-        Stack<ExecutionContext> stack = this.context.get();
+        ExecutionContextStack stack = this.context.get();
         return stack == null || stack.isEmpty() ? null : stack.peek();
     }
 
     @Override
     public void setContext(ExecutionContext context)
     {
-        Stack<ExecutionContext> stack = this.context.get();
+        ExecutionContextStack stack = this.context.get();
         if (stack == null) {
-            stack = new Stack<ExecutionContext>();
+            stack = new ExecutionContextStack();
             this.context.set(stack);
             stack.push(context);
         } else if (stack.isEmpty()) {
@@ -85,7 +83,7 @@ public void setContext(ExecutionContext context)
             if (context != null) {
                 context.inheritFrom(stack.peek());
             }
-            stack.set(stack.size() - 1, context);
+            stack.set(context);
         }
     }
 
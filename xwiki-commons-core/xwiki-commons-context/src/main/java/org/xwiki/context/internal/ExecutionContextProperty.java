@@ -64,6 +64,9 @@ public class ExecutionContextProperty implements Cloneable
     /** @see #isClonedFrom(ExecutionContextProperty) */
     private WeakReference<ExecutionContextProperty> clonedFrom;
 
+    /** @see #getOwner() */
+    private Object owner;
+
     /**
      * @param key The execution context key.
      * @param initialValue The initial value.
@@ -140,6 +143,50 @@ public boolean isInherited()
         return this.inherited;
     }
 
+    /**
+     * @return wether the value of this property should be cloned when the property is cloned
+     * @since 7.4M1
+     */
+    public boolean isCloneValue()
+    {
+        return this.cloneValue;
+    }
+
+    /**
+     * @return the storage allowed to modify this property instance in place, other storages sharing the instance have
+     *         to {@link #copy()} it first
+     * @since 7.4M1
+     */
+    public Object getOwner()
+    {
+        return this.owner;
+    }
+
+    /**
+     * @param owner the storage allowed to modify this property instance in place
+     * @since 7.4M1
+     */
+    public void setOwner(Object owner)
+    {
+        this.owner = owner;
+    }
+
+    /**
+     * Create a shallow copy of this property: unlike {@link #clone()} the value is never cloned. The copy has no owner.
+     *
+     * @return the copy
+     * @since 7.4M1
+     */
+    public ExecutionContextProperty copy()
+    {
+        ExecutionContextProperty copy = new ExecutionContextProperty(getKey(), getValue(), this.cloneValue, isFinal(),
+            isInherited(), this.nonNull, getType());
+
+        copy.clonedFrom = this.clonedFrom;
+
+        return copy;
+    }
+
     /**
      * @return the type of the value
      */
@@ -0,0 +1,473 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.xwiki.context.ExecutionContextKey;
+
+/**
+ * Storage of the properties of an execution context.
+ * <p>
+ * Properties associated to an interned {@link ExecutionContextKey} are stored in an array indexed by the key slot, the
+ * other ones in a map.
+ * <p>
+ * Inheritance does not copy anything: the inheriting table points to the inherited table, which becomes shared and
+ * must not be modified anymore (the owner of a shared table is expected to {@link #copy()} it before modifying it).
+ * Properties found in the inherited tables are copied in the inheriting table only when they are modified (see
+ * {@link ExecutionContextProperty#getOwner()}) or removed (in which case a removal marker is stored).
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ExecutionContextPropertyTable
+{
+    /**
+     * Empty slots.
+     */
+    private static final ExecutionContextProperty[] EMPTY = new ExecutionContextProperty[0];
+
+    /**
+     * The properties associated to an interned key, indexed by the key slot.
+     */
+    private ExecutionContextProperty[] slots = EMPTY;
+
+    /**
+     * The properties not associated to an interned key, lazily created.
+     */
+    private Map<String, ExecutionContextProperty> named;
+
+    /**
+     * The inherited table.
+     */
+    private ExecutionContextPropertyTable parent;
+
+    /**
+     * Indicate if this table is inherited by another table, in which case it may not be modified anymore.
+     */
+    private volatile boolean shared;
+
+    /**
+     * Indicate if this table or one of its parents contains inherited properties with a value to clone.
+     */
+    private boolean cloneValue;
+
+    /**
+     * Create an empty table.
+     */
+    public ExecutionContextPropertyTable()
+    {
+    }
+
+    /**
+     * @param table the table to copy
+     */
+    private ExecutionContextPropertyTable(ExecutionContextPropertyTable table)
+    {
+        this.slots = table.slots.length > 0 ? table.slots.clone() : EMPTY;
+        this.named = table.named != null ? new HashMap<String, ExecutionContextProperty>(table.named) : null;
+        this.parent = table.parent;
+        this.cloneValue = table.cloneValue;
+    }
+
+    /**
+     * @return {@code true} if this table is inherited by another table and may not be modified anymore
+     */
+    public boolean isShared()
+    {
+        return this.shared;
+    }
+
+    /**
+     * @return a modifiable copy of this table, the properties themselves are shared with this table until modified
+     */
+    public ExecutionContextPropertyTable copy()
+    {
+        return new ExecutionContextPropertyTable(this);
+    }
+
+    /**
+     * @param property the property
+     * @return {@code true} if the passed property may be modified in place by this table
+     */
+    public boolean isOwned(ExecutionContextProperty property)
+    {
+        return property.getOwner() == this;
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @return the property visible from this table (declared in this table or inherited) or {@code null}
+     */
+    public ExecutionContextProperty get(String name, ExecutionContextKey key)
+    {
+        ExecutionContextProperty property = getLocal(name, key);
+
+        if (property != null) {
+            return property instanceof RemovedProperty ? null : property;
+        }
+
+        for (ExecutionContextPropertyTable table = this.parent; table != null; table = table.parent) {
+            property = table.getLocal(name, key);
+
+            if (property != null) {
+                return property instanceof RemovedProperty || !property.isInherited() ? null : property;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @return the property (or removal marker) stored in this table itself
+     */
+    private ExecutionContextProperty getLocal(String name, ExecutionContextKey key)
+    {
+        if (key != null) {
+            int index = key.getIndex();
+            if (index < this.slots.length && this.slots[index] != null) {
+                return this.slots[index];
+            }
+
+            // The name might have been interned after the property was stored
+            if (this.named == null || this.named.isEmpty()) {
+                return null;
+            }
+        } else if (this.named == null) {
+            return null;
+        }
+
+        return this.named.get(name);
+    }
+
+    /**
+     * Store a property owned by this table.
+     *
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @param property the property to store
+     */
+    public void put(ExecutionContextKey key, ExecutionContextProperty property)
+    {
+        property.setOwner(this);
+
+        putLocal(property.getKey(), key, property);
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     * @param property the property or removal marker to store
+     */
+    private void putLocal(String name, ExecutionContextKey key, ExecutionContextProperty property)
+    {
+        if (key != null) {
+            int index = key.getIndex();
+            if (index >= this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, index + 1);
+            }
+            this.slots[index] = property;
+
+            if (this.named != null) {
+                this.named.remove(name);
+            }
+        } else {
+            if (this.named == null) {
+                this.named = new HashMap<String, ExecutionContextProperty>();
+            }
+            this.named.put(name, property);
+        }
+
+        if (property.isInherited() && property.isCloneValue()) {
+            this.cloneValue = true;
+        }
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     */
+    public void remove(String name, ExecutionContextKey key)
+    {
+        if (this.parent != null && this.parent.get(name, key) != null) {
+            // Hide the inherited property
+            putLocal(name, key, new RemovedProperty(name));
+        } else {
+            removeLocal(name, key);
+        }
+    }
+
+    /**
+     * @param name the name of the property
+     * @param key the interned key of the property or {@code null} if the name is not interned
+     */
+    private void removeLocal(String name, ExecutionContextKey key)
+    {
+        if (key != null && key.getIndex() < this.slots.length) {
+            this.slots[key.getIndex()] = null;
+        }
+        if (this.named != null) {
+            this.named.remove(name);
+        }
+    }
+
+    /**
+     * @return the properties visible from this table, indexed by name
+     */
+    public Map<String, ExecutionContextProperty> getProperties()
+    {
+        Map<String, ExecutionContextProperty> properties = new LinkedHashMap<String, ExecutionContextProperty>();
+
+        collect(properties, false);
+
+        for (Iterator<ExecutionContextProperty> it = properties.values().iterator(); it.hasNext();) {
+            if (it.next() instanceof RemovedProperty) {
+                it.remove();
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * @param properties the properties (and removal markers) collected so far, which shadow the ones of this table
+     * @param inheritedOnly {@code true} if only the inherited properties of this table are visible
+     */
+    private void collect(Map<String, ExecutionContextProperty> properties, boolean inheritedOnly)
+    {
+        for (ExecutionContextProperty property : this.slots) {
+            if (property != null) {
+                collect(property, properties, inheritedOnly);
+            }
+        }
+        if (this.named != null) {
+            for (ExecutionContextProperty property : this.named.values()) {
+                collect(property, properties, inheritedOnly);
+            }
+        }
+
+        if (this.parent != null) {
+            this.parent.collect(properties, true);
+        }
+    }
+
+    /**
+     * @param property the property to collect
+     * @param properties the properties (and removal markers) collected so far
+     * @param inheritedOnly {@code true} if only inherited properties are visible
+     */
+    private void collect(ExecutionContextProperty property, Map<String, ExecutionContextProperty> properties,
+        boolean inheritedOnly)
+    {
+        if (!properties.containsKey(property.getKey())) {
+            if (inheritedOnly && !property.isInherited()) {
+                // Not visible but still shadows the properties of the parent tables
+                properties.put(property.getKey(), new RemovedProperty(property.getKey()));
+            } else {
+                properties.put(property.getKey(), property);
+            }
+        }
+    }
+
+    /**
+     * Inherit the inherited properties of the passed table.
+     * <p>
+     * The passed table becomes shared. The properties declared with a value to clone are cloned right away since their
+     * value is allowed to be modified in place.
+     *
+     * @param table the table to inherit from
+     * @throws IllegalStateException if this table contains a property which shadows an inherited final property
+     */
+    public void inherit(ExecutionContextPropertyTable table)
+    {
+        if (!isEmpty()) {
+            // Make sure we don't shadow an inherited final property
+            for (ExecutionContextProperty property : getProperties().values()) {
+                checkShadowing(property, table);
+            }
+        }
+
+        if (this.parent != null || isAncestor(table)) {
+            // Already inheriting (or the chain would loop): copy the references to the inherited properties instead
+            copyInherited(table);
+        } else {
+            table.shared = true;
+            this.parent = table;
+
+            if (table.cloneValue) {
+                this.cloneValue = true;
+
+                cloneInheritedValues(table);
+            }
+        }
+    }
+
+    /**
+     * Copy in this table the references to the inherited properties of the passed table which are not already defined
+     * here.
+     *
+     * @param table the table to inherit from
+     */
+    private void copyInherited(ExecutionContextPropertyTable table)
+    {
+        Map<String, ExecutionContextProperty> inherited = table.getProperties();
+
+        materialize();
+
+        for (ExecutionContextProperty property : inherited.values()) {
+            String name = property.getKey();
+            ExecutionContextKey key = ExecutionContextKey.get(name);
+            if (property.isInherited() && getLocal(name, key) == null) {
+                if (property.isCloneValue()) {
+                    put(key, property.clone());
+                } else {
+                    putLocal(name, key, property);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clone right away the inherited properties of the passed table and its ancestors declared with a value to clone.
+     *
+     * @param table the parent table
+     */
+    private void cloneInheritedValues(ExecutionContextPropertyTable table)
+    {
+        for (ExecutionContextPropertyTable ancestor = table; ancestor != null; ancestor = ancestor.parent) {
+            for (ExecutionContextProperty property : ancestor.slots) {
+                inheritClonedValue(property);
+            }
+            if (ancestor.named != null) {
+                for (ExecutionContextProperty property : ancestor.named.values()) {
+                    inheritClonedValue(property);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if no property is visible from this table
+     */
+    private boolean isEmpty()
+    {
+        if (this.parent != null || this.named != null && !this.named.isEmpty()) {
+            return false;
+        }
+
+        for (ExecutionContextProperty property : this.slots) {
+            if (property != null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param property the property declared in this table
+     * @param table the table to inherit from
+     * @throws IllegalStateException if the property shadows an inherited final property
+     */
+    private void checkShadowing(ExecutionContextProperty property, ExecutionContextPropertyTable table)
+    {
+        ExecutionContextProperty inheritedProperty =
+            table.get(property.getKey(), ExecutionContextKey.get(property.getKey()));
+
+        if (inheritedProperty != null && inheritedProperty.isFinal() && inheritedProperty != property
+            && !property.isClonedFrom(inheritedProperty)) {
+            throw new IllegalStateException(String.format("Execution context cannot be inherited because it already"
+                + " contains property [%s] which must be inherited because it is an inherited final property.",
+                property.getKey()));
+        }
+    }
+
+    /**
+     * @param table the table
+     * @return {@code true} if this table is the passed table or one of its parents
+     */
+    private boolean isAncestor(ExecutionContextPropertyTable table)
+    {
+        for (ExecutionContextPropertyTable ancestor = table; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == this) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Clone the passed property of a parent table if its value has to be cloned and it's visible from this table.
+     *
+     * @param property the property of a parent table
+     */
+    private void inheritClonedValue(ExecutionContextProperty property)
+    {
+        if (property != null && property.isInherited() && property.isCloneValue()) {
+            String name = property.getKey();
+            ExecutionContextKey key = ExecutionContextKey.get(name);
+
+            if (get(name, key) == property) {
+                put(key, property.clone());
+            }
+        }
+    }
+
+    /**
+     * Copy in this table the references to the properties visible from the parent tables and forget about the parent
+     * tables.
+     */
+    private void materialize()
+    {
+        Map<String, ExecutionContextProperty> properties = getProperties();
+
+        this.slots = EMPTY;
+        this.named = null;
+        this.parent = null;
+
+        for (ExecutionContextProperty property : properties.values()) {
+            String name = property.getKey();
+            putLocal(name, ExecutionContextKey.get(name), property);
+        }
+    }
+
+    /**
+     * Hide a property inherited from a parent table.
+     *
+     * @version $Id$
+     */
+    private static final class RemovedProperty extends ExecutionContextProperty
+    {
+        /**
+         * @param key the name of the removed property
+         */
+        RemovedProperty(String key)
+        {
+            super(key, null, false, false, false, false, null);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.internal;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+import org.xwiki.context.ExecutionContext;
+
+/**
+ * Unsynchronized stack of execution contexts (a thread only manipulates its own stack).
+ * <p>
+ * The top context is kept in a field so that the most common case (a single context) does not need any array.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+final class ExecutionContextStack
+{
+    /**
+     * The initial size of the array containing the contexts under the top one.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The context at the top of the stack.
+     */
+    private ExecutionContext top;
+
+    /**
+     * The contexts under the top one, lazily created.
+     */
+    private ExecutionContext[] below;
+
+    /**
+     * The number of contexts in the stack.
+     */
+    private int size;
+
+    /**
+     * @return {@code true} if the stack does not contain any context
+     */
+    boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @return the context at the top of the stack
+     */
+    ExecutionContext peek()
+    {
+        return this.top;
+    }
+
+    /**
+     * @param context the context to put at the top of the stack
+     */
+    void push(ExecutionContext context)
+    {
+        if (this.size > 0) {
+            int index = this.size - 1;
+
+            if (this.below == null) {
+                this.below = new ExecutionContext[INITIAL_CAPACITY];
+            } else if (index == this.below.length) {
+                this.below = Arrays.copyOf(this.below, this.below.length * 2);
+            }
+
+            this.below[index] = this.top;
+        }
+
+        this.top = context;
+        ++this.size;
+    }
+
+    /**
+     * Remove the context at the top of the stack.
+     *
+     * @throws EmptyStackException if the stack is empty
+     */
+    void pop()
+    {
+        if (this.size == 0) {
+            throw new EmptyStackException();
+        }
+
+        --this.size;
+
+        if (this.size > 0) {
+            int index = this.size - 1;
+
+            this.top = this.below[index];
+            this.below[index] = null;
+        } else {
+            this.top = null;
+        }
+    }
+
+    /**
+     * @param context the context replacing the one at the top of the stack
+     */
+    void set(ExecutionContext context)
+    {
+        this.top = context;
+    }
+}
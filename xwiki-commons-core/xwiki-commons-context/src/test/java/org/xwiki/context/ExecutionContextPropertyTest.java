@@ -20,11 +20,11 @@
 package org.xwiki.context;
 
 import java.lang.reflect.Field;
-import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.context.internal.ExecutionContextProperty;
+import org.xwiki.context.internal.ExecutionContextPropertyTable;
 
 /**
  * @version $Id$
@@ -39,17 +39,15 @@
      * @param key The property key
      * @return the execution context property corresponding to the given key.
      */
-    @SuppressWarnings("unchecked")
     private ExecutionContextProperty fetch(ExecutionContext context, String key) throws Exception
     {
         Field propertiesField = ExecutionContext.class.getDeclaredField("properties");
 
         propertiesField.setAccessible(true);
 
-        Map<String, ExecutionContextProperty> properties =
-            (Map<String, ExecutionContextProperty>) propertiesField.get(context);
+        ExecutionContextPropertyTable properties = (ExecutionContextPropertyTable) propertiesField.get(context);
 
-        return properties.get(key);
+        return properties.get(key, ExecutionContextKey.get(key));
     }
 
     @Test
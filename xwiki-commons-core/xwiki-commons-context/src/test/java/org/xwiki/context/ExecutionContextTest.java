@@ -21,7 +21,10 @@
 
 import static org.hamcrest.Matchers.hasEntry;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -109,4 +112,123 @@ public void removeUnexistingProperty()
         ExecutionContext context = new ExecutionContext();
         context.removeProperty("doesnotexist");
     }
+
+    @Test
+    public void inheritanceIsCopyOnWrite()
+    {
+        ExecutionContext parent = new ExecutionContext();
+        parent.newProperty("inherited").inherited().initial("parent").declare();
+        parent.newProperty("removed").inherited().initial("parent").declare();
+        parent.newProperty("notinherited").initial("parent").declare();
+
+        ExecutionContext context = new ExecutionContext();
+        context.inheritFrom(parent);
+
+        assertEquals("parent", context.getProperty("inherited"));
+        assertFalse(context.hasProperty("notinherited"));
+
+        // Modifications of the inheriting context are not visible from the inherited context
+        context.setProperty("inherited", "context");
+        context.removeProperty("removed");
+
+        assertEquals("context", context.getProperty("inherited"));
+        assertFalse(context.hasProperty("removed"));
+        assertEquals("parent", parent.getProperty("inherited"));
+        assertEquals("parent", parent.getProperty("removed"));
+
+        // Modifications of the inherited context are not visible from the inheriting context
+        ExecutionContext context2 = new ExecutionContext();
+        context2.inheritFrom(parent);
+
+        parent.setProperty("inherited", "modified");
+        parent.removeProperty("removed");
+        parent.newProperty("new").inherited().declare();
+
+        assertEquals("parent", context2.getProperty("inherited"));
+        assertEquals("parent", context2.getProperty("removed"));
+        assertFalse(context2.hasProperty("new"));
+        assertEquals(2, context2.getProperties().size());
+        assertEquals("modified", parent.getProperty("inherited"));
+        assertFalse(parent.hasProperty("removed"));
+    }
+
+    @Test
+    public void inheritanceChain()
+    {
+        ExecutionContext root = new ExecutionContext();
+        root.newProperty("inherited").inherited().initial("root").declare();
+
+        ExecutionContext parent = new ExecutionContext();
+        parent.inheritFrom(root);
+        parent.newProperty("parent").inherited().initial("parent").declare();
+
+        ExecutionContext context = new ExecutionContext();
+        context.newProperty("context").initial("context").declare();
+        context.inheritFrom(parent);
+
+        assertEquals("root", context.getProperty("inherited"));
+        assertEquals("parent", context.getProperty("parent"));
+        assertEquals(3, context.getProperties().size());
+
+        // Inheriting a second time keeps the previously inherited properties
+        ExecutionContext other = new ExecutionContext();
+        other.newProperty("parent").inherited().initial("other").declare();
+        other.newProperty("other").inherited().initial("other").declare();
+        context.inheritFrom(other);
+
+        assertEquals("parent", context.getProperty("parent"));
+        assertEquals("other", context.getProperty("other"));
+        assertEquals("root", context.getProperty("inherited"));
+    }
+
+    @Test
+    public void inheritanceClonesValue()
+    {
+        ExecutionContext parent = new ExecutionContext();
+        ExecutionContextPropertyTest.TestCloneable value = new ExecutionContextPropertyTest.TestCloneable();
+        parent.newProperty("cloned").inherited().cloneValue().initial(value).declare();
+
+        ExecutionContext context = new ExecutionContext();
+        context.inheritFrom(parent);
+
+        ExecutionContextPropertyTest.TestCloneable clonedValue =
+            (ExecutionContextPropertyTest.TestCloneable) context.getProperty("cloned");
+
+        assertNotSame(value, clonedValue);
+        assertEquals("clone", clonedValue.value);
+        assertSame(value, parent.getProperty("cloned"));
+    }
+
+    @Test
+    public void internedKey()
+    {
+        ExecutionContextKey key = ExecutionContextKey.of("interned");
+
+        assertSame(key, ExecutionContextKey.of("interned"));
+        assertSame(key, ExecutionContextKey.get("interned"));
+
+        ExecutionContext context = new ExecutionContext();
+        context.setProperty(key, "value");
+
+        assertTrue(context.hasProperty(key));
+        assertEquals("value", context.getProperty(key));
+        assertEquals("value", context.getProperty("interned"));
+
+        context.setProperty("interned", "value2");
+
+        assertEquals("value2", context.getProperty(key));
+
+        ExecutionContext parent = new ExecutionContext();
+        parent.newProperty("interned").inherited().initial("parent").declare();
+
+        ExecutionContext child = new ExecutionContext();
+        child.inheritFrom(parent);
+
+        assertEquals("parent", child.getProperty(key));
+
+        child.removeProperty("interned");
+
+        assertNull(child.getProperty(key));
+        assertEquals("parent", parent.getProperty(key));
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.internal.DefaultExecution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Validate {@link ExecutionContextExecutorService}.
+ *
+ * @version $Id$
+ */
+public class ExecutionContextExecutorServiceTest
+{
+    private Execution execution;
+
+    private ExecutorService executor;
+
+    @Before
+    public void before()
+    {
+        this.execution = new DefaultExecution();
+        this.executor = new ExecutionContextExecutorService(Executors.newSingleThreadExecutor(), this.execution);
+
+        ExecutionContext context = new ExecutionContext();
+        context.newProperty("inherited").inherited().initial("value").declare();
+        context.newProperty("notinherited").initial("value").declare();
+        this.execution.setContext(context);
+    }
+
+    @After
+    public void after() throws InterruptedException
+    {
+        this.execution.removeContext();
+        this.executor.shutdown();
+        this.executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void submit() throws Exception
+    {
+        ExecutionContext context = this.execution.getContext();
+
+        Future<Object> future = this.executor.submit(new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                ExecutionContext taskContext = execution.getContext();
+
+                assertFalse(taskContext.hasProperty("notinherited"));
+
+                taskContext.setProperty("inherited", "modified");
+
+                return taskContext.getProperty("inherited");
+            }
+        });
+
+        assertEquals("modified", future.get(10, TimeUnit.SECONDS));
+        assertEquals("value", context.getProperty("inherited"));
+        assertSame(context, this.execution.getContext());
+
+        // The worker thread context has been cleaned
+        assertEquals("value", this.executor.submit(new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                return execution.getContext().getProperty("inherited");
+            }
+        }).get(10, TimeUnit.SECONDS));
+
+        this.execution.removeContext();
+
+        assertNull(this.executor.submit(new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                return execution.getContext().getProperty("inherited");
+            }
+        }).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invokeAll() throws Exception
+    {
+        Callable<Object> task = new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                Object value = execution.getContext().getProperty("inherited");
+
+                execution.getContext().removeProperty("inherited");
+
+                return value;
+            }
+        };
+
+        List<Future<Object>> futures = this.executor.invokeAll(Arrays.asList(task, task));
+
+        assertEquals("value", futures.get(0).get());
+        assertEquals("value", futures.get(1).get());
+        assertEquals("value", this.execution.getContext().getProperty("inherited"));
+    }
+}
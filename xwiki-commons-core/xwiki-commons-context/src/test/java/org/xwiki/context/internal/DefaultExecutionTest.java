@@ -86,4 +86,26 @@ public void removeContext() throws Exception
 
         Assert.assertNull(execution.getContext());
     }
+
+    @Test
+    public void pushAndPopManyContexts() throws Exception
+    {
+        Execution execution = new DefaultExecution();
+
+        ExecutionContext[] contexts = new ExecutionContext[20];
+        for (int i = 0; i < contexts.length; ++i) {
+            contexts[i] = new ExecutionContext();
+            execution.pushContext(contexts[i]);
+
+            Assert.assertSame(contexts[i], execution.getContext());
+        }
+
+        for (int i = contexts.length - 1; i >= 0; --i) {
+            Assert.assertSame(contexts[i], execution.getContext());
+
+            execution.popContext();
+        }
+
+        Assert.assertNull(execution.getContext());
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.xwiki.job;
 
+import java.io.File;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
@@ -40,6 +41,8 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.job.internal.binary.SpoolingLogQueue;
 import org.xwiki.logging.LoggerManager;
 import org.xwiki.logging.marker.BeginTranslationMarker;
 import org.xwiki.logging.marker.EndTranslationMarker;
@@ -142,6 +145,12 @@
     @Inject
     private Provider<ExecutionContextManager> executionContextManagerProvider;
 
+    /**
+     * Used to get the limits of the job progress.
+     */
+    @Inject
+    private Provider<JobManagerConfiguration> configurationProvider;
+
     @Override
     public R getRequest()
     {
@@ -224,6 +233,9 @@ protected void jobStarting()
             ((AbstractJobStatus<R>) this.status).setStartDate(new Date());
             ((AbstractJobStatus<R>) this.status).setState(JobStatus.State.RUNNING);
 
+            initializeProgress();
+            initializeLog();
+
             ((AbstractJobStatus) this.status).startListening();
         }
 
@@ -235,6 +247,31 @@ protected void jobStarting()
         }
     }
 
+    private void initializeProgress()
+    {
+        JobManagerConfiguration configuration = this.configurationProvider.get();
+
+        if (configuration != null && this.status.getProgress() instanceof DefaultJobProgress) {
+            // Limit the size of the progress tree
+            DefaultJobProgress progress = (DefaultJobProgress) this.status.getProgress();
+            progress.setMaxLevelSteps(configuration.getJobProgressMaxLevelSteps());
+            progress.setMaxDepth(configuration.getJobProgressMaxDepth());
+            progress.setMaxSteps(configuration.getJobProgressMaxSteps());
+        }
+    }
+
+    private void initializeLog()
+    {
+        JobManagerConfiguration configuration = this.configurationProvider.get();
+
+        if (configuration != null && configuration.getStorage() != null && configuration.getJobLogMaxMemoryEvents() > 0) {
+            // Move the oldest log events to disk
+            ((AbstractJobStatus<R>) this.status).startSpooling(
+                new File(configuration.getStorage(), SpoolingLogQueue.FOLDER_SPOOL),
+                configuration.getJobLogMaxMemoryEvents());
+        }
+    }
+
     /**
      * Called when the job is done.
      *
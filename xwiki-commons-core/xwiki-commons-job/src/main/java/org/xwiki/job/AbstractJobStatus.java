@@ -19,6 +19,7 @@
  */
 package org.xwiki.job;
 
+import java.io.File;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.locks.Condition;
@@ -29,6 +30,8 @@
 import org.xwiki.job.event.status.QuestionAnsweredEvent;
 import org.xwiki.job.event.status.QuestionAskedEvent;
 import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.job.internal.JobProgressContext;
+import org.xwiki.job.internal.binary.SpoolingLogQueue;
 import org.xwiki.logging.LogLevel;
 import org.xwiki.logging.LogQueue;
 import org.xwiki.logging.LoggerManager;
@@ -36,6 +39,7 @@
 import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.WrappedThreadEventListener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Base implementation of {@link JobStatus}.
@@ -82,7 +86,7 @@
     /**
      * Log sent during job execution.
      */
-    private final LogQueue logs;
+    private volatile LogQueue logs;
 
     /**
      * Used to listen to all the log produced during job execution.
@@ -140,13 +144,31 @@ public AbstractJobStatus(R request, JobStatus parentJobStatus, ObservationManage
         this.logs = new LogQueue();
     }
 
+    /**
+     * Keep only the most recent log events in memory and move the oldest ones to disk. Should be called before
+     * {@link #startListening()}.
+     *
+     * @param folder the folder where to spool the log events
+     * @param maxMemoryEvents the maximum number of log events to keep in memory
+     * @since 7.4M1
+     */
+    @Unstable
+    public void startSpooling(File folder, int maxMemoryEvents)
+    {
+        SpoolingLogQueue spoolingLogs = new SpoolingLogQueue();
+        spoolingLogs.addAll(this.logs);
+        spoolingLogs.startSpooling(folder, maxMemoryEvents);
+
+        this.logs = spoolingLogs;
+    }
+
     /**
      * Start listening to events.
      */
     public void startListening()
     {
-        // Register progress listener
-        this.observationManager.addListener(new WrappedThreadEventListener(this.progress));
+        // Receive the progress events of the current thread
+        JobProgressContext.push(this.progress);
 
         // Isolate log for the job status
         this.logListener = new LoggerListener(LoggerListener.class.getName() + '_' + hashCode(), this.logs);
@@ -167,7 +189,7 @@ public void stopListening()
         } else {
             this.observationManager.removeListener(this.logListener.getName());
         }
-        this.observationManager.removeListener(this.progress.getName());
+        JobProgressContext.remove(this.progress);
 
         // Make sure the progress is closed
         this.progress.getRootStep().finish();
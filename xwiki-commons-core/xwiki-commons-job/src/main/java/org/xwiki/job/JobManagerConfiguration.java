@@ -42,4 +42,72 @@
      * @since 7.2M2
      */
     int getJobStatusCacheSize();
+
+    /**
+     * @return the maximum total weight of the entries in the job status cache, a job status weighing 1 plus 1 for each
+     *         thousand log events or progress steps kept in memory; unlimited if lower than 1
+     * @since 7.4M1
+     */
+    int getJobStatusCacheWeight();
+
+    /**
+     * @return the number of threads serializing the job statuses in background
+     * @since 7.4M1
+     */
+    int getJobStatusSerializerThreads();
+
+    /**
+     * @return the maximum number of job statuses waiting to be serialized in background
+     * @since 7.4M1
+     */
+    int getJobStatusSerializerQueueSize();
+
+    /**
+     * @return the maximum number of jobs running at the same time, unlimited if lower than 1
+     * @since 7.4M1
+     */
+    int getMaxRunningJobs();
+
+    /**
+     * @param jobType the type of the job
+     * @return the maximum number of jobs of the passed type running at the same time, unlimited if lower than 1
+     * @since 7.4M1
+     */
+    int getMaxRunningJobs(String jobType);
+
+    /**
+     * @param jobType the type of the job
+     * @return the priority of the jobs of the passed type, the ones with the highest priority are started first when
+     *         too many jobs are running
+     * @since 7.4M1
+     */
+    int getJobPriority(String jobType);
+
+    /**
+     * @return the number of steps to keep in each level of a job progress, the following ones are only counted once
+     *         finished; unlimited if lower than 1
+     * @since 7.4M1
+     */
+    int getJobProgressMaxLevelSteps();
+
+    /**
+     * @return the depth of the job progress levels from which finished steps are only counted; unlimited if lower than
+     *         1
+     * @since 7.4M1
+     */
+    int getJobProgressMaxDepth();
+
+    /**
+     * @return the number of steps to keep in a job progress, once reached finished steps are only counted; unlimited
+     *         if lower than 1
+     * @since 7.4M1
+     */
+    int getJobProgressMaxSteps();
+
+    /**
+     * @return the number of log events to keep in memory for each running job, the older ones are moved to disk; all
+     *         the log events are kept in memory if lower than 1
+     * @since 7.4M1
+     */
+    int getJobLogMaxMemoryEvents();
 }
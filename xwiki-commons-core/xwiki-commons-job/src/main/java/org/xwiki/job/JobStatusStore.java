@@ -39,6 +39,13 @@
      */
     JobStatus getJobStatus(List<String> id);
 
+    /**
+     * @param prefix the beginning of the job ids, {@code null} or empty for all the stored job statuses
+     * @return the ids of the stored job statuses with an id starting with the passed prefix
+     * @since 7.4M1
+     */
+    List<List<String>> getJobStatusIds(List<String> prefix);
+
     /**
      * @param status the job status
      */
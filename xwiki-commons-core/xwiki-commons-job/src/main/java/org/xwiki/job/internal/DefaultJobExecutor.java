@@ -22,22 +22,18 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -50,6 +46,7 @@
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
 import org.xwiki.job.JobGroupPath;
+import org.xwiki.job.JobManagerConfiguration;
 import org.xwiki.job.Request;
 
 /**
@@ -62,95 +59,78 @@
 @Singleton
 public class DefaultJobExecutor implements JobExecutor, Initializable, Disposable
 {
-    private class JobGroupExecutor extends JobThreadExecutor implements ThreadFactory
+    /**
+     * Run a grouped job once admitted.
+     */
+    private class GroupedJobRunnable implements Runnable
     {
-        private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+        private final GroupedJob job;
 
         private final JobGroupPath path;
 
-        private Job currentJob;
-
-        private String groupThreadName;
-
-        JobGroupExecutor(JobGroupPath path)
+        GroupedJobRunnable(GroupedJob job)
         {
-            super(1, 36000L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
-
-            setThreadFactory(this);
-
-            this.path = path;
-            this.groupThreadName = this.path + " job group daemon thread";
-        }
-
-        @Override
-        protected void beforeExecute(Thread t, Runnable r)
-        {
-            DefaultJobExecutor.this.lockTree.lock(this.path);
-
-            this.currentJob = (Job) r;
-
-            Thread.currentThread().setName(this.groupThreadName + " - " + this.currentJob);
-
-            super.beforeExecute(t, r);
+            this.job = job;
+            this.path = job.getGroupPath();
         }
 
         @Override
-        protected void afterExecute(Runnable r, Throwable t)
+        public void run()
         {
-            Thread.currentThread().setName(this.groupThreadName);
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
 
-            DefaultJobExecutor.this.lockTree.unlock(this.path);
+            DefaultJobExecutor.this.currentJobs.put(this.path, this.job);
 
-            this.currentJob = null;
+            thread.setName(this.path + " job group daemon thread - " + this.job);
 
-            super.afterExecute(r, t);
+            try {
+                this.job.run();
+            } finally {
+                thread.setName(threadName);
 
-            Job job = (Job) r;
+                DefaultJobExecutor.this.currentJobs.remove(this.path, this.job);
 
-            List<String> jobId = job.getRequest().getId();
-            if (jobId != null) {
-                synchronized (DefaultJobExecutor.this.groupedJobs) {
-                    Queue<Job> jobQueue = DefaultJobExecutor.this.groupedJobs.get(jobId);
-                    if (jobQueue != null) {
-                        if (jobQueue.peek() == job) {
-                            jobQueue.poll();
+                List<String> jobId = this.job.getRequest().getId();
+                if (jobId != null) {
+                    synchronized (DefaultJobExecutor.this.groupedJobs) {
+                        Queue<Job> jobQueue = DefaultJobExecutor.this.groupedJobs.get(jobId);
+                        if (jobQueue != null) {
+                            if (jobQueue.peek() == this.job) {
+                                jobQueue.poll();
+                            }
                         }
                     }
                 }
             }
         }
-
-        @Override
-        public Thread newThread(Runnable r)
-        {
-            Thread thread = this.threadFactory.newThread(r);
-
-            thread.setDaemon(true);
-            thread.setName(this.groupThreadName);
-
-            return thread;
-        }
     }
 
-    private class JobThreadExecutor extends ThreadPoolExecutor
+    /**
+     * Run a non grouped job.
+     */
+    private class JobRunnable implements Runnable
     {
-        JobThreadExecutor(int maximumPoolSize, long keepAliveTime, TimeUnit unit,
-            BlockingQueue<Runnable> workQueue)
+        private final Job job;
+
+        JobRunnable(Job job)
         {
-            super(0, maximumPoolSize, keepAliveTime, unit, workQueue);
+            this.job = job;
         }
 
         @Override
-        protected void afterExecute(Runnable r, Throwable t)
+        public void run()
         {
-            Job job = (Job) r;
-
-            List<String> jobId = job.getRequest().getId();
-            if (jobId != null) {
-                synchronized (DefaultJobExecutor.this.jobs) {
-                    Job storedJob = DefaultJobExecutor.this.jobs.get(jobId);
-                    if (storedJob == job) {
-                        DefaultJobExecutor.this.jobs.remove(jobId);
+            try {
+                this.job.run();
+            } finally {
+                List<String> jobId = this.job.getRequest().getId();
+                if (jobId != null) {
+                    synchronized (DefaultJobExecutor.this.jobs) {
+                        Job storedJob = DefaultJobExecutor.this.jobs.get(jobId);
+                        if (storedJob == this.job) {
+                            DefaultJobExecutor.this.jobs.remove(jobId);
+                        }
                     }
                 }
             }
@@ -164,33 +144,39 @@ protected void afterExecute(Runnable r, Throwable t)
     @Named("context")
     private Provider<ComponentManager> componentManager;
 
+    @Inject
+    private JobManagerConfiguration configuration;
+
     private final Map<List<String>, Queue<Job>> groupedJobs = new ConcurrentHashMap<List<String>, Queue<Job>>();
 
     private final Map<List<String>, Job> jobs = new ConcurrentHashMap<List<String>, Job>();
 
     /**
-     * Handle care of hierarchical locking for grouped jobs.
+     * Map<group, job currently running in the group>.
      */
-    private final JobGroupPathLockTree lockTree = new JobGroupPathLockTree();
+    private final ConcurrentMap<JobGroupPath, Job> currentJobs = new ConcurrentHashMap<JobGroupPath, Job>();
 
     /**
-     * Map<groupname, group executor>.
+     * Handle care of hierarchical admission of grouped jobs.
      */
-    private final Map<JobGroupPath, JobGroupExecutor> groupExecutors =
-        new ConcurrentHashMap<JobGroupPath, JobGroupExecutor>();
+    private JobGroupAdmissionController admissionController;
 
     /**
-     * Execute non grouped jobs.
+     * Execute all the jobs.
      */
-    private JobThreadExecutor jobExecutor;
+    private JobExecutionEngine engine;
 
     private volatile boolean disposed;
 
     @Override
     public void initialize() throws InitializationException
     {
-        this.jobExecutor =
-            new JobThreadExecutor(Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        BasicThreadFactory threadFactory =
+            new BasicThreadFactory.Builder().namingPattern("Job thread %d").daemon(true).build();
+        this.engine = new JobExecutionEngine(this.configuration.getMaxRunningJobs(), threadFactory);
+
+        // Grouped jobs only enter the engine once their group is free
+        this.admissionController = new JobGroupAdmissionController(this.engine.getExecutor(null, 0, 0));
     }
 
     @Override
@@ -199,10 +185,8 @@ public void dispose() throws ComponentLifecycleException
         synchronized (this) {
             this.disposed = true;
 
-            this.jobExecutor.shutdownNow();
-            for (JobGroupExecutor executor : this.groupExecutors.values()) {
-                executor.shutdownNow();
-            }
+            this.admissionController.clear();
+            this.engine.shutdownNow();
         }
     }
 
@@ -211,9 +195,7 @@ public void dispose() throws ComponentLifecycleException
     @Override
     public Job getCurrentJob(JobGroupPath path)
     {
-        JobGroupExecutor executor = this.groupExecutors.get(path);
-
-        return executor != null ? executor.currentJob : null;
+        return this.currentJobs.get(path);
     }
 
     @Override
@@ -274,14 +256,14 @@ public void execute(Job job)
             if (job instanceof GroupedJob) {
                 execute((GroupedJob) job);
             } else {
-                this.jobExecutor.execute(job);
-
                 List<String> jobId = job.getRequest().getId();
                 if (jobId != null) {
                     synchronized (this.jobs) {
                         this.jobs.put(jobId, job);
                     }
                 }
+
+                getExecutor(job).execute(new JobRunnable(job));
             }
         } else {
             throw new RejectedExecutionException("The job executor is disposed");
@@ -290,29 +272,44 @@ public void execute(Job job)
 
     private void execute(GroupedJob job)
     {
-        synchronized (this.groupExecutors) {
-            JobGroupPath path = job.getGroupPath();
+        List<String> jobId = job.getRequest().getId();
+        if (jobId != null) {
+            synchronized (this.groupedJobs) {
+                Queue<Job> jobQueue = this.groupedJobs.get(jobId);
+                if (jobQueue == null) {
+                    jobQueue = new ConcurrentLinkedQueue<Job>();
+                    this.groupedJobs.put(jobId, jobQueue);
+                }
+                jobQueue.offer(job);
+            }
+        }
 
-            JobGroupExecutor groupExecutor = this.groupExecutors.get(path);
+        this.admissionController.submit(job.getGroupPath(), new GroupedJobRunnable(job), getExecutor(job));
+    }
 
-            if (groupExecutor == null) {
-                groupExecutor = new JobGroupExecutor(path);
-                this.groupExecutors.put(path, groupExecutor);
-            }
+    private Executor getExecutor(Job job)
+    {
+        String type = job.getType();
 
-            groupExecutor.execute(job);
+        return this.engine.getExecutor(type, this.configuration.getJobPriority(type),
+            this.configuration.getMaxRunningJobs(type));
+    }
 
-            List<String> jobId = job.getRequest().getId();
-            if (jobId != null) {
-                synchronized (this.groupedJobs) {
-                    Queue<Job> jobQueue = this.groupedJobs.get(jobId);
-                    if (jobQueue == null) {
-                        jobQueue = new ConcurrentLinkedQueue<Job>();
-                        this.groupedJobs.put(jobId, jobQueue);
-                    }
-                    jobQueue.offer(job);
-                }
-            }
-        }
+    /**
+     * @return the engine executing the jobs
+     * @since 7.4M1
+     */
+    public JobExecutionEngine getEngine()
+    {
+        return this.engine;
+    }
+
+    /**
+     * @return the number of grouped jobs waiting for their group to be free
+     * @since 7.4M1
+     */
+    public int getWaitingGroupedJobCount()
+    {
+        return this.admissionController.getWaitingCount();
     }
 }
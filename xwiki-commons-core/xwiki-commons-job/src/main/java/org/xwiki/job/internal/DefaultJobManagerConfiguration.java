@@ -88,4 +88,64 @@ public int getJobStatusCacheSize()
     {
         return this.configuration.get().getProperty("job.statusCacheSize", 50);
     }
+
+    @Override
+    public int getJobStatusCacheWeight()
+    {
+        return this.configuration.get().getProperty("job.statusCacheWeight", 1000);
+    }
+
+    @Override
+    public int getJobStatusSerializerThreads()
+    {
+        return this.configuration.get().getProperty("job.statusSerializerThreads", 2);
+    }
+
+    @Override
+    public int getJobStatusSerializerQueueSize()
+    {
+        return this.configuration.get().getProperty("job.statusSerializerQueueSize", 100);
+    }
+
+    @Override
+    public int getMaxRunningJobs()
+    {
+        return this.configuration.get().getProperty("job.maxRunningJobs", 50);
+    }
+
+    @Override
+    public int getMaxRunningJobs(String jobType)
+    {
+        return this.configuration.get().getProperty("job.maxRunningJobs." + jobType, 0);
+    }
+
+    @Override
+    public int getJobPriority(String jobType)
+    {
+        return this.configuration.get().getProperty("job.priority." + jobType, 0);
+    }
+
+    @Override
+    public int getJobProgressMaxLevelSteps()
+    {
+        return this.configuration.get().getProperty("job.progress.maxLevelSteps", 1000);
+    }
+
+    @Override
+    public int getJobProgressMaxDepth()
+    {
+        return this.configuration.get().getProperty("job.progress.maxDepth", 0);
+    }
+
+    @Override
+    public int getJobProgressMaxSteps()
+    {
+        return this.configuration.get().getProperty("job.progress.maxSteps", 100000);
+    }
+
+    @Override
+    public int getJobLogMaxMemoryEvents()
+    {
+        return this.configuration.get().getProperty("job.log.maxMemoryEvents", 10000);
+    }
 }
@@ -58,6 +58,26 @@ public class DefaultJobProgress implements EventListener, JobProgress
 
     private DefaultJobProgressStep currentStep;
 
+    /**
+     * @see #setMaxLevelSteps(int)
+     */
+    private transient int maxLevelSteps;
+
+    /**
+     * @see #setMaxDepth(int)
+     */
+    private transient int maxDepth;
+
+    /**
+     * @see #setMaxSteps(int)
+     */
+    private transient int maxSteps;
+
+    /**
+     * The number of steps currently kept in the progress tree.
+     */
+    private transient int stepCount;
+
     /**
      * Default constructor.
      */
@@ -78,6 +98,35 @@ public DefaultJobProgress(String name)
         this.currentStep = this.rootStep;
     }
 
+    /**
+     * @param maxLevelSteps the number of steps to keep in each level, the following ones are only counted once
+     *            finished; unlimited if lower than 1
+     * @since 7.4M1
+     */
+    public void setMaxLevelSteps(int maxLevelSteps)
+    {
+        this.maxLevelSteps = maxLevelSteps;
+    }
+
+    /**
+     * @param maxDepth the depth of the levels from which finished steps are only counted; unlimited if lower than 1
+     * @since 7.4M1
+     */
+    public void setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param maxSteps the number of steps to keep in the whole progress tree, once reached finished steps are only
+     *            counted; unlimited if lower than 1
+     * @since 7.4M1
+     */
+    public void setMaxSteps(int maxSteps)
+    {
+        this.maxSteps = maxSteps;
+    }
+
     // EventListener
 
     @Override
@@ -117,7 +166,7 @@ private void onPushLevelProgress(int steps, Object source)
     {
         if (this.currentStep.isLevelFinished()) {
             // If current step is done move to next one
-            this.currentStep = this.currentStep.getParent().nextStep(null, source);
+            this.currentStep = nextStep(this.currentStep.getParent(), null, source);
         }
 
         // Add level
@@ -155,7 +204,7 @@ private void onStartStepProgress(Message message, Object source)
         }
 
         // Start a new step
-        this.currentStep = this.currentStep.getParent().nextStep(message, source);
+        this.currentStep = nextStep(this.currentStep.getParent(), message, source);
     }
 
     /**
@@ -169,11 +218,63 @@ private void onStepProgress(Object source)
         onStartStepProgress(null, source);
 
         // if there is only one step close it and move to the next one
-        if (this.currentStep.getParent().getChildren().size() == 1) {
-            this.currentStep = this.currentStep.getParent().nextStep(null, source);
+        if (this.currentStep.getParent().getChildCount() == 1) {
+            this.currentStep = nextStep(this.currentStep.getParent(), null, source);
         }
     }
 
+    private DefaultJobProgressStep nextStep(DefaultJobProgressStep level, Message message, Object source)
+    {
+        DefaultJobProgressStep step = level.nextStep(message, source);
+
+        ++this.stepCount;
+
+        if (level.getChildren().size() > getMaxLevelSteps(level) + 1) {
+            // Only count the step which just finished
+            DefaultJobProgressStep previous = level.aggregatePreviousStep();
+
+            if (previous != null) {
+                this.stepCount -= countSteps(previous);
+            }
+        }
+
+        return step;
+    }
+
+    /**
+     * @return the number of finished steps to keep in the passed level (in addition to the current one)
+     */
+    private int getMaxLevelSteps(DefaultJobProgressStep level)
+    {
+        if (this.maxSteps > 0 && this.stepCount > this.maxSteps) {
+            return 0;
+        }
+
+        if (this.maxDepth > 0) {
+            int depth = 0;
+            for (DefaultJobProgressStep parent = level.getParent(); parent != null; parent = parent.getParent()) {
+                ++depth;
+            }
+
+            if (depth >= this.maxDepth) {
+                return 0;
+            }
+        }
+
+        return this.maxLevelSteps > 0 ? this.maxLevelSteps : Integer.MAX_VALUE - 1;
+    }
+
+    private int countSteps(DefaultJobProgressStep step)
+    {
+        int count = 1;
+
+        for (DefaultJobProgressStep child : step.getChildren()) {
+            count += countSteps(child);
+        }
+
+        return count;
+    }
+
     /**
      * Called when a {@link PopLevelProgressEvent} is fired.
      */
@@ -33,6 +33,7 @@
 import org.xwiki.job.event.status.StepProgressEvent;
 import org.xwiki.logging.Message;
 import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 
 /**
  * Default implementation of {@link JobProgressManager}.
@@ -44,26 +45,48 @@
 @Singleton
 public class DefaultJobProgressManager implements JobProgressManager
 {
+    /**
+     * The listeners which don't need to be notified since the progresses are updated directly.
+     */
+    private static final String[] DIRECT_LISTENERS = { JobProgressEventListener.NAME };
+
     @Inject
     private ObservationManager observationManager;
 
+    /**
+     * Update the progresses of the current thread without going through the observation manager and then notify the
+     * other listeners, if any.
+     */
+    private void sendEvent(Event event, Object source, Object data)
+    {
+        JobProgressContext.beginDirectEvent(event, source, data);
+
+        try {
+            if (this.observationManager.hasListener(event, DIRECT_LISTENERS)) {
+                this.observationManager.notify(event, source, data);
+            }
+        } finally {
+            JobProgressContext.endDirectEvent();
+        }
+    }
+
     @Override
     public void pushLevelProgress(Object source)
     {
-        this.observationManager.notify(new PushLevelProgressEvent(), source);
+        sendEvent(new PushLevelProgressEvent(), source, null);
     }
 
     @Override
     public void pushLevelProgress(int steps, Object source)
     {
-        this.observationManager.notify(new PushLevelProgressEvent(steps), source);
+        sendEvent(new PushLevelProgressEvent(steps), source, null);
     }
 
     @Override
     @Deprecated
     public void stepPropress(Object source)
     {
-        this.observationManager.notify(StepProgressEvent.INSTANCE, source);
+        sendEvent(StepProgressEvent.INSTANCE, source, null);
     }
 
     @Override
@@ -81,7 +104,7 @@ public void startStep(Object source, String name)
     @Override
     public void startStep(Object source, Message message)
     {
-        this.observationManager.notify(StartStepProgressEvent.INSTANCE, source, message);
+        sendEvent(StartStepProgressEvent.INSTANCE, source, message);
     }
 
     @Override
@@ -93,13 +116,13 @@ public void startStep(Object source, String translationKey, String message, Obje
     @Override
     public void endStep(Object source)
     {
-        this.observationManager.notify(EndStepProgressEvent.INSTANCE, source);
+        sendEvent(EndStepProgressEvent.INSTANCE, source, null);
     }
 
     @Override
     public void popLevelProgress(Object source)
     {
-        this.observationManager.notify(PopLevelProgressEvent.INSTANCE, source);
+        sendEvent(PopLevelProgressEvent.INSTANCE, source, null);
     }
 
     @Override
@@ -50,6 +50,11 @@ public class DefaultJobProgressStep implements JobProgressStep
 
     protected List<DefaultJobProgressStep> children;
 
+    /**
+     * The number of finished children which are not kept in {@link #children} anymore.
+     */
+    protected int aggregatedChildren;
+
     private boolean finished;
 
     private boolean levelFinished;
@@ -70,7 +75,7 @@ public DefaultJobProgressStep(Message message, Object source, DefaultJobProgress
         this.source = source;
 
         if (this.parent != null) {
-            this.index = parent.children.size();
+            this.index = parent.getChildCount();
             this.startTime = this.index == 0 ? parent.startTime : System.nanoTime();
         } else {
             this.index = 0;
@@ -106,6 +111,24 @@ public List<DefaultJobProgressStep> getChildren()
         return this.children != null ? this.children : Collections.<DefaultJobProgressStep>emptyList();
     }
 
+    /**
+     * @return the number of children, including the aggregated ones
+     * @since 7.4M1
+     */
+    public int getChildCount()
+    {
+        return this.aggregatedChildren + getChildren().size();
+    }
+
+    /**
+     * @return the number of finished children which are only counted and not kept in {@link #getChildren()}
+     * @since 7.4M1
+     */
+    public int getAggregatedChildCount()
+    {
+        return this.aggregatedChildren;
+    }
+
     @Override
     public double getOffset()
     {
@@ -147,14 +170,37 @@ public DefaultJobProgressStep addStep(Message stepMessage, Object newStepSource)
 
         // Update offset if needed
         if (this.maximumChildren <= 0) {
-            this.childSize = 1.0D / this.children.size();
-            double newOffset = this.childSize * (this.children.size() - 1);
+            int count = getChildCount();
+            this.childSize = 1.0D / count;
+            double newOffset = this.childSize * (count - 1);
             move(newOffset - this.offset);
         }
 
         return step;
     }
 
+    /**
+     * Stop keeping the child preceding the current one and only count it.
+     * 
+     * @return the forgotten child or {@code null} if there is none
+     * @since 7.4M1
+     */
+    public DefaultJobProgressStep aggregatePreviousStep()
+    {
+        if (this.children != null && this.children.size() > 1) {
+            DefaultJobProgressStep previous = this.children.get(this.children.size() - 2);
+
+            if (previous.isFinished()) {
+                this.children.remove(this.children.size() - 2);
+                ++this.aggregatedChildren;
+
+                return previous;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Add level with unknown number of steps to the step and return a virtual step as child of the level.
      * 
@@ -23,32 +23,26 @@
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
-import org.xwiki.job.DefaultJobStatus;
 import org.xwiki.job.JobManagerConfiguration;
 import org.xwiki.job.JobStatusStore;
 import org.xwiki.job.annotation.Serializable;
 import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.internal.binary.BinaryJobStatusSerializer;
+import org.xwiki.job.internal.binary.SpoolingLogQueue;
 
 /**
  * Default implementation of {@link JobStatusStorage}.
@@ -58,124 +52,17 @@
  */
 @Component
 @Singleton
-public class DefaultJobStatusStore implements JobStatusStore, Initializable
+public class DefaultJobStatusStore implements JobStatusStore, Initializable, Disposable
 {
-    private static class Cache implements Map<List<String>, JobStatus>
-    {
-        // TODO: probably use JCache instead
-        private final Map<List<String>, JobStatus> cache;
-
-        private final Set<List<String>> noStatusCache;
-
-        Cache(int size)
-        {
-            this.cache = new LRUMap<>(size);
-            this.noStatusCache = new HashSet<List<String>>();
-        }
-
-        @Override
-        public int size()
-        {
-            return this.cache.size() + this.noStatusCache.size();
-        }
-
-        @Override
-        public boolean isEmpty()
-        {
-            return this.cache.isEmpty() && this.noStatusCache.isEmpty();
-        }
-
-        @Override
-        public boolean containsKey(Object key)
-        {
-            return this.cache.containsKey(key) || this.noStatusCache.contains(key);
-        }
-
-        @Override
-        public boolean containsValue(Object value)
-        {
-            // not used
-            return false;
-        }
-
-        @Override
-        public JobStatus get(Object key)
-        {
-            if (!this.noStatusCache.contains(key)) {
-                return this.cache.get(key);
-            }
-
-            return NOSTATUS;
-        }
-
-        @Override
-        public JobStatus put(List<String> key, JobStatus value)
-        {
-            JobStatus status = get(key);
-
-            if (value == null) {
-                this.cache.remove(key);
-                this.noStatusCache.add(key);
-            } else {
-                this.cache.put(key, value);
-                this.noStatusCache.remove(key);
-            }
-
-            return status;
-        }
-
-        @Override
-        public JobStatus remove(Object key)
-        {
-            JobStatus status = get(key);
-
-            this.cache.remove(key);
-            this.noStatusCache.remove(key);
-
-            return status;
-        }
-
-        @Override
-        public void putAll(Map<? extends List<String>, ? extends JobStatus> m)
-        {
-            for (Map.Entry<? extends List<String>, ? extends JobStatus> entry : m.entrySet()) {
-                put(entry.getKey(), entry.getValue());
-            }
-        }
-
-        @Override
-        public void clear()
-        {
-            this.cache.clear();
-            this.noStatusCache.clear();
-        }
-
-        @Override
-        public Set<List<String>> keySet()
-        {
-            // not used
-            return null;
-        }
-
-        @Override
-        public Collection<JobStatus> values()
-        {
-            // not used
-            return null;
-        }
-
-        @Override
-        public Set<java.util.Map.Entry<List<String>, JobStatus>> entrySet()
-        {
-            // not used
-            return null;
-        }
-    }
+    /**
+     * The name of the file where the job status used to be stored in XML.
+     */
+    static final String FILENAME_STATUS = "status.xml";
 
     /**
-     * The name of the file where the job status is stored.
+     * The name of the file where the job statuses index is stored.
      */
-    private static final String FILENAME_STATUS = "status.xml";
+    private static final String FILENAME_INDEX = "&index";
 
     /**
      * Encoding used for file content and names.
@@ -187,7 +74,8 @@ public Set<java.util.Map.Entry<List<String>, JobStatus>> entrySet()
      */
     private static final String FOLDER_NULL = "&null";
 
-    private static final JobStatus NOSTATUS = new DefaultJobStatus(null, null, null, null);
+    private static final String LOG_SAVE_FAILED = "Failed to save job status [{}]";
+
 
     /**
      * Used to get the storage directory.
@@ -203,32 +91,49 @@ public Set<java.util.Map.Entry<List<String>, JobStatus>> entrySet()
 
     private JobStatusSerializer serializer;
 
-    private ExecutorService executorService;
+    private BinaryJobStatusSerializer binarySerializer;
 
-    private Map<List<String>, JobStatus> cache;
+    private JobStatusSerializerQueue serializerQueue;
 
-    class JobStatusSerializerRunnable implements Runnable
-    {
-        /**
-         * The status to store.
-         */
-        private final JobStatus status;
+    private JobStatusCache cache;
 
-        JobStatusSerializerRunnable(JobStatus status)
-        {
-            this.status = status;
-        }
+    private JobStatusIndex index;
+
+    /**
+     * The background repair of the storage.
+     */
+    private JobStatusStoreRepair repair;
+
+    private final StatusLoader loader = new StatusLoader();
 
+    private final JobStatusSerializerQueue.Writer writer = new JobStatusSerializerQueue.Writer()
+    {
         @Override
-        public void run()
+        public void write(JobStatus status) throws Exception
         {
-            saveJobStatus(this.status);
+            try {
+                writeJobStatus(status);
+            } catch (Exception e) {
+                logger.warn(LOG_SAVE_FAILED, status, e);
+
+                // Let the queue count the failure
+                throw e;
+            }
         }
-    }
+    };
 
     @Override
     public void initialize() throws InitializationException
     {
+        this.binarySerializer = new BinaryJobStatusSerializer();
+
+        deleteSpools();
+
+        loadIndex();
+
+        this.cache = new JobStatusCache(this.configuration.getJobStatusCacheSize(),
+            this.configuration.getJobStatusCacheWeight());
+
         try {
             this.serializer = new JobStatusSerializer();
 
@@ -238,12 +143,11 @@ public void initialize() throws InitializationException
         }
 
         BasicThreadFactory threadFactory =
-            new BasicThreadFactory.Builder().namingPattern("Job status serializer").daemon(true)
+            new BasicThreadFactory.Builder().namingPattern("Job status serializer %d").daemon(true)
                 .priority(Thread.MIN_PRIORITY).build();
-        this.executorService =
-            new ThreadPoolExecutor(0, 10, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
-
-        this.cache = Collections.synchronizedMap(new Cache(this.configuration.getJobStatusCacheSize()));
+        this.serializerQueue =
+            new JobStatusSerializerQueue(this.writer, this.configuration.getJobStatusSerializerThreads(),
+                this.configuration.getJobStatusSerializerQueueSize(), threadFactory);
     }
 
     /**
@@ -270,7 +174,39 @@ private String encode(String name)
     }
 
     /**
-     * Load jobs from directory.
+     * Delete the log events spooled by the jobs of a previous execution.
+     */
+    private void deleteSpools()
+    {
+        File spoolFolder = new File(this.configuration.getStorage(), SpoolingLogQueue.FOLDER_SPOOL);
+
+        if (spoolFolder.exists()) {
+            try {
+                FileUtils.deleteDirectory(spoolFolder);
+            } catch (IOException e) {
+                this.logger.warn("Failed to delete the spooled job logs in [{}]", spoolFolder, e);
+            }
+        }
+    }
+
+    private void loadIndex()
+    {
+        File indexFile = new File(this.configuration.getStorage(), FILENAME_INDEX);
+
+        this.index = new JobStatusIndex(indexFile);
+
+        try {
+            this.index.load();
+        } catch (Exception e) {
+            this.logger.warn("Failed to load the job status index, it will be rebuilt", e);
+
+            indexFile.delete();
+            this.index = new JobStatusIndex(indexFile);
+        }
+    }
+
+    /**
+     * Start repairing and indexing the jobs directory in background.
      * 
      * @throws IOException when failing to load statuses
      */
@@ -283,42 +219,56 @@ private void repair() throws IOException
                 throw new IOException("Not a directory: " + folder);
             }
 
-            repairFolder(folder);
+            this.repair = new JobStatusStoreRepair(this, this.logger);
+            this.repair.start(folder);
+        } else {
+            // Nothing to index
+            this.index.setComplete();
+        }
+    }
+
+    private void waitForRepair()
+    {
+        if (this.repair != null) {
+            this.repair.waitFor();
         }
     }
 
     /**
-     * @param folder the folder from where to load the jobs
+     * Load the job statuses which are not in the cache.
      */
-    private void repairFolder(File folder)
+    private class StatusLoader implements JobStatusCache.Loader
     {
-        for (File file : folder.listFiles()) {
-            if (file.isDirectory()) {
-                repairFolder(file);
-            } else if (file.getName().equals(FILENAME_STATUS)) {
-                try {
-                    JobStatus status = loadStatus(folder);
-
-                    if (status != null) {
-                        File properFolder = getJobFolder(status.getRequest().getId());
-
-                        if (!folder.equals(properFolder)) {
-                            // Move the status in its right place
-                            try {
-                                FileUtils.moveFileToDirectory(file, properFolder, true);
-                            } catch (IOException e) {
-                                this.logger.error("Failed to move job status file", e);
-                            }
-                        }
+        @Override
+        public JobStatus load(List<String> id)
+        {
+            try {
+                JobStatus status = loadStatus(id);
+
+                if (status == null) {
+                    JobStatusIndex.Entry entry = index.get(id);
+                    if (entry != null) {
+                        // The status is not where it should be
+                        status = loadStatus(new File(configuration.getStorage(), entry.getPath()));
+                    } else if (!index.isComplete()) {
+                        // The storage was never fully indexed (it comes from an older version) so the status might be
+                        // anywhere
+                        waitForRepair();
+
+                        status = loadStatus(id);
                     }
-                } catch (Exception e) {
-                    this.logger.warn("Failed to load job status in folder [{}]", folder, e);
                 }
+
+                return status;
+            } catch (Exception e) {
+                logger.warn("Failed to load job status for id [{}]", id, e);
+
+                return null;
             }
         }
     }
 
-    private JobStatus loadStatus(List<String> id)
+    private JobStatus loadStatus(List<String> id) throws IOException
     {
         return loadStatus(getJobFolder(id));
     }
@@ -326,8 +276,13 @@ private JobStatus loadStatus(List<String> id)
     /**
      * @param folder the folder from where to load the job status
      */
-    private JobStatus loadStatus(File folder)
+    private JobStatus loadStatus(File folder) throws IOException
     {
+        if (BinaryJobStatusSerializer.exists(folder)) {
+            return this.binarySerializer.read(folder);
+        }
+
+        // Fallback on the old XML format
         File statusFile = new File(folder, FILENAME_STATUS);
         if (statusFile.exists()) {
             return loadJobStatus(statusFile);
@@ -341,7 +296,7 @@ private JobStatus loadStatus(File folder)
      * @return the job status
      * @throws Exception when failing to load the job status from the file
      */
-    private JobStatus loadJobStatus(File statusFile)
+    JobStatus loadJobStatus(File statusFile)
     {
         return this.serializer.read(statusFile);
     }
@@ -352,7 +307,7 @@ private JobStatus loadJobStatus(File statusFile)
      * @param id the id of the job
      * @return the folder where to store the job related informations
      */
-    private File getJobFolder(List<String> id)
+    File getJobFolder(List<String> id)
     {
         File folder = this.configuration.getStorage();
 
@@ -365,46 +320,130 @@ private File getJobFolder(List<String> id)
         return folder;
     }
 
+    /**
+     * @param folder the folder of a job
+     * @return the path of the folder relative to the storage folder
+     */
+    String getPath(File folder)
+    {
+        return this.configuration.getStorage().toURI().relativize(folder.toURI()).getPath();
+    }
+
+    /**
+     * @param status the job status to index
+     * @param folder the folder where the job status is stored
+     * @throws IOException when failing to write the index
+     */
+    void index(JobStatus status, File folder) throws IOException
+    {
+        long modified = new File(folder, BinaryJobStatusSerializer.FILENAME_STATUS).lastModified();
+
+        this.index.put(new JobStatusIndex.Entry(status.getRequest().getId(), getPath(folder), status.getState(),
+            status.getStartDate(), status.getEndDate(), modified));
+    }
+
     /**
      * @param status the job status to save
-     * @throws IOException when falling to store the provided status
      */
     private void saveJobStatus(JobStatus status)
     {
         try {
-            File statusFile = getJobFolder(status.getRequest().getId());
-            statusFile = new File(statusFile, FILENAME_STATUS);
-
-            this.serializer.write(status, statusFile);
+            writeJobStatus(status);
         } catch (Exception e) {
-            this.logger.warn("Failed to save job status [{}]", status, e);
+            this.logger.warn(LOG_SAVE_FAILED, status, e);
         }
     }
 
-    @Override
-    public JobStatus getJobStatus(List<String> id)
+    /**
+     * @param status the job status to save
+     * @throws IOException when falling to store the provided status
+     */
+    private void writeJobStatus(JobStatus status) throws IOException
     {
-        JobStatus status = this.cache.get(id);
+        File folder = getJobFolder(status.getRequest().getId());
 
-        if (status == null) {
-            synchronized (this.cache) {
-                status = this.cache.get(id);
+        this.binarySerializer.write(status, folder);
 
-                if (status == null) {
-                    try {
-                        status = loadStatus(id);
+        index(status, folder);
 
-                        this.cache.put(id, status);
-                    } catch (Exception e) {
-                        this.logger.warn("Failed to load job status for id [{}]", id, e);
+        // Remove the status stored in the old format
+        File statusFile = new File(folder, FILENAME_STATUS);
+        if (statusFile.exists()) {
+            statusFile.delete();
+        }
+    }
 
-                        this.cache.put(id, null);
-                    }
-                }
+    /**
+     * @return the serializer used to store the job statuses
+     */
+    BinaryJobStatusSerializer getBinarySerializer()
+    {
+        return this.binarySerializer;
+    }
+
+    /**
+     * @return the index of the stored job statuses
+     */
+    public JobStatusIndex getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * @return the queue of job statuses waiting to be serialized
+     */
+    public JobStatusSerializerQueue getSerializerQueue()
+    {
+        return this.serializerQueue;
+    }
+
+    /**
+     * @return the cache of job statuses
+     */
+    public JobStatusCache getCache()
+    {
+        return this.cache;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        // Make sure all the statuses are stored before leaving
+        try {
+            if (this.repair != null) {
+                this.repair.stop();
             }
+
+            this.serializerQueue.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            this.logger.warn("Interrupted while waiting for the job statuses to be stored");
         }
+    }
 
-        return status == NOSTATUS ? null : status;
+    @Override
+    public JobStatus getJobStatus(List<String> id)
+    {
+        return this.cache.get(id, this.loader);
+    }
+
+    @Override
+    public List<List<String>> getJobStatusIds(List<String> prefix)
+    {
+        if (!this.index.isComplete()) {
+            // The statuses which are not in their right place are only known once the storage is fully indexed
+            waitForRepair();
+        }
+
+        List<JobStatusIndex.Entry> entries = this.index.getEntries(prefix);
+
+        List<List<String>> ids = new ArrayList<>(entries.size());
+        for (JobStatusIndex.Entry entry : entries) {
+            ids.add(entry.getId());
+        }
+
+        return ids;
     }
 
     @Override
@@ -421,15 +460,16 @@ public void storeAsync(JobStatus status)
 
     private void store(JobStatus status, boolean async)
     {
+        // Fallback for the spooled logs which have not been deleted when their job finished
+        SpoolingLogQueue.deleteCollectedSpools();
+
         if (status != null && status.getRequest() != null && status.getRequest().getId() != null) {
-            synchronized (this.cache) {
-                this.cache.put(status.getRequest().getId(), status);
-            }
+            this.cache.put(status.getRequest().getId(), status);
 
             // Only store Serializable job status on file system
             if (status.getClass().isAnnotationPresent(Serializable.class) || status instanceof java.io.Serializable) {
                 if (async) {
-                    this.executorService.execute(new JobStatusSerializerRunnable(status));
+                    this.serializerQueue.put(status);
                 } else {
                     saveJobStatus(status);
                 }
@@ -442,6 +482,11 @@ public void remove(List<String> id)
     {
         File jobFolder = getJobFolder(id);
 
+        // Make sure the repair won't move or convert a status from or to the folder once it's deleted
+        if (this.repair != null) {
+            this.repair.remove(jobFolder);
+        }
+
         if (jobFolder.exists()) {
             try {
                 FileUtils.deleteDirectory(jobFolder);
@@ -449,6 +494,13 @@ public void remove(List<String> id)
                 this.logger.warn("Failed to delete job folder [{}]", jobFolder, e);
             }
 
+            try {
+                // The folder also contained the statuses of the jobs with an id starting with the removed one
+                this.index.removeAll(id);
+            } catch (IOException e) {
+                this.logger.warn("Failed to remove job status [{}] from the index", id, e);
+            }
+
             this.cache.remove(id);
         }
 
@@ -0,0 +1,342 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Execute jobs with a bounded number of threads.
+ * <p>
+ * Jobs which cannot be started right away are queued and started by order of priority, then by order of submission.
+ * Each job type can also be limited to a maximum number of running jobs. A thread which finished a job directly
+ * starts the next one so the number of threads never goes beyond the maximum number of running jobs. Idle threads are
+ * released after one minute.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobExecutionEngine
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobExecutionEngine.class);
+
+    private static final Comparator<Task> TASK_COMPARATOR = new Comparator<Task>()
+    {
+        @Override
+        public int compare(Task task1, Task task2)
+        {
+            // Higher priority first
+            int result = Integer.compare(task2.priority, task1.priority);
+
+            return result != 0 ? result : Long.compare(task1.sequence, task2.sequence);
+        }
+    };
+
+    private static class Task
+    {
+        private final Runnable runnable;
+
+        private final String type;
+
+        private final int priority;
+
+        private final int quota;
+
+        private final long sequence;
+
+        private final long submitted = System.nanoTime();
+
+        Task(Runnable runnable, String type, int priority, int quota, long sequence)
+        {
+            this.runnable = runnable;
+            this.type = type;
+            this.priority = priority;
+            this.quota = quota;
+            this.sequence = sequence;
+        }
+    }
+
+    private class Worker implements Runnable
+    {
+        private Task task;
+
+        Worker(Task task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            while (this.task != null) {
+                try {
+                    this.task.runnable.run();
+                } catch (Throwable t) {
+                    // Don't lose the next task, it's already counted as running
+                    LOGGER.error("Unexpected error while executing a job", t);
+                }
+
+                this.task = finished(this.task);
+            }
+        }
+    }
+
+    private final int maxRunning;
+
+    private final ThreadPoolExecutor threads;
+
+    private final NavigableSet<Task> queue = new TreeSet<>(TASK_COMPARATOR);
+
+    private final Map<String, Integer> runningByType = new HashMap<>();
+
+    private long sequence;
+
+    private int running;
+
+    private long startedCount;
+
+    private long totalWaitTime;
+
+    private long maxWaitTime;
+
+    /**
+     * @param maxRunning the maximum number of jobs running at the same time, unlimited if lower than 1
+     * @param threadFactory used to create the threads running the jobs
+     */
+    public JobExecutionEngine(int maxRunning, ThreadFactory threadFactory)
+    {
+        this.maxRunning = maxRunning > 0 ? maxRunning : Integer.MAX_VALUE;
+
+        this.threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), threadFactory);
+    }
+
+    /**
+     * @param type the type of the jobs executed with the returned executor
+     * @param priority the priority of the jobs executed with the returned executor
+     * @param quota the maximum number of jobs of this type running at the same time, unlimited if lower than 1
+     * @return an executor queuing the tasks with the passed type and priority
+     */
+    public Executor getExecutor(final String type, final int priority, final int quota)
+    {
+        return new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                JobExecutionEngine.this.execute(command, type, priority, quota);
+            }
+        };
+    }
+
+    /**
+     * @param runnable the job to execute
+     * @param type the type of the job
+     * @param priority the priority of the job, the highest is started first
+     * @param quota the maximum number of jobs of this type running at the same time, unlimited if lower than 1
+     * @throws RejectedExecutionException when the engine is shutdown
+     */
+    public void execute(Runnable runnable, String type, int priority, int quota)
+    {
+        Task task;
+
+        synchronized (this) {
+            if (this.threads.isShutdown()) {
+                throw new RejectedExecutionException("The job execution engine is shutdown");
+            }
+
+            task = new Task(runnable, type, priority, quota, this.sequence++);
+
+            if (!this.queue.isEmpty() || !canStart(task)) {
+                this.queue.add(task);
+
+                // Might be able to start a more important job
+                task = poll();
+            } else {
+                started(task);
+            }
+        }
+
+        if (task != null) {
+            start(task);
+        }
+    }
+
+    private void start(Task task)
+    {
+        try {
+            this.threads.execute(new Worker(task));
+        } catch (RejectedExecutionException e) {
+            finished(task);
+
+            throw e;
+        }
+    }
+
+    private boolean canStart(Task task)
+    {
+        if (this.running >= this.maxRunning) {
+            return false;
+        }
+
+        if (task.quota > 0) {
+            Integer typeRunning = this.runningByType.get(task.type);
+
+            return typeRunning == null || typeRunning < task.quota;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the most important queued task which can be started now or {@code null} if there is none
+     */
+    private Task poll()
+    {
+        if (this.running < this.maxRunning) {
+            for (Iterator<Task> it = this.queue.iterator(); it.hasNext();) {
+                Task task = it.next();
+
+                if (canStart(task)) {
+                    it.remove();
+                    started(task);
+
+                    return task;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void started(Task task)
+    {
+        ++this.running;
+
+        Integer typeRunning = this.runningByType.get(task.type);
+        this.runningByType.put(task.type, typeRunning != null ? typeRunning + 1 : 1);
+
+        long waitTime = System.nanoTime() - task.submitted;
+        ++this.startedCount;
+        this.totalWaitTime += waitTime;
+        if (waitTime > this.maxWaitTime) {
+            this.maxWaitTime = waitTime;
+        }
+    }
+
+    /**
+     * @return the next task to run in the same thread
+     */
+    private Task finished(Task task)
+    {
+        Task next;
+
+        synchronized (this) {
+            --this.running;
+
+            int typeRunning = this.runningByType.get(task.type) - 1;
+            if (typeRunning == 0) {
+                this.runningByType.remove(task.type);
+            } else {
+                this.runningByType.put(task.type, typeRunning);
+            }
+
+            if (this.threads.isShutdown()) {
+                return null;
+            }
+
+            next = poll();
+        }
+
+        return next;
+    }
+
+    /**
+     * Forget the queued jobs and interrupt the running ones.
+     */
+    public void shutdownNow()
+    {
+        synchronized (this) {
+            this.queue.clear();
+            this.threads.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of jobs waiting to be started
+     */
+    public synchronized int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the number of jobs currently running
+     */
+    public synchronized int getRunningCount()
+    {
+        return this.running;
+    }
+
+    /**
+     * @return the maximum number of jobs running at the same time
+     */
+    public int getMaxRunning()
+    {
+        return this.maxRunning;
+    }
+
+    /**
+     * @return the number of jobs started so far
+     */
+    public synchronized long getStartedCount()
+    {
+        return this.startedCount;
+    }
+
+    /**
+     * @return the total time the started jobs waited before being started, in milliseconds
+     */
+    public synchronized long getTotalWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.totalWaitTime);
+    }
+
+    /**
+     * @return the longest time a job waited before being started, in milliseconds
+     */
+    public synchronized long getMaxWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitTime);
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.xwiki.job.JobGroupPath;
+
+/**
+ * Decide when tasks associated to a job group can be executed.
+ * <p>
+ * A task can run only when no other task is running in the same group, in one of its parents or in one of its
+ * children. Tasks which cannot run yet are queued instead of blocking a thread and are handed to the executor as soon
+ * as their group is free, in the order in which they were submitted: a task never overtakes an older conflicting one.
+ * <p>
+ * The waiting tasks are indexed by group so that, when a task ends, only the tasks which were conflicting with it (the
+ * ones waiting in its group, in its children and at the head of the queue of its parents) are considered.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobGroupAdmissionController
+{
+    private static class Node
+    {
+        /**
+         * True if a task is running in this group.
+         */
+        private boolean running;
+
+        /**
+         * The number of tasks running in the children of this group.
+         */
+        private int runningBelow;
+
+        /**
+         * The tasks waiting in this group, oldest first.
+         */
+        private final Deque<Task> waiting = new ArrayDeque<>();
+
+        /**
+         * The tasks waiting in this group and in its children, oldest first.
+         */
+        private final Set<Task> waitingTree = new LinkedHashSet<>();
+
+        boolean isIdle()
+        {
+            return !this.running && this.runningBelow == 0 && this.waitingTree.isEmpty();
+        }
+    }
+
+    private static class Task
+    {
+        private final JobGroupPath path;
+
+        private final Runnable runnable;
+
+        private final Executor executor;
+
+        /**
+         * The position of the task in the submission order, only set when the task has to wait.
+         */
+        private long order;
+
+        Task(JobGroupPath path, Runnable runnable, Executor executor)
+        {
+            this.path = path;
+            this.runnable = runnable;
+            this.executor = executor;
+        }
+    }
+
+    private static final Comparator<Task> ORDER_COMPARATOR = new Comparator<Task>()
+    {
+        @Override
+        public int compare(Task task1, Task task2)
+        {
+            return Long.compare(task1.order, task2.order);
+        }
+    };
+
+    private final Executor executor;
+
+    private final Map<JobGroupPath, Node> nodes = new HashMap<>();
+
+    private int waitingCount;
+
+    private long waitingOrder;
+
+    private int runningCount;
+
+    /**
+     * @param executor the executor running the admitted tasks
+     */
+    public JobGroupAdmissionController(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Execute the passed task as soon as the group is free.
+     *
+     * @param path the group of the task
+     * @param runnable the task
+     * @throws RejectedExecutionException when the executor refuses the task
+     */
+    public void submit(JobGroupPath path, Runnable runnable)
+    {
+        submit(path, runnable, this.executor);
+    }
+
+    /**
+     * Execute the passed task with the passed executor as soon as the group is free.
+     *
+     * @param path the group of the task
+     * @param runnable the task
+     * @param executor the executor running the task once admitted
+     * @throws RejectedExecutionException when the executor refuses the task
+     */
+    public void submit(JobGroupPath path, Runnable runnable, Executor executor)
+    {
+        Task task = new Task(path, runnable, executor);
+
+        synchronized (this) {
+            if (isWaiting(path) || !isFree(path)) {
+                task.order = this.waitingOrder++;
+                addWaiting(task);
+
+                return;
+            }
+
+            setRunning(path, true);
+        }
+
+        dispatch(task);
+    }
+
+    /**
+     * Forget all the tasks waiting to be executed.
+     */
+    public synchronized void clear()
+    {
+        for (Iterator<Map.Entry<JobGroupPath, Node>> it = this.nodes.entrySet().iterator(); it.hasNext();) {
+            Node node = it.next().getValue();
+
+            node.waiting.clear();
+            node.waitingTree.clear();
+
+            if (node.isIdle()) {
+                it.remove();
+            }
+        }
+
+        this.waitingCount = 0;
+    }
+
+    /**
+     * @return the number of tasks waiting for their group to be free
+     */
+    public synchronized int getWaitingCount()
+    {
+        return this.waitingCount;
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    public synchronized int getRunningCount()
+    {
+        return this.runningCount;
+    }
+
+    private void dispatch(final Task task)
+    {
+        try {
+            task.executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        task.runnable.run();
+                    } finally {
+                        release(task.path);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(task.path);
+
+            throw e;
+        }
+    }
+
+    private void release(JobGroupPath path)
+    {
+        List<Task> admitted = new ArrayList<>();
+
+        synchronized (this) {
+            setRunning(path, false);
+
+            // Only the tasks which were conflicting with the released group can be admitted
+            for (Task task : getConflictingWaiting(path)) {
+                if (isFree(task.path) && isOldestWaiting(task)) {
+                    removeWaiting(task);
+                    setRunning(task.path, true);
+
+                    admitted.add(task);
+                }
+            }
+        }
+
+        for (Task task : admitted) {
+            try {
+                dispatch(task);
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down
+            }
+        }
+    }
+
+    /**
+     * @return the tasks waiting in the group or in its children and the oldest ones waiting in its parents, oldest
+     *         first
+     */
+    private List<Task> getConflictingWaiting(JobGroupPath path)
+    {
+        List<Task> tasks = new ArrayList<>();
+
+        Node node = this.nodes.get(path);
+        if (node != null) {
+            tasks.addAll(node.waitingTree);
+        }
+
+        // The other tasks waiting in a parent are blocked by its oldest one
+        for (JobGroupPath parent = path.getParent(); parent != null; parent = parent.getParent()) {
+            node = this.nodes.get(parent);
+            if (node != null && !node.waiting.isEmpty()) {
+                tasks.add(node.waiting.getFirst());
+            }
+        }
+
+        Collections.sort(tasks, ORDER_COMPARATOR);
+
+        return tasks;
+    }
+
+    /**
+     * @return true if no older task is waiting in the group of the passed task, in one of its parents or in one of its
+     *         children
+     */
+    private boolean isOldestWaiting(Task task)
+    {
+        if (this.nodes.get(task.path).waitingTree.iterator().next() != task) {
+            return false;
+        }
+
+        for (JobGroupPath parent = task.path.getParent(); parent != null; parent = parent.getParent()) {
+            Node node = this.nodes.get(parent);
+            if (node != null && !node.waiting.isEmpty() && node.waiting.getFirst().order < task.order) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if a task is waiting in the group, one of its parents or one of its children
+     */
+    private boolean isWaiting(JobGroupPath path)
+    {
+        Node node = this.nodes.get(path);
+        if (node != null && !node.waitingTree.isEmpty()) {
+            return true;
+        }
+
+        for (JobGroupPath parent = path.getParent(); parent != null; parent = parent.getParent()) {
+            node = this.nodes.get(parent);
+            if (node != null && !node.waiting.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if no task is running in the group, one of its parents or one of its children
+     */
+    private boolean isFree(JobGroupPath path)
+    {
+        Node node = this.nodes.get(path);
+        if (node != null && (node.running || node.runningBelow > 0)) {
+            return false;
+        }
+
+        for (JobGroupPath parent = path.getParent(); parent != null; parent = parent.getParent()) {
+            node = this.nodes.get(parent);
+            if (node != null && node.running) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void setRunning(JobGroupPath path, boolean running)
+    {
+        Node node = getNode(path);
+        node.running = running;
+        forgetIdle(path, node);
+
+        int delta = running ? 1 : -1;
+        this.runningCount += delta;
+        for (JobGroupPath parent = path.getParent(); parent != null; parent = parent.getParent()) {
+            node = getNode(parent);
+            node.runningBelow += delta;
+            forgetIdle(parent, node);
+        }
+    }
+
+    private void addWaiting(Task task)
+    {
+        Node node = getNode(task.path);
+        node.waiting.add(task);
+        node.waitingTree.add(task);
+
+        for (JobGroupPath parent = task.path.getParent(); parent != null; parent = parent.getParent()) {
+            getNode(parent).waitingTree.add(task);
+        }
+
+        ++this.waitingCount;
+    }
+
+    private void removeWaiting(Task task)
+    {
+        Node node = this.nodes.get(task.path);
+        node.waiting.remove(task);
+        node.waitingTree.remove(task);
+        forgetIdle(task.path, node);
+
+        for (JobGroupPath parent = task.path.getParent(); parent != null; parent = parent.getParent()) {
+            node = this.nodes.get(parent);
+            node.waitingTree.remove(task);
+            forgetIdle(parent, node);
+        }
+
+        --this.waitingCount;
+    }
+
+    private Node getNode(JobGroupPath path)
+    {
+        Node node = this.nodes.get(path);
+
+        if (node == null) {
+            node = new Node();
+            this.nodes.put(path, node);
+        }
+
+        return node;
+    }
+
+    /**
+     * Forget the node when nothing is happening in its group anymore.
+     */
+    private void forgetIdle(JobGroupPath path, Node node)
+    {
+        if (node.isIdle()) {
+            this.nodes.remove(path);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Keep track of the job progresses updated by the progress events produced in the current thread.
+ * <p>
+ * {@link DefaultJobProgressManager} directly sends the progress events to these progresses instead of relying on each
+ * progress listening to all the progress events on the observation manager.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public final class JobProgressContext
+{
+    private static final ThreadLocal<JobProgressContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * The progresses of the current thread, in the order in which they have been registered.
+     */
+    private final List<DefaultJobProgress> progresses = new ArrayList<>(1);
+
+    /**
+     * The number of events being notified to the observation manager which have already been sent to the progresses.
+     */
+    private int direct;
+
+    private JobProgressContext()
+    {
+        // Only created by this class
+    }
+
+    /**
+     * @param progress the progress to update with the progress events produced in the current thread
+     */
+    public static void push(DefaultJobProgress progress)
+    {
+        JobProgressContext context = CONTEXT.get();
+
+        if (context == null) {
+            context = new JobProgressContext();
+            CONTEXT.set(context);
+        }
+
+        context.progresses.add(progress);
+    }
+
+    /**
+     * @param progress the progress to stop updating
+     */
+    public static void remove(DefaultJobProgress progress)
+    {
+        JobProgressContext context = CONTEXT.get();
+
+        if (context != null) {
+            context.progresses.remove(progress);
+
+            if (context.progresses.isEmpty()) {
+                CONTEXT.remove();
+            }
+        }
+    }
+
+    /**
+     * Send to the progresses of the current thread an event received from the observation manager.
+     *
+     * @param event the progress event
+     * @param source the source of the event
+     * @param data the data associated to the event
+     */
+    public static void onEvent(Event event, Object source, Object data)
+    {
+        JobProgressContext context = CONTEXT.get();
+
+        // Skip the events already sent directly
+        if (context != null && context.direct == 0) {
+            context.send(event, source, data);
+        }
+    }
+
+    /**
+     * Directly send the passed event to the progresses of the current thread. They will ignore it if they receive it
+     * from the observation manager before {@link #endDirectEvent()} is called.
+     *
+     * @param event the progress event
+     * @param source the source of the event
+     * @param data the data associated to the event
+     */
+    public static void beginDirectEvent(Event event, Object source, Object data)
+    {
+        JobProgressContext context = CONTEXT.get();
+
+        if (context != null) {
+            context.send(event, source, data);
+
+            ++context.direct;
+        }
+    }
+
+    /**
+     * @see #beginDirectEvent(Event, Object, Object)
+     */
+    public static void endDirectEvent()
+    {
+        JobProgressContext context = CONTEXT.get();
+
+        if (context != null && context.direct > 0) {
+            --context.direct;
+        }
+    }
+
+    private void send(Event event, Object source, Object data)
+    {
+        // Copy the list in case a progress is added or removed meanwhile
+        for (DefaultJobProgress progress : this.progresses.toArray(new DefaultJobProgress[this.progresses.size()])) {
+            progress.onEvent(event, source, data);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.job.event.status.EndStepProgressEvent;
+import org.xwiki.job.event.status.PopLevelProgressEvent;
+import org.xwiki.job.event.status.PushLevelProgressEvent;
+import org.xwiki.job.event.status.StartStepProgressEvent;
+import org.xwiki.job.event.status.StepProgressEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Send to the job progresses of the current thread the progress events notified directly to the observation manager
+ * instead of going through the {@link org.xwiki.job.event.status.JobProgressManager}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Component
+@Named(JobProgressEventListener.NAME)
+@Singleton
+public class JobProgressEventListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "JobProgressEventListener";
+
+    /**
+     * Default constructor.
+     */
+    public JobProgressEventListener()
+    {
+        super(NAME, new PushLevelProgressEvent(), PopLevelProgressEvent.INSTANCE, StepProgressEvent.INSTANCE,
+            StartStepProgressEvent.INSTANCE, EndStepProgressEvent.INSTANCE);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        JobProgressContext.onEvent(event, source, data);
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.job.event.status.JobProgress;
+import org.xwiki.job.event.status.JobProgressStep;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.internal.binary.LazyJobProgress;
+import org.xwiki.job.internal.binary.LazyLogQueue;
+import org.xwiki.job.internal.binary.SpoolingLogQueue;
+import org.xwiki.logging.LogQueue;
+
+/**
+ * A concurrent cache of job statuses.
+ * <p>
+ * The least recently accessed statuses are evicted when the cache contains too many statuses or when their total
+ * weight goes beyond the maximum weight. Each status is weighted according to the size of its log and progress (a
+ * status weighs 1 plus 1 for each {@value #WEIGHT_UNIT} log events or progress steps). The status which was just
+ * added is never evicted, even when it's heavier than the maximum weight. The ids for which no status exist are
+ * remembered for a limited time in a bounded negative cache.
+ * <p>
+ * Reading the cache does not take any lock.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobStatusCache
+{
+    /**
+     * The number of log events or progress steps corresponding to one unit of weight.
+     */
+    public static final int WEIGHT_UNIT = 1000;
+
+    /**
+     * The maximum number of ids to remember as not having any status.
+     */
+    private static final int NOSTATUS_SIZE = 1000;
+
+    /**
+     * How long to remember that an id does not have any status.
+     */
+    private static final long NOSTATUS_EXPIRATION = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The key of the status associated to the {@code null} id (which is not supported by {@link ConcurrentHashMap}).
+     */
+    private static final Object NULL_ID = new Object();
+
+    /**
+     * Load the status when it's not in the cache.
+     *
+     * @version $Id$
+     */
+    public interface Loader
+    {
+        /**
+         * @param id the id of the job
+         * @return the status of the job or {@code null} if there is none
+         */
+        JobStatus load(List<String> id);
+    }
+
+    private static final class Entry
+    {
+        private final JobStatus status;
+
+        /**
+         * The weight of the status when it was last weighed, only modified while holding the entry lock.
+         */
+        private long weight;
+
+        /**
+         * True while the weight of the entry is part of the total weight, only modified while holding the entry lock.
+         */
+        private boolean counted;
+
+        /**
+         * True once the entry has been removed from the cache, only modified while holding the entry lock.
+         */
+        private boolean removed;
+
+        /**
+         * True if the log or the progress of the status was not loaded yet when it was last weighed.
+         */
+        private volatile boolean partial;
+
+        private volatile long access;
+
+        Entry(JobStatus status)
+        {
+            this.status = status;
+            this.weight = weigh(status);
+            this.partial = isPartial(status);
+            this.access = System.nanoTime();
+        }
+    }
+
+    private static final Comparator<Map.Entry<Object, Entry>> ACCESS_COMPARATOR =
+        new Comparator<Map.Entry<Object, Entry>>()
+        {
+            @Override
+            public int compare(Map.Entry<Object, Entry> entry1, Map.Entry<Object, Entry> entry2)
+            {
+                return Long.compare(entry1.getValue().access, entry2.getValue().access);
+            }
+        };
+
+    private static final Comparator<Map.Entry<Object, Long>> EXPIRATION_COMPARATOR =
+        new Comparator<Map.Entry<Object, Long>>()
+        {
+            @Override
+            public int compare(Map.Entry<Object, Long> entry1, Map.Entry<Object, Long> entry2)
+            {
+                return entry1.getValue().compareTo(entry2.getValue());
+            }
+        };
+
+    private final int maxSize;
+
+    private final long maxWeight;
+
+    private final ConcurrentMap<Object, Entry> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * The ids without status associated to the time when they should be forgotten.
+     */
+    private final ConcurrentMap<Object, Long> noStatuses = new ConcurrentHashMap<>();
+
+    private final AtomicLong weight = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of cached statuses, unlimited if lower than 1
+     * @param maxWeight the maximum total weight of the cached statuses, unlimited if lower than 1
+     */
+    public JobStatusCache(int maxSize, long maxWeight)
+    {
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    private static Object toKey(List<String> id)
+    {
+        return id != null ? id : NULL_ID;
+    }
+
+    private static boolean isPartial(JobStatus status)
+    {
+        LogQueue log = status.getLog();
+        JobProgress progress = status.getProgress();
+
+        return (log instanceof LazyLogQueue && !((LazyLogQueue) log).isLoaded())
+            || (progress instanceof LazyJobProgress && !((LazyJobProgress) progress).isLoaded());
+    }
+
+    private static long weigh(JobStatus status)
+    {
+        long size = 0;
+
+        LogQueue log = status.getLog();
+        if (log instanceof LazyLogQueue && !((LazyLogQueue) log).isLoaded()) {
+            size += ((LazyLogQueue) log).getSegmentCount();
+        } else if (log instanceof SpoolingLogQueue) {
+            // The spooled log events are on disk
+            size += ((SpoolingLogQueue) log).getMemoryCount();
+        } else if (log != null) {
+            size += log.size();
+        }
+
+        JobProgress progress = status.getProgress();
+        if (progress != null && (!(progress instanceof LazyJobProgress) || ((LazyJobProgress) progress).isLoaded())) {
+            size += countSteps(progress.getRootStep());
+        }
+
+        return 1 + size / WEIGHT_UNIT;
+    }
+
+    private static long countSteps(JobProgressStep rootStep)
+    {
+        long count = 0;
+
+        Deque<JobProgressStep> steps = new ArrayDeque<>();
+        if (rootStep != null) {
+            steps.push(rootStep);
+        }
+        while (!steps.isEmpty()) {
+            List<JobProgressStep> children = steps.pop().getChildren();
+            // The progress might still be modified, don't use an iterator
+            for (int i = 0; i < children.size(); ++i) {
+                steps.push(children.get(i));
+            }
+            count += children.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * @param id the id of the job
+     * @param loader used to load the status when it's not in the cache
+     * @return the status of the job or {@code null} if there is none
+     */
+    public JobStatus get(List<String> id, Loader loader)
+    {
+        Object key = toKey(id);
+
+        Entry entry = this.statuses.get(key);
+        if (entry != null) {
+            this.hits.incrementAndGet();
+            entry.access = System.nanoTime();
+
+            // The lazy log or progress might have been loaded since the status was weighed
+            if (entry.partial) {
+                reweigh(key, entry);
+            }
+
+            return entry.status;
+        }
+
+        Long expiration = this.noStatuses.get(key);
+        if (expiration != null) {
+            if (expiration > System.currentTimeMillis()) {
+                this.hits.incrementAndGet();
+
+                return null;
+            }
+
+            this.noStatuses.remove(key, expiration);
+        }
+
+        this.misses.incrementAndGet();
+
+        JobStatus status = loader.load(id);
+
+        if (status != null) {
+            // Don't replace a status stored in the meantime
+            Entry newEntry = new Entry(status);
+            Entry currentEntry = this.statuses.putIfAbsent(key, newEntry);
+            if (currentEntry != null) {
+                return currentEntry.status;
+            }
+
+            added(key, newEntry);
+        } else if (!this.statuses.containsKey(key)) {
+            putNoStatus(key);
+        }
+
+        return status;
+    }
+
+    /**
+     * @param id the id of the job
+     * @param status the status of the job
+     */
+    public void put(List<String> id, JobStatus status)
+    {
+        Object key = toKey(id);
+
+        this.noStatuses.remove(key);
+
+        Entry currentEntry = this.statuses.get(key);
+        if (currentEntry != null && currentEntry.status == status) {
+            // The same status is stored again after being updated: weigh it again
+            currentEntry.access = System.nanoTime();
+            reweigh(key, currentEntry);
+
+            return;
+        }
+
+        Entry entry = new Entry(status);
+        Entry previousEntry = this.statuses.put(key, entry);
+        if (previousEntry != null) {
+            removed(previousEntry);
+        }
+
+        added(key, entry);
+    }
+
+    /**
+     * @param id the id of the job
+     */
+    public void remove(List<String> id)
+    {
+        Object key = toKey(id);
+
+        this.noStatuses.remove(key);
+
+        Entry entry = this.statuses.remove(key);
+        if (entry != null) {
+            removed(entry);
+        }
+    }
+
+    private void reweigh(Object key, Entry entry)
+    {
+        long delta;
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+
+            long newWeight = weigh(entry.status);
+            entry.partial = isPartial(entry.status);
+
+            delta = entry.counted ? newWeight - entry.weight : 0;
+            entry.weight = newWeight;
+            this.weight.addAndGet(delta);
+        }
+
+        if (delta > 0 && isFull()) {
+            evict(key);
+        }
+    }
+
+    private void removed(Entry entry)
+    {
+        synchronized (entry) {
+            entry.removed = true;
+            if (entry.counted) {
+                this.weight.addAndGet(-entry.weight);
+                entry.counted = false;
+            }
+        }
+    }
+
+    private void added(Object key, Entry entry)
+    {
+        synchronized (entry) {
+            if (!entry.removed) {
+                this.weight.addAndGet(entry.weight);
+                entry.counted = true;
+            }
+        }
+
+        if (isFull()) {
+            evict(key);
+        }
+    }
+
+    private boolean isFull()
+    {
+        return (this.maxWeight > 0 && this.weight.get() > this.maxWeight)
+            || (this.maxSize > 0 && this.statuses.size() > this.maxSize);
+    }
+
+    /**
+     * @param addedKey the key of the status which was just added, it's never evicted
+     */
+    private void evict(Object addedKey)
+    {
+        synchronized (this.statuses) {
+            if (!isFull()) {
+                // Already done by another thread
+                return;
+            }
+
+            List<Map.Entry<Object, Entry>> entries = new ArrayList<>(this.statuses.entrySet());
+            Collections.sort(entries, ACCESS_COMPARATOR);
+
+            for (Map.Entry<Object, Entry> entry : entries) {
+                if (!isFull()) {
+                    break;
+                }
+
+                if (!entry.getKey().equals(addedKey) && this.statuses.remove(entry.getKey(), entry.getValue())) {
+                    removed(entry.getValue());
+                    this.evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void putNoStatus(Object key)
+    {
+        long now = System.currentTimeMillis();
+
+        this.noStatuses.put(key, now + NOSTATUS_EXPIRATION);
+
+        if (this.noStatuses.size() > NOSTATUS_SIZE) {
+            synchronized (this.noStatuses) {
+                if (this.noStatuses.size() > NOSTATUS_SIZE) {
+                    List<Map.Entry<Object, Long>> entries = new ArrayList<>(this.noStatuses.entrySet());
+                    Collections.sort(entries, EXPIRATION_COMPARATOR);
+
+                    // Forget expired ids and then the oldest ones to get back to 3/4 of the maximum size
+                    int toRemove = entries.size() - (NOSTATUS_SIZE * 3 / 4);
+                    for (Map.Entry<Object, Long> entry : entries) {
+                        if (toRemove <= 0 && entry.getValue() > now) {
+                            break;
+                        }
+
+                        this.noStatuses.remove(entry.getKey(), entry.getValue());
+                        --toRemove;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of statuses in the cache
+     */
+    public int size()
+    {
+        return this.statuses.size();
+    }
+
+    /**
+     * @return the total weight of the statuses in the cache
+     */
+    public long getWeight()
+    {
+        return this.weight.get();
+    }
+
+    /**
+     * @return the maximum number of statuses in the cache, unlimited if lower than 1
+     */
+    public int getMaxSize()
+    {
+        return this.maxSize;
+    }
+
+    /**
+     * @return the maximum total weight of the statuses in the cache, unlimited if lower than 1
+     */
+    public long getMaxWeight()
+    {
+        return this.maxWeight;
+    }
+
+    /**
+     * @return the number of times a status (or the fact that there is no status) was found in the cache
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of times a status had to be loaded
+     */
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of statuses removed from the cache to make room for other ones
+     */
+    public long getEvictionCount()
+    {
+        return this.evictions.get();
+    }
+}
@@ -0,0 +1,528 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.xwiki.job.event.status.JobStatus;
+
+/**
+ * A persistent index of the stored job statuses.
+ * <p>
+ * The index is kept in memory sorted by job id so that the statuses with a given id prefix can be listed without
+ * touching the file system. Each modification is appended to a journal file which is replayed when the index is
+ * loaded and compacted when it contains too many obsolete records.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobStatusIndex
+{
+    private static final int MAGIC = 0x584A5349;
+
+    private static final byte VERSION = 1;
+
+    private static final byte RECORD_PUT = 1;
+
+    private static final byte RECORD_REMOVE = 2;
+
+    private static final byte RECORD_COMPLETE = 3;
+
+    private static final byte RECORD_REMOVE_ALL = 4;
+
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    /**
+     * Sort ids element by element, {@code null} elements first.
+     *
+     * @version $Id$
+     */
+    private static final class IdComparator implements Comparator<List<String>>
+    {
+        @Override
+        public int compare(List<String> id1, List<String> id2)
+        {
+            int size = Math.min(id1.size(), id2.size());
+            for (int i = 0; i < size; ++i) {
+                int result = compare(id1.get(i), id2.get(i));
+
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            return id1.size() - id2.size();
+        }
+
+        private int compare(String element1, String element2)
+        {
+            if (element1 == null) {
+                return element2 == null ? 0 : -1;
+            }
+
+            return element2 == null ? 1 : element1.compareTo(element2);
+        }
+    }
+
+    /**
+     * An indexed job status.
+     *
+     * @version $Id$
+     */
+    public static class Entry
+    {
+        private final List<String> id;
+
+        private final String path;
+
+        private final JobStatus.State state;
+
+        private final Date startDate;
+
+        private final Date endDate;
+
+        private final long modified;
+
+        /**
+         * @param id the id of the job
+         * @param path the path of the job status folder relative to the storage folder
+         * @param state the general state of the job
+         * @param startDate the date and time when the job has been started
+         * @param endDate the date and time when the job finished
+         * @param modified the time when the job status file was last modified
+         */
+        public Entry(List<String> id, String path, JobStatus.State state, Date startDate, Date endDate, long modified)
+        {
+            this.id = id;
+            this.path = path;
+            this.state = state;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.modified = modified;
+        }
+
+        /**
+         * @return the id of the job
+         */
+        public List<String> getId()
+        {
+            return this.id;
+        }
+
+        /**
+         * @return the path of the job status folder relative to the storage folder
+         */
+        public String getPath()
+        {
+            return this.path;
+        }
+
+        /**
+         * @return the general state of the job
+         */
+        public JobStatus.State getState()
+        {
+            return this.state;
+        }
+
+        /**
+         * @return the date and time when the job has been started
+         */
+        public Date getStartDate()
+        {
+            return this.startDate;
+        }
+
+        /**
+         * @return the date and time when the job finished
+         */
+        public Date getEndDate()
+        {
+            return this.endDate;
+        }
+
+        /**
+         * @return the time when the job status file was last modified
+         */
+        public long getModified()
+        {
+            return this.modified;
+        }
+    }
+
+    private final File file;
+
+    private final ConcurrentNavigableMap<List<String>, Entry> entries =
+        new ConcurrentSkipListMap<List<String>, Entry>(new IdComparator());
+
+    private volatile boolean complete;
+
+    private int records;
+
+    /**
+     * @param file the file where the index is stored
+     */
+    public JobStatusIndex(File file)
+    {
+        this.file = file;
+    }
+
+    private static List<String> key(List<String> id)
+    {
+        return id != null ? id : Collections.<String>emptyList();
+    }
+
+    /**
+     * Load the index from its file.
+     *
+     * @throws IOException when failing to read the index
+     */
+    public synchronized void load() throws IOException
+    {
+        this.entries.clear();
+        this.complete = false;
+        this.records = 0;
+
+        if (!this.file.exists()) {
+            return;
+        }
+
+        boolean truncated = false;
+
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+        try {
+            if (stream.readInt() != MAGIC || stream.readByte() != VERSION) {
+                throw new IOException("Unsupported job status index [" + this.file + "]");
+            }
+
+            for (int type = stream.read(); type != -1; type = stream.read()) {
+                readRecord(type, stream);
+
+                ++this.records;
+            }
+        } catch (EOFException e) {
+            // The last record was not fully written
+            truncated = true;
+        } finally {
+            stream.close();
+        }
+
+        if (truncated || this.records > this.entries.size() * 2) {
+            compact();
+        }
+    }
+
+    private void readRecord(int type, DataInputStream stream) throws IOException
+    {
+        if (type == RECORD_PUT) {
+            Entry entry = readEntry(stream);
+            this.entries.put(key(entry.getId()), entry);
+        } else if (type == RECORD_REMOVE) {
+            this.entries.remove(key(readId(stream)));
+        } else if (type == RECORD_REMOVE_ALL) {
+            removeEntries(readId(stream));
+        } else if (type == RECORD_COMPLETE) {
+            this.complete = true;
+        } else {
+            throw new IOException("Unknown record type [" + type + "] in job status index [" + this.file + "]");
+        }
+    }
+
+    /**
+     * @return true if the index is known to contain all the stored job statuses
+     */
+    public boolean isComplete()
+    {
+        return this.complete;
+    }
+
+    /**
+     * Indicate that the index contains all the stored job statuses.
+     *
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void setComplete() throws IOException
+    {
+        if (!this.complete) {
+            DataOutputStream stream = openJournal();
+            try {
+                stream.writeByte(RECORD_COMPLETE);
+            } finally {
+                stream.close();
+            }
+
+            this.complete = true;
+        }
+    }
+
+    /**
+     * @param id the id of the job
+     * @return the indexed job status or {@code null} if none could be found
+     */
+    public Entry get(List<String> id)
+    {
+        return this.entries.get(key(id));
+    }
+
+    /**
+     * @param prefix the beginning of the job ids
+     * @return the indexed job statuses with an id starting with the passed prefix
+     */
+    public List<Entry> getEntries(List<String> prefix)
+    {
+        return new ArrayList<>(getPrefixMap(key(prefix)).values());
+    }
+
+    /**
+     * @return all the indexed job statuses
+     */
+    public Collection<Entry> getEntries()
+    {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    private Map<List<String>, Entry> getPrefixMap(List<String> prefix)
+    {
+        if (prefix.isEmpty()) {
+            return this.entries;
+        }
+
+        // All the ids starting with the prefix are just after it
+        ConcurrentNavigableMap<List<String>, Entry> tail = this.entries.tailMap(prefix, true);
+        for (List<String> id : tail.keySet()) {
+            if (id.size() < prefix.size() || !id.subList(0, prefix.size()).equals(prefix)) {
+                return tail.headMap(id);
+            }
+        }
+
+        return tail;
+    }
+
+    /**
+     * @param entry the job status to index
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void put(Entry entry) throws IOException
+    {
+        this.entries.put(key(entry.getId()), entry);
+
+        DataOutputStream stream = openJournal();
+        try {
+            stream.writeByte(RECORD_PUT);
+            writeEntry(entry, stream);
+        } finally {
+            stream.close();
+        }
+
+        written();
+    }
+
+    /**
+     * @param id the id of the job
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void remove(List<String> id) throws IOException
+    {
+        if (this.entries.remove(key(id)) != null) {
+            writeRecord(RECORD_REMOVE, id);
+        }
+    }
+
+    /**
+     * Remove the job status with the passed id and all the job statuses with an id starting with it.
+     *
+     * @param prefix the beginning of the job ids
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void removeAll(List<String> prefix) throws IOException
+    {
+        removeEntries(prefix);
+
+        writeRecord(RECORD_REMOVE_ALL, prefix);
+    }
+
+    private void writeRecord(byte type, List<String> id) throws IOException
+    {
+        DataOutputStream stream = openJournal();
+        try {
+            stream.writeByte(type);
+            writeId(id, stream);
+        } finally {
+            stream.close();
+        }
+
+        written();
+    }
+
+    private void removeEntries(List<String> prefix)
+    {
+        getPrefixMap(key(prefix)).clear();
+    }
+
+    private void written() throws IOException
+    {
+        ++this.records;
+
+        if (this.records > COMPACT_THRESHOLD && this.records > this.entries.size() * 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the index file with only the current entries.
+     *
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void compact() throws IOException
+    {
+        this.file.getParentFile().mkdirs();
+
+        File tempFile = File.createTempFile(this.file.getName(), ".tmp", this.file.getParentFile());
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeByte(VERSION);
+
+            for (Entry entry : this.entries.values()) {
+                stream.writeByte(RECORD_PUT);
+                writeEntry(entry, stream);
+            }
+
+            if (this.complete) {
+                stream.writeByte(RECORD_COMPLETE);
+            }
+        } finally {
+            stream.close();
+        }
+
+        Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        this.records = this.entries.size() + (this.complete ? 1 : 0);
+    }
+
+    private DataOutputStream openJournal() throws IOException
+    {
+        if (!this.file.exists()) {
+            compact();
+        }
+
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file, true)));
+    }
+
+    private void writeEntry(Entry entry, DataOutputStream stream) throws IOException
+    {
+        writeId(entry.getId(), stream);
+        writeString(entry.getPath(), stream);
+        writeString(entry.getState() != null ? entry.getState().name() : null, stream);
+        stream.writeLong(entry.getStartDate() != null ? entry.getStartDate().getTime() : NULL_DATE);
+        stream.writeLong(entry.getEndDate() != null ? entry.getEndDate().getTime() : NULL_DATE);
+        stream.writeLong(entry.getModified());
+    }
+
+    private Entry readEntry(DataInputStream stream) throws IOException
+    {
+        List<String> id = readId(stream);
+        String path = readString(stream);
+        String state = readString(stream);
+        long startDate = stream.readLong();
+        long endDate = stream.readLong();
+        long modified = stream.readLong();
+
+        return new Entry(id, path, state != null ? JobStatus.State.valueOf(state) : null,
+            startDate != NULL_DATE ? new Date(startDate) : null, endDate != NULL_DATE ? new Date(endDate) : null,
+            modified);
+    }
+
+    private void writeId(List<String> id, DataOutputStream stream) throws IOException
+    {
+        if (id != null) {
+            stream.writeInt(id.size());
+            for (String element : id) {
+                writeString(element, stream);
+            }
+        } else {
+            stream.writeInt(-1);
+        }
+    }
+
+    private List<String> readId(DataInputStream stream) throws IOException
+    {
+        int size = stream.readInt();
+
+        if (size < 0) {
+            return null;
+        }
+
+        List<String> id = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            id.add(readString(stream));
+        }
+
+        return id;
+    }
+
+    private void writeString(String value, DataOutputStream stream) throws IOException
+    {
+        if (value != null) {
+            byte[] bytes = value.getBytes(DEFAULT_ENCODING);
+            stream.writeInt(bytes.length);
+            stream.write(bytes);
+        } else {
+            stream.writeInt(-1);
+        }
+    }
+
+    private String readString(DataInputStream stream) throws IOException
+    {
+        int length = stream.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        stream.readFully(bytes);
+
+        return new String(bytes, DEFAULT_ENCODING);
+    }
+}
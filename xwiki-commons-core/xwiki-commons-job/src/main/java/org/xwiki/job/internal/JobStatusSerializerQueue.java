@@ -0,0 +1,414 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.xwiki.job.event.status.JobStatus;
+
+/**
+ * A bounded queue of job statuses to serialize, consumed by a fixed number of worker threads.
+ * <p>
+ * Pending writes are keyed by job id: storing a status of a job which is already waiting to be serialized only
+ * replaces it with the latest one. A given job is never serialized by two workers at the same time. When the queue is
+ * full the thread storing a status for a new job is blocked until a worker frees some room.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobStatusSerializerQueue
+{
+    /**
+     * Actually serialize the statuses.
+     *
+     * @version $Id$
+     */
+    public interface Writer
+    {
+        /**
+         * @param status the status to serialize
+         * @throws Exception when failing to serialize the status
+         */
+        void write(JobStatus status) throws Exception;
+    }
+
+    private final Writer writer;
+
+    private final int capacity;
+
+    private final Map<List<String>, JobStatus> pending = new LinkedHashMap<>();
+
+    private final Set<List<String>> writing = new HashSet<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a status might be ready to be serialized.
+     */
+    private final Condition available = this.lock.newCondition();
+
+    /**
+     * Signaled when some room is freed in the queue.
+     */
+    private final Condition notFull = this.lock.newCondition();
+
+    /**
+     * Signaled when a status has been serialized.
+     */
+    private final Condition written = this.lock.newCondition();
+
+    private final List<Thread> workers;
+
+    private boolean stopped;
+
+    private long submittedCount;
+
+    private long coalescedCount;
+
+    private long blockedCount;
+
+    private long writtenCount;
+
+    private long failedCount;
+
+    /**
+     * @param writer actually serialize the statuses
+     * @param workers the number of threads serializing the statuses
+     * @param capacity the maximum number of jobs waiting to be serialized
+     * @param threadFactory used to create the worker threads
+     */
+    public JobStatusSerializerQueue(Writer writer, int workers, int capacity, ThreadFactory threadFactory)
+    {
+        this.writer = writer;
+        this.capacity = Math.max(1, capacity);
+
+        this.workers = new ArrayList<>(workers);
+        for (int i = 0; i < Math.max(1, workers); ++i) {
+            Thread thread = threadFactory.newThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    work();
+                }
+            });
+            this.workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue the passed status to be serialized.
+     * <p>
+     * Block while the queue is full. The status is serialized in the current thread if the queue has been stopped or
+     * if the thread is interrupted while waiting (after any status of the same job being serialized by a worker).
+     *
+     * @param status the status to serialize
+     */
+    public void put(JobStatus status)
+    {
+        List<String> id = status.getRequest().getId();
+
+        this.lock.lock();
+        try {
+            boolean blocked = false;
+            while (true) {
+                if (this.pending.containsKey(id)) {
+                    // The previous pending status is not going to be serialized (the workers are still running if
+                    // there is a pending status, even when stopped)
+                    this.pending.put(id, status);
+                    ++this.coalescedCount;
+
+                    return;
+                }
+
+                if (this.stopped) {
+                    break;
+                }
+
+                if (this.pending.size() < this.capacity) {
+                    this.pending.put(id, status);
+                    ++this.submittedCount;
+
+                    this.available.signal();
+
+                    return;
+                }
+
+                if (!blocked) {
+                    ++this.blockedCount;
+                    blocked = true;
+                }
+
+                try {
+                    this.notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    break;
+                }
+            }
+
+            // Make sure a worker is not serializing a status of the same job at the same time
+            while (this.writing.contains(id)) {
+                this.written.awaitUninterruptibly();
+            }
+            this.writing.add(id);
+        } finally {
+            this.lock.unlock();
+        }
+
+        writeAndRelease(status);
+    }
+
+    private void work()
+    {
+        while (true) {
+            JobStatus status;
+
+            this.lock.lock();
+            try {
+                status = take();
+
+                if (status == null) {
+                    return;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+
+            writeAndRelease(status);
+        }
+    }
+
+    /**
+     * Serialize a status previously added to the statuses being written and remove it from there.
+     */
+    private void writeAndRelease(JobStatus status)
+    {
+        try {
+            write(status);
+        } finally {
+            this.lock.lock();
+            try {
+                this.writing.remove(status.getRequest().getId());
+
+                // A status of the same job might have been waiting for this one to be serialized
+                this.available.signalAll();
+                this.written.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the next status to serialize or {@code null} if the queue is stopped and empty
+     */
+    private JobStatus take()
+    {
+        while (true) {
+            for (Iterator<Map.Entry<List<String>, JobStatus>> it = this.pending.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<List<String>, JobStatus> entry = it.next();
+
+                if (!this.writing.contains(entry.getKey())) {
+                    it.remove();
+                    this.writing.add(entry.getKey());
+
+                    this.notFull.signal();
+
+                    return entry.getValue();
+                }
+            }
+
+            if (this.stopped && this.pending.isEmpty()) {
+                return null;
+            }
+
+            this.available.awaitUninterruptibly();
+        }
+    }
+
+    private void write(JobStatus status)
+    {
+        boolean success = false;
+        try {
+            this.writer.write(status);
+
+            success = true;
+        } catch (Exception e) {
+            // The writer is in charge of reporting its errors, the failure is only counted here
+        } finally {
+            this.lock.lock();
+            try {
+                if (success) {
+                    ++this.writtenCount;
+                } else {
+                    ++this.failedCount;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait until all the statuses queued so far are serialized.
+     *
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void flush() throws InterruptedException
+    {
+        this.lock.lock();
+        try {
+            while (!this.pending.isEmpty() || !this.writing.isEmpty()) {
+                this.written.await();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Serialize all the pending statuses and stop the workers. The statuses stored after that are serialized
+     * synchronously.
+     *
+     * @throws InterruptedException when interrupted while waiting for the workers
+     */
+    public void stop() throws InterruptedException
+    {
+        this.lock.lock();
+        try {
+            this.stopped = true;
+
+            this.available.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (Thread worker : this.workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * @return the number of jobs waiting to be serialized
+     */
+    public int getPendingCount()
+    {
+        this.lock.lock();
+        try {
+            return this.pending.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the maximum number of jobs waiting to be serialized
+     */
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of workers
+     */
+    public int getWorkerCount()
+    {
+        return this.workers.size();
+    }
+
+    /**
+     * @return the number of statuses queued for a job which was not already waiting to be serialized
+     */
+    public long getSubmittedCount()
+    {
+        this.lock.lock();
+        try {
+            return this.submittedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of statuses which replaced a pending status of the same job
+     */
+    public long getCoalescedCount()
+    {
+        this.lock.lock();
+        try {
+            return this.coalescedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of times a thread had to wait because the queue was full
+     */
+    public long getBlockedCount()
+    {
+        this.lock.lock();
+        try {
+            return this.blockedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of statuses successfully serialized
+     */
+    public long getWrittenCount()
+    {
+        this.lock.lock();
+        try {
+            return this.writtenCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of statuses which failed to be serialized
+     */
+    public long getFailedCount()
+    {
+        this.lock.lock();
+        try {
+            return this.failedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
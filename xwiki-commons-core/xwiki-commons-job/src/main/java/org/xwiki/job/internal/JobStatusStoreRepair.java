@@ -0,0 +1,396 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.internal.binary.BinaryJobStatusSerializer;
+import org.xwiki.job.internal.binary.JobStatusHeader;
+
+/**
+ * Repair and index the job statuses of the storage in background: the statuses found in the wrong folder are moved to
+ * the right one and the statuses stored in the old XML format are converted to the binary format.
+ * <p>
+ * The converted XML statuses are kept (next to the binary status) so that they can still be read after a downgrade;
+ * they are removed only when the job status is saved again.
+ * <p>
+ * The job statuses removed while the repair is running are recorded so that the repair does not move or convert
+ * anything from or to their folders.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class JobStatusStoreRepair
+{
+    private static final String LOG_LOAD_FAILED = "Failed to load job status in folder [{}]";
+
+    private static final String LOG_CONFLICT = "Job status in folder [{}] conflicts with the one in folder [{}]";
+
+    /**
+     * How long to wait for the repair to stop, in seconds.
+     */
+    private static final long STOP_TIMEOUT = 10;
+
+    private final DefaultJobStatusStore store;
+
+    private final Logger logger;
+
+    private ForkJoinPool pool;
+
+    private volatile ForkJoinTask<?> task;
+
+    private volatile boolean stopped;
+
+    /**
+     * The absolute paths of the folders removed while the repair is running.
+     */
+    private final List<String> removed = new ArrayList<>();
+
+    /**
+     * @param store the store to repair
+     * @param logger the logger to log
+     */
+    JobStatusStoreRepair(DefaultJobStatusStore store, Logger logger)
+    {
+        this.store = store;
+        this.logger = logger;
+    }
+
+    /**
+     * Start repairing the storage in background.
+     *
+     * @param folder the storage folder
+     */
+    void start(File folder)
+    {
+        this.pool = new ForkJoinPool();
+        this.task = this.pool.submit(new RepairTask(folder));
+        this.pool.shutdown();
+    }
+
+    /**
+     * Wait until the storage is repaired (or the repair stopped).
+     */
+    void waitFor()
+    {
+        ForkJoinTask<?> currentTask = this.task;
+
+        if (currentTask != null) {
+            try {
+                currentTask.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (CancellationException e) {
+                // The repair has been stopped
+            } catch (ExecutionException e) {
+                this.logger.warn("Failed to repair the job statuses", e);
+            }
+        }
+    }
+
+    /**
+     * Indicate that the folder of a job status (and the folders of the jobs with an id starting with it) is about to be
+     * removed. Wait until the repair is done modifying any folder.
+     *
+     * @param folder the folder of the removed job status
+     */
+    synchronized void remove(File folder)
+    {
+        ForkJoinTask<?> currentTask = this.task;
+
+        if (currentTask != null && !currentTask.isDone()) {
+            this.removed.add(folder.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @param folder a job folder
+     * @return true if the folder has been removed while the repair was running
+     */
+    private boolean isRemoved(File folder)
+    {
+        String path = folder.getAbsolutePath();
+
+        for (String removedPath : this.removed) {
+            if (path.equals(removedPath) || path.startsWith(removedPath + File.separator)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Stop the repair and wait until the storage is not modified anymore.
+     *
+     * @throws InterruptedException when interrupted while waiting for the repair to stop
+     */
+    void stop() throws InterruptedException
+    {
+        this.stopped = true;
+
+        ForkJoinTask<?> currentTask = this.task;
+        if (currentTask != null) {
+            currentTask.cancel(true);
+            this.pool.shutdownNow();
+
+            this.pool.awaitTermination(STOP_TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Walk the whole storage and update the index.
+     */
+    private class RepairTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final File folder;
+
+        RepairTask(File folder)
+        {
+            this.folder = folder;
+        }
+
+        @Override
+        protected void compute()
+        {
+            Map<String, JobStatusIndex.Entry> indexed = new HashMap<>();
+            for (JobStatusIndex.Entry entry : store.getIndex().getEntries()) {
+                indexed.put(entry.getPath(), entry);
+            }
+
+            Set<String> found = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+            new RepairFolderTask(this.folder, indexed, found).invoke();
+
+            if (stopped) {
+                // Some folders might have been skipped
+                return;
+            }
+
+            try {
+                // Forget the statuses which have been removed
+                for (JobStatusIndex.Entry entry : indexed.values()) {
+                    if (!found.contains(entry.getPath())
+                        && !BinaryJobStatusSerializer.exists(store.getJobFolder(entry.getId()))) {
+                        store.getIndex().remove(entry.getId());
+                    }
+                }
+
+                store.getIndex().setComplete();
+            } catch (IOException e) {
+                logger.error("Failed to update the job status index", e);
+            }
+        }
+    }
+
+    /**
+     * Repair and index the job statuses of a folder and its children in parallel.
+     */
+    private class RepairFolderTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final File folder;
+
+        private final Map<String, JobStatusIndex.Entry> indexed;
+
+        private final Set<String> found;
+
+        RepairFolderTask(File folder, Map<String, JobStatusIndex.Entry> indexed, Set<String> found)
+        {
+            this.folder = folder;
+            this.indexed = indexed;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute()
+        {
+            File[] files = stopped ? null : this.folder.listFiles();
+
+            if (files == null) {
+                return;
+            }
+
+            List<RepairFolderTask> tasks = new ArrayList<>();
+            boolean xml = false;
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    tasks.add(new RepairFolderTask(file, this.indexed, this.found));
+                } else if (file.getName().equals(DefaultJobStatusStore.FILENAME_STATUS)) {
+                    xml = true;
+                }
+            }
+
+            if (BinaryJobStatusSerializer.exists(this.folder)) {
+                repairBinaryStatus();
+            } else if (xml) {
+                repairXMLStatus();
+            }
+
+            invokeAll(tasks);
+        }
+
+        private void repairBinaryStatus()
+        {
+            File statusFile = new File(this.folder, BinaryJobStatusSerializer.FILENAME_STATUS);
+
+            JobStatusIndex.Entry entry = this.indexed.get(store.getPath(this.folder));
+            if (entry != null && entry.getModified() == statusFile.lastModified()) {
+                // Already indexed
+                this.found.add(entry.getPath());
+
+                return;
+            }
+
+            try {
+                // Only the header is needed to find where the status should be and to index it
+                JobStatusHeader header = store.getBinarySerializer().readHeader(this.folder);
+
+                File properFolder = store.getJobFolder(header.getId());
+
+                synchronized (JobStatusStoreRepair.this) {
+                    if (isRemoved(this.folder) || isRemoved(properFolder)
+                        || !moveBinaryStatus(statusFile, properFolder)) {
+                        return;
+                    }
+
+                    index(header, properFolder);
+                    this.found.add(store.getPath(properFolder));
+                }
+
+                // The status might have been looked for in its right place before being moved there
+                store.getCache().remove(header.getId());
+            } catch (Exception e) {
+                logger.warn(LOG_LOAD_FAILED, this.folder, e);
+            }
+        }
+
+        /**
+         * @return false if the status could not be moved in its right place
+         */
+        private boolean moveBinaryStatus(File statusFile, File properFolder)
+        {
+            if (!this.folder.equals(properFolder)) {
+                if (BinaryJobStatusSerializer.exists(properFolder)) {
+                    logger.warn(LOG_CONFLICT, this.folder, properFolder);
+
+                    return false;
+                }
+
+                // Move the status and its log in their right place
+                moveFileToDirectory(new File(this.folder, BinaryJobStatusSerializer.FILENAME_LOG), properFolder);
+                moveFileToDirectory(statusFile, properFolder);
+            }
+
+            return true;
+        }
+
+        private void index(JobStatusHeader header, File folder) throws IOException
+        {
+            long modified = new File(folder, BinaryJobStatusSerializer.FILENAME_STATUS).lastModified();
+
+            store.getIndex().put(new JobStatusIndex.Entry(header.getId(), store.getPath(folder), header.getState(),
+                header.getStartDate(), header.getEndDate(), modified));
+        }
+
+        private void repairXMLStatus()
+        {
+            File statusFile = new File(this.folder, DefaultJobStatusStore.FILENAME_STATUS);
+
+            try {
+                JobStatus status = store.loadJobStatus(statusFile);
+
+                if (status != null) {
+                    File properFolder = store.getJobFolder(status.getRequest().getId());
+
+                    synchronized (JobStatusStoreRepair.this) {
+                        if (isRemoved(this.folder) || isRemoved(properFolder)
+                            || !convertXMLStatus(status, statusFile, properFolder)) {
+                            return;
+                        }
+                    }
+
+                    // The status might have been looked for in its right place before being moved there
+                    store.getCache().remove(status.getRequest().getId());
+                }
+            } catch (Exception e) {
+                logger.warn(LOG_LOAD_FAILED, this.folder, e);
+            }
+        }
+
+        /**
+         * @return false if the status could not be converted in its right place
+         */
+        private boolean convertXMLStatus(JobStatus status, File statusFile, File properFolder) throws IOException
+        {
+            if (BinaryJobStatusSerializer.exists(properFolder)) {
+                // Keep the XML status since it's not the one which is loaded
+                logger.warn(LOG_CONFLICT, this.folder, properFolder);
+
+                return false;
+            }
+
+            // Convert the status to the binary format in its right place
+            store.getBinarySerializer().write(status, properFolder);
+
+            store.index(status, properFolder);
+            this.found.add(store.getPath(properFolder));
+
+            // Keep the XML status (in its right place too) for older versions
+            if (!this.folder.equals(properFolder)
+                && !new File(properFolder, DefaultJobStatusStore.FILENAME_STATUS).exists()) {
+                moveFileToDirectory(statusFile, properFolder);
+            }
+
+            return true;
+        }
+    }
+
+    private void moveFileToDirectory(File file, File folder)
+    {
+        if (file.exists()) {
+            try {
+                FileUtils.moveFileToDirectory(file, folder, true);
+            } catch (IOException e) {
+                this.logger.error("Failed to move job status file", e);
+            }
+        }
+    }
+}
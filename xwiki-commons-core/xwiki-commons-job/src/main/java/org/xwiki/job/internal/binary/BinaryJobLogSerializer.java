@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.event.LogEvent;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Write and read the log of a binary job status.
+ * <p>
+ * When the log is a {@link StoredLogQueue} which has already been written in the same file, only the new log events are
+ * appended to it. Otherwise the whole log is written again.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class BinaryJobLogSerializer
+{
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Used to serialize and unserialize the log events arguments.
+     */
+    private final XStream xstream;
+
+    /**
+     * @param xstream used to serialize and unserialize the log events arguments
+     */
+    BinaryJobLogSerializer(XStream xstream)
+    {
+        this.xstream = xstream;
+    }
+
+    /**
+     * @param log the log to write
+     * @param logFile the file where to write the log
+     * @return the part of the log stored in the file
+     * @throws IOException when failing to write the log
+     */
+    LogPosition write(LogQueue log, File logFile) throws IOException
+    {
+        synchronized (log) {
+            StoredLogQueue storedLog = log instanceof StoredLogQueue ? (StoredLogQueue) log : null;
+
+            LogPosition position = storedLog != null ? storedLog.getStoredPosition() : null;
+            if (position != null && position.getFile().equals(logFile) && position.getLength() == logFile.length()) {
+                if (log instanceof LazyLogQueue && !((LazyLogQueue) log).isLoaded()) {
+                    // Nothing new
+                    return position;
+                }
+
+                position = append(log, logFile, position.getCount());
+            } else {
+                position = rewrite(log, logFile);
+            }
+
+            if (storedLog != null) {
+                storedLog.setStoredPosition(position);
+            }
+
+            return position;
+        }
+    }
+
+    private LogPosition append(LogQueue log, File logFile, int storedCount) throws IOException
+    {
+        LogSegment segment = new LogSegment(logFile, this.xstream);
+
+        int count;
+        if (log instanceof SpoolingLogQueue) {
+            // Copy the spooled log events as is
+            count = storedCount + ((SpoolingLogQueue) log).appendTo(segment, storedCount);
+        } else {
+            // Skip the log events already stored
+            Iterator<LogEvent> iterator = log.iterator();
+            for (int i = 0; i < storedCount && iterator.hasNext(); ++i) {
+                iterator.next();
+            }
+
+            count = storedCount + segment.append(iterator);
+        }
+
+        return new LogPosition(logFile, count, segment.length());
+    }
+
+    private LogPosition rewrite(LogQueue log, File logFile) throws IOException
+    {
+        File tempFile = File.createTempFile(logFile.getName(), TEMP_SUFFIX, logFile.getParentFile());
+        LogSegment tempSegment = new LogSegment(tempFile, this.xstream);
+
+        int count;
+        if (log instanceof SpoolingLogQueue) {
+            count = ((SpoolingLogQueue) log).appendTo(tempSegment, 0);
+        } else {
+            count = tempSegment.write(log.iterator());
+        }
+
+        Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        return new LogPosition(logFile, count, logFile.length());
+    }
+
+    /**
+     * @param logFile the file where the log is stored
+     * @param count the number of log events stored in the file
+     * @param length the length of the file after the log events have been written
+     * @return the log, loaded from the file the first time it's accessed
+     */
+    LazyLogQueue read(File logFile, int count, long length)
+    {
+        LazyLogQueue log = new LazyLogQueue(new LogSegment(logFile, this.xstream), count);
+        log.setStoredPosition(new LogPosition(logFile, count, length));
+
+        return log;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.xwiki.job.event.status.JobProgress;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.job.internal.xstream.SafeXStream;
+import org.xwiki.logging.LogQueue;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.DataHolder;
+import com.thoughtworks.xstream.io.HierarchicalStreamDriver;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * Serialize/unserialize job statuses in a compact binary format.
+ * <p>
+ * A job status is stored in two files:
+ * <ul>
+ * <li>{@value #FILENAME_STATUS}: a small header (state, dates, request id, log size) followed by the job status
+ * without its log and progress and then by the progress</li>
+ * <li>{@value #FILENAME_LOG}: an append only {@link LogSegment} containing the log of the job. Only the log events
+ * which are not already stored are written when the same status is saved several times (see
+ * {@link BinaryJobLogSerializer}).</li>
+ * </ul>
+ * The log and the progress of an unserialized job status are only loaded when accessed.
+ * <p>
+ * The binary format is an envelope: the header and the log events (level, date, message and simple arguments) are
+ * encoded natively but the job status itself (request, question, etc.), the progress tree and the complex log
+ * arguments are still stored as compact XStream XML blobs inside it.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class BinaryJobStatusSerializer
+{
+    /**
+     * The name of the file where the job status is stored.
+     */
+    public static final String FILENAME_STATUS = "status.bin";
+
+    /**
+     * The name of the file where the job log is stored.
+     */
+    public static final String FILENAME_LOG = "log.bin";
+
+    private static final String KEY_LOG = "job.log";
+
+    private static final String KEY_PROGRESS = "job.progress";
+
+    /**
+     * Used to serialize and unserialize the progress and the log events arguments.
+     */
+    private final XStream xstream;
+
+    /**
+     * Used to serialize and unserialize the status without its log and progress.
+     */
+    private final XStream statusXStream;
+
+    private final HierarchicalStreamDriver driver = new XppDriver();
+
+    /**
+     * Used to write and read the log of the job statuses.
+     */
+    private final BinaryJobLogSerializer logSerializer;
+
+    /**
+     * Default constructor.
+     */
+    public BinaryJobStatusSerializer()
+    {
+        this.xstream = new SafeXStream();
+        this.logSerializer = new BinaryJobLogSerializer(this.xstream);
+
+        this.statusXStream = new SafeXStream();
+        this.statusXStream.registerConverter(new ExternalizedConverter(LogQueue.class, KEY_LOG, this.statusXStream));
+        this.statusXStream.registerConverter(
+            new ExternalizedConverter(DefaultJobProgress.class, KEY_PROGRESS, this.statusXStream));
+    }
+
+    /**
+     * @param folder the folder of the job status
+     * @return true if the folder contains a binary job status
+     */
+    public static boolean exists(File folder)
+    {
+        return new File(folder, FILENAME_STATUS).exists();
+    }
+
+    /**
+     * @param status the status to serialize
+     * @param folder the folder where to serialize the status
+     * @throws IOException when failing to serialize the status
+     */
+    public void write(JobStatus status, File folder) throws IOException
+    {
+        folder.mkdirs();
+
+        File statusFile = new File(folder, FILENAME_STATUS);
+
+        // Append new log events to the log segment
+        LogQueue log = status.getLog() != null ? status.getLog() : new LogQueue();
+        LogPosition position = this.logSerializer.write(log, new File(folder, FILENAME_LOG));
+
+        JobProgress progress = status.getProgress();
+        byte[] progressBytes;
+        if (progress instanceof LazyJobProgress && !((LazyJobProgress) progress).isLoaded()) {
+            // Keep the progress as is
+            progressBytes = new JobStatusFile(((LazyJobProgress) progress).getStatusFile()).readProgress();
+        } else if (progress instanceof DefaultJobProgress) {
+            progressBytes = LogSegment.marshal(this.xstream, progress, null);
+        } else {
+            progressBytes = null;
+        }
+
+        DataHolder holder = this.statusXStream.newDataHolder();
+        holder.put(KEY_LOG, log);
+        if (progressBytes != null) {
+            holder.put(KEY_PROGRESS, progress);
+        }
+        byte[] statusBytes = LogSegment.marshal(this.statusXStream, status, holder);
+
+        new JobStatusFile(statusFile).write(status, position, statusBytes, progressBytes);
+
+        if (log instanceof SpoolingLogQueue && status.getState() == JobStatus.State.FINISHED) {
+            // The whole log is now in the log file
+            ((SpoolingLogQueue) log).releaseSpool(position);
+        }
+    }
+
+    /**
+     * @param folder the folder containing the job status
+     * @return the status
+     * @throws IOException when failing to read the status
+     */
+    public JobStatus read(File folder) throws IOException
+    {
+        File statusFile = new File(folder, FILENAME_STATUS);
+
+        JobStatusFile file = new JobStatusFile(statusFile);
+        JobStatusHeader header = file.readHeader();
+        byte[] statusBytes = file.readStatus();
+
+        // The log and the progress are only loaded when needed
+        LogQueue log = this.logSerializer.read(new File(folder, FILENAME_LOG), header.getLogCount(),
+            header.getLogLength());
+
+        DataHolder holder = this.statusXStream.newDataHolder();
+        holder.put(KEY_LOG, log);
+        holder.put(KEY_PROGRESS, new LazyJobProgress(this, statusFile));
+
+        return (JobStatus) this.statusXStream.unmarshal(
+            this.driver.createReader(new ByteArrayInputStream(statusBytes)), null, holder);
+    }
+
+    /**
+     * @param folder the folder containing the job status
+     * @return the header of the job status
+     * @throws IOException when failing to read the header
+     */
+    public JobStatusHeader readHeader(File folder) throws IOException
+    {
+        return new JobStatusFile(new File(folder, FILENAME_STATUS)).readHeader();
+    }
+
+    /**
+     * @param statusFile the file containing the job status
+     * @return the progress of the job
+     * @throws IOException when failing to read the progress
+     */
+    DefaultJobProgress readProgress(File statusFile) throws IOException
+    {
+        byte[] progressBytes = new JobStatusFile(statusFile).readProgress();
+
+        if (progressBytes != null) {
+            Object progress = this.xstream.fromXML(new ByteArrayInputStream(progressBytes));
+
+            if (progress instanceof DefaultJobProgress) {
+                return (DefaultJobProgress) progress;
+            }
+        }
+
+        return null;
+    }
+}
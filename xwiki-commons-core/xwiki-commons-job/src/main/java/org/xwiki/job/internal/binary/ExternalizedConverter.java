@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+/**
+ * Skip the serialization of a value stored elsewhere (like the log or the progress of a job status) and inject back
+ * the value provided in the context when unserializing.
+ * <p>
+ * The externalized value is the one associated to the converter key in the {@link MarshallingContext}. Any other
+ * value of the same type is serialized as usual.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ExternalizedConverter implements Converter
+{
+    private static final String ATTRIBUTE_EXTERNALIZED = "externalized";
+
+    private final Class<?> type;
+
+    private final Object key;
+
+    private final Converter fallback;
+
+    /**
+     * @param type the type of the externalized value
+     * @param key the key of the externalized value in the marshalling and unmarshalling contexts
+     * @param xstream the XStream instance used to find the converter to use for values which are not externalized
+     */
+    public ExternalizedConverter(Class<?> type, Object key, XStream xstream)
+    {
+        this.type = type;
+        this.key = key;
+        this.fallback = xstream.getConverterLookup().lookupConverterForType(type);
+    }
+
+    @Override
+    public boolean canConvert(Class type)
+    {
+        return type != null && this.type.isAssignableFrom(type);
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context)
+    {
+        if (source == context.get(this.key)) {
+            writer.addAttribute(ATTRIBUTE_EXTERNALIZED, Boolean.TRUE.toString());
+        } else {
+            this.fallback.marshal(source, writer, context);
+        }
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context)
+    {
+        if (Boolean.parseBoolean(reader.getAttribute(ATTRIBUTE_EXTERNALIZED))) {
+            return context.get(this.key);
+        }
+
+        return this.fallback.unmarshal(reader, context);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.xwiki.job.event.status.JobStatus;
+
+/**
+ * The file of a binary job status: a {@link JobStatusHeader} followed by the serialized job status (without its log
+ * and progress) and then by the serialized progress.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class JobStatusFile
+{
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File file;
+
+    /**
+     * @param file the file of the job status
+     */
+    JobStatusFile(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Write the job status in a temporary file and then move it in its final destination.
+     *
+     * @param status the job status
+     * @param position the part of the log of the job status stored in the log segment
+     * @param statusBytes the serialized job status, without its log and progress
+     * @param progressBytes the serialized progress, {@code null} if the job status has no progress
+     * @throws IOException when failing to write the file
+     */
+    void write(JobStatus status, LogPosition position, byte[] statusBytes, byte[] progressBytes) throws IOException
+    {
+        File tempFile = File.createTempFile(this.file.getName(), TEMP_SUFFIX, this.file.getParentFile());
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            JobStatusHeader.write(status, position, stream);
+            LogSegment.writeBytes(statusBytes, stream);
+            LogSegment.writeBytes(progressBytes, stream);
+        } finally {
+            stream.close();
+        }
+
+        Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the header of the job status
+     * @throws IOException when failing to read the header
+     */
+    JobStatusHeader readHeader() throws IOException
+    {
+        DataInputStream stream = open();
+        try {
+            return JobStatusHeader.read(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the serialized job status, without its log and progress
+     * @throws IOException when failing to read the job status
+     */
+    byte[] readStatus() throws IOException
+    {
+        DataInputStream stream = open();
+        try {
+            // Skip the header
+            JobStatusHeader.read(stream);
+
+            return LogSegment.readBytes(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the serialized progress, {@code null} if the job status has no progress
+     * @throws IOException when failing to read the progress
+     */
+    byte[] readProgress() throws IOException
+    {
+        DataInputStream stream = open();
+        try {
+            JobStatusHeader.read(stream);
+
+            // Skip the status
+            int statusLength = stream.readInt();
+            if (statusLength > 0) {
+                stream.skipBytes(statusLength);
+            }
+
+            return LogSegment.readBytes(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private DataInputStream open() throws IOException
+    {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+    }
+}
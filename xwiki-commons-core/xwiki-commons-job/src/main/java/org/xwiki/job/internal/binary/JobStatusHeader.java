@@ -0,0 +1,190 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.xwiki.job.event.status.JobStatus;
+
+/**
+ * The header of a binary job status file, which can be read without unserializing the job status.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JobStatusHeader
+{
+    private static final int MAGIC = 0x584A5342;
+
+    private static final byte VERSION = 2;
+
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private JobStatus.State state;
+
+    private Date startDate;
+
+    private Date endDate;
+
+    private List<String> id;
+
+    private int logCount;
+
+    private long logLength;
+
+    /**
+     * @return the general state of the job
+     */
+    public JobStatus.State getState()
+    {
+        return this.state;
+    }
+
+    /**
+     * @return the date and time when the job has been started
+     */
+    public Date getStartDate()
+    {
+        return this.startDate;
+    }
+
+    /**
+     * @return the date and time when the job finished
+     */
+    public Date getEndDate()
+    {
+        return this.endDate;
+    }
+
+    /**
+     * @return the id of the job
+     */
+    public List<String> getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the number of log events stored in the log segment
+     */
+    public int getLogCount()
+    {
+        return this.logCount;
+    }
+
+    /**
+     * @return the length of the log segment after the log events have been written
+     */
+    long getLogLength()
+    {
+        return this.logLength;
+    }
+
+    /**
+     * @param status the job status
+     * @param position the part of the log of the job status stored in the log segment
+     * @param stream the stream where to write the header
+     * @throws IOException when failing to write the header
+     */
+    static void write(JobStatus status, LogPosition position, DataOutputStream stream) throws IOException
+    {
+        stream.writeInt(MAGIC);
+        stream.writeByte(VERSION);
+
+        writeString(status.getState() != null ? status.getState().name() : null, stream);
+        stream.writeLong(status.getStartDate() != null ? status.getStartDate().getTime() : NULL_DATE);
+        stream.writeLong(status.getEndDate() != null ? status.getEndDate().getTime() : NULL_DATE);
+
+        List<String> id = status.getRequest() != null ? status.getRequest().getId() : null;
+        if (id != null) {
+            stream.writeInt(id.size());
+            for (String element : id) {
+                writeString(element, stream);
+            }
+        } else {
+            stream.writeInt(-1);
+        }
+
+        stream.writeInt(position.getCount());
+        stream.writeLong(position.getLength());
+    }
+
+    /**
+     * @param stream the stream from where to read the header
+     * @return the header
+     * @throws IOException when failing to read the header
+     */
+    static JobStatusHeader read(DataInputStream stream) throws IOException
+    {
+        if (stream.readInt() != MAGIC) {
+            throw new IOException("Not a binary job status");
+        }
+        byte version = stream.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary job status version [" + version + "]");
+        }
+
+        JobStatusHeader header = new JobStatusHeader();
+
+        String state = readString(stream);
+        header.state = state != null ? JobStatus.State.valueOf(state) : null;
+        header.startDate = readDate(stream);
+        header.endDate = readDate(stream);
+
+        int idSize = stream.readInt();
+        if (idSize >= 0) {
+            header.id = new ArrayList<>(idSize);
+            for (int i = 0; i < idSize; ++i) {
+                header.id.add(readString(stream));
+            }
+        }
+
+        header.logCount = stream.readInt();
+        header.logLength = stream.readLong();
+
+        return header;
+    }
+
+    private static Date readDate(DataInputStream stream) throws IOException
+    {
+        long time = stream.readLong();
+
+        return time != NULL_DATE ? new Date(time) : null;
+    }
+
+    private static void writeString(String value, DataOutputStream stream) throws IOException
+    {
+        LogSegment.writeBytes(value != null ? value.getBytes(DEFAULT_ENCODING) : null, stream);
+    }
+
+    private static String readString(DataInputStream stream) throws IOException
+    {
+        byte[] bytes = LogSegment.readBytes(stream);
+
+        return bytes != null ? new String(bytes, DEFAULT_ENCODING) : null;
+    }
+}
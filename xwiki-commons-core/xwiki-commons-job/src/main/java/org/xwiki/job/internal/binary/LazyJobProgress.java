@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.job.internal.DefaultJobProgressStep;
+import org.xwiki.observation.event.Event;
+
+/**
+ * A {@link DefaultJobProgress} which load the actual progress from the status file the first time it's accessed.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class LazyJobProgress extends DefaultJobProgress
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyJobProgress.class);
+
+    private final transient BinaryJobStatusSerializer serializer;
+
+    private final transient File statusFile;
+
+    private transient volatile DefaultJobProgress progress;
+
+    /**
+     * @param serializer the serializer used to read the progress
+     * @param statusFile the file containing the progress
+     */
+    public LazyJobProgress(BinaryJobStatusSerializer serializer, File statusFile)
+    {
+        this.serializer = serializer;
+        this.statusFile = statusFile;
+    }
+
+    /**
+     * @return the file containing the progress
+     */
+    public File getStatusFile()
+    {
+        return this.statusFile;
+    }
+
+    /**
+     * @return true if the progress has already been loaded from the status file
+     */
+    public boolean isLoaded()
+    {
+        return this.progress != null;
+    }
+
+    private DefaultJobProgress getProgress()
+    {
+        if (this.progress == null) {
+            synchronized (this) {
+                if (this.progress == null) {
+                    DefaultJobProgress loadedProgress = null;
+                    try {
+                        loadedProgress = this.serializer.readProgress(this.statusFile);
+                    } catch (Exception e) {
+                        LOGGER.warn("Failed to load job progress from [{}]", this.statusFile, e);
+                    }
+
+                    // Fallback on an empty progress
+                    this.progress = loadedProgress != null ? loadedProgress : new DefaultJobProgress();
+                }
+            }
+        }
+
+        return this.progress;
+    }
+
+    /**
+     * @return the actual progress so that it's serialized as a usual one
+     */
+    protected Object writeReplace()
+    {
+        return getProgress();
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        getProgress().onEvent(event, source, data);
+    }
+
+    @Override
+    public double getOffset()
+    {
+        return getProgress().getOffset();
+    }
+
+    @Override
+    public double getCurrentLevelOffset()
+    {
+        return getProgress().getCurrentLevelOffset();
+    }
+
+    @Override
+    public DefaultJobProgressStep getRootStep()
+    {
+        return getProgress().getRootStep();
+    }
+
+    @Override
+    public DefaultJobProgressStep getCurrentStep()
+    {
+        return getProgress().getCurrentStep();
+    }
+}
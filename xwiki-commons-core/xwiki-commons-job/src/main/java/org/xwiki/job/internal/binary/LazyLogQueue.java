@@ -0,0 +1,273 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.event.LogEvent;
+
+/**
+ * A {@link LogQueue} which load its content from a {@link LogSegment} the first time it's accessed.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class LazyLogQueue extends StoredLogQueue
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyLogQueue.class);
+
+    private final transient LogSegment segment;
+
+    private final transient int segmentCount;
+
+    private transient volatile boolean loaded;
+
+    /**
+     * @param segment the segment from where to load the log events
+     * @param segmentCount the number of log events to load from the segment
+     */
+    public LazyLogQueue(LogSegment segment, int segmentCount)
+    {
+        this.segment = segment;
+        this.segmentCount = segmentCount;
+    }
+
+    /**
+     * @return the segment from where the log events are loaded
+     */
+    public LogSegment getSegment()
+    {
+        return this.segment;
+    }
+
+    /**
+     * @return the number of log events to load from the segment
+     */
+    public int getSegmentCount()
+    {
+        return this.segmentCount;
+    }
+
+    /**
+     * @return true if the log events have already been loaded from the segment
+     */
+    public boolean isLoaded()
+    {
+        return this.loaded;
+    }
+
+    private void load()
+    {
+        if (!this.loaded) {
+            synchronized (this) {
+                if (!this.loaded) {
+                    try {
+                        for (LogEvent event : this.segment.read(this.segmentCount)) {
+                            super.offer(event);
+                        }
+                    } catch (Exception e) {
+                        LOGGER.warn("Failed to load log events from [{}]", this.segment.getFile(), e);
+                    }
+
+                    this.loaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a standard {@link LogQueue} so that the log is serialized as a usual one
+     */
+    protected Object writeReplace()
+    {
+        LogQueue queue = new LogQueue();
+        queue.addAll(this);
+
+        return queue;
+    }
+
+    @Override
+    public boolean add(LogEvent e)
+    {
+        load();
+
+        return super.add(e);
+    }
+
+    @Override
+    public boolean offer(LogEvent e)
+    {
+        load();
+
+        return super.offer(e);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends LogEvent> c)
+    {
+        load();
+
+        return super.addAll(c);
+    }
+
+    @Override
+    public LogEvent poll()
+    {
+        load();
+
+        return super.poll();
+    }
+
+    @Override
+    public LogEvent peek()
+    {
+        load();
+
+        return super.peek();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        load();
+
+        return super.isEmpty();
+    }
+
+    @Override
+    public int size()
+    {
+        load();
+
+        return super.size();
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        load();
+
+        return super.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        load();
+
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        load();
+
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        load();
+
+        return super.retainAll(c);
+    }
+
+    @Override
+    public Object[] toArray()
+    {
+        load();
+
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a)
+    {
+        load();
+
+        return super.toArray(a);
+    }
+
+    @Override
+    public Iterator<LogEvent> iterator()
+    {
+        load();
+
+        return super.iterator();
+    }
+
+    @Override
+    public List<LogEvent> getLogs(LogLevel level)
+    {
+        load();
+
+        return super.getLogs(level);
+    }
+
+    @Override
+    public List<LogEvent> getLogsFrom(LogLevel level)
+    {
+        load();
+
+        return super.getLogsFrom(level);
+    }
+
+    @Override
+    public boolean containLogsFrom(LogLevel level)
+    {
+        load();
+
+        return super.containLogsFrom(level);
+    }
+
+    @Override
+    public int getLogCount(LogLevel level)
+    {
+        load();
+
+        return super.getLogCount(level);
+    }
+
+    @Override
+    public List<LogEvent> getLogs(int offset, int limit)
+    {
+        load();
+
+        return super.getLogs(offset, limit);
+    }
+
+    @Override
+    public List<LogEvent> getLogsFrom(LogLevel level, int offset, int limit)
+    {
+        load();
+
+        return super.getLogsFrom(level, offset, limit);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+
+/**
+ * The part of a log which is stored in the log file of a binary job status.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+final class LogPosition
+{
+    private final File file;
+
+    private final int count;
+
+    private final long length;
+
+    /**
+     * @param file the file where the log is stored
+     * @param count the number of log events stored in the file
+     * @param length the length of the file after the log events have been written
+     */
+    LogPosition(File file, int count, long length)
+    {
+        this.file = file;
+        this.count = count;
+        this.length = length;
+    }
+
+    /**
+     * @return the file where the log is stored
+     */
+    File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the number of log events stored in the file
+     */
+    int getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the length of the file after the log events have been written
+     */
+    long getLength()
+    {
+        return this.length;
+    }
+}
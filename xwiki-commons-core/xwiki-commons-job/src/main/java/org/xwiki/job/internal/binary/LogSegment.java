@@ -0,0 +1,402 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Marker;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogUtils;
+import org.xwiki.logging.event.LogEvent;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.DataHolder;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+
+/**
+ * An append only file containing a sequence of {@link LogEvent}s.
+ * <p>
+ * Each record is made of its length followed by the level, the time stamp, the message and the arguments of the
+ * event. Arguments which are {@code null}, strings, numbers, booleans or characters are encoded natively, any other
+ * argument as well as the marker and the throwable of the event, when there are any, are serialized with XStream.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class LogSegment
+{
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private static final byte ARGUMENT_NULL = 0;
+
+    private static final byte ARGUMENT_STRING = 1;
+
+    private static final byte ARGUMENT_BOOLEAN = 2;
+
+    private static final byte ARGUMENT_CHARACTER = 3;
+
+    private static final byte ARGUMENT_INTEGER = 4;
+
+    private static final byte ARGUMENT_LONG = 5;
+
+    private static final byte ARGUMENT_SHORT = 6;
+
+    private static final byte ARGUMENT_BYTE = 7;
+
+    private static final byte ARGUMENT_DOUBLE = 8;
+
+    private static final byte ARGUMENT_FLOAT = 9;
+
+    private static final byte ARGUMENT_OBJECT = 10;
+
+    /**
+     * The types of arguments encoded natively.
+     */
+    private static final Map<Class<?>, Byte> ARGUMENT_TYPES = new HashMap<>();
+
+    static {
+        ARGUMENT_TYPES.put(String.class, ARGUMENT_STRING);
+        ARGUMENT_TYPES.put(Boolean.class, ARGUMENT_BOOLEAN);
+        ARGUMENT_TYPES.put(Character.class, ARGUMENT_CHARACTER);
+        ARGUMENT_TYPES.put(Integer.class, ARGUMENT_INTEGER);
+        ARGUMENT_TYPES.put(Long.class, ARGUMENT_LONG);
+        ARGUMENT_TYPES.put(Short.class, ARGUMENT_SHORT);
+        ARGUMENT_TYPES.put(Byte.class, ARGUMENT_BYTE);
+        ARGUMENT_TYPES.put(Double.class, ARGUMENT_DOUBLE);
+        ARGUMENT_TYPES.put(Float.class, ARGUMENT_FLOAT);
+    }
+
+    private final File file;
+
+    private final XStream xstream;
+
+    /**
+     * @param file the file containing the log events
+     * @param xstream used to serialize log events arguments
+     */
+    public LogSegment(File file, XStream xstream)
+    {
+        this.file = file;
+        this.xstream = xstream;
+    }
+
+    /**
+     * @return the file containing the log events
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the current size of the segment in bytes
+     */
+    public long length()
+    {
+        return this.file.length();
+    }
+
+    /**
+     * Add the passed log events at the end of the segment.
+     *
+     * @param events the log events to add
+     * @return the number of added log events
+     * @throws IOException when failing to write the log events
+     */
+    public int append(Iterator<LogEvent> events) throws IOException
+    {
+        return write(events, true);
+    }
+
+    /**
+     * Replace the content of the segment with the passed log events.
+     *
+     * @param events the log events to write
+     * @return the number of written log events
+     * @throws IOException when failing to write the log events
+     */
+    public int write(Iterator<LogEvent> events) throws IOException
+    {
+        return write(events, false);
+    }
+
+    private int write(Iterator<LogEvent> events, boolean append) throws IOException
+    {
+        this.file.getParentFile().mkdirs();
+
+        DataOutputStream stream =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file, append)));
+
+        int count = 0;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            while (events.hasNext()) {
+                buffer.reset();
+                writeEvent(events.next(), new DataOutputStream(buffer));
+
+                stream.writeInt(buffer.size());
+                buffer.writeTo(stream);
+
+                ++count;
+            }
+        } finally {
+            stream.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * @param count the maximum number of log events to read
+     * @return the log events stored in the segment
+     * @throws IOException when failing to read the log events
+     */
+    public List<LogEvent> read(int count) throws IOException
+    {
+        List<LogEvent> events = new ArrayList<>(count);
+
+        if (this.file.exists()) {
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+
+            try {
+                while (events.size() < count) {
+                    byte[] record = new byte[stream.readInt()];
+                    stream.readFully(record);
+
+                    events.add(read(record));
+                }
+            } catch (EOFException e) {
+                // The segment is shorter than expected (the last record was probably not fully written), stop there
+            } finally {
+                stream.close();
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * @param record the content of a record, without its length
+     * @return the log event stored in the record
+     * @throws IOException when failing to read the log event
+     */
+    LogEvent read(byte[] record) throws IOException
+    {
+        return readEvent(new DataInputStream(new ByteArrayInputStream(record)));
+    }
+
+    private void writeEvent(LogEvent event, DataOutputStream stream) throws IOException
+    {
+        stream.writeByte(event.getLevel() != null ? event.getLevel().ordinal() : -1);
+        stream.writeLong(event.getTimeStamp());
+        writeBytes(event.getMessage() != null ? event.getMessage().getBytes(DEFAULT_ENCODING) : null, stream);
+
+        writeBytes(marshal(event.getMarker()), stream);
+        writeArguments(event.getArgumentArray(), stream);
+        writeBytes(marshal(event.getThrowable()), stream);
+    }
+
+    private void writeArguments(Object[] arguments, DataOutputStream stream) throws IOException
+    {
+        if (arguments == null || arguments.length == 0) {
+            stream.writeInt(-1);
+        } else {
+            stream.writeInt(arguments.length);
+            for (Object argument : arguments) {
+                writeArgument(argument, stream);
+            }
+        }
+    }
+
+    private void writeArgument(Object argument, DataOutputStream stream) throws IOException
+    {
+        Byte type = argument != null ? ARGUMENT_TYPES.get(argument.getClass()) : Byte.valueOf(ARGUMENT_NULL);
+        if (type == null) {
+            type = ARGUMENT_OBJECT;
+        }
+
+        stream.writeByte(type);
+
+        if (type == ARGUMENT_STRING) {
+            writeBytes(((String) argument).getBytes(DEFAULT_ENCODING), stream);
+        } else if (type == ARGUMENT_OBJECT) {
+            writeBytes(marshal(argument), stream);
+        } else if (type == ARGUMENT_DOUBLE || type == ARGUMENT_FLOAT) {
+            stream.writeDouble(((Number) argument).doubleValue());
+        } else if (argument instanceof Number) {
+            stream.writeLong(((Number) argument).longValue());
+        } else if (argument instanceof Boolean) {
+            stream.writeBoolean((Boolean) argument);
+        } else if (argument instanceof Character) {
+            stream.writeChar((Character) argument);
+        }
+    }
+
+    private byte[] marshal(Object object) throws IOException
+    {
+        return object != null ? marshal(this.xstream, object, null) : null;
+    }
+
+    /**
+     * @param xstream the XStream instance to use
+     * @param object the object to serialize
+     * @param holder the data to make available to the converters, can be {@code null}
+     * @return the compact XML serialization of the object
+     * @throws IOException when failing to serialize the object
+     */
+    static byte[] marshal(XStream xstream, Object object, DataHolder holder) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(bytes, DEFAULT_ENCODING);
+        xstream.marshal(object, new CompactWriter(writer), holder);
+        writer.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private Object unmarshal(byte[] bytes)
+    {
+        return bytes != null ? this.xstream.fromXML(new ByteArrayInputStream(bytes)) : null;
+    }
+
+    private LogEvent readEvent(DataInputStream stream) throws IOException
+    {
+        int levelIndex = stream.readByte();
+        LogLevel level = levelIndex >= 0 && levelIndex < LEVELS.length ? LEVELS[levelIndex] : null;
+        long timeStamp = stream.readLong();
+        byte[] messageBytes = readBytes(stream);
+        String message = messageBytes != null ? new String(messageBytes, DEFAULT_ENCODING) : null;
+
+        Object marker = unmarshal(readBytes(stream));
+        Object[] arguments = readArguments(stream);
+        Object throwable = unmarshal(readBytes(stream));
+
+        return LogUtils.newLogEvent(marker instanceof Marker ? (Marker) marker : null, level, message, arguments,
+            throwable instanceof Throwable ? (Throwable) throwable : null, timeStamp);
+    }
+
+    private Object[] readArguments(DataInputStream stream) throws IOException
+    {
+        int length = stream.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        Object[] arguments = new Object[length];
+        for (int i = 0; i < length; ++i) {
+            arguments[i] = readArgument(stream);
+        }
+
+        return arguments;
+    }
+
+    private Object readArgument(DataInputStream stream) throws IOException
+    {
+        byte type = stream.readByte();
+
+        Object argument;
+        switch (type) {
+            case ARGUMENT_NULL:
+                argument = null;
+                break;
+            case ARGUMENT_STRING:
+                argument = new String(readBytes(stream), DEFAULT_ENCODING);
+                break;
+            case ARGUMENT_OBJECT:
+                argument = unmarshal(readBytes(stream));
+                break;
+            case ARGUMENT_BOOLEAN:
+                argument = stream.readBoolean();
+                break;
+            case ARGUMENT_CHARACTER:
+                argument = stream.readChar();
+                break;
+            case ARGUMENT_DOUBLE:
+                argument = stream.readDouble();
+                break;
+            case ARGUMENT_FLOAT:
+                argument = (float) stream.readDouble();
+                break;
+            default:
+                argument = readIntegral(type, stream.readLong());
+        }
+
+        return argument;
+    }
+
+    private Object readIntegral(byte type, long value) throws IOException
+    {
+        switch (type) {
+            case ARGUMENT_INTEGER:
+                return (int) value;
+            case ARGUMENT_LONG:
+                return value;
+            case ARGUMENT_SHORT:
+                return (short) value;
+            case ARGUMENT_BYTE:
+                return (byte) value;
+            default:
+                throw new IOException("Unknown log argument type [" + type + "]");
+        }
+    }
+
+    static void writeBytes(byte[] bytes, DataOutputStream stream) throws IOException
+    {
+        if (bytes != null) {
+            stream.writeInt(bytes.length);
+            stream.write(bytes);
+        } else {
+            stream.writeInt(-1);
+        }
+    }
+
+    static byte[] readBytes(DataInputStream stream) throws IOException
+    {
+        int length = stream.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        stream.readFully(bytes);
+
+        return bytes;
+    }
+}
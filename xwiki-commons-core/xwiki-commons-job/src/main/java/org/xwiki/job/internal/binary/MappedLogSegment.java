@@ -0,0 +1,352 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.event.LogEvent;
+
+/**
+ * Give random access to the log events of a {@link LogSegment}.
+ * <p>
+ * The position and the level of each record are kept in memory and the records are read from a memory-mapped window of
+ * the file, so that accessing a log event doesn't require reading the whole segment.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class MappedLogSegment
+{
+    /**
+     * The maximum size of the part of the file mapped at a given time (unless a single record is bigger).
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The beginning of a mapped window is aligned on this size so that reading backward doesn't remap the file for
+     * each record.
+     */
+    private static final int WINDOW_ALIGNMENT = WINDOW_SIZE / 2;
+
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final String READ_MODE = "r";
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private final LogSegment segment;
+
+    /**
+     * The position of each record in the file.
+     */
+    private long[] positions = new long[INITIAL_CAPACITY];
+
+    /**
+     * The level of each record.
+     */
+    private byte[] levels = new byte[INITIAL_CAPACITY];
+
+    private final int[] levelCounts = new int[LEVELS.length];
+
+    private int size;
+
+    /**
+     * The number of bytes of the file which have been indexed.
+     */
+    private long length;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    /**
+     * @param segment the segment to access
+     */
+    public MappedLogSegment(LogSegment segment)
+    {
+        this.segment = segment;
+    }
+
+    /**
+     * @return the segment
+     */
+    public LogSegment getSegment()
+    {
+        return this.segment;
+    }
+
+    /**
+     * @return the number of log events in the segment
+     */
+    public synchronized int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the size of the segment in bytes
+     */
+    public synchronized long length()
+    {
+        return this.length;
+    }
+
+    /**
+     * Add the passed log events at the end of the segment.
+     *
+     * @param events the log events to add
+     * @throws IOException when failing to write the log events
+     */
+    public synchronized void append(List<LogEvent> events) throws IOException
+    {
+        try {
+            this.segment.append(events.iterator());
+        } catch (IOException e) {
+            // Don't leave a partial record behind
+            truncate();
+
+            throw e;
+        }
+
+        index(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Give access to the first records already stored in the segment. The following ones are ignored.
+     *
+     * @param count the number of records to access
+     * @throws IOException when failing to read the segment
+     */
+    synchronized void load(int count) throws IOException
+    {
+        index(count - this.size);
+    }
+
+    private void truncate() throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(this.segment.getFile(), "rw");
+        try {
+            file.setLength(this.length);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Remember the position and the level of the records which have been written since the last call.
+     *
+     * @param count the maximum number of records to remember
+     */
+    private void index(int count) throws IOException
+    {
+        long fileLength = this.segment.length();
+
+        if (fileLength > this.length) {
+            MappedByteBuffer buffer;
+            RandomAccessFile file = new RandomAccessFile(this.segment.getFile(), READ_MODE);
+            try {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, this.length, fileLength - this.length);
+            } finally {
+                file.close();
+            }
+
+            int position = 0;
+            for (int i = 0; i < count && buffer.limit() - position > RECORD_HEADER_SIZE; ++i) {
+                int recordLength = buffer.getInt(position);
+                if (buffer.limit() - position - RECORD_HEADER_SIZE < recordLength) {
+                    // Not fully written
+                    break;
+                }
+
+                add(this.length + position, buffer.get(position + RECORD_HEADER_SIZE));
+
+                position += RECORD_HEADER_SIZE + recordLength;
+            }
+
+            this.length += position;
+        }
+    }
+
+    private void add(long position, byte level)
+    {
+        if (this.size == this.positions.length) {
+            this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            this.levels = Arrays.copyOf(this.levels, this.size * 2);
+        }
+
+        this.positions[this.size] = position;
+        this.levels[this.size] = level;
+        ++this.size;
+
+        if (level >= 0 && level < LEVELS.length) {
+            ++this.levelCounts[level];
+        }
+    }
+
+    /**
+     * @param index the index of the log event
+     * @return the log event
+     * @throws IOException when failing to read the log event
+     */
+    public LogEvent get(int index) throws IOException
+    {
+        byte[] record;
+
+        synchronized (this) {
+            checkIndex(index);
+
+            long start = this.positions[index] + RECORD_HEADER_SIZE;
+            long end = index + 1 < this.size ? this.positions[index + 1] : this.length;
+
+            ByteBuffer buffer = map(start, end);
+            record = new byte[(int) (end - start)];
+            buffer.get(record);
+        }
+
+        // Unserialize the event outside of the lock
+        return this.segment.read(record);
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    private ByteBuffer map(long start, long end) throws IOException
+    {
+        if (this.window == null || start < this.windowStart || end > this.windowStart + this.window.capacity()) {
+            long newWindowStart = start - start % WINDOW_ALIGNMENT;
+            long newWindowSize = Math.min(Math.max(WINDOW_SIZE, end - newWindowStart), this.length - newWindowStart);
+
+            RandomAccessFile file = new RandomAccessFile(this.segment.getFile(), READ_MODE);
+            try {
+                // The mapping stays valid after the file is closed
+                this.window = file.getChannel().map(FileChannel.MapMode.READ_ONLY, newWindowStart, newWindowSize);
+                this.windowStart = newWindowStart;
+            } finally {
+                file.close();
+            }
+        }
+
+        ByteBuffer buffer = this.window.duplicate();
+        buffer.position((int) (start - this.windowStart));
+
+        return buffer;
+    }
+
+    /**
+     * @param index the index of the log event
+     * @return the level of the log event
+     */
+    public synchronized LogLevel getLevel(int index)
+    {
+        checkIndex(index);
+
+        byte level = this.levels[index];
+
+        return level >= 0 && level < LEVELS.length ? LEVELS[level] : null;
+    }
+
+    /**
+     * @param level the level of the log events
+     * @return the number of log events of the passed level
+     */
+    public synchronized int getLevelCount(LogLevel level)
+    {
+        return this.levelCounts[level.ordinal()];
+    }
+
+    /**
+     * Search the log events matching the passed level in the passed range, without reading them.
+     * 
+     * @param level the level of the log events
+     * @param above true if the levels above the passed level should be matched too
+     * @param from the index of the first log event to search
+     * @param to the index after the last log event to search
+     * @return the indexes of the matching log events
+     */
+    public synchronized int[] indexesOf(LogLevel level, boolean above, int from, int to)
+    {
+        int[] indexes = new int[INITIAL_CAPACITY];
+        int count = 0;
+
+        int ordinal = level.ordinal();
+        for (int i = Math.max(from, 0); i < Math.min(to, this.size); ++i) {
+            byte recordLevel = this.levels[i];
+
+            if (recordLevel == ordinal || (above && recordLevel >= 0 && recordLevel < ordinal)) {
+                if (count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, count * 2);
+                }
+                indexes[count++] = i;
+            }
+        }
+
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * Copy the records starting with the passed index at the end of another segment without unserializing them.
+     *
+     * @param from the index of the first log event to copy
+     * @param target the segment where to copy the log events
+     * @return the number of copied log events
+     * @throws IOException when failing to copy the log events
+     */
+    public synchronized int copyTo(int from, LogSegment target) throws IOException
+    {
+        if (from >= this.size) {
+            return 0;
+        }
+
+        target.getFile().getParentFile().mkdirs();
+
+        FileInputStream input = new FileInputStream(this.segment.getFile());
+        try {
+            FileOutputStream output = new FileOutputStream(target.getFile(), true);
+            try {
+                FileChannel inputChannel = input.getChannel();
+                long position = this.positions[Math.max(from, 0)];
+                while (position < this.length) {
+                    position += inputChannel.transferTo(position, this.length - position, output.getChannel());
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+
+        return this.size - Math.max(from, 0);
+    }
+}
@@ -0,0 +1,639 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.job.internal.xstream.SafeXStream;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LogUtils;
+import org.xwiki.logging.event.LogEvent;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * A {@link LogQueue} which keeps only the most recent log events in memory and moves the older ones to a
+ * {@link LogSegment} on disk.
+ * <p>
+ * The spooled log events are read back from the segment when accessed. They can only be removed from the head of the
+ * queue (with {@link #poll()} or {@link #clear()}), the iterator of a spooling queue does not support removal.
+ * <p>
+ * The segment is deleted once the log of the finished job has been stored, the spooled log events being then read from
+ * the stored log. Otherwise it's deleted after the queue is garbage collected.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class SpoolingLogQueue extends StoredLogQueue
+{
+    /**
+     * The name of the folder, in the job status storage, where the log events are spooled.
+     */
+    public static final String FOLDER_SPOOL = "&spool";
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpoolingLogQueue.class);
+
+    /**
+     * The log events are spooled by batches of a fraction of the maximum number of log events in memory.
+     */
+    private static final int BATCH_DIVISOR = 4;
+
+    private static final String SPOOL_PREFIX = "log";
+
+    private static final String SPOOL_SUFFIX = ".spool";
+
+    /**
+     * Notified when a queue has been garbage collected so that its segment can be deleted.
+     */
+    private static final ReferenceQueue<SpoolingLogQueue> COLLECTED = new ReferenceQueue<>();
+
+    /**
+     * Keep the references alive until the queues are garbage collected.
+     */
+    private static final Set<SpoolReference> SPOOLS =
+        Collections.newSetFromMap(new ConcurrentHashMap<SpoolReference, Boolean>());
+
+    /**
+     * Only create the {@link XStream} instance when a queue actually spools something.
+     *
+     * @version $Id$
+     */
+    private static final class XStreamHolder
+    {
+        private static final XStream XSTREAM = new SafeXStream();
+    }
+
+    /**
+     * Remember the segment of a queue.
+     *
+     * @version $Id$
+     */
+    private static final class SpoolReference extends PhantomReference<SpoolingLogQueue>
+    {
+        private final File file;
+
+        SpoolReference(SpoolingLogQueue queue, File file)
+        {
+            super(queue, COLLECTED);
+
+            this.file = file;
+        }
+    }
+
+    /**
+     * A fixed part of the queue made of spooled log events followed by log events in memory.
+     *
+     * @version $Id$
+     */
+    private static final class LogView extends AbstractList<LogEvent> implements RandomAccess
+    {
+        private final MappedLogSegment spool;
+
+        /**
+         * The indexes of the spooled log events, {@code null} when they follow each other.
+         */
+        private final int[] indexes;
+
+        private final int spoolFrom;
+
+        private final int spoolCount;
+
+        private final List<LogEvent> memory;
+
+        LogView(MappedLogSegment spool, int[] indexes, int spoolFrom, int spoolCount, List<LogEvent> memory)
+        {
+            this.spool = spool;
+            this.indexes = indexes;
+            this.spoolFrom = spoolFrom;
+            this.spoolCount = spoolCount;
+            this.memory = memory;
+        }
+
+        @Override
+        public LogEvent get(int index)
+        {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+
+            if (index < this.spoolCount) {
+                int spoolIndex = this.spoolFrom + index;
+
+                return read(this.spool, this.indexes != null ? this.indexes[spoolIndex] : spoolIndex);
+            }
+
+            return this.memory.get(index - this.spoolCount);
+        }
+
+        @Override
+        public int size()
+        {
+            return this.spoolCount + this.memory.size();
+        }
+    }
+
+    /**
+     * The folder where to create the segment.
+     */
+    private transient File folder;
+
+    /**
+     * The maximum number of log events to keep in memory, 0 when not spooling.
+     */
+    private transient int maxEvents;
+
+    /**
+     * The log events moved out of memory, {@code null} until the first ones are spooled.
+     */
+    private transient MappedLogSegment spool;
+
+    /**
+     * The number of spooled log events which have been removed from the queue.
+     */
+    private transient int spoolStart;
+
+    /**
+     * The number of log events in memory.
+     */
+    private transient int memoryCount;
+
+    /**
+     * Used to delete the segment when the queue is garbage collected.
+     */
+    private transient SpoolReference reference;
+
+    /**
+     * Start moving the oldest log events to disk when there is too many of them in memory.
+     *
+     * @param folder the folder where to store the log events
+     * @param maxEvents the maximum number of log events to keep in memory
+     */
+    public void startSpooling(File folder, int maxEvents)
+    {
+        synchronized (this) {
+            this.folder = folder;
+            this.maxEvents = maxEvents;
+            this.memoryCount = super.size();
+        }
+    }
+
+    /**
+     * @return the segment containing the log events moved out of memory, {@code null} if none has been moved yet
+     */
+    public MappedLogSegment getSpool()
+    {
+        synchronized (this) {
+            return this.spool;
+        }
+    }
+
+    /**
+     * @return the number of log events kept in memory
+     */
+    public int getMemoryCount()
+    {
+        synchronized (this) {
+            return this.spool != null ? this.memoryCount : super.size();
+        }
+    }
+
+    /**
+     * Add the log events starting with the passed index at the end of a segment. The spooled log events are copied
+     * without being unserialized.
+     *
+     * @param segment the segment where to add the log events
+     * @param offset the index of the first log event to add
+     * @return the number of added log events
+     * @throws IOException when failing to write the log events
+     */
+    public int appendTo(LogSegment segment, int offset) throws IOException
+    {
+        synchronized (this) {
+            int count = 0;
+            int memoryOffset = Math.max(offset, 0);
+
+            if (this.spool != null) {
+                int spoolCount = this.spool.size() - this.spoolStart;
+                if (memoryOffset < spoolCount) {
+                    count += this.spool.copyTo(this.spoolStart + memoryOffset, segment);
+                }
+                memoryOffset = Math.max(memoryOffset - spoolCount, 0);
+            }
+
+            Iterator<LogEvent> iterator = super.iterator();
+            for (int i = 0; i < memoryOffset && iterator.hasNext(); ++i) {
+                iterator.next();
+            }
+
+            return count + segment.append(iterator);
+        }
+    }
+
+    /**
+     * Read the spooled log events from the passed log file instead of the segment and delete the segment. The log
+     * events added after that are kept in memory.
+     *
+     * @param position the part of the log stored in the log file, starting with the first log event of the queue
+     * @throws IOException when failing to read the log file
+     */
+    void releaseSpool(LogPosition position) throws IOException
+    {
+        synchronized (this) {
+            // Nothing spooled (or already released) or the log file doesn't contain exactly the log events of the queue
+            if (this.reference == null || position.getCount() != size()) {
+                return;
+            }
+
+            MappedLogSegment stored =
+                new MappedLogSegment(new LogSegment(position.getFile(), XStreamHolder.XSTREAM));
+            stored.load(this.spool.size() - this.spoolStart);
+
+            File file = this.spool.getSegment().getFile();
+
+            this.spool = stored;
+            this.spoolStart = 0;
+            this.maxEvents = 0;
+
+            SPOOLS.remove(this.reference);
+            this.reference = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * Delete the segments of the queues which have been garbage collected.
+     */
+    public static void deleteCollectedSpools()
+    {
+        for (Reference<?> reference = COLLECTED.poll(); reference != null; reference = COLLECTED.poll()) {
+            if (SPOOLS.remove(reference)) {
+                ((SpoolReference) reference).file.delete();
+            }
+        }
+    }
+
+    private static SpoolReference register(SpoolingLogQueue queue, File file)
+    {
+        deleteCollectedSpools();
+
+        SpoolReference reference = new SpoolReference(queue, file);
+        SPOOLS.add(reference);
+
+        return reference;
+    }
+
+    private static LogEvent read(MappedLogSegment spool, int index)
+    {
+        try {
+            return spool.get(index);
+        } catch (IOException e) {
+            return LogUtils.newLogEvent(null, LogLevel.ERROR, "Failed to read log event from [{}]",
+                new Object[] { spool.getSegment().getFile() }, e);
+        }
+    }
+
+    /**
+     * Move the oldest log events to the segment until only the maximum number of log events remain in memory.
+     */
+    private void spool()
+    {
+        // Resynchronize in case events were removed through the iterator
+        this.memoryCount = super.size();
+
+        List<LogEvent> events = new ArrayList<>(this.memoryCount - this.maxEvents);
+        Iterator<LogEvent> iterator = super.iterator();
+        while (events.size() < this.memoryCount - this.maxEvents && iterator.hasNext()) {
+            events.add(iterator.next());
+        }
+
+        try {
+            if (this.spool == null) {
+                this.folder.mkdirs();
+                File file = File.createTempFile(SPOOL_PREFIX, SPOOL_SUFFIX, this.folder);
+                this.reference = register(this, file);
+
+                this.spool = new MappedLogSegment(new LogSegment(file, XStreamHolder.XSTREAM));
+            }
+
+            this.spool.append(events);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to spool log events in folder [{}], keeping them in memory", this.folder, e);
+
+            this.maxEvents = 0;
+
+            return;
+        }
+
+        for (int i = 0; i < events.size(); ++i) {
+            super.poll();
+        }
+        this.memoryCount -= events.size();
+    }
+
+    /**
+     * @param level the level of the log events, {@code null} for all the log events
+     * @param above true if the log events of the levels above the passed level should be included
+     * @param offset the index of the first log event to return
+     * @param limit the maximum number of log events to return, all the following log events if lower than 0
+     * @return a fixed view of the log events
+     */
+    private List<LogEvent> getLogs(LogLevel level, boolean above, int offset, int limit)
+    {
+        synchronized (this) {
+            int[] indexes =
+                level != null ? this.spool.indexesOf(level, above, this.spoolStart, this.spool.size()) : null;
+            int spoolCount = indexes != null ? indexes.length : this.spool.size() - this.spoolStart;
+
+            int from = Math.min(Math.max(offset, 0), spoolCount);
+            int to = limit < 0 ? spoolCount : (int) Math.min((long) from + limit, spoolCount);
+
+            int memoryOffset = Math.max(offset, 0) - from;
+            int memoryLimit = limit < 0 ? -1 : limit - (to - from);
+
+            List<LogEvent> memory;
+            if (level == null) {
+                memory = super.getLogs(memoryOffset, memoryLimit);
+            } else if (above) {
+                memory = super.getLogsFrom(level, memoryOffset, memoryLimit);
+            } else {
+                memory = super.getLogs(level);
+            }
+
+            return new LogView(this.spool, indexes, indexes != null ? from : this.spoolStart + from, to - from,
+                memory);
+        }
+    }
+
+    private int getSpoolCount(LogLevel level)
+    {
+        int count = this.spool.getLevelCount(level);
+
+        if (this.spoolStart > 0) {
+            count -= this.spool.indexesOf(level, false, 0, this.spoolStart).length;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return a standard {@link LogQueue} so that the log is serialized as a usual one
+     */
+    protected Object writeReplace()
+    {
+        LogQueue queue = new LogQueue();
+        queue.addAll(this);
+
+        return queue;
+    }
+
+    // LogQueue
+
+    @Override
+    public List<LogEvent> getLogs(LogLevel level)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(level, false, 0, -1) : super.getLogs(level);
+        }
+    }
+
+    @Override
+    public List<LogEvent> getLogsFrom(LogLevel level)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(level, true, 0, -1) : super.getLogsFrom(level);
+        }
+    }
+
+    @Override
+    public List<LogEvent> getLogs(int offset, int limit)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(null, false, offset, limit) : super.getLogs(offset, limit);
+        }
+    }
+
+    @Override
+    public List<LogEvent> getLogsFrom(LogLevel level, int offset, int limit)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(level, true, offset, limit) : super.getLogsFrom(level, offset, limit);
+        }
+    }
+
+    @Override
+    public int getLogCount(LogLevel level)
+    {
+        synchronized (this) {
+            int count = super.getLogCount(level);
+
+            if (this.spool != null) {
+                count += getSpoolCount(level);
+            }
+
+            return count;
+        }
+    }
+
+    @Override
+    public boolean containLogsFrom(LogLevel level)
+    {
+        synchronized (this) {
+            if (super.containLogsFrom(level)) {
+                return true;
+            }
+
+            if (this.spool != null) {
+                for (LogLevel spoolLevel : LogLevel.values()) {
+                    if (spoolLevel.compareTo(level) <= 0 && getSpoolCount(spoolLevel) > 0) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    // Queue
+
+    @Override
+    public boolean offer(LogEvent e)
+    {
+        synchronized (this) {
+            super.offer(e);
+
+            ++this.memoryCount;
+
+            // Spool by batches to not rebuild the memory index for each new event
+            if (this.maxEvents > 0 && this.memoryCount - this.maxEvents > this.maxEvents / BATCH_DIVISOR) {
+                spool();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public LogEvent poll()
+    {
+        synchronized (this) {
+            if (this.spool != null && this.spoolStart < this.spool.size()) {
+                return read(this.spool, this.spoolStart++);
+            }
+
+            LogEvent e = super.poll();
+
+            if (e != null) {
+                --this.memoryCount;
+            }
+
+            return e;
+        }
+    }
+
+    @Override
+    public LogEvent peek()
+    {
+        synchronized (this) {
+            if (this.spool != null && this.spoolStart < this.spool.size()) {
+                return read(this.spool, this.spoolStart);
+            }
+
+            return super.peek();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public int size()
+    {
+        synchronized (this) {
+            if (this.spool != null) {
+                return this.spool.size() - this.spoolStart + this.memoryCount;
+            }
+
+            return super.size();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(0, -1).contains(o) : super.contains(o);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        synchronized (this) {
+            boolean modified = super.remove(o);
+
+            this.memoryCount = super.size();
+
+            return modified;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        synchronized (this) {
+            boolean modified = super.removeAll(c);
+
+            this.memoryCount = super.size();
+
+            return modified;
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        synchronized (this) {
+            boolean modified = super.retainAll(c);
+
+            this.memoryCount = super.size();
+
+            return modified;
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized (this) {
+            super.clear();
+
+            this.memoryCount = 0;
+            if (this.spool != null) {
+                this.spoolStart = this.spool.size();
+            }
+        }
+    }
+
+    @Override
+    public Object[] toArray()
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(0, -1).toArray() : super.toArray();
+        }
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a)
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(0, -1).toArray(a) : super.toArray(a);
+        }
+    }
+
+    @Override
+    public Iterator<LogEvent> iterator()
+    {
+        synchronized (this) {
+            return this.spool != null ? getLogs(0, -1).iterator() : super.iterator();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import org.xwiki.logging.LogQueue;
+
+/**
+ * A {@link LogQueue} which remembers which part of it is already stored in the log file of a binary job status, so
+ * that saving the job status again only appends the new log events to that file.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class StoredLogQueue extends LogQueue
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The part of the log already written on disk, {@code null} if unknown.
+     */
+    private transient volatile LogPosition storedPosition;
+
+    /**
+     * @return the part of the log already written on disk, {@code null} if unknown
+     */
+    LogPosition getStoredPosition()
+    {
+        return this.storedPosition;
+    }
+
+    /**
+     * @param storedPosition the part of the log already written on disk
+     */
+    void setStoredPosition(LogPosition storedPosition)
+    {
+        this.storedPosition = storedPosition;
+    }
+}
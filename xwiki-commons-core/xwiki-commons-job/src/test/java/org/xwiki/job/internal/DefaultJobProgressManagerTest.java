@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.job.event.status.PushLevelProgressEvent;
+import org.xwiki.job.event.status.StartStepProgressEvent;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultJobProgressManager}.
+ *
+ * @version $Id$
+ */
+public class DefaultJobProgressManagerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<JobProgressManager> mocker =
+        new MockitoComponentMockingRule<JobProgressManager>(DefaultJobProgressManager.class);
+
+    private ObservationManager observation;
+
+    private DefaultJobProgress progress;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.observation = this.mocker.getInstance(ObservationManager.class);
+
+        this.progress = new DefaultJobProgress();
+        JobProgressContext.push(this.progress);
+    }
+
+    @After
+    public void after()
+    {
+        JobProgressContext.remove(this.progress);
+    }
+
+    @Test
+    public void updateProgressWithoutListener() throws Exception
+    {
+        this.mocker.getComponentUnderTest().pushLevelProgress(2, this);
+        this.mocker.getComponentUnderTest().startStep(this);
+        this.mocker.getComponentUnderTest().startStep(this);
+
+        assertEquals(0.5D, this.progress.getOffset(), 0D);
+
+        verify(this.observation, never()).notify(any(Event.class), any(), any());
+    }
+
+    @Test
+    public void notifyOtherListeners() throws Exception
+    {
+        when(this.observation.hasListener(isA(StartStepProgressEvent.class), eq(JobProgressEventListener.NAME)))
+            .thenReturn(true);
+
+        this.mocker.getComponentUnderTest().pushLevelProgress(2, this);
+        this.mocker.getComponentUnderTest().startStep(this);
+
+        assertEquals(0D, this.progress.getOffset(), 0D);
+
+        verify(this.observation, never()).notify(isA(PushLevelProgressEvent.class), any(), any());
+        verify(this.observation).notify(isA(StartStepProgressEvent.class), same(this), isNull());
+    }
+}
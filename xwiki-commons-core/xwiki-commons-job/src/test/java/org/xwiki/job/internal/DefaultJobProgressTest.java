@@ -172,6 +172,56 @@ public void testPopDontMoveToNextStep()
         Assert.assertEquals(1D, this.progress.getCurrentLevelOffset(), 0D);
     }
 
+    @Test
+    public void testAggregateStepsBeyondMaxLevelSteps()
+    {
+        this.progress.setMaxLevelSteps(2);
+
+        // Unknown number of steps
+        this.observation.notify(new PushLevelProgressEvent(), null, null);
+
+        for (int i = 0; i < 10; ++i) {
+            this.observation.notify(new StartStepProgressEvent(), null, null);
+        }
+
+        // The first 2 steps and the current one are kept
+        assertEquals(3, this.progress.getRootStep().getChildren().size());
+        assertEquals(7, this.progress.getRootStep().getAggregatedChildCount());
+        assertEquals(10, this.progress.getRootStep().getChildCount());
+        assertEquals(9, this.progress.getCurrentStep().index);
+        Assert.assertEquals(0.9D, this.progress.getOffset(), 0.0000001D);
+
+        this.observation.notify(new PopLevelProgressEvent(), null, null);
+
+        Assert.assertEquals(1D, this.progress.getOffset(), 0D);
+    }
+
+    @Test
+    public void testAggregateStepsBeyondMaxDepth()
+    {
+        this.progress.setMaxDepth(1);
+
+        this.observation.notify(new PushLevelProgressEvent(2), null, null);
+        this.observation.notify(new StartStepProgressEvent(), null, null);
+
+        this.observation.notify(new PushLevelProgressEvent(3), null, null);
+        this.observation.notify(new StartStepProgressEvent(), null, null);
+        this.observation.notify(new StartStepProgressEvent(), null, null);
+        this.observation.notify(new StartStepProgressEvent(), null, null);
+        this.observation.notify(new PopLevelProgressEvent(), null, null);
+
+        this.observation.notify(new StartStepProgressEvent(), null, null);
+
+        // Steps of the first level are kept
+        assertEquals(2, this.progress.getRootStep().getChildren().size());
+
+        // Only the last step of the second level is kept
+        DefaultJobProgressStep step = this.progress.getRootStep().getChildren().get(0);
+        assertEquals(1, step.getChildren().size());
+        assertEquals(2, step.getAggregatedChildCount());
+        Assert.assertEquals(0.5D, this.progress.getOffset(), 0D);
+    }
+
     // Bulletproofing
 
     @Test
@@ -144,6 +144,21 @@ public void removeJobStatus() throws ComponentLookupException
         Assert.assertSame(null, this.componentManager.getComponentUnderTest().getJobStatus(id));
     }
 
+    @Test
+    public void removeJobStatusDuringRepair() throws ComponentLookupException
+    {
+        List<String> id = Arrays.asList("id1", "id2", "id3");
+
+        this.componentManager.getComponentUnderTest().remove(id);
+
+        // Wait for the repair
+        List<List<String>> ids = this.componentManager.getComponentUnderTest().getJobStatusIds(null);
+
+        Assert.assertFalse(ids.contains(id));
+        Assert.assertFalse(new File("target/test/jobs/status/id1/id2/id3").exists());
+        Assert.assertNull(this.componentManager.getComponentUnderTest().getJobStatus(id));
+    }
+
     @Test
     public void storeJobStatus() throws ComponentLookupException
     {
@@ -157,4 +172,45 @@ public void storeJobStatus() throws ComponentLookupException
 
         Assert.assertSame(jobStatus, this.componentManager.getComponentUnderTest().getJobStatus(id));
     }
+
+    @Test
+    public void storeJobStatusReplaceOldFormat() throws ComponentLookupException
+    {
+        List<String> id = Arrays.asList("id1", "id2");
+
+        JobStatus jobStatus = this.componentManager.getComponentUnderTest().getJobStatus(id);
+
+        this.componentManager.getComponentUnderTest().store(jobStatus);
+
+        File folder = new File("target/test/jobs/status/id1/id2");
+        Assert.assertTrue(new File(folder, "status.bin").exists());
+        Assert.assertTrue(new File(folder, "log.bin").exists());
+        Assert.assertFalse(new File(folder, "status.xml").exists());
+    }
+
+    @Test
+    public void repairKeepsXMLStatus() throws ComponentLookupException
+    {
+        // Wait for the repair
+        this.componentManager.getComponentUnderTest().getJobStatusIds(null);
+
+        File folder = new File("target/test/jobs/status/id1/id2");
+        Assert.assertTrue(new File(folder, "status.bin").exists());
+        Assert.assertTrue(new File(folder, "status.xml").exists());
+
+        // The XML status found in the wrong place is moved next to the converted one
+        folder = new File(folder, "id3");
+        Assert.assertTrue(new File(folder, "status.bin").exists());
+        Assert.assertTrue(new File(folder, "status.xml").exists());
+        Assert.assertFalse(new File(folder, "&status/status.xml").exists());
+    }
+
+    @Test
+    public void getJobStatusIds() throws ComponentLookupException
+    {
+        List<List<String>> ids = this.componentManager.getComponentUnderTest().getJobStatusIds(Arrays.asList("id1"));
+
+        Assert.assertEquals(Arrays.asList(Arrays.asList("id1", "id2"), Arrays.asList("id1", "id2", "id3")), ids);
+        Assert.assertEquals(4, this.componentManager.getComponentUnderTest().getJobStatusIds(null).size());
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.xwiki.job.internal;
 
+import java.io.File;
 import java.util.Arrays;
 
 import org.junit.Test;
@@ -29,6 +30,8 @@
 import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.job.event.status.QuestionAnsweredEvent;
 import org.xwiki.job.event.status.QuestionAskedEvent;
+import org.xwiki.job.internal.binary.SpoolingLogQueue;
+import org.xwiki.logging.LogQueue;
 import org.xwiki.logging.LoggerManager;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
@@ -112,4 +115,19 @@ public Void answer(InvocationOnMock invocation) throws Throwable
         QuestionAnsweredEvent questionAnswered = new QuestionAnsweredEvent(String.class.getName(), request.getId());
         verify(this.observationManager).notify(questionAnswered, jobStatus);
     }
+
+    @Test
+    public void spoolingIsStartedOnlyWhenAsked()
+    {
+        DefaultJobStatus<DefaultRequest> jobStatus =
+            new DefaultJobStatus<>(new DefaultRequest(), null, this.observationManager, this.loggerManager);
+
+        assertSame(LogQueue.class, jobStatus.getLog().getClass());
+
+        jobStatus.getLog().error("message");
+        jobStatus.startSpooling(new File("target/test/" + getClass().getSimpleName()), 10);
+
+        assertTrue(jobStatus.getLog() instanceof SpoolingLogQueue);
+        assertEquals("message", jobStatus.getLog().peek().getMessage());
+    }
 }
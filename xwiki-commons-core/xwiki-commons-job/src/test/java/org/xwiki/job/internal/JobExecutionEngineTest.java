@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.test.AllLogRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link JobExecutionEngine}.
+ *
+ * @version $Id$
+ */
+public class JobExecutionEngineTest
+{
+    @Rule
+    public AllLogRule log = new AllLogRule();
+
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private JobExecutionEngine engine;
+
+    private class TestRunnable implements Runnable
+    {
+        private final String name;
+
+        private final CountDownLatch done;
+
+        TestRunnable(String name, CountDownLatch done)
+        {
+            this.name = name;
+            this.done = done;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                JobExecutionEngineTest.this.release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            JobExecutionEngineTest.this.ran.add(this.name);
+            this.done.countDown();
+        }
+    }
+
+    @After
+    public void after()
+    {
+        this.engine.shutdownNow();
+    }
+
+    @Test
+    public void limitRunningJobsAndStartByPriority() throws InterruptedException
+    {
+        this.engine = new JobExecutionEngine(1, Executors.defaultThreadFactory());
+
+        CountDownLatch done = new CountDownLatch(4);
+
+        this.engine.execute(new TestRunnable("first", done), "type", 0, 0);
+        this.engine.execute(new TestRunnable("low", done), "type", 0, 0);
+        this.engine.execute(new TestRunnable("high", done), "type", 10, 0);
+        this.engine.execute(new TestRunnable("low2", done), "type", 0, 0);
+
+        assertEquals(1, this.engine.getRunningCount());
+        assertEquals(3, this.engine.getQueueSize());
+
+        this.release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("first", "high", "low", "low2"), this.ran);
+        assertEquals(4, this.engine.getStartedCount());
+        assertEquals(0, this.engine.getQueueSize());
+    }
+
+    @Test
+    public void limitRunningJobsPerType() throws InterruptedException
+    {
+        this.engine = new JobExecutionEngine(0, Executors.defaultThreadFactory());
+
+        CountDownLatch done = new CountDownLatch(3);
+
+        this.engine.execute(new TestRunnable("a1", done), "a", 0, 1);
+        this.engine.execute(new TestRunnable("a2", done), "a", 0, 1);
+        this.engine.execute(new TestRunnable("b", done), "b", 0, 1);
+
+        // b is not blocked by the quota of a
+        assertEquals(2, this.engine.getRunningCount());
+        assertEquals(1, this.engine.getQueueSize());
+
+        this.release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(3, this.ran.size());
+        assertTrue(this.ran.indexOf("a1") < this.ran.indexOf("a2"));
+    }
+
+    @Test
+    public void failingJobDoesNotLoseNextOne() throws InterruptedException
+    {
+        this.engine = new JobExecutionEngine(1, Executors.defaultThreadFactory());
+
+        CountDownLatch done = new CountDownLatch(1);
+
+        this.engine.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    JobExecutionEngineTest.this.release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                throw new RuntimeException("failing job");
+            }
+        }, "type", 0, 0);
+        this.engine.execute(new TestRunnable("next", done), "type", 0, 0);
+
+        assertEquals(1, this.engine.getQueueSize());
+
+        this.release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("next"), this.ran);
+        assertEquals("Unexpected error while executing a job", this.log.getMessage(0));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.job.JobGroupPath;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validate {@link JobGroupAdmissionController}.
+ *
+ * @version $Id$
+ */
+public class JobGroupAdmissionControllerTest
+{
+    /**
+     * Keep the admitted tasks until asked to run them.
+     */
+    private static class ManualExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command)
+        {
+            this.tasks.add(command);
+        }
+
+        void run(int index)
+        {
+            this.tasks.remove(index).run();
+        }
+    }
+
+    private class NamedTask implements Runnable
+    {
+        private final String name;
+
+        NamedTask(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public void run()
+        {
+            JobGroupAdmissionControllerTest.this.ran.add(this.name);
+        }
+    }
+
+    private final List<String> ran = new ArrayList<>();
+
+    private ManualExecutor executor;
+
+    private JobGroupAdmissionController controller;
+
+    @Before
+    public void before()
+    {
+        this.executor = new ManualExecutor();
+        this.controller = new JobGroupAdmissionController(this.executor);
+    }
+
+    private static JobGroupPath path(String... elements)
+    {
+        return new JobGroupPath(Arrays.asList(elements));
+    }
+
+    private void submit(String name, JobGroupPath path)
+    {
+        this.controller.submit(path, new NamedTask(name));
+    }
+
+    @Test
+    public void siblingsRunConcurrently()
+    {
+        submit("a/b", path("a", "b"));
+        submit("a/c", path("a", "c"));
+        submit("d", path("d"));
+
+        assertEquals(3, this.executor.tasks.size());
+        assertEquals(3, this.controller.getRunningCount());
+        assertEquals(0, this.controller.getWaitingCount());
+    }
+
+    @Test
+    public void sameGroupRunsOneAtATime()
+    {
+        submit("1", path("a"));
+        submit("2", path("a"));
+
+        assertEquals(1, this.executor.tasks.size());
+        assertEquals(1, this.controller.getWaitingCount());
+
+        this.executor.run(0);
+
+        assertEquals(1, this.executor.tasks.size());
+        assertEquals(0, this.controller.getWaitingCount());
+
+        this.executor.run(0);
+
+        assertEquals(Arrays.asList("1", "2"), this.ran);
+        assertEquals(0, this.controller.getRunningCount());
+    }
+
+    @Test
+    public void parentWaitsForChildrenAndChildrenWaitForParent()
+    {
+        submit("a/b", path("a", "b"));
+        submit("a", path("a"));
+        submit("a/c", path("a", "c"));
+
+        // a/c is free but must not overtake a
+        assertEquals(1, this.executor.tasks.size());
+        assertEquals(2, this.controller.getWaitingCount());
+
+        this.executor.run(0);
+
+        assertEquals(1, this.executor.tasks.size());
+
+        this.executor.run(0);
+
+        assertEquals(1, this.executor.tasks.size());
+
+        this.executor.run(0);
+
+        assertEquals(Arrays.asList("a/b", "a", "a/c"), this.ran);
+    }
+
+    @Test
+    public void childrenAdmittedInOrderWhenParentEnds()
+    {
+        submit("a", path("a"));
+        submit("a/b 1", path("a", "b"));
+        submit("a/c", path("a", "c"));
+        submit("a/b 2", path("a", "b"));
+        submit("d", path("d"));
+
+        assertEquals(2, this.executor.tasks.size());
+        assertEquals(3, this.controller.getWaitingCount());
+
+        // Run a: a/b 1 and a/c are admitted, a/b 2 waits for a/b 1
+        this.executor.run(0);
+
+        assertEquals(3, this.executor.tasks.size());
+        assertEquals(1, this.controller.getWaitingCount());
+
+        this.executor.run(1);
+        this.executor.run(1);
+        this.executor.run(1);
+        this.executor.run(0);
+
+        assertEquals(Arrays.asList("a", "a/b 1", "a/c", "a/b 2", "d"), this.ran);
+        assertEquals(0, this.controller.getRunningCount());
+        assertEquals(0, this.controller.getWaitingCount());
+    }
+
+    @Test
+    public void unrelatedGroupsOvertakeWaitingTasks()
+    {
+        submit("a", path("a"));
+        submit("a/b", path("a", "b"));
+        submit("c", path("c"));
+
+        assertEquals(2, this.executor.tasks.size());
+        assertEquals(1, this.controller.getWaitingCount());
+    }
+
+    @Test
+    public void clear()
+    {
+        submit("1", path("a"));
+        submit("2", path("a"));
+
+        this.controller.clear();
+        this.executor.run(0);
+
+        assertEquals(0, this.executor.tasks.size());
+        assertEquals(Arrays.asList("1"), this.ran);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import org.junit.After;
+import org.junit.Test;
+import org.xwiki.job.event.status.PushLevelProgressEvent;
+import org.xwiki.job.event.status.StartStepProgressEvent;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validate {@link JobProgressContext}.
+ *
+ * @version $Id$
+ */
+public class JobProgressContextTest
+{
+    private final DefaultJobProgress progress = new DefaultJobProgress();
+
+    @After
+    public void after()
+    {
+        JobProgressContext.remove(this.progress);
+    }
+
+    @Test
+    public void directEventIsNotReceivedTwice()
+    {
+        JobProgressContext.push(this.progress);
+
+        JobProgressContext.beginDirectEvent(new PushLevelProgressEvent(), null, null);
+        try {
+            // What the observation manager would do
+            JobProgressContext.onEvent(new PushLevelProgressEvent(), null, null);
+        } finally {
+            JobProgressContext.endDirectEvent();
+        }
+
+        JobProgressContext.onEvent(StartStepProgressEvent.INSTANCE, null, null);
+        JobProgressContext.onEvent(StartStepProgressEvent.INSTANCE, null, null);
+
+        // A single level containing two steps
+        assertEquals(2, this.progress.getRootStep().getChildCount());
+        assertEquals(0, this.progress.getRootStep().getChildren().get(0).getChildCount());
+    }
+
+    @Test
+    public void eventsFromOtherThreadsAreIgnored() throws InterruptedException
+    {
+        JobProgressContext.push(this.progress);
+
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                JobProgressContext.onEvent(StartStepProgressEvent.INSTANCE, null, null);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertEquals(0, this.progress.getRootStep().getChildCount());
+    }
+
+    @Test
+    public void removedProgressIsNotUpdated()
+    {
+        JobProgressContext.push(this.progress);
+        JobProgressContext.remove(this.progress);
+
+        JobProgressContext.onEvent(StartStepProgressEvent.INSTANCE, null, null);
+
+        assertEquals(0, this.progress.getRootStep().getChildCount());
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.Request;
+import org.xwiki.job.event.status.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Validate {@link JobStatusCache}.
+ *
+ * @version $Id$
+ */
+public class JobStatusCacheTest
+{
+    private static class TestLoader implements JobStatusCache.Loader
+    {
+        private final List<List<String>> loaded = new ArrayList<>();
+
+        @Override
+        public JobStatus load(List<String> id)
+        {
+            this.loaded.add(id);
+
+            return id != null && id.get(0).startsWith("no") ? null : newStatus(id, 0);
+        }
+    }
+
+    private static JobStatus newStatus(List<String> id, int logSize)
+    {
+        DefaultRequest request = new DefaultRequest();
+        request.setId(id);
+
+        JobStatus status = new DefaultJobStatus<Request>(request, null, null, null);
+        for (int i = 0; i < logSize; ++i) {
+            status.getLog().info("message");
+        }
+
+        return status;
+    }
+
+    @Test
+    public void getLoadOnlyOnce()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        JobStatus status = cache.get(Arrays.asList("id"), loader);
+
+        assertSame(status, cache.get(Arrays.asList("id"), loader));
+        assertEquals(1, loader.loaded.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void getWithoutStatus()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        assertNull(cache.get(Arrays.asList("nostatus"), loader));
+        assertNull(cache.get(Arrays.asList("nostatus"), loader));
+        assertEquals(1, loader.loaded.size());
+        assertEquals(0, cache.size());
+
+        JobStatus status = newStatus(Arrays.asList("nostatus"), 0);
+        cache.put(Arrays.asList("nostatus"), status);
+
+        assertSame(status, cache.get(Arrays.asList("nostatus"), loader));
+    }
+
+    @Test
+    public void evictByWeight()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        cache.put(Arrays.asList("id1"), newStatus(Arrays.asList("id1"), 0));
+        cache.put(Arrays.asList("id2"), newStatus(Arrays.asList("id2"), 0));
+        cache.get(Arrays.asList("id1"), loader);
+
+        assertEquals(2, cache.getWeight());
+
+        // A big status is worth several small ones
+        cache.put(Arrays.asList("big"), newStatus(Arrays.asList("big"), JobStatusCache.WEIGHT_UNIT * 8));
+
+        assertEquals(10, cache.getWeight());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        // The least recently accessed status has been evicted
+        cache.get(Arrays.asList("id1"), loader);
+        cache.get(Arrays.asList("id2"), loader);
+        assertEquals(Arrays.asList(Arrays.asList("id2")), loader.loaded);
+    }
+
+    @Test
+    public void remove()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        JobStatus status = newStatus(Arrays.asList("id"), 0);
+        cache.put(Arrays.asList("id"), status);
+        cache.remove(Arrays.asList("id"));
+
+        assertEquals(0, cache.getWeight());
+        assertEquals(0, cache.size());
+        assertEquals(Arrays.asList("id"), cache.get(Arrays.asList("id"), loader).getRequest().getId());
+        assertEquals(1, loader.loaded.size());
+    }
+
+    @Test
+    public void getWithNullId()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        JobStatus status = cache.get(null, loader);
+
+        assertSame(status, cache.get(null, loader));
+        assertEquals(1, loader.loaded.size());
+
+        cache.remove(null);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void evictBySize()
+    {
+        JobStatusCache cache = new JobStatusCache(2, 0);
+        TestLoader loader = new TestLoader();
+
+        cache.put(Arrays.asList("id1"), newStatus(Arrays.asList("id1"), 0));
+        cache.put(Arrays.asList("id2"), newStatus(Arrays.asList("id2"), JobStatusCache.WEIGHT_UNIT * 100));
+        cache.put(Arrays.asList("id3"), newStatus(Arrays.asList("id3"), 0));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.get(Arrays.asList("id1"), loader);
+        assertEquals(Arrays.asList(Arrays.asList("id1")), loader.loaded);
+    }
+
+    @Test
+    public void putHeavierThanMaxWeight()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+        TestLoader loader = new TestLoader();
+
+        cache.put(Arrays.asList("id"), newStatus(Arrays.asList("id"), 0));
+
+        JobStatus status = newStatus(Arrays.asList("big"), JobStatusCache.WEIGHT_UNIT * 20);
+        cache.put(Arrays.asList("big"), status);
+
+        // The status which was just added is kept
+        assertSame(status, cache.get(Arrays.asList("big"), loader));
+        assertEquals(1, cache.size());
+        assertEquals(21, cache.getWeight());
+        assertEquals(0, loader.loaded.size());
+    }
+
+    @Test
+    public void putUpdatedStatus()
+    {
+        JobStatusCache cache = new JobStatusCache(0, 10);
+
+        JobStatus status = newStatus(Arrays.asList("id"), 0);
+        cache.put(Arrays.asList("id"), status);
+
+        assertEquals(1, cache.getWeight());
+
+        for (int i = 0; i < JobStatusCache.WEIGHT_UNIT * 2; ++i) {
+            status.getLog().info("message");
+        }
+        cache.put(Arrays.asList("id"), status);
+
+        assertEquals(3, cache.getWeight());
+        assertEquals(1, cache.size());
+    }
+}
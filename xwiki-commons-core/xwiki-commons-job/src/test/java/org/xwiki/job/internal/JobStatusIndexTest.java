@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.job.event.status.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link JobStatusIndex}.
+ *
+ * @version $Id$
+ */
+public class JobStatusIndexTest
+{
+    private File testFolder = new File("target/test/index/");
+
+    private File indexFile = new File(this.testFolder, "&index");
+
+    @Before
+    public void before() throws IOException
+    {
+        FileUtils.deleteDirectory(this.testFolder);
+    }
+
+    private JobStatusIndex.Entry newEntry(String... id)
+    {
+        return new JobStatusIndex.Entry(Arrays.asList(id), "path/" + id.length, JobStatus.State.FINISHED,
+            new Date(1000), new Date(2000), 42);
+    }
+
+    private JobStatusIndex load() throws IOException
+    {
+        JobStatusIndex index = new JobStatusIndex(this.indexFile);
+        index.load();
+
+        return index;
+    }
+
+    @Test
+    public void putAndReload() throws IOException
+    {
+        JobStatusIndex index = load();
+
+        assertFalse(index.isComplete());
+
+        index.put(newEntry("a", "b"));
+        index.put(newEntry((String) null));
+        index.setComplete();
+
+        index = load();
+
+        assertTrue(index.isComplete());
+        assertEquals(2, index.getEntries().size());
+
+        JobStatusIndex.Entry entry = index.get(Arrays.asList("a", "b"));
+        assertNotNull(entry);
+        assertEquals("path/2", entry.getPath());
+        assertEquals(JobStatus.State.FINISHED, entry.getState());
+        assertEquals(new Date(1000), entry.getStartDate());
+        assertEquals(new Date(2000), entry.getEndDate());
+        assertEquals(42, entry.getModified());
+
+        assertNotNull(index.get(Arrays.<String>asList((String) null)));
+    }
+
+    @Test
+    public void getEntriesWithPrefix() throws IOException
+    {
+        JobStatusIndex index = load();
+
+        index.put(newEntry("a"));
+        index.put(newEntry("a", "b"));
+        index.put(newEntry("a", "c"));
+        index.put(newEntry("ab"));
+        index.put(newEntry("b"));
+
+        List<JobStatusIndex.Entry> entries = index.getEntries(Arrays.asList("a"));
+
+        assertEquals(3, entries.size());
+        assertEquals(Arrays.asList("a"), entries.get(0).getId());
+        assertEquals(Arrays.asList("a", "b"), entries.get(1).getId());
+        assertEquals(Arrays.asList("a", "c"), entries.get(2).getId());
+    }
+
+    @Test
+    public void removeAndReload() throws IOException
+    {
+        JobStatusIndex index = load();
+
+        index.put(newEntry("a"));
+        index.put(newEntry("a", "b"));
+        index.put(newEntry("b"));
+        index.put(newEntry("c"));
+
+        index.remove(Arrays.asList("c"));
+        index.removeAll(Arrays.asList("a"));
+
+        index = load();
+
+        assertEquals(1, index.getEntries().size());
+        assertNull(index.get(Arrays.asList("a")));
+        assertNull(index.get(Arrays.asList("a", "b")));
+        assertNotNull(index.get(Arrays.asList("b")));
+    }
+
+    @Test
+    public void compact() throws IOException
+    {
+        JobStatusIndex index = load();
+
+        for (int i = 0; i < 100; ++i) {
+            index.put(newEntry("a"));
+        }
+
+        long length = this.indexFile.length();
+
+        index.compact();
+
+        assertTrue(this.indexFile.length() < length);
+
+        index = load();
+
+        assertEquals(1, index.getEntries().size());
+    }
+
+    @Test
+    public void loadTruncatedJournal() throws IOException
+    {
+        JobStatusIndex index = load();
+
+        index.put(newEntry("a"));
+        index.put(newEntry("b"));
+
+        byte[] bytes = FileUtils.readFileToByteArray(this.indexFile);
+        FileUtils.writeByteArrayToFile(this.indexFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        index = load();
+
+        assertEquals(1, index.getEntries().size());
+        assertNotNull(index.get(Arrays.asList("a")));
+    }
+}
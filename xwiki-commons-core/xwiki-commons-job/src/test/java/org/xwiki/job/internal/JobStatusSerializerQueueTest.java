@@ -0,0 +1,271 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.Request;
+import org.xwiki.job.event.status.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link JobStatusSerializerQueue}.
+ *
+ * @version $Id$
+ */
+public class JobStatusSerializerQueueTest
+{
+    private static class TestWriter implements JobStatusSerializerQueue.Writer
+    {
+        private final List<JobStatus> written = Collections.synchronizedList(new ArrayList<JobStatus>());
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private volatile boolean concurrent;
+
+        private volatile boolean failing;
+
+        TestWriter(boolean blocking)
+        {
+            this.release = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public void write(JobStatus status) throws Exception
+        {
+            if (this.active.incrementAndGet() > 1) {
+                this.concurrent = true;
+            }
+
+            try {
+                this.started.countDown();
+                if (this.release.getCount() > 0) {
+                    this.release.await();
+                }
+
+                if (this.failing) {
+                    throw new Exception("failed");
+                }
+
+                this.written.add(status);
+            } finally {
+                this.active.decrementAndGet();
+            }
+        }
+    }
+
+    private static JobStatus newStatus(String... id)
+    {
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList(id));
+
+        return new DefaultJobStatus<Request>(request, null, null, null);
+    }
+
+    @Test
+    public void putAndFlush() throws Exception
+    {
+        TestWriter writer = new TestWriter(false);
+        JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 2, 10, Executors.defaultThreadFactory());
+
+        for (int i = 0; i < 20; ++i) {
+            queue.put(newStatus("id" + i));
+        }
+
+        queue.flush();
+
+        assertEquals(20, writer.written.size());
+        assertEquals(20, queue.getWrittenCount());
+        assertEquals(0, queue.getPendingCount());
+
+        queue.stop();
+    }
+
+    @Test
+    public void latestPendingWriteWins() throws Exception
+    {
+        TestWriter writer = new TestWriter(true);
+        JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 1, 10, Executors.defaultThreadFactory());
+
+        JobStatus first = newStatus("id");
+        queue.put(first);
+
+        // Wait for the worker to be busy with the first status
+        writer.started.await();
+
+        queue.put(newStatus("id"));
+        JobStatus last = newStatus("id");
+        queue.put(last);
+
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(1, queue.getCoalescedCount());
+
+        writer.release.countDown();
+        queue.flush();
+
+        assertEquals(Arrays.asList(first, last), writer.written);
+
+        queue.stop();
+    }
+
+    @Test
+    public void stopFlushPendingWrites() throws Exception
+    {
+        TestWriter writer = new TestWriter(true);
+        JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 1, 10, Executors.defaultThreadFactory());
+
+        queue.put(newStatus("id1"));
+        queue.put(newStatus("id2"));
+        queue.put(newStatus("id3"));
+
+        writer.release.countDown();
+        queue.stop();
+
+        assertEquals(3, writer.written.size());
+
+        // Serialized synchronously once stopped
+        JobStatus status = newStatus("id4");
+        queue.put(status);
+
+        assertSame(status, writer.written.get(3));
+    }
+
+    @Test
+    public void blockWhenFull() throws Exception
+    {
+        TestWriter writer = new TestWriter(true);
+        final JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 1, 1, Executors.defaultThreadFactory());
+
+        queue.put(newStatus("id1"));
+        writer.started.await();
+        queue.put(newStatus("id2"));
+
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                queue.put(newStatus("id3"));
+            }
+        };
+        thread.start();
+
+        while (queue.getBlockedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(1, queue.getPendingCount());
+
+        writer.release.countDown();
+        thread.join();
+        queue.flush();
+
+        assertEquals(3, writer.written.size());
+
+        queue.stop();
+    }
+
+    @Test
+    public void failuresAreCounted() throws Exception
+    {
+        TestWriter writer = new TestWriter(false);
+        writer.failing = true;
+        JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 1, 10, Executors.defaultThreadFactory());
+
+        queue.put(newStatus("id1"));
+        queue.put(newStatus("id2"));
+        queue.flush();
+
+        assertEquals(2, queue.getFailedCount());
+        assertEquals(0, queue.getWrittenCount());
+
+        queue.stop();
+
+        // Serialized synchronously once stopped
+        queue.put(newStatus("id3"));
+
+        assertEquals(3, queue.getFailedCount());
+    }
+
+    @Test
+    public void synchronousWriteWaitsForTheSameJob() throws Exception
+    {
+        TestWriter writer = new TestWriter(true);
+        final JobStatusSerializerQueue queue =
+            new JobStatusSerializerQueue(writer, 1, 1, Executors.defaultThreadFactory());
+
+        JobStatus first = newStatus("id1");
+        queue.put(first);
+        writer.started.await();
+        queue.put(newStatus("id2"));
+
+        final JobStatus last = newStatus("id1");
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                queue.put(last);
+            }
+        };
+        thread.start();
+
+        while (queue.getBlockedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // Serialized synchronously once interrupted, but only after the worker is done with the same job
+        thread.interrupt();
+        thread.join(100);
+
+        writer.release.countDown();
+        thread.join();
+        queue.flush();
+
+        assertFalse(writer.concurrent);
+        assertEquals(3, writer.written.size());
+        assertSame(first, writer.written.get(0));
+        assertTrue(writer.written.contains(last));
+
+        queue.stop();
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.Request;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.event.status.PushLevelProgressEvent;
+import org.xwiki.job.event.status.StartStepProgressEvent;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.event.BeginLogEvent;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.marker.BeginTranslationMarker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link BinaryJobStatusSerializer}.
+ *
+ * @version $Id$
+ */
+public class BinaryJobStatusSerializerTest
+{
+    private BinaryJobStatusSerializer serializer;
+
+    private File testFolder = new File("target/test/binary/");
+
+    @Before
+    public void before() throws IOException
+    {
+        FileUtils.deleteDirectory(this.testFolder);
+
+        this.serializer = new BinaryJobStatusSerializer();
+    }
+
+    private DefaultJobStatus<Request> newStatus()
+    {
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList("id1", null, "id3"));
+        request.setProperty("property", "value");
+
+        return new DefaultJobStatus<Request>(request, null, null, null);
+    }
+
+    private JobStatus writeread(JobStatus status) throws IOException
+    {
+        this.serializer.write(status, this.testFolder);
+
+        return this.serializer.read(this.testFolder);
+    }
+
+    // Tests
+
+    @Test
+    public void testStatus() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+        status.setState(JobStatus.State.FINISHED);
+        status.setStartDate(new Date(42));
+        status.setEndDate(new Date(43));
+
+        JobStatus readStatus = writeread(status);
+
+        assertEquals(JobStatus.State.FINISHED, readStatus.getState());
+        assertEquals(new Date(42), readStatus.getStartDate());
+        assertEquals(new Date(43), readStatus.getEndDate());
+        assertEquals(Arrays.asList("id1", null, "id3"), readStatus.getRequest().getId());
+        assertEquals("value", readStatus.getRequest().getProperty("property"));
+        assertTrue(readStatus.getLog().isEmpty());
+    }
+
+    @Test
+    public void testHeader() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+        status.setState(JobStatus.State.RUNNING);
+        status.getLog().error("error message");
+
+        this.serializer.write(status, this.testFolder);
+
+        JobStatusHeader header = this.serializer.readHeader(this.testFolder);
+
+        assertEquals(JobStatus.State.RUNNING, header.getState());
+        assertNull(header.getStartDate());
+        assertEquals(Arrays.asList("id1", null, "id3"), header.getId());
+        assertEquals(1, header.getLogCount());
+    }
+
+    @Test
+    public void testLog() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        status.getLog().error("error message", "arg1", new Exception("exception message"));
+        status.getLog().info("info message");
+        status.getLog().log(new BeginLogEvent(new BeginTranslationMarker("translation.key"), LogLevel.INFO,
+            "begin message", null, null));
+
+        JobStatus readStatus = writeread(status);
+
+        LazyLogQueue log = (LazyLogQueue) readStatus.getLog();
+        assertFalse(log.isLoaded());
+
+        assertEquals(3, log.size());
+        assertTrue(log.isLoaded());
+
+        LogEvent[] events = log.toArray(new LogEvent[0]);
+        assertEquals(LogLevel.ERROR, events[0].getLevel());
+        assertEquals("error message", events[0].getMessage());
+        assertEquals("arg1", events[0].getArgumentArray()[0]);
+        assertEquals("exception message", events[0].getThrowable().getMessage());
+        assertEquals(status.getLog().peek().getTimeStamp(), events[0].getTimeStamp());
+        assertEquals(LogLevel.INFO, events[1].getLevel());
+        assertEquals("info message", events[1].getMessage());
+        assertNull(events[1].getMarker());
+        assertEquals(BeginLogEvent.class, events[2].getClass());
+        assertTrue(events[2].getMarker().contains(LogEvent.MARKER_BEGIN));
+    }
+
+    @Test
+    public void testLogArguments() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        Object[] arguments = new Object[] {"string", null, true, 'c', 42, 42L, (short) 42, (byte) 42, 4.2D, 4.2F,
+            Arrays.asList("list")};
+        status.getLog().info("message", arguments);
+
+        JobStatus readStatus = writeread(status);
+
+        assertArrayEquals(arguments, readStatus.getLog().peek().getArgumentArray());
+    }
+
+    @Test
+    public void testLogIsAppended() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        status.getLog().error("message 1");
+        this.serializer.write(status, this.testFolder);
+
+        File logFile = new File(this.testFolder, BinaryJobStatusSerializer.FILENAME_LOG);
+        long length = logFile.length();
+
+        status.getLog().error("message 2");
+        this.serializer.write(status, this.testFolder);
+
+        assertTrue(logFile.length() > length);
+        assertEquals(2, this.serializer.readHeader(this.testFolder).getLogCount());
+
+        JobStatus readStatus = this.serializer.read(this.testFolder);
+
+        assertEquals(2, readStatus.getLog().size());
+        assertEquals("message 1", readStatus.getLog().peek().getMessage());
+
+        // Saving a status without touching its log does not load it
+        length = logFile.length();
+        readStatus = this.serializer.read(this.testFolder);
+        this.serializer.write(readStatus, this.testFolder);
+
+        assertFalse(((LazyLogQueue) readStatus.getLog()).isLoaded());
+        assertEquals(length, logFile.length());
+        assertEquals(2, this.serializer.read(this.testFolder).getLog().size());
+    }
+
+    @Test
+    public void testLogIsRewrittenForAnotherStatus() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+        status.getLog().error("message 1");
+        status.getLog().error("message 2");
+        this.serializer.write(status, this.testFolder);
+
+        status = newStatus();
+        status.getLog().error("message 3");
+        JobStatus readStatus = writeread(status);
+
+        assertEquals(1, readStatus.getLog().size());
+        assertEquals("message 3", readStatus.getLog().peek().getMessage());
+    }
+
+    @Test
+    public void testSpooledLog() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        status.startSpooling(new File(this.testFolder, SpoolingLogQueue.FOLDER_SPOOL), 10);
+        SpoolingLogQueue log = (SpoolingLogQueue) status.getLog();
+        for (int i = 0; i < 100; ++i) {
+            log.error("message {}", i);
+        }
+
+        assertTrue(log.getSpool().size() > 0);
+
+        this.serializer.write(status, this.testFolder);
+
+        log.error("message {}", 100);
+        JobStatus readStatus = writeread(status);
+
+        assertEquals(101, readStatus.getLog().size());
+        LogEvent[] events = readStatus.getLog().toArray(new LogEvent[0]);
+        for (int i = 0; i < events.length; ++i) {
+            assertEquals("message " + i, events[i].getFormattedMessage());
+        }
+    }
+
+    @Test
+    public void testSpoolIsDeletedWhenFinished() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        status.startSpooling(new File(this.testFolder, SpoolingLogQueue.FOLDER_SPOOL), 10);
+        SpoolingLogQueue log = (SpoolingLogQueue) status.getLog();
+        for (int i = 0; i < 100; ++i) {
+            log.error("message {}", i);
+        }
+
+        File spoolFile = log.getSpool().getSegment().getFile();
+
+        this.serializer.write(status, this.testFolder);
+
+        assertTrue(spoolFile.exists());
+
+        status.setState(JobStatus.State.FINISHED);
+        this.serializer.write(status, this.testFolder);
+
+        assertFalse(spoolFile.exists());
+
+        // The spooled log events are now read from the log of the status
+        log.error("message {}", 100);
+        assertEquals(101, log.size());
+        LogEvent[] events = log.toArray(new LogEvent[0]);
+        for (int i = 0; i < events.length; ++i) {
+            assertEquals("message " + i, events[i].getFormattedMessage());
+        }
+
+        JobStatus readStatus = writeread(status);
+
+        assertEquals(101, readStatus.getLog().size());
+        assertEquals("message 100", readStatus.getLog().getLogs(100, 1).get(0).getFormattedMessage());
+    }
+
+    @Test
+    public void testProgress() throws IOException
+    {
+        DefaultJobStatus<Request> status = newStatus();
+
+        DefaultJobProgress progress = (DefaultJobProgress) status.getProgress();
+        progress.onEvent(new PushLevelProgressEvent(4), null, null);
+        progress.onEvent(new StartStepProgressEvent(), null, null);
+        progress.onEvent(new StartStepProgressEvent(), null, null);
+
+        assertEquals(0.25D, progress.getOffset(), 0D);
+
+        JobStatus readStatus = writeread(status);
+
+        LazyJobProgress readProgress = (LazyJobProgress) readStatus.getProgress();
+        assertFalse(readProgress.isLoaded());
+
+        assertEquals(0.25D, readProgress.getOffset(), 0D);
+        assertTrue(readProgress.isLoaded());
+        assertEquals(progress.getRootStep().getChildren().size(),
+            readProgress.getRootStep().getChildren().size());
+
+        // Saving a status without touching its progress keeps the progress as is
+        readStatus = this.serializer.read(this.testFolder);
+        this.serializer.write(readStatus, this.testFolder);
+
+        assertEquals(0.25D, this.serializer.read(this.testFolder).getProgress().getOffset(), 0D);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.job.internal.xstream.SafeXStream;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.event.LogEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link SpoolingLogQueue}.
+ *
+ * @version $Id$
+ */
+public class SpoolingLogQueueTest
+{
+    private File testFolder = new File("target/test/spool/");
+
+    private SpoolingLogQueue queue;
+
+    @Before
+    public void before() throws IOException
+    {
+        FileUtils.deleteDirectory(this.testFolder);
+
+        this.queue = new SpoolingLogQueue();
+        this.queue.startSpooling(this.testFolder, 100);
+
+        // Every third event is an error
+        for (int i = 0; i < 1000; ++i) {
+            if (i % 3 == 0) {
+                this.queue.error("message {}", i);
+            } else {
+                this.queue.info("message {}", i);
+            }
+        }
+    }
+
+    // Tests
+
+    @Test
+    public void testSpool()
+    {
+        assertTrue(this.queue.getMemoryCount() <= 125);
+        assertEquals(1000, this.queue.getSpool().size() + this.queue.getMemoryCount());
+        assertEquals(1000, this.queue.size());
+
+        int i = 0;
+        for (Iterator<LogEvent> iterator = this.queue.iterator(); iterator.hasNext(); ++i) {
+            assertEquals("message " + i, iterator.next().getFormattedMessage());
+        }
+        assertEquals(1000, i);
+    }
+
+    @Test
+    public void testGetLogs()
+    {
+        List<LogEvent> logs = this.queue.getLogs(this.queue.getSpool().size() - 2, 4);
+
+        assertEquals(4, logs.size());
+        for (int i = 0; i < 4; ++i) {
+            assertEquals("message " + (this.queue.getSpool().size() - 2 + i), logs.get(i).getFormattedMessage());
+        }
+
+        assertEquals(334, this.queue.getLogCount(LogLevel.ERROR));
+        assertEquals(666, this.queue.getLogCount(LogLevel.INFO));
+        assertEquals(334, this.queue.getLogs(LogLevel.ERROR).size());
+        assertEquals(1000, this.queue.getLogsFrom(LogLevel.INFO).size());
+        assertEquals("message 999", this.queue.getLogs(LogLevel.ERROR).get(333).getFormattedMessage());
+
+        logs = this.queue.getLogsFrom(LogLevel.ERROR, 330, 10);
+        assertEquals(4, logs.size());
+        assertEquals("message 990", logs.get(0).getFormattedMessage());
+
+        assertTrue(this.queue.containLogsFrom(LogLevel.WARN));
+        assertEquals(0, this.queue.getLogCount(LogLevel.WARN));
+    }
+
+    @Test
+    public void testPoll()
+    {
+        assertEquals("message 0", this.queue.poll().getFormattedMessage());
+        assertEquals("message 1", this.queue.peek().getFormattedMessage());
+        assertEquals(999, this.queue.size());
+        assertEquals(333, this.queue.getLogCount(LogLevel.ERROR));
+        assertEquals("message 3", this.queue.getLogs(LogLevel.ERROR).get(0).getFormattedMessage());
+
+        this.queue.clear();
+
+        assertTrue(this.queue.isEmpty());
+        assertNull(this.queue.poll());
+        assertFalse(this.queue.containLogsFrom(LogLevel.TRACE));
+    }
+
+    @Test
+    public void testAppendTo() throws IOException
+    {
+        LogSegment segment = new LogSegment(new File(this.testFolder, "log.bin"), new SafeXStream());
+
+        assertEquals(1000, this.queue.appendTo(segment, 0));
+
+        List<LogEvent> events = segment.read(1000);
+        assertEquals(1000, events.size());
+        assertEquals("message 0", events.get(0).getFormattedMessage());
+        assertEquals("message 999", events.get(999).getFormattedMessage());
+    }
+}
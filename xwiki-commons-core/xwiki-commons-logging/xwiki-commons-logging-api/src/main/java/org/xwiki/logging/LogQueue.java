@@ -20,7 +20,8 @@
 package org.xwiki.logging;
 
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -30,6 +31,9 @@
 
 /**
  * A queue of {@link LogEvent}s.
+ * <p>
+ * The events are indexed by level the first time they are filtered or paged so that the following calls don't need to
+ * go through the whole queue. Adding events keeps the index up to date while removing events drops it.
  *
  * @version $Id$
  * @since 3.2M3
@@ -41,6 +45,48 @@ public class LogQueue extends ConcurrentLinkedQueue<LogEvent> implements Logger
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The index of the events, {@code null} until needed or when events have been removed.
+     */
+    private transient volatile LogQueueIndex index;
+
+    /**
+     * Drop the index when an event is removed through the iterator.
+     *
+     * @version $Id$
+     */
+    private class IndexedIterator implements Iterator<LogEvent>
+    {
+        private final Iterator<LogEvent> iterator;
+
+        IndexedIterator(Iterator<LogEvent> iterator)
+        {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public LogEvent next()
+        {
+            return this.iterator.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            synchronized (LogQueue.this) {
+                this.iterator.remove();
+
+                LogQueue.this.index = null;
+            }
+        }
+    }
+
     /**
      * Copy the stored log into a passed {@link org.slf4j.Logger}.
      *
@@ -125,44 +171,67 @@ public void log(LogEvent logEvent)
         add(logEvent);
     }
 
+    private LogQueueIndex getIndex()
+    {
+        LogQueueIndex currentIndex = this.index;
+
+        if (currentIndex == null) {
+            synchronized (this) {
+                currentIndex = this.index;
+
+                if (currentIndex == null) {
+                    currentIndex = new LogQueueIndex();
+                    index(currentIndex);
+
+                    this.index = currentIndex;
+
+                    // Catch up with the events added without lock before the index was published
+                    index(currentIndex);
+                }
+            }
+        }
+
+        return currentIndex;
+    }
+
+    /**
+     * @param currentIndex the index to complete with the events it does not contain yet
+     */
+    private void index(LogQueueIndex currentIndex)
+    {
+        int indexed = currentIndex.size();
+
+        int count = 0;
+        for (Iterator<LogEvent> it = super.iterator(); it.hasNext(); ++count) {
+            LogEvent event = it.next();
+            if (count >= indexed) {
+                currentIndex.add(event);
+            }
+        }
+    }
+
     /**
      * Filter logs of a specific level.
      *
      * @param level the level of the logs to return
-     * @return the filtered logs
+     * @return an unmodifiable view of the logs of the passed level
      * @since 4.1RC1
      */
     public List<LogEvent> getLogs(LogLevel level)
     {
-        List<LogEvent> levelLogs = new LinkedList<LogEvent>();
-
-        for (LogEvent log : this) {
-            if (log.getLevel() == level) {
-                levelLogs.add(log);
-            }
-        }
-
-        return levelLogs;
+        return getIndex().getLevel(level).view(0, -1);
     }
 
     /**
      * Filter logs of a specific level.
      *
      * @param level the level of the logs to return
-     * @return the filtered logs
+     * @return an unmodifiable view of the logs of the passed level and the levels above it
      * @since 4.2M1
      */
     public List<LogEvent> getLogsFrom(LogLevel level)
     {
-        List<LogEvent> levelLogs = new LinkedList<LogEvent>();
-
-        for (LogEvent log : this) {
-            if (log.getLevel().compareTo(level) <= 0) {
-                levelLogs.add(log);
-            }
-        }
-
-        return levelLogs;
+        return getIndex().getFromLevel(level).view(0, -1);
     }
 
     /**
@@ -174,13 +243,168 @@ public List<LogEvent> getLogsFrom(LogLevel level)
      */
     public boolean containLogsFrom(LogLevel level)
     {
-        for (LogEvent log : this) {
-            if (log.getLevel().compareTo(level) <= 0) {
-                return true;
+        return getIndex().getFromLevel(level).size() > 0;
+    }
+
+    /**
+     * @param level the log level
+     * @return the number of logs of the passed level
+     * @since 7.4M1
+     */
+    public int getLogCount(LogLevel level)
+    {
+        return getIndex().getLevel(level).size();
+    }
+
+    /**
+     * Page through the logs, typically to get only the logs produced since the previous call.
+     *
+     * @param offset the index of the first log to return
+     * @param limit the maximum number of logs to return, all the following logs if lower than 0
+     * @return an unmodifiable view of the logs
+     * @since 7.4M1
+     */
+    public List<LogEvent> getLogs(int offset, int limit)
+    {
+        return getIndex().getAll().view(offset, limit);
+    }
+
+    /**
+     * Page through the logs of a specific level and the levels above it.
+     *
+     * @param level the level of the logs to return
+     * @param offset the index of the first log to return among the logs of the passed level and the levels above it
+     * @param limit the maximum number of logs to return, all the following logs if lower than 0
+     * @return an unmodifiable view of the logs
+     * @since 7.4M1
+     */
+    public List<LogEvent> getLogsFrom(LogLevel level, int offset, int limit)
+    {
+        return getIndex().getFromLevel(level).view(offset, limit);
+    }
+
+    // Queue
+
+    @Override
+    public boolean offer(LogEvent e)
+    {
+        if (this.index == null) {
+            // No need to lock the queue when there is no index to keep up to date
+            super.offer(e);
+
+            if (this.index != null) {
+                // The index has been created in the meantime and may or may not contain the event
+                synchronized (this) {
+                    this.index = null;
+                }
+            }
+        } else {
+            synchronized (this) {
+                super.offer(e);
+
+                if (this.index != null) {
+                    this.index.add(e);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends LogEvent> c)
+    {
+        if (c == this) {
+            // As in ConcurrentLinkedQueue
+            throw new IllegalArgumentException();
+        }
+
+        boolean modified = false;
+        for (LogEvent e : c) {
+            modified |= offer(e);
+        }
+
+        return modified;
+    }
+
+    @Override
+    public LogEvent poll()
+    {
+        synchronized (this) {
+            LogEvent e = super.poll();
+
+            if (e != null) {
+                this.index = null;
+            }
+
+            return e;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        synchronized (this) {
+            boolean modified = super.remove(o);
+
+            if (modified) {
+                this.index = null;
+            }
+
+            return modified;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        synchronized (this) {
+            boolean modified = super.removeAll(c);
+
+            if (modified) {
+                this.index = null;
+            }
+
+            return modified;
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        synchronized (this) {
+            boolean modified = super.retainAll(c);
+
+            if (modified) {
+                this.index = null;
             }
+
+            return modified;
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized (this) {
+            super.clear();
+
+            this.index = null;
         }
+    }
+
+    @Override
+    public int size()
+    {
+        LogQueueIndex currentIndex = this.index;
 
-        return false;
+        return currentIndex != null ? currentIndex.size() : super.size();
+    }
+
+    @Override
+    public Iterator<LogEvent> iterator()
+    {
+        return new IndexedIterator(super.iterator());
     }
 
     // Logger
@@ -0,0 +1,208 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.xwiki.logging.event.LogEvent;
+
+/**
+ * Index the log events of a {@link LogQueue} by level.
+ * <p>
+ * The events are stored in append-only lists made of fixed size chunks: one list with all the events, one list for
+ * each level and one list for each level and the levels above it. The lists are modified by a single thread at a time
+ * but can be read concurrently.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+class LogQueueIndex
+{
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private static final String MESSAGE_INDEX = "Index: ";
+
+    private static final String MESSAGE_SIZE = ", Size: ";
+
+    /**
+     * An append-only list of events.
+     *
+     * @version $Id$
+     */
+    static class EventList
+    {
+        private static final int CHUNK_SHIFT = 10;
+
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private LogEvent[][] chunks = new LogEvent[1][];
+
+        /**
+         * Published after the event has been stored so that readers see all the events below the size.
+         */
+        private volatile int size;
+
+        void add(LogEvent event)
+        {
+            int chunkIndex = this.size >> CHUNK_SHIFT;
+
+            if (chunkIndex == this.chunks.length) {
+                this.chunks = Arrays.copyOf(this.chunks, this.chunks.length * 2);
+            }
+            if (this.chunks[chunkIndex] == null) {
+                this.chunks[chunkIndex] = new LogEvent[CHUNK_SIZE];
+            }
+
+            this.chunks[chunkIndex][this.size & CHUNK_MASK] = event;
+
+            ++this.size;
+        }
+
+        int size()
+        {
+            return this.size;
+        }
+
+        LogEvent get(int index)
+        {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException(MESSAGE_INDEX + index + MESSAGE_SIZE + this.size);
+            }
+
+            return this.chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        /**
+         * @param offset the index of the first event to return
+         * @param limit the maximum number of events to return, all the following events if lower than 0
+         * @return an unmodifiable view of the events currently stored in the passed range
+         */
+        List<LogEvent> view(int offset, int limit)
+        {
+            int currentSize = this.size;
+
+            int from = Math.min(Math.max(offset, 0), currentSize);
+            int to = limit < 0 ? currentSize : (int) Math.min((long) from + limit, currentSize);
+
+            return new EventListView(this, from, to);
+        }
+    }
+
+    /**
+     * A fixed range of an {@link EventList}.
+     *
+     * @version $Id$
+     */
+    static class EventListView extends AbstractList<LogEvent> implements RandomAccess
+    {
+        private final EventList list;
+
+        private final int from;
+
+        private final int to;
+
+        EventListView(EventList list, int from, int to)
+        {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public LogEvent get(int index)
+        {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(MESSAGE_INDEX + index + MESSAGE_SIZE + size());
+            }
+
+            return this.list.get(this.from + index);
+        }
+
+        @Override
+        public int size()
+        {
+            return this.to - this.from;
+        }
+    }
+
+    /**
+     * All the events, including the ones without level.
+     */
+    private final EventList all = new EventList();
+
+    /**
+     * The events of each level.
+     */
+    private final EventList[] levels = new EventList[LEVELS.length];
+
+    /**
+     * The events of each level and the levels above it.
+     */
+    private final EventList[] fromLevels = new EventList[LEVELS.length];
+
+    LogQueueIndex()
+    {
+        for (int i = 0; i < LEVELS.length; ++i) {
+            this.levels[i] = new EventList();
+            this.fromLevels[i] = new EventList();
+        }
+    }
+
+    void add(LogEvent event)
+    {
+        // Events without level (which can be produced by custom serializers) are not associated to any level
+        if (event.getLevel() != null) {
+            int ordinal = event.getLevel().ordinal();
+
+            this.levels[ordinal].add(event);
+
+            for (int i = ordinal; i < LEVELS.length; ++i) {
+                this.fromLevels[i].add(event);
+            }
+        }
+
+        this.all.add(event);
+    }
+
+    int size()
+    {
+        return this.all.size();
+    }
+
+    EventList getAll()
+    {
+        return this.all;
+    }
+
+    EventList getLevel(LogLevel level)
+    {
+        return this.levels[level.ordinal()];
+    }
+
+    EventList getFromLevel(LogLevel level)
+    {
+        return this.fromLevels[level.ordinal()];
+    }
+}
@@ -20,6 +20,8 @@
 package org.xwiki.logging;
 
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -117,4 +119,129 @@ public void testGetLogsFrom()
         Assert.assertFalse(queue.getLogsFrom(LogLevel.WARN).isEmpty());
         Assert.assertTrue(queue.getLogsFrom(LogLevel.ERROR).isEmpty());
     }
+
+    @Test
+    public void testGetLogs()
+    {
+        LogQueue queue = new LogQueue();
+
+        queue.error("error1");
+        queue.info("info1");
+
+        // Build the index
+        Assert.assertEquals(1, queue.getLogCount(LogLevel.ERROR));
+
+        queue.warn("warn1");
+        queue.error("error2");
+
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(2, queue.getLogCount(LogLevel.ERROR));
+        Assert.assertEquals(1, queue.getLogCount(LogLevel.WARN));
+        Assert.assertEquals(0, queue.getLogCount(LogLevel.DEBUG));
+
+        Assert.assertEquals("error2", queue.getLogs(LogLevel.ERROR).get(1).getFormattedMessage());
+        Assert.assertEquals(3, queue.getLogsFrom(LogLevel.WARN).size());
+        Assert.assertEquals("warn1", queue.getLogsFrom(LogLevel.WARN).get(1).getFormattedMessage());
+    }
+
+    @Test
+    public void testGetLogsWithOffset()
+    {
+        LogQueue queue = new LogQueue();
+
+        for (int i = 0; i < 3000; ++i) {
+            if (i % 3 == 0) {
+                queue.error("message {}", i);
+            } else {
+                queue.info("message {}", i);
+            }
+        }
+
+        List<LogEvent> logs = queue.getLogs(2990, 20);
+        Assert.assertEquals(10, logs.size());
+        Assert.assertEquals("message 2990", logs.get(0).getFormattedMessage());
+
+        logs = queue.getLogsFrom(LogLevel.ERROR, 500, 2);
+        Assert.assertEquals(2, logs.size());
+        Assert.assertEquals("message 1500", logs.get(0).getFormattedMessage());
+        Assert.assertEquals("message 1503", logs.get(1).getFormattedMessage());
+
+        Assert.assertEquals(1000, queue.getLogsFrom(LogLevel.ERROR, 0, -1).size());
+        Assert.assertTrue(queue.getLogs(5000, 10).isEmpty());
+
+        // The returned list is not affected by new logs
+        logs = queue.getLogs(0, -1);
+        queue.info("new message");
+        Assert.assertEquals(3000, logs.size());
+        Assert.assertEquals(3001, queue.getLogs(0, -1).size());
+    }
+
+    @Test
+    public void testGetLogsAfterRemove()
+    {
+        LogQueue queue = new LogQueue();
+
+        queue.error("error1");
+        queue.warn("warn1");
+        queue.error("error2");
+
+        Assert.assertEquals(2, queue.getLogCount(LogLevel.ERROR));
+
+        Assert.assertEquals("error1", queue.poll().getFormattedMessage());
+
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, queue.getLogCount(LogLevel.ERROR));
+        Assert.assertEquals("error2", queue.getLogs(LogLevel.ERROR).get(0).getFormattedMessage());
+
+        Iterator<LogEvent> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(0, queue.getLogCount(LogLevel.WARN));
+
+        queue.clear();
+
+        Assert.assertFalse(queue.containLogsFrom(LogLevel.TRACE));
+    }
+
+    @Test
+    public void testGetLogsReturnsAFixedView()
+    {
+        LogQueue queue = new LogQueue();
+
+        queue.error("error1");
+
+        List<LogEvent> logs = queue.getLogs(LogLevel.ERROR);
+        List<LogEvent> logsFrom = queue.getLogsFrom(LogLevel.ERROR);
+        queue.error("error2");
+
+        Assert.assertEquals(1, logs.size());
+        Assert.assertEquals(1, logsFrom.size());
+        Assert.assertEquals(2, queue.getLogsFrom(LogLevel.ERROR).size());
+
+        try {
+            logs.add(new LogEvent(LogLevel.ERROR, "added", null, null));
+            Assert.fail("The logs should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testEventWithoutLevel()
+    {
+        LogQueue queue = new LogQueue();
+
+        queue.error("error1");
+
+        // Build the index
+        Assert.assertEquals(1, queue.getLogCount(LogLevel.ERROR));
+
+        queue.add(new LogEvent(null, "nolevel", null, null));
+
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(2, queue.getLogs(0, -1).size());
+        Assert.assertEquals(1, queue.getLogsFrom(LogLevel.TRACE).size());
+    }
 }
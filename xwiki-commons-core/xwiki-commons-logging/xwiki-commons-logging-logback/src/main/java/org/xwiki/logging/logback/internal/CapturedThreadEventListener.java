@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging.logback.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.WrappedThreadEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Register in the Observation Manager the events other than {@link LogEvent} of a listener capturing the log of a
+ * thread. The {@link LogEvent}s are sent directly to the listener by {@link LogbackEventGenerator}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class CapturedThreadEventListener extends WrappedThreadEventListener
+{
+    /**
+     * The events of the wrapped listener which are not {@link LogEvent}s.
+     */
+    private final List<Event> events;
+
+    /**
+     * Use {@link Thread#currentThread()}.
+     *
+     * @param listener the listener capturing the log of the current thread
+     */
+    public CapturedThreadEventListener(EventListener listener)
+    {
+        super(listener);
+
+        this.events = new ArrayList<Event>();
+        for (Event event : listener.getEvents()) {
+            if (!(event instanceof LogEvent)) {
+                this.events.add(event);
+            }
+        }
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return this.events;
+    }
+
+    @Override
+    protected void onEventInternal(Event event, Object source, Object data)
+    {
+        // The log events are sent directly by LogbackEventGenerator (the listener might listen to all events)
+        if (!(event instanceof LogEvent)) {
+            super.onEventInternal(event, source, data);
+        }
+    }
+}
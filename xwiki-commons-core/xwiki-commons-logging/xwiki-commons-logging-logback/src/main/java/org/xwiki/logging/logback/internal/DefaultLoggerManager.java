@@ -21,9 +21,9 @@
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Stack;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
@@ -34,7 +34,6 @@
 import org.xwiki.logging.LoggerManager;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
-import org.xwiki.observation.WrappedThreadEventListener;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -51,21 +50,29 @@
 public class DefaultLoggerManager implements LoggerManager, Initializable
 {
     /**
-     * Used to register/unregister {@link org.xwiki.logging.event.LogEvent} listeners.
+     * Used to register the events other than {@link org.xwiki.logging.event.LogEvent} of the log listeners.
      */
     @Inject
     private ObservationManager observation;
 
     /**
-     * The logger.
+     * Injected to make sure the appender sending the logs to the log listeners is registered.
      */
     @Inject
-    private Logger logger;
+    @Named(LogbackEventGenerator.NAME)
+    private EventListener eventGenerator;
 
     /**
-     * The stack of listeners for the current thread.
+     * The log listeners of each thread.
      */
-    private ThreadLocal<Stack<EventListener>> listeners = new ThreadLocal<Stack<EventListener>>();
+    @Inject
+    private LogCaptureRegistry captureRegistry;
+
+    /**
+     * The logger.
+     */
+    @Inject
+    private Logger logger;
 
     /**
      * Logback utilities.
@@ -102,52 +109,57 @@ public void initialize() throws InitializationException
     @Override
     public void pushLogListener(EventListener listener)
     {
-        Stack<EventListener> listenerStack = this.listeners.get();
+        unregisterEvents(this.captureRegistry.getListener());
 
-        if (listenerStack == null) {
-            listenerStack = new Stack<EventListener>();
-            this.listeners.set(listenerStack);
-        }
-
-        if (!listenerStack.isEmpty()) {
-            this.observation.removeListener(listenerStack.peek().getName());
-        }
-
-        if (listener != null) {
-            this.observation.addListener(new WrappedThreadEventListener(listener));
-        }
-        if (listenerStack.isEmpty()) {
+        // LogbackEventGenerator sends the logs of the current thread directly to the listener, only its other events
+        // go through the Observation Manager
+        if (this.captureRegistry.push(listener)) {
             grabLog(Thread.currentThread());
         }
-        listenerStack.push(listener);
+
+        registerEvents(listener);
     }
 
     @Override
     public EventListener popLogListener()
     {
-        Stack<EventListener> listenerStack = this.listeners.get();
+        EventListener listener = this.captureRegistry.pop();
 
-        EventListener listener;
-        if (listenerStack != null && !listenerStack.isEmpty()) {
-            listener = listenerStack.pop();
-            if (listener != null) {
-                this.observation.removeListener(listener.getName());
-            }
-            if (listenerStack.isEmpty()) {
-                ungrabLog(Thread.currentThread());
-            } else {
-                EventListener topListener = listenerStack.peek();
-                if (topListener != null) {
-                    this.observation.addListener(new WrappedThreadEventListener(topListener));
-                }
-            }
+        unregisterEvents(listener);
+
+        if (this.captureRegistry.isCaptured()) {
+            registerEvents(this.captureRegistry.getListener());
         } else {
-            listener = null;
+            ungrabLog(Thread.currentThread());
         }
 
         return listener;
     }
 
+    /**
+     * @param listener the listener capturing the log of the current thread, can be {@code null}
+     */
+    private void registerEvents(EventListener listener)
+    {
+        if (listener != null) {
+            CapturedThreadEventListener threadListener = new CapturedThreadEventListener(listener);
+            if (!threadListener.getEvents().isEmpty()) {
+                this.observation.addListener(threadListener);
+            }
+        }
+    }
+
+    /**
+     * @param listener the listener which was capturing the log of the current thread, can be {@code null}
+     */
+    private void unregisterEvents(EventListener listener)
+    {
+        if (listener != null
+            && this.observation.getListener(listener.getName()) instanceof CapturedThreadEventListener) {
+            this.observation.removeListener(listener.getName());
+        }
+    }
+
     /**
      * Isolate all appender from provided thread except the event generator one.
      *
@@ -0,0 +1,190 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging.logback.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.EventListener;
+
+/**
+ * Keep track of the log listeners pushed in each thread so that {@link LogbackEventGenerator} can send the logs
+ * directly to them instead of going through the {@link org.xwiki.observation.ObservationManager}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Component(roles = LogCaptureRegistry.class)
+@Singleton
+public class LogCaptureRegistry
+{
+    /**
+     * The stack of listeners for the current thread.
+     */
+    private ThreadLocal<ListenerStack> listeners = new ThreadLocal<ListenerStack>();
+
+    /**
+     * The number of threads in which the log is currently captured. Used to not even look at the thread local when
+     * nothing is captured.
+     */
+    private AtomicInteger capturingThreads = new AtomicInteger();
+
+    /**
+     * @param listener the listener which will receive the logs of the current thread, {@code null} to just hide them
+     * @return true if the log was not already captured in the current thread
+     */
+    public boolean push(EventListener listener)
+    {
+        ListenerStack listenerStack = this.listeners.get();
+
+        if (listenerStack == null) {
+            listenerStack = new ListenerStack();
+            this.listeners.set(listenerStack);
+        }
+
+        boolean first = listenerStack.size == 0;
+        if (first) {
+            this.capturingThreads.incrementAndGet();
+        }
+
+        listenerStack.push(listener);
+
+        return first;
+    }
+
+    /**
+     * @return the removed listener or {@code null} if there was none
+     */
+    public EventListener pop()
+    {
+        ListenerStack listenerStack = this.listeners.get();
+
+        EventListener listener;
+        if (listenerStack != null && listenerStack.size > 0) {
+            listener = listenerStack.pop();
+
+            if (listenerStack.size == 0) {
+                this.capturingThreads.decrementAndGet();
+                this.listeners.remove();
+            }
+        } else {
+            listener = null;
+        }
+
+        return listener;
+    }
+
+    /**
+     * @return true if the log of the current thread is captured
+     */
+    public boolean isCaptured()
+    {
+        if (this.capturingThreads.get() == 0) {
+            return false;
+        }
+
+        ListenerStack listenerStack = this.listeners.get();
+
+        return listenerStack != null && listenerStack.size > 0;
+    }
+
+    /**
+     * @return the listener receiving the logs of the current thread or {@code null} if there is none
+     */
+    public EventListener getListener()
+    {
+        if (this.capturingThreads.get() == 0) {
+            return null;
+        }
+
+        ListenerStack listenerStack = this.listeners.get();
+
+        return listenerStack != null ? listenerStack.top : null;
+    }
+
+    /**
+     * Unsynchronized stack of listeners (a thread only manipulates its own stack), the top listener being kept in a
+     * field so that the most common case (a single listener) does not need any array.
+     *
+     * @version $Id$
+     */
+    private static final class ListenerStack
+    {
+        /**
+         * The listener at the top of the stack.
+         */
+        private EventListener top;
+
+        /**
+         * The listeners under the top one, lazily created.
+         */
+        private EventListener[] below;
+
+        /**
+         * The number of listeners in the stack.
+         */
+        private int size;
+
+        /**
+         * @param listener the listener to put at the top of the stack
+         */
+        void push(EventListener listener)
+        {
+            if (this.size > 0) {
+                int index = this.size - 1;
+
+                if (this.below == null) {
+                    this.below = new EventListener[2];
+                } else if (index == this.below.length) {
+                    this.below = Arrays.copyOf(this.below, this.below.length * 2);
+                }
+
+                this.below[index] = this.top;
+            }
+
+            this.top = listener;
+            ++this.size;
+        }
+
+        /**
+         * @return the removed listener
+         */
+        EventListener pop()
+        {
+            EventListener listener = this.top;
+
+            --this.size;
+
+            if (this.size > 0) {
+                int index = this.size - 1;
+
+                this.top = this.below[index];
+                this.below[index] = null;
+            } else {
+                this.top = null;
+            }
+
+            return listener;
+        }
+    }
+}
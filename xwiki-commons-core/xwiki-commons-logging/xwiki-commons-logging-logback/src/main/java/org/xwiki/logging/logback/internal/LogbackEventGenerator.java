@@ -27,6 +27,7 @@
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
+import org.slf4j.Marker;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -36,6 +37,8 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.logging.LogLevel;
 import org.xwiki.logging.LogUtils;
+import org.xwiki.logging.event.BeginLogEvent;
+import org.xwiki.logging.event.EndLogEvent;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
@@ -49,6 +52,11 @@
 /**
  * Bridge converting log to Observation Events.
  * <p>
+ * The logs of the threads in which a log listener has been pushed with
+ * {@link org.xwiki.logging.LoggerManager#pushLogListener(EventListener)} are sent directly to this listener before
+ * being sent to the Observation Manager.
+ * </p>
+ * <p>
  * Note that this class is implemented as an Event Listener only because we needed a way for this component to be
  * initialized early when the system starts and the Observation Manager Component is the first Component loaded in the
  * system and in its own initialization it initializes all Event Listeners... The reason we want this component
@@ -67,6 +75,26 @@
 public class LogbackEventGenerator extends AppenderBase<ILoggingEvent> implements EventListener, Initializable,
     Disposable
 {
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "LogbackEventGenerator";
+
+    /**
+     * Used to find out if some listeners are interested in the log events before creating them.
+     */
+    private static final LogEvent LOG_EVENT = new LogEvent();
+
+    /**
+     * Used to find out if some listeners are interested in the begin log events before creating them.
+     */
+    private static final LogEvent BEGIN_LOG_EVENT = new BeginLogEvent(null, null, null, null, null);
+
+    /**
+     * Used to find out if some listeners are interested in the end log events before creating them.
+     */
+    private static final LogEvent END_LOG_EVENT = new EndLogEvent(null, null, null, null, null);
+
     /**
      * The logger to log.
      */
@@ -79,15 +107,26 @@ public class LogbackEventGenerator extends AppenderBase<ILoggingEvent> implement
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * The log listeners of each thread.
+     */
+    @Inject
+    private LogCaptureRegistry captureRegistry;
+
     /**
      * Logback utilities.
      */
     private LogbackUtils utils = new LogbackUtils();
 
+    /**
+     * The observation manager, lazily loaded since it is the one initializing this component.
+     */
+    private volatile ObservationManager observationManager;
+
     @Override
     public String getName()
     {
-        return "LogbackEventGenerator";
+        return NAME;
     }
 
     @Override
@@ -127,26 +166,62 @@ public void onEvent(Event event, Object source, Object data)
      */
     private ObservationManager getObservationManager() throws ComponentLookupException
     {
-        return this.componentManager.getInstance(ObservationManager.class);
+        if (this.observationManager == null) {
+            this.observationManager = this.componentManager.getInstance(ObservationManager.class);
+        }
+
+        return this.observationManager;
     }
 
-    @Override
-    protected void append(ILoggingEvent event)
+    /**
+     * @param marker the marker of the log
+     * @return an event of the same type as the one which will be created for the log
+     */
+    private LogEvent getPrototype(Marker marker)
     {
-        Throwable throwable = null;
-        IThrowableProxy throwableProxy = event.getThrowableProxy();
-        if (throwableProxy instanceof ThrowableProxy) {
-            throwable = ((ThrowableProxy) throwableProxy).getThrowable();
+        if (marker != null) {
+            if (marker.contains(LogEvent.MARKER_BEGIN)) {
+                return BEGIN_LOG_EVENT;
+            } else if (marker.contains(LogEvent.MARKER_END)) {
+                return END_LOG_EVENT;
+            }
         }
 
+        return LOG_EVENT;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event)
+    {
         try {
+            EventListener listener = this.captureRegistry.getListener();
+            ObservationManager observation = getObservationManager();
+            boolean notify = observation.hasListener(getPrototype(event.getMarker()));
+
+            // Don't even create the log event when nobody is interested in it
+            if (listener == null && !notify) {
+                return;
+            }
+
+            Throwable throwable = null;
+            IThrowableProxy throwableProxy = event.getThrowableProxy();
+            if (throwableProxy instanceof ThrowableProxy) {
+                throwable = ((ThrowableProxy) throwableProxy).getThrowable();
+            }
+
             LogLevel logLevel = this.utils.toLogLevel(event.getLevel());
 
             LogEvent logevent =
                 LogUtils.newLogEvent(event.getMarker(), logLevel, event.getMessage(), event.getArgumentArray(),
                     throwable, event.getTimeStamp());
 
-            getObservationManager().notify(logevent, event.getLoggerName(), null);
+            if (listener != null) {
+                sendToListener(listener, logevent, event.getLoggerName());
+            }
+
+            if (notify) {
+                observation.notify(logevent, event.getLoggerName(), null);
+            }
         } catch (IllegalArgumentException e) {
             this.logger.debug("Unsupported log level [{}]", event.getLevel());
         } catch (ComponentLookupException e) {
@@ -154,6 +229,27 @@ protected void append(ILoggingEvent event)
         }
     }
 
+    /**
+     * @param listener the listener capturing the log of the current thread
+     * @param logEvent the log event
+     * @param loggerName the name of the logger
+     */
+    private void sendToListener(EventListener listener, LogEvent logEvent, String loggerName)
+    {
+        for (Event listenerEvent : listener.getEvents()) {
+            if (listenerEvent.matches(logEvent)) {
+                try {
+                    listener.onEvent(logEvent, loggerName, null);
+                } catch (Exception e) {
+                    // protect from bad listeners
+                    this.logger.error("Failed to send log event [{}] to listener [{}]", logEvent, listener, e);
+                }
+
+                break;
+            }
+        }
+    }
+
     /**
      * @return the Logback root logger or null if Logback is not available
      */
@@ -19,6 +19,7 @@
  */
 package org.xwiki.logging.logback.internal;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.junit.Assert;
@@ -29,7 +30,12 @@
 import org.slf4j.LoggerFactory;
 import org.xwiki.logging.LogLevel;
 import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.event.LogEvent;
 import org.xwiki.logging.event.LogQueueListener;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.Event;
 import org.xwiki.observation.internal.DefaultObservationManager;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
@@ -40,6 +46,9 @@
 import ch.qos.logback.core.read.ListAppender;
 import ch.qos.logback.core.spi.FilterReply;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,7 +59,8 @@
  * @version $Id$
  * @since 3.2M3
  */
-@ComponentList({ DefaultLoggerManager.class, DefaultObservationManager.class, LogbackEventGenerator.class })
+@ComponentList({ DefaultLoggerManager.class, DefaultObservationManager.class, LogbackEventGenerator.class,
+    LogCaptureRegistry.class })
 public class DefaultLoggerManagerTest
 {
     @Rule
@@ -197,6 +207,32 @@ public void testNullListeners()
         Assert.assertEquals("[test] after pop", this.listAppender.list.get(1).getMessage());
     }
 
+    @Test
+    public void testListenerReceivesOtherEvents() throws Exception
+    {
+        EventListener listener = mock(EventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getEvents()).thenReturn(Arrays.<Event>asList(new LogEvent(), AllEvent.ALLEVENT));
+
+        ObservationManager observation = this.mocker.getInstance(ObservationManager.class);
+        Event event = mock(Event.class);
+
+        this.loggerManager.pushLogListener(listener);
+
+        this.logger.error("[test] captured");
+        observation.notify(event, "source");
+
+        // Make sure the log has been sent only once
+        verify(listener).onEvent(isA(LogEvent.class), any(), any());
+        verify(listener).onEvent(event, "source", null);
+
+        this.loggerManager.popLogListener();
+
+        observation.notify(event, "source");
+
+        verify(listener).onEvent(event, "source", null);
+    }
+
     @Test
     public void testGetSetLoggerLevel()
     {
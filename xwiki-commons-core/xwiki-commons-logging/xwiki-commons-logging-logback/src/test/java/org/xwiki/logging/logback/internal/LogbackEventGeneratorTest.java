@@ -27,6 +27,8 @@
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.logging.LogLevel;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
@@ -38,6 +40,7 @@
 import org.xwiki.test.annotation.ComponentList;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -49,7 +52,8 @@
  */
 @ComponentList({
     DefaultObservationManager.class,
-    LogbackEventGenerator.class
+    LogbackEventGenerator.class,
+    LogCaptureRegistry.class
 })
 public class LogbackEventGeneratorTest
 {
@@ -92,6 +96,26 @@ public void verifyThatLoggingGeneratesALogEvent()
         assertEquals("error message", this.logCapture.getMessage(0));
     }
 
+    @Test
+    public void logWithoutListener() throws Exception
+    {
+        ObservationManager mockObservationManager = mock(ObservationManager.class);
+        ComponentManager mockComponentManager = mock(ComponentManager.class);
+        when(mockComponentManager.getInstance(ObservationManager.class)).thenReturn(mockObservationManager);
+
+        LogbackEventGenerator generator = new LogbackEventGenerator();
+        ReflectionUtils.setFieldValue(generator, "componentManager", mockComponentManager);
+        ReflectionUtils.setFieldValue(generator, "captureRegistry", new LogCaptureRegistry());
+
+        ch.qos.logback.classic.Logger logbackLogger =
+            (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(getClass());
+        generator.append(new ch.qos.logback.classic.spi.LoggingEvent(getClass().getName(), logbackLogger,
+            ch.qos.logback.classic.Level.ERROR, "error message", null, null));
+
+        verify(mockObservationManager).hasListener(any(LogEvent.class));
+        verify(mockObservationManager, never()).notify(any(Event.class), any(), any());
+    }
+
     @Test
     public void initializeWhenNoLogback() throws Exception
     {
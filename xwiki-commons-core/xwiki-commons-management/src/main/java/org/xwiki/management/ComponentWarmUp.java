@@ -0,0 +1,50 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Instantiate in advance the singleton components implementing some roles, along with all the components they depend
+ * on, so that the first real lookup of these components does not have to pay for it.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Role
+@Unstable
+public interface ComponentWarmUp
+{
+    /**
+     * The components are instantiated starting with the ones without dependencies, the components which don't depend
+     * on each other being instantiated in parallel.
+     *
+     * @param roles the roles of the components to instantiate
+     * @return the time (in nanoseconds) spent to instantiate each component, in instantiation order; the time of a
+     *         component does not include the time spent to instantiate its dependencies
+     */
+    Map<ComponentDescriptor<?>, Long> warmUp(Collection<? extends Type> roles);
+}
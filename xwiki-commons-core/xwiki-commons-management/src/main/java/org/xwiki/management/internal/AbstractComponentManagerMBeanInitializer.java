@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.manager.ComponentManagerInitializer;
+import org.xwiki.component.manager.NamespacedComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.management.JMXBeanRegistration;
+
+/**
+ * Base class for the initializers exposing an MBean for each initialized component manager. Each component manager
+ * gets its own MBean name (the namespace of the component manager is part of the name, and a number is added when
+ * several root component managers live in the same application) and the MBeans are unregistered when the initializer
+ * is disposed, that is when the component manager holding it is disposed.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public abstract class AbstractComponentManagerMBeanInitializer implements ComponentManagerInitializer, Disposable
+{
+    /**
+     * The MBean names currently registered by all the initializers.
+     */
+    private static final Set<String> NAMES = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    /**
+     * The names of the MBeans registered by this initializer, by component manager.
+     */
+    private final Map<ComponentManager, String> registeredNames = new IdentityHashMap<>();
+
+    /**
+     * @return the name of the MBean of the root component manager, for example "type=Component,name=WarmUp"
+     */
+    protected abstract String getBaseName();
+
+    /**
+     * @param componentManager the initialized component manager
+     * @return the MBean to register for the passed component manager or {@code null} if none should be registered
+     */
+    protected abstract Object createMBean(ComponentManager componentManager);
+
+    @Override
+    public void initialize(ComponentManager componentManager)
+    {
+        Object mbean = createMBean(componentManager);
+
+        if (mbean != null) {
+            synchronized (this.registeredNames) {
+                if (!this.registeredNames.containsKey(componentManager)) {
+                    String name = reserveName(componentManager);
+                    this.registeredNames.put(componentManager, name);
+                    this.jmxRegistration.registerMBean(mbean, name);
+                }
+            }
+        }
+    }
+
+    private String reserveName(ComponentManager componentManager)
+    {
+        String baseName = getBaseName();
+
+        if (componentManager instanceof NamespacedComponentManager) {
+            String namespace = ((NamespacedComponentManager) componentManager).getNamespace();
+            if (namespace != null) {
+                baseName += ",namespace=" + ObjectName.quote(namespace);
+            }
+        }
+
+        String name = baseName;
+        for (int i = 2; !NAMES.add(name); ++i) {
+            name = baseName + ",instance=" + i;
+        }
+
+        return name;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        synchronized (this.registeredNames) {
+            for (String name : this.registeredNames.values()) {
+                this.jmxRegistration.unregisterMBean(name);
+                NAMES.remove(name);
+            }
+
+            this.registeredNames.clear();
+        }
+    }
+}
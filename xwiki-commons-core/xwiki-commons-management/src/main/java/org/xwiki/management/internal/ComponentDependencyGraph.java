@@ -0,0 +1,196 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Provider;
+
+import org.slf4j.Logger;
+import org.xwiki.component.descriptor.ComponentDependency;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+
+/**
+ * The graph of the dependencies between components, computed from the {@link ComponentDependency} of their
+ * descriptors.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ComponentDependencyGraph
+{
+    /**
+     * A component and the components it depends on.
+     *
+     * @version $Id$
+     */
+    public static class Node
+    {
+        private final ComponentDescriptor<?> descriptor;
+
+        private final Set<Node> dependencies = new LinkedHashSet<>();
+
+        private final Set<Node> dependents = new LinkedHashSet<>();
+
+        Node(ComponentDescriptor<?> descriptor)
+        {
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * @return the descriptor of the component
+         */
+        public ComponentDescriptor<?> getDescriptor()
+        {
+            return this.descriptor;
+        }
+
+        /**
+         * @return the components injected in this component
+         */
+        public Set<Node> getDependencies()
+        {
+            return Collections.unmodifiableSet(this.dependencies);
+        }
+
+        /**
+         * @return the components in which this component is injected
+         */
+        public Set<Node> getDependents()
+        {
+            return Collections.unmodifiableSet(this.dependents);
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.descriptor.toString();
+        }
+    }
+
+    private final ComponentManager componentManager;
+
+    private final Logger logger;
+
+    private final Map<List<Object>, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * @param componentManager the component manager used to resolve the dependencies
+     * @param logger the logger used to report the dependencies which cannot be resolved
+     */
+    public ComponentDependencyGraph(ComponentManager componentManager, Logger logger)
+    {
+        this.componentManager = componentManager;
+        this.logger = logger;
+    }
+
+    /**
+     * Add all the components implementing the passed role and, recursively, their dependencies.
+     *
+     * @param role the role of the components to add
+     */
+    public void add(Type role)
+    {
+        for (ComponentDescriptor<?> descriptor : getComponentDescriptorList(role)) {
+            add(descriptor);
+        }
+    }
+
+    private Node add(ComponentDescriptor<?> descriptor)
+    {
+        List<Object> key = Arrays.<Object>asList(descriptor.getRoleType(), descriptor.getRoleHint());
+
+        Node node = this.nodes.get(key);
+        if (node == null) {
+            node = new Node(descriptor);
+            // Register the node before following the dependencies to not loop on cycles
+            this.nodes.put(key, node);
+
+            for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
+                for (ComponentDescriptor<?> dependencyDescriptor : resolve(dependency)) {
+                    Node dependencyNode = add(dependencyDescriptor);
+                    node.dependencies.add(dependencyNode);
+                    dependencyNode.dependents.add(node);
+                }
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Find the components injected for the passed dependency, following the rules of the component manager.
+     */
+    private Collection<? extends ComponentDescriptor<?>> resolve(ComponentDependency<?> dependency)
+    {
+        Collection<? extends ComponentDescriptor<?>> descriptors;
+
+        Class<?> dependencyRoleClass = ReflectionUtils.getTypeClass(dependency.getRoleType());
+
+        if (dependencyRoleClass.isAssignableFrom(Logger.class)
+            || dependencyRoleClass.isAssignableFrom(ComponentDescriptor.class)) {
+            descriptors = Collections.emptyList();
+        } else if (dependencyRoleClass.isAssignableFrom(List.class)
+            || dependencyRoleClass.isAssignableFrom(Map.class)) {
+            descriptors = getComponentDescriptorList(ReflectionUtils.getLastTypeGenericArgument(dependency
+                .getRoleType()));
+        } else if (dependencyRoleClass.isAssignableFrom(Provider.class)
+            && !this.componentManager.hasComponent(dependency.getRoleType(), dependency.getRoleHint())) {
+            // Generic providers lookup their component only when asked to
+            descriptors = Collections.emptyList();
+        } else {
+            ComponentDescriptor<?> descriptor =
+                this.componentManager.getComponentDescriptor(dependency.getRoleType(), dependency.getRoleHint());
+            if (descriptor != null) {
+                descriptors = Collections.singletonList(descriptor);
+            } else {
+                this.logger.debug("No component found for dependency [{}]", dependency);
+
+                descriptors = Collections.emptyList();
+            }
+        }
+
+        return descriptors;
+    }
+
+    private List<ComponentDescriptor<?>> getComponentDescriptorList(Type role)
+    {
+        return new ArrayList<ComponentDescriptor<?>>(this.componentManager.<Object>getComponentDescriptorList(role));
+    }
+
+    /**
+     * @return all the components of the graph
+     */
+    public Collection<Node> getNodes()
+    {
+        return Collections.unmodifiableCollection(this.nodes.values());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.management.internal.jmx.JMXComponentManager;
+
+/**
+ * Expose the lookups and instantiations statistics of the component manager through JMX. The statistics are disabled
+ * until enabled through the MBean.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Component
+@Named("statistics")
+@Singleton
+public class ComponentStatisticsInitializer extends AbstractComponentManagerMBeanInitializer
+{
+    /**
+     * The name of the MBean of the root component manager.
+     */
+    private static final String MBEAN_NAME = "type=Component,name=ComponentManager";
+
+    @Override
+    protected String getBaseName()
+    {
+        return MBEAN_NAME;
+    }
+
+    @Override
+    protected Object createMBean(ComponentManager componentManager)
+    {
+        if (componentManager instanceof EmbeddableComponentManager) {
+            return new JMXComponentManager(((EmbeddableComponentManager) componentManager).getStatistics());
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.management.ComponentWarmUp;
+import org.xwiki.management.internal.ComponentDependencyGraph.Node;
+
+/**
+ * Default implementation of {@link ComponentWarmUp}.
+ * <p>
+ * The components are instantiated in the topological order of the dependency graph: a component is instantiated only
+ * once all the components it depends on are, so that the measured time is the time spent in the component itself.
+ * Components which are part of a dependency cycle are instantiated last.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Component
+@Singleton
+public class DefaultComponentWarmUp implements ComponentWarmUp
+{
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public Map<ComponentDescriptor<?>, Long> warmUp(Collection<? extends Type> roles)
+    {
+        ComponentDependencyGraph graph = new ComponentDependencyGraph(this.componentManager, this.logger);
+        for (Type role : roles) {
+            graph.add(role);
+        }
+
+        Map<ComponentDescriptor<?>, Long> times = new LinkedHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            CompletionService<Node> completion = new ExecutorCompletionService<>(executor);
+
+            // Number of dependencies not instantiated yet for each component
+            Map<Node, Integer> waiting = new LinkedHashMap<>();
+            int running = 0;
+            for (Node node : graph.getNodes()) {
+                if (node.getDependencies().isEmpty()) {
+                    completion.submit(new InstantiateTask(node, times));
+                    ++running;
+                } else {
+                    waiting.put(node, node.getDependencies().size());
+                }
+            }
+
+            while (running > 0) {
+                Node node = take(completion);
+                --running;
+
+                for (Node dependent : node.getDependents()) {
+                    Integer count = waiting.get(dependent);
+                    if (count != null) {
+                        if (count == 1) {
+                            waiting.remove(dependent);
+                            completion.submit(new InstantiateTask(dependent, times));
+                            ++running;
+                        } else {
+                            waiting.put(dependent, count - 1);
+                        }
+                    }
+                }
+            }
+
+            // What's left is part of (or depends on) a dependency cycle, let the component manager deal with it
+            for (Node node : waiting.keySet()) {
+                new InstantiateTask(node, times).call();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return times;
+    }
+
+    private Node take(CompletionService<Node> completion)
+    {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("Interrupted while warming up components", e);
+        } catch (ExecutionException e) {
+            // InstantiateTask never fail
+            throw new RuntimeException("Unexpected error while warming up components", e);
+        }
+    }
+
+    /**
+     * Instantiate a singleton component.
+     *
+     * @version $Id$
+     */
+    private class InstantiateTask implements Callable<Node>
+    {
+        private final Node node;
+
+        private final Map<ComponentDescriptor<?>, Long> times;
+
+        InstantiateTask(Node node, Map<ComponentDescriptor<?>, Long> times)
+        {
+            this.node = node;
+            this.times = times;
+        }
+
+        @Override
+        public Node call()
+        {
+            ComponentDescriptor<?> descriptor = this.node.getDescriptor();
+
+            // Components instantiated for each lookup cannot be warmed up
+            if (descriptor.getInstantiationStrategy() == ComponentInstantiationStrategy.SINGLETON) {
+                long start = System.nanoTime();
+                try {
+                    componentManager.getInstance(descriptor.getRoleType(), descriptor.getRoleHint());
+
+                    long time = System.nanoTime() - start;
+                    synchronized (this.times) {
+                        this.times.put(descriptor, time);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Failed to warm up component [{}]: {}", descriptor,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+
+            return this.node;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.xwiki.component.embed.ComponentManagerStatistics;
+import org.xwiki.component.embed.ComponentManagerStatistics.ComponentEntry;
+import org.xwiki.component.embed.ComponentManagerStatistics.HandlerEntry;
+
+/**
+ * Expose the {@link ComponentManagerStatistics} of an {@link org.xwiki.component.embed.EmbeddableComponentManager}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JMXComponentManager implements JMXComponentManagerMBean
+{
+    private static final String[] COMPONENT_COLUMNS = new String[] { "role", "hint", "lookups", "instantiations",
+        "instantiationTime", "meanInstantiationTime", "lifecycleTime" };
+
+    private static final String[] COMPONENT_DESCRIPTIONS = new String[] { "The component role", "The component hint",
+        "The number of lookups", "The number of instantiations",
+        "The total time spent instantiating the component and its dependencies",
+        "The mean duration of an instantiation", "The total time spent in the lifecycle handlers" };
+
+    private static final String HANDLER = "handler";
+
+    private static final String[] HANDLER_COLUMNS = new String[] { HANDLER, "calls", "totalTime", "meanTime" };
+
+    private static final String[] HANDLER_DESCRIPTIONS = new String[] { "The handler class", "The number of calls",
+        "The total time spent in the handler", "The mean duration of a call" };
+
+    /**
+     * Displayed instead of the null role or hint of the entries gathering several components.
+     */
+    private static final String ANY = "*";
+
+    private static final OpenType<?>[] HANDLER_TYPES = new OpenType<?>[] { SimpleType.STRING, SimpleType.LONG,
+        SimpleType.LONG, SimpleType.LONG };
+
+    private final ComponentManagerStatistics statistics;
+
+    /**
+     * @param statistics the statistics to expose
+     */
+    public JMXComponentManager(ComponentManagerStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public boolean isStatisticsEnabled()
+    {
+        return this.statistics.isEnabled();
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled)
+    {
+        this.statistics.setEnabled(enabled);
+    }
+
+    @Override
+    public TabularData getComponents()
+    {
+        TabularData data;
+
+        try {
+            OpenType<?>[] types = new OpenType<?>[COMPONENT_COLUMNS.length];
+            types[0] = SimpleType.STRING;
+            types[1] = SimpleType.STRING;
+            for (int i = 2; i < types.length; ++i) {
+                types[i] = SimpleType.LONG;
+            }
+
+            CompositeType rowType = new CompositeType("component",
+                "Lookups and instantiations of a component (durations are in microseconds)", COMPONENT_COLUMNS,
+                COMPONENT_DESCRIPTIONS, types);
+            TabularType type = new TabularType("components", "Lookups and instantiations of components", rowType,
+                new String[] { COMPONENT_COLUMNS[0], COMPONENT_COLUMNS[1] });
+            data = new TabularDataSupport(type);
+
+            for (ComponentEntry entry : this.statistics.getComponents()) {
+                data.put(new CompositeDataSupport(rowType, COMPONENT_COLUMNS, toRow(entry)));
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather information on components", e);
+        }
+
+        return data;
+    }
+
+    @Override
+    public TabularData getLifecycleHandlers()
+    {
+        TabularData data;
+
+        try {
+            CompositeType rowType = new CompositeType(HANDLER,
+                "Calls to a lifecycle handler (durations are in microseconds)", HANDLER_COLUMNS, HANDLER_DESCRIPTIONS,
+                HANDLER_TYPES);
+            TabularType type = new TabularType("handlers", "Calls to lifecycle handlers", rowType,
+                new String[] { HANDLER_COLUMNS[0] });
+            data = new TabularDataSupport(type);
+
+            for (Map.Entry<String, ? extends HandlerEntry> entry : this.statistics.getHandlers().entrySet()) {
+                HandlerEntry handler = entry.getValue();
+                long calls = handler.getCalls();
+                data.put(new CompositeDataSupport(rowType, HANDLER_COLUMNS, new Object[] { entry.getKey(), calls,
+                    toMicros(handler.getTime()), calls > 0 ? toMicros(handler.getTime() / calls) : 0L }));
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather information on lifecycle handlers", e);
+        }
+
+        return data;
+    }
+
+    private Object[] toRow(ComponentEntry component)
+    {
+        long instantiations = component.getInstantiations();
+        long meanInstantiationTime = instantiations > 0 ? component.getInstantiationTime() / instantiations : 0L;
+        String role = component.getRoleType() != null ? component.getRoleType().toString() : ANY;
+        String hint = component.getRoleHint() != null ? component.getRoleHint() : ANY;
+
+        return new Object[] { role, hint, component.getLookups(),
+            instantiations, toMicros(component.getInstantiationTime()), toMicros(meanInstantiationTime),
+            toMicros(component.getLifecycleTime()) };
+    }
+
+    private long toMicros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.statistics.reset();
+    }
+}
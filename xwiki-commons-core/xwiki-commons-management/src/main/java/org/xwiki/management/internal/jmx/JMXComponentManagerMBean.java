@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * MBean API related to the Component Manager.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public interface JMXComponentManagerMBean
+{
+    /**
+     * @return true if the statistics are gathered
+     */
+    boolean isStatisticsEnabled();
+
+    /**
+     * @param enabled true if the statistics should be gathered
+     */
+    void setStatisticsEnabled(boolean enabled);
+
+    /**
+     * @return the number of lookups and instantiations, and the instantiation durations of each component
+     */
+    TabularData getComponents();
+
+    /**
+     * @return the number of calls and durations of each lifecycle handler
+     */
+    TabularData getLifecycleHandlers();
+
+    /**
+     * Forget all the gathered statistics.
+     */
+    void resetStatistics();
+}
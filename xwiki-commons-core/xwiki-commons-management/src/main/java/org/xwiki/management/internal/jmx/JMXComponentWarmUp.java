@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.management.ComponentWarmUp;
+
+/**
+ * Expose {@link ComponentWarmUp} through JMX.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JMXComponentWarmUp implements JMXComponentWarmUpMBean
+{
+    private static final String[] COLUMNS = new String[] { "order", "implementation", "role", "hint", "time" };
+
+    private static final String[] DESCRIPTIONS = new String[] { "The instantiation order",
+        "The component implementation", "The component role", "The component hint",
+        "The time spent to instantiate the component" };
+
+    private static final OpenType<?>[] TYPES = new OpenType<?>[] { SimpleType.INTEGER, SimpleType.STRING,
+        SimpleType.STRING, SimpleType.STRING, SimpleType.LONG };
+
+    private final ComponentManager componentManager;
+
+    /**
+     * @param componentManager the component manager used to find the {@link ComponentWarmUp} component and the roles
+     */
+    public JMXComponentWarmUp(ComponentManager componentManager)
+    {
+        this.componentManager = componentManager;
+    }
+
+    @Override
+    public TabularData warmUp(String[] roles)
+    {
+        ComponentWarmUp warmUp;
+        try {
+            warmUp = this.componentManager.getInstance(ComponentWarmUp.class);
+        } catch (ComponentLookupException e) {
+            throw new RuntimeException("Failed to lookup the component warm up service", e);
+        }
+
+        List<Type> roleTypes = new ArrayList<>(roles.length);
+        for (String role : roles) {
+            try {
+                roleTypes.add(ReflectionUtils.unserializeType(role, getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException(String.format("Unknown role [%s]", role), e);
+            }
+        }
+
+        Map<ComponentDescriptor<?>, Long> times = warmUp.warmUp(roleTypes);
+
+        TabularData data;
+
+        try {
+            CompositeType rowType = new CompositeType("component",
+                "Instantiation of a component (durations are in microseconds)", COLUMNS, DESCRIPTIONS, TYPES);
+            TabularType type =
+                new TabularType("components", "Instantiated components", rowType, new String[] { COLUMNS[0] });
+            data = new TabularDataSupport(type);
+
+            int order = 0;
+            for (Map.Entry<ComponentDescriptor<?>, Long> entry : times.entrySet()) {
+                ComponentDescriptor<?> descriptor = entry.getKey();
+                data.put(new CompositeDataSupport(rowType, COLUMNS, new Object[] { order++,
+                    descriptor.getImplementation().getName(), descriptor.getRoleType().toString(),
+                    descriptor.getRoleHint(), TimeUnit.NANOSECONDS.toMicros(entry.getValue()) }));
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather information on instantiated components", e);
+        }
+
+        return data;
+    }
+
+    private ClassLoader getClassLoader()
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        return classLoader != null ? classLoader : getClass().getClassLoader();
+    }
+}
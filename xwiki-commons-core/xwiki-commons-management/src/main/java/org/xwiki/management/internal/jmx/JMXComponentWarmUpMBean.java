@@ -0,0 +1,40 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * MBean API to warm up components.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public interface JMXComponentWarmUpMBean
+{
+    /**
+     * Instantiate the components implementing the passed roles and their dependencies.
+     *
+     * @param roles the roles of the components to instantiate (for example
+     *            {@code org.xwiki.script.service.ScriptService} or {@code java.util.List<java.lang.String>})
+     * @return the time spent to instantiate each component
+     */
+    TabularData warmUp(String[] roles);
+}
@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import org.junit.Test;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.management.internal.jmx.JMXComponentManager;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link ComponentStatisticsInitializer}.
+ *
+ * @version $Id$
+ */
+public class ComponentStatisticsInitializerTest
+{
+    private static final String NAME = "type=Component,name=ComponentManager";
+
+    @Test
+    public void registerAndUnregister() throws Exception
+    {
+        JMXBeanRegistration jmxRegistration = mock(JMXBeanRegistration.class);
+        ComponentStatisticsInitializer initializer = new ComponentStatisticsInitializer();
+        ReflectionUtils.setFieldValue(initializer, "jmxRegistration", jmxRegistration);
+
+        // Only embeddable component managers have statistics
+        initializer.initialize(mock(ComponentManager.class));
+        verify(jmxRegistration, never()).registerMBean(any(), any(String.class));
+
+        initializer.initialize(new EmbeddableComponentManager());
+        initializer.initialize(new EmbeddableComponentManager("wiki:xwiki"));
+        verify(jmxRegistration).registerMBean(isA(JMXComponentManager.class), eq(NAME));
+        verify(jmxRegistration).registerMBean(isA(JMXComponentManager.class),
+            eq(NAME + ",namespace=\"wiki:xwiki\""));
+
+        initializer.dispose();
+        verify(jmxRegistration).unregisterMBean(NAME);
+        verify(jmxRegistration).unregisterMBean(NAME + ",namespace=\"wiki:xwiki\"");
+    }
+}
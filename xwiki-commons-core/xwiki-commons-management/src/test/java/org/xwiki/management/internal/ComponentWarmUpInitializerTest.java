@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.manager.NamespacedComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.management.internal.jmx.JMXComponentWarmUp;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ComponentWarmUpInitializer}.
+ *
+ * @version $Id$
+ */
+public class ComponentWarmUpInitializerTest
+{
+    private static final String NAME = "type=Component,name=WarmUp";
+
+    private static final String NAMESPACE_NAME = NAME + ",namespace=\"wiki:xwiki\"";
+
+    private JMXBeanRegistration jmxRegistration;
+
+    private ComponentWarmUpInitializer initializer;
+
+    private ComponentWarmUpInitializer createInitializer()
+    {
+        ComponentWarmUpInitializer initializer = new ComponentWarmUpInitializer();
+        ReflectionUtils.setFieldValue(initializer, "jmxRegistration", this.jmxRegistration);
+
+        return initializer;
+    }
+
+    @Before
+    public void setUp()
+    {
+        this.jmxRegistration = mock(JMXBeanRegistration.class);
+        this.initializer = createInitializer();
+    }
+
+    @Test
+    public void registerOncePerComponentManagerAndUnregisterOnDispose() throws Exception
+    {
+        ComponentManager rootComponentManager = mock(ComponentManager.class);
+        NamespacedComponentManager namespaceComponentManager = mock(NamespacedComponentManager.class);
+        when(namespaceComponentManager.getNamespace()).thenReturn("wiki:xwiki");
+
+        this.initializer.initialize(rootComponentManager);
+        this.initializer.initialize(rootComponentManager);
+        this.initializer.initialize(namespaceComponentManager);
+
+        verify(this.jmxRegistration, times(2)).registerMBean(any(), any(String.class));
+        verify(this.jmxRegistration).registerMBean(isA(JMXComponentWarmUp.class), eq(NAME));
+        verify(this.jmxRegistration).registerMBean(isA(JMXComponentWarmUp.class), eq(NAMESPACE_NAME));
+
+        // Another root component manager in the same application gets another name
+        ComponentWarmUpInitializer otherInitializer = createInitializer();
+        otherInitializer.initialize(mock(ComponentManager.class));
+        verify(this.jmxRegistration).registerMBean(isA(JMXComponentWarmUp.class), eq(NAME + ",instance=2"));
+
+        this.initializer.dispose();
+        verify(this.jmxRegistration).unregisterMBean(NAME);
+        verify(this.jmxRegistration).unregisterMBean(NAMESPACE_NAME);
+
+        // The name can be reused once unregistered
+        this.initializer.initialize(rootComponentManager);
+        verify(this.jmxRegistration, times(2)).registerMBean(isA(JMXComponentWarmUp.class), eq(NAME));
+
+        this.initializer.dispose();
+        otherInitializer.dispose();
+        verify(this.jmxRegistration).unregisterMBean(NAME + ",instance=2");
+    }
+}
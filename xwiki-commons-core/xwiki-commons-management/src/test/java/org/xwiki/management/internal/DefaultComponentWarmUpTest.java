@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.management.ComponentWarmUp;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+/**
+ * Unit tests for {@link DefaultComponentWarmUp}.
+ *
+ * @version $Id$
+ */
+@ComponentList({ DefaultComponentWarmUp.class, DefaultComponentWarmUpTest.TopComponent.class,
+    DefaultComponentWarmUpTest.MiddleComponent.class, DefaultComponentWarmUpTest.BottomComponent.class,
+    DefaultComponentWarmUpTest.PerLookupComponent.class })
+public class DefaultComponentWarmUpTest
+{
+    @Role
+    public interface TopRole
+    {
+    }
+
+    @Role
+    public interface MiddleRole
+    {
+    }
+
+    @Role
+    public interface BottomRole
+    {
+    }
+
+    @Role
+    public interface PerLookupRole
+    {
+    }
+
+    @Component(staticRegistration = false)
+    @Singleton
+    public static class TopComponent implements TopRole
+    {
+        @Inject
+        private MiddleRole middle;
+
+        @Inject
+        private BottomRole bottom;
+
+        @Inject
+        private PerLookupRole perLookup;
+    }
+
+    @Component(staticRegistration = false)
+    @Singleton
+    public static class MiddleComponent implements MiddleRole
+    {
+        @Inject
+        private BottomRole bottom;
+    }
+
+    @Component(staticRegistration = false)
+    @Singleton
+    public static class BottomComponent implements BottomRole
+    {
+    }
+
+    @Component(staticRegistration = false)
+    @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+    public static class PerLookupComponent implements PerLookupRole
+    {
+    }
+
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    @Test
+    public void warmUp() throws Exception
+    {
+        ComponentWarmUp warmUp = this.componentManager.getInstance(ComponentWarmUp.class);
+
+        Map<ComponentDescriptor<?>, Long> times = warmUp.warmUp(Arrays.asList(TopRole.class));
+
+        // The dependencies are instantiated first and the per lookup components are skipped
+        List<Class<?>> implementations = new ArrayList<>();
+        for (ComponentDescriptor<?> descriptor : times.keySet()) {
+            implementations.add(descriptor.getImplementation());
+        }
+        Assert.assertEquals(
+            Arrays.<Class<?>>asList(BottomComponent.class, MiddleComponent.class, TopComponent.class),
+            implementations);
+
+        for (Long time : times.values()) {
+            Assert.assertTrue(time >= 0);
+        }
+    }
+}
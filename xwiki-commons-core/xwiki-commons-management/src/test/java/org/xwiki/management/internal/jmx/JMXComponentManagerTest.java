@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.internal.embed.ComponentStatistics;
+
+/**
+ * Unit tests for {@link JMXComponentManager}.
+ *
+ * @version $Id$
+ */
+public class JMXComponentManagerTest
+{
+    private ComponentStatistics statistics;
+
+    private JMXComponentManager jmxBean;
+
+    @Before
+    public void setUp()
+    {
+        this.statistics = new ComponentStatistics();
+        this.jmxBean = new JMXComponentManager(this.statistics);
+    }
+
+    @Test
+    public void getComponents()
+    {
+        this.statistics.recordLookup(Runnable.class, "default");
+        this.statistics.recordLookup(Runnable.class, "default");
+        this.statistics.recordInstantiation(Runnable.class, "default", 4000);
+        this.statistics.recordLifecycle(this, Runnable.class, "default", 1000);
+        this.statistics.recordLookup(Runnable.class, "other");
+        this.statistics.recordRoleLookup(Runnable.class);
+
+        TabularData data = this.jmxBean.getComponents();
+
+        Assert.assertEquals(3, data.size());
+
+        CompositeData row = data.get(new Object[] { Runnable.class.toString(), "default" });
+        Assert.assertEquals(2L, row.get("lookups"));
+        Assert.assertEquals(1L, row.get("instantiations"));
+        Assert.assertEquals(4L, row.get("instantiationTime"));
+        Assert.assertEquals(4L, row.get("meanInstantiationTime"));
+        Assert.assertEquals(1L, row.get("lifecycleTime"));
+
+        row = data.get(new Object[] { Runnable.class.toString(), "other" });
+        Assert.assertEquals(1L, row.get("lookups"));
+        Assert.assertEquals(0L, row.get("instantiations"));
+        Assert.assertEquals(0L, row.get("meanInstantiationTime"));
+
+        // Lookups of all the components of the role
+        row = data.get(new Object[] { Runnable.class.toString(), "*" });
+        Assert.assertEquals(1L, row.get("lookups"));
+    }
+
+    @Test
+    public void getLifecycleHandlers()
+    {
+        this.statistics.recordLifecycle(this, Runnable.class, "default", 1000);
+        this.statistics.recordLifecycle(this, Runnable.class, "other", 3000);
+
+        TabularData data = this.jmxBean.getLifecycleHandlers();
+
+        Assert.assertEquals(1, data.size());
+
+        CompositeData row = data.get(new Object[] { getClass().getName() });
+        Assert.assertEquals(2L, row.get("calls"));
+        Assert.assertEquals(4L, row.get("totalTime"));
+        Assert.assertEquals(2L, row.get("meanTime"));
+    }
+
+    @Test
+    public void resetStatistics()
+    {
+        this.jmxBean.setStatisticsEnabled(true);
+        Assert.assertTrue(this.jmxBean.isStatisticsEnabled());
+
+        this.statistics.recordLookup(Runnable.class, "default");
+        this.jmxBean.resetStatistics();
+
+        CompositeData row = this.jmxBean.getComponents().get(new Object[] { Runnable.class.toString(), "default" });
+        Assert.assertEquals(0L, row.get("lookups"));
+    }
+}
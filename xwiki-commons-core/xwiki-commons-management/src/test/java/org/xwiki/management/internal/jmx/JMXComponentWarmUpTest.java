@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.management.internal.jmx;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.management.ComponentWarmUp;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link JMXComponentWarmUp}.
+ *
+ * @version $Id$
+ */
+public class JMXComponentWarmUpTest
+{
+    private ComponentWarmUp warmUp;
+
+    private JMXComponentWarmUp jmxBean;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ComponentManager componentManager = mock(ComponentManager.class);
+        this.warmUp = mock(ComponentWarmUp.class);
+        when(componentManager.getInstance(ComponentWarmUp.class)).thenReturn(this.warmUp);
+
+        this.jmxBean = new JMXComponentWarmUp(componentManager);
+    }
+
+    @Test
+    public void warmUp()
+    {
+        DefaultComponentDescriptor<Runnable> descriptor1 = new DefaultComponentDescriptor<>();
+        descriptor1.setRoleType(Runnable.class);
+        descriptor1.setRoleHint("hint");
+        descriptor1.setImplementation(Thread.class);
+        DefaultComponentDescriptor<Object> descriptor2 = new DefaultComponentDescriptor<>();
+        descriptor2.setRoleType(new DefaultParameterizedType(null, List.class, String.class));
+        descriptor2.setImplementation(ArrayList.class);
+
+        Map<ComponentDescriptor<?>, Long> times = new LinkedHashMap<>();
+        times.put(descriptor1, 3000L);
+        times.put(descriptor2, 2000000L);
+        when(this.warmUp.warmUp(Arrays.<Type>asList(Runnable.class,
+            new DefaultParameterizedType(null, List.class, String.class)))).thenReturn(times);
+
+        TabularData data =
+            this.jmxBean.warmUp(new String[] { "java.lang.Runnable", "java.util.List<java.lang.String>" });
+
+        Assert.assertEquals(2, data.size());
+
+        CompositeData row = data.get(new Object[] { 0 });
+        Assert.assertEquals(Thread.class.getName(), row.get("implementation"));
+        Assert.assertEquals(Runnable.class.toString(), row.get("role"));
+        Assert.assertEquals("hint", row.get("hint"));
+        Assert.assertEquals(3L, row.get("time"));
+
+        row = data.get(new Object[] { 1 });
+        Assert.assertEquals(ArrayList.class.getName(), row.get("implementation"));
+        Assert.assertEquals("default", row.get("hint"));
+        Assert.assertEquals(2000L, row.get("time"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void warmUpWithUnknownRole()
+    {
+        this.jmxBean.warmUp(new String[] { "org.xwiki.UnknownRole" });
+    }
+
+    @Test
+    public void warmUpWithoutComponents()
+    {
+        when(this.warmUp.warmUp((Collection<Type>) Arrays.<Type>asList())).thenReturn(
+            new LinkedHashMap<ComponentDescriptor<?>, Long>());
+
+        Assert.assertTrue(this.jmxBean.warmUp(new String[0]).isEmpty());
+    }
+}
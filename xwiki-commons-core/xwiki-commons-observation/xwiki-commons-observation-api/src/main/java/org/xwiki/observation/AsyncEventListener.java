@@ -0,0 +1,44 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Marker interface for {@link EventListener}s which don't need to be called in the thread which triggered the event.
+ * <p>
+ * The {@link ObservationManager} delivers the matching events to such listeners in a background thread so that a slow
+ * listener does not add latency to the code sending the event. The events are delivered to a given listener in the
+ * order in which they have been sent and the listener is never called concurrently. The listener is executed in an
+ * execution context inheriting the inheritable properties of the one which was current when the event was sent.
+ * <p>
+ * The size of the queue of pending events and what to do when it's full can be controlled with
+ * {@link AsyncEventQueue}.
+ * <p>
+ * Note that the source and data associated to the event are passed as is to the listener so they should be safe to
+ * access from another thread.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public interface AsyncEventListener extends EventListener
+{
+}
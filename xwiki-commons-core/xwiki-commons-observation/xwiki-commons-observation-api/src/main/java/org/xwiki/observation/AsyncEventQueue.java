@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.xwiki.stability.Unstable;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Configure the queue of pending events of an {@link AsyncEventListener}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+@Inherited
+@Unstable
+public @interface AsyncEventQueue
+{
+    /**
+     * What to do with a new event when the queue of the listener is full.
+     *
+     * @version $Id$
+     */
+    enum Overflow
+    {
+        /**
+         * Block the thread sending the event until there is room in the queue. When the event is sent by an
+         * asynchronous listener (from a thread delivering events) it is discarded instead since waiting could prevent
+         * the queues from being drained.
+         */
+        BLOCK,
+
+        /**
+         * Forget about the event (the listener won't receive it).
+         */
+        DISCARD
+    }
+
+    /**
+     * @return the maximum number of events waiting to be delivered to the listener, the queue is unbounded if lower
+     *         than 1
+     */
+    int capacity() default 1000;
+
+    /**
+     * @return what to do when the queue is full
+     */
+    Overflow overflow() default Overflow.BLOCK;
+}
@@ -0,0 +1,48 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.util.List;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * {@link EventListener} able to handle several events at once, for example to invalidate a cache only once when a lot
+ * of entries are modified together.
+ * <p>
+ * When events are sent with {@link ObservationManager#notify(java.util.Collection)}, the listener receives all the
+ * matching events of the batch in one call to {@link #onEvents(List)} instead of one call to
+ * {@link #onEvent(org.xwiki.observation.event.Event, Object, Object)} per event. Events sent one by one are still
+ * received through {@link #onEvent(org.xwiki.observation.event.Event, Object, Object)}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public interface BatchEventListener extends EventListener
+{
+    /**
+     * Called after all the events of a batch have been sent to the other listeners.
+     *
+     * @param notifications the events of the batch matching the events of this listener, in the order in which they
+     *            have been sent
+     */
+    void onEvents(List<EventNotification> notifications);
+}
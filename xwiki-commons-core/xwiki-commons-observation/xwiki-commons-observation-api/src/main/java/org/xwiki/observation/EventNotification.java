@@ -0,0 +1,82 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import org.xwiki.observation.event.Event;
+import org.xwiki.stability.Unstable;
+
+/**
+ * An event along with its source and data, as passed to {@link ObservationManager#notify(java.util.Collection)} and
+ * {@link BatchEventListener#onEvents(java.util.List)}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public class EventNotification
+{
+    private final Event event;
+
+    private final Object source;
+
+    private final Object data;
+
+    /**
+     * @param event the event to pass to the registered listeners
+     * @param source the source of the event (or <code>null</code>)
+     * @param data the additional data related to the event (or <code>null</code>)
+     */
+    public EventNotification(Event event, Object source, Object data)
+    {
+        this.event = event;
+        this.source = source;
+        this.data = data;
+    }
+
+    /**
+     * @return the event to pass to the registered listeners
+     */
+    public Event getEvent()
+    {
+        return this.event;
+    }
+
+    /**
+     * @return the source of the event (or <code>null</code>)
+     */
+    public Object getSource()
+    {
+        return this.source;
+    }
+
+    /**
+     * @return the additional data related to the event (or <code>null</code>)
+     */
+    public Object getData()
+    {
+        return this.data;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.event + " (source: " + this.source + ", data: " + this.data + ')';
+    }
+}
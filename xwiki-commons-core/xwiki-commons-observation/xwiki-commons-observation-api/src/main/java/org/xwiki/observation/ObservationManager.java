@@ -19,8 +19,11 @@
  */
 package org.xwiki.observation;
 
+import java.util.Collection;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.observation.event.Event;
+import org.xwiki.stability.Unstable;
 
 /**
  * The main orchestrator for event notification. To receive events create a component implementing the
@@ -70,6 +73,18 @@
      */
     EventListener getListener(String listenerName);
 
+    /**
+     * Indicate if at least one registered listener, apart from the passed ones, would receive the passed event. This
+     * allows to skip the notification (or even the creation of the event) when nobody is interested in it.
+     *
+     * @param event the event
+     * @param ignoredListeners the names of the listeners to ignore
+     * @return true if at least one of the other registered listeners matches the passed event
+     * @since 7.4M1
+     */
+    @Unstable
+    boolean hasListener(Event event, String... ignoredListeners);
+
     /**
      * Call the registered listeners matching the passed Event. The definition of <em>source</em> and <em>data</em> is
      * purely up to the communicating classes.
@@ -88,4 +103,15 @@
      * @see #notify(org.xwiki.observation.event.Event, Object, Object)
      */
     void notify(Event event, Object source);
+
+    /**
+     * Call the registered listeners matching each of the passed events, in order. This is equivalent to calling
+     * {@link #notify(Event, Object, Object)} for each event except that the listeners are resolved once per class of
+     * event and that the {@link BatchEventListener}s receive all their matching events in one call.
+     *
+     * @param notifications the events to send along with their source and data
+     * @since 7.4M1
+     */
+    @Unstable
+    void notify(Collection<EventNotification> notifications);
 }
@@ -0,0 +1,79 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.event;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Matches any event which is an instance of the passed type, including the events which are instances of its subclasses
+ * or implementations. It allows listening to a whole family of events (for example all the {@link BeginEvent}s)
+ * without registering each concrete event class and without being called for every event like with {@link AllEvent}.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+@Unstable
+public class TypeEvent implements Event
+{
+    /**
+     * The type of the matched events.
+     */
+    private final Class<?> type;
+
+    /**
+     * @param type the type of the matched events, can be a class or an interface
+     */
+    public TypeEvent(Class<?> type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * @return the type of the matched events
+     */
+    public Class<?> getType()
+    {
+        return this.type;
+    }
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return this.type.isInstance(otherEvent);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof TypeEvent && ((TypeEvent) obj).type == this.type;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.type.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "type:" + this.type.getName();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.observation.event.AllEvent;
+
+/**
+ * Unit tests for {@link EventNotification}.
+ *
+ * @version $Id$
+ */
+public class EventNotificationTest
+{
+    @Test
+    public void testGetters()
+    {
+        EventNotification notification = new EventNotification(AllEvent.ALLEVENT, "source", "data");
+
+        Assert.assertSame(AllEvent.ALLEVENT, notification.getEvent());
+        Assert.assertEquals("source", notification.getSource());
+        Assert.assertEquals("data", notification.getData());
+        Assert.assertTrue(notification.toString().endsWith("(source: source, data: data)"));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TypeEvent}.
+ *
+ * @version $Id$
+ */
+public class TypeEventTest
+{
+    @Test
+    public void testMatches()
+    {
+        TypeEvent event = new TypeEvent(BeginEvent.class);
+
+        Assert.assertSame(BeginEvent.class, event.getType());
+        Assert.assertTrue(event.matches(new BeginFoldEvent()
+        {
+            @Override
+            public boolean matches(Object otherEvent)
+            {
+                return false;
+            }
+        }));
+        Assert.assertFalse(event.matches(AllEvent.ALLEVENT));
+        Assert.assertFalse(event.matches(null));
+    }
+
+    @Test
+    public void testEquals()
+    {
+        Assert.assertEquals(new TypeEvent(BeginEvent.class), new TypeEvent(BeginEvent.class));
+        Assert.assertEquals(new TypeEvent(BeginEvent.class).hashCode(), new TypeEvent(BeginEvent.class).hashCode());
+        Assert.assertFalse(new TypeEvent(BeginEvent.class).equals(new TypeEvent(EndEvent.class)));
+        Assert.assertEquals("type:org.xwiki.observation.event.BeginEvent", new TypeEvent(BeginEvent.class).toString());
+    }
+}
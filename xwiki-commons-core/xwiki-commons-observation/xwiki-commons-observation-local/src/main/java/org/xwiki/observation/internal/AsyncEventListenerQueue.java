@@ -0,0 +1,339 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.observation.AsyncEventListener;
+import org.xwiki.observation.AsyncEventQueue;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * The queue of events waiting to be delivered to an {@link AsyncEventListener}.
+ * <p>
+ * The queue is drained by at most one task of the shared executor at a time which guarantee that the listener receive
+ * the events in order and is never called concurrently.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class AsyncEventListenerQueue implements Runnable
+{
+    /**
+     * The maximum number of events delivered by one task before giving back its thread to the executor, so that a very
+     * active listener does not starve the other ones.
+     */
+    private static final int MAX_DRAIN = 100;
+
+    /**
+     * The capacity of the queue when the listener does not configure it.
+     */
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * The queue drained by the current thread, if any.
+     */
+    private static final ThreadLocal<AsyncEventListenerQueue> DRAINING = new ThreadLocal<>();
+
+    /**
+     * An event waiting to be delivered.
+     */
+    private static final class PendingEvent
+    {
+        /**
+         * The event to pass to the listener.
+         */
+        private final Event event;
+
+        /**
+         * The source of the event.
+         */
+        private final Object source;
+
+        /**
+         * The additional data related to the event.
+         */
+        private final Object data;
+
+        /**
+         * The execution context to use when calling the listener.
+         */
+        private final ExecutionContext context;
+
+        PendingEvent(Event event, Object source, Object data, ExecutionContext context)
+        {
+            this.event = event;
+            this.source = source;
+            this.data = data;
+            this.context = context;
+        }
+    }
+
+    /**
+     * The listener to call.
+     */
+    private final EventListener listener;
+
+    /**
+     * The events waiting to be delivered.
+     */
+    private final BlockingQueue<PendingEvent> queue;
+
+    /**
+     * What to do when the queue is full.
+     */
+    private final AsyncEventQueue.Overflow overflow;
+
+    /**
+     * The executor used to drain the queue.
+     */
+    private final Executor executor;
+
+    /**
+     * Used to propagate the execution context to the listener, can be {@code null}.
+     */
+    private final Execution execution;
+
+    /**
+     * The statistics about listener calls.
+     */
+    private final ObservationStatistics statistics;
+
+    /**
+     * The statistics of the listener, resolved the first time a call is recorded.
+     */
+    private ListenerStatistics listenerStatistics;
+
+    /**
+     * The logger to log.
+     */
+    private final Logger logger;
+
+    /**
+     * True if a task draining the queue has been submitted to the executor.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param listener the listener to call
+     * @param executor the executor used to drain the queue
+     * @param execution used to propagate the execution context to the listener, can be {@code null}
+     * @param statistics the statistics about listener calls
+     * @param logger the logger to log
+     */
+    public AsyncEventListenerQueue(EventListener listener, Executor executor, Execution execution,
+        ObservationStatistics statistics, Logger logger)
+    {
+        this.listener = listener;
+        this.executor = executor;
+        this.execution = execution;
+        this.statistics = statistics;
+        this.logger = logger;
+
+        AsyncEventQueue configuration = listener.getClass().getAnnotation(AsyncEventQueue.class);
+        if (configuration != null) {
+            this.queue = createQueue(configuration.capacity());
+            this.overflow = configuration.overflow();
+        } else {
+            this.queue = createQueue(DEFAULT_CAPACITY);
+            this.overflow = AsyncEventQueue.Overflow.BLOCK;
+        }
+    }
+
+    /**
+     * @return a new executor to share between the queues of the {@link AsyncEventListener}s, with one thread per
+     *         processor
+     */
+    public static ExecutorService newExecutor()
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        BasicThreadFactory threadFactory = new BasicThreadFactory.Builder()
+            .namingPattern("Observation asynchronous listener %d").daemon(true).build();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static BlockingQueue<PendingEvent> createQueue(int capacity)
+    {
+        if (capacity > 0) {
+            return new ArrayBlockingQueue<>(capacity);
+        }
+
+        return new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * @return the listener associated with this queue
+     */
+    public EventListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public int size()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * Queue an event for the listener.
+     *
+     * @param event the event to pass to the listener
+     * @param source the source of the event (or <code>null</code>)
+     * @param data the additional data related to the event (or <code>null</code>)
+     */
+    public void submit(Event event, Object source, Object data)
+    {
+        PendingEvent pendingEvent = new PendingEvent(event, source, data, createContext());
+
+        if (!this.queue.offer(pendingEvent)) {
+            // Blocking a thread draining a queue could end up with all the threads of the executor waiting for queues
+            // that only they can drain and calling the listener directly would break the order of the events
+            if (this.overflow == AsyncEventQueue.Overflow.DISCARD || DRAINING.get() != null) {
+                this.logger.warn("The queue of listener [{}] is full, discarding event [{}]", this.listener.getName(),
+                    event);
+
+                return;
+            } else {
+                try {
+                    this.queue.put(pendingEvent);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    this.logger.warn("Interrupted while waiting for room in the queue of listener [{}],"
+                        + " discarding event [{}]", this.listener.getName(), event);
+
+                    return;
+                }
+            }
+        }
+
+        schedule();
+    }
+
+    /**
+     * @return a new execution context inheriting the inheritable properties of the current one
+     */
+    private ExecutionContext createContext()
+    {
+        if (this.execution == null) {
+            return null;
+        }
+
+        ExecutionContext context = new ExecutionContext();
+
+        ExecutionContext currentContext = this.execution.getContext();
+        if (currentContext != null) {
+            context.inheritFrom(currentContext);
+        }
+
+        return context;
+    }
+
+    private void schedule()
+    {
+        if (this.scheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                this.scheduled.set(false);
+
+                this.logger.error("Failed to schedule the delivery of events to listener [{}]",
+                    this.listener.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        DRAINING.set(this);
+
+        try {
+            for (int i = 0; i < MAX_DRAIN; ++i) {
+                PendingEvent pendingEvent = this.queue.poll();
+                if (pendingEvent == null) {
+                    break;
+                }
+
+                if (pendingEvent.context != null) {
+                    this.execution.setContext(pendingEvent.context);
+                    try {
+                        onEvent(pendingEvent.event, pendingEvent.source, pendingEvent.data);
+                    } finally {
+                        this.execution.removeContext();
+                    }
+                } else {
+                    onEvent(pendingEvent.event, pendingEvent.source, pendingEvent.data);
+                }
+            }
+        } finally {
+            DRAINING.remove();
+            this.scheduled.set(false);
+        }
+
+        // Events might have been added after the last poll
+        if (!this.queue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void onEvent(Event event, Object source, Object data)
+    {
+        boolean enabled = this.statistics.isEnabled();
+        long start = enabled ? System.nanoTime() : 0;
+        boolean failed = false;
+
+        try {
+            this.listener.onEvent(event, source, data);
+        } catch (Exception e) {
+            failed = true;
+
+            // protect from bad listeners
+            this.logger.error("Failed to send event [{}] to listener [{}]", new Object[] { event, this.listener, e });
+        }
+
+        if (enabled) {
+            if (this.listenerStatistics == null) {
+                this.listenerStatistics = this.statistics.getListenerStatistics(this.listener.getName());
+            }
+            this.statistics.record(this.listenerStatistics, event, System.nanoTime() - start, failed);
+        }
+    }
+}
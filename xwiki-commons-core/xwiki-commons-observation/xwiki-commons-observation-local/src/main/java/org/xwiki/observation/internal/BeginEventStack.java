@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+import org.xwiki.observation.event.BeginEvent;
+
+/**
+ * Stack of the {@link BeginEvent}s currently being executed in an execution context.
+ * <p>
+ * It's still a {@link Stack} for the code reading the execution context property directly but the methods used by
+ * the Observation Manager are not synchronized since an execution context is only manipulated by its own thread.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+final class BeginEventStack extends Stack<BeginEvent>
+{
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public boolean empty()
+    {
+        return this.elementCount == 0;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.elementCount == 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.elementCount;
+    }
+
+    @Override
+    public BeginEvent push(BeginEvent event)
+    {
+        if (this.elementCount == this.elementData.length) {
+            this.elementData = Arrays.copyOf(this.elementData, Math.max(this.elementCount * 2, 8));
+        }
+
+        this.elementData[this.elementCount++] = event;
+        ++this.modCount;
+
+        return event;
+    }
+
+    @Override
+    public BeginEvent pop()
+    {
+        BeginEvent event = peek();
+
+        this.elementData[--this.elementCount] = null;
+        ++this.modCount;
+
+        return event;
+    }
+
+    @Override
+    public BeginEvent peek()
+    {
+        if (this.elementCount == 0) {
+            throw new EmptyStackException();
+        }
+
+        return (BeginEvent) this.elementData[this.elementCount - 1];
+    }
+
+    /**
+     * @param event the event to match
+     * @return {@code true} if the passed event matches one of the events of the stack
+     */
+    boolean matches(BeginEvent event)
+    {
+        for (int i = this.elementCount - 1; i >= 0; --i) {
+            if (event.matches(this.elementData[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -27,6 +27,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextKey;
 import org.xwiki.observation.ObservationContext;
 import org.xwiki.observation.event.BeginEvent;
 
@@ -45,6 +46,11 @@ public class DefaultObservationContext implements ObservationContext
      */
     static final String KEY_EVENTS = "observation.currentevents";
 
+    /**
+     * The interned key of the property storing current events, for faster access.
+     */
+    static final ExecutionContextKey EVENTS_KEY = ExecutionContextKey.of(KEY_EVENTS);
+
     /**
      * The execution.
      */
@@ -60,7 +66,7 @@ private Stack<BeginEvent> getCurrentEvents()
 
         ExecutionContext context = this.execution.getContext();
         if (context != null) {
-            events = (Stack<BeginEvent>) context.getProperty(KEY_EVENTS);
+            events = (Stack<BeginEvent>) context.getProperty(EVENTS_KEY);
         }
 
         return events;
@@ -71,13 +77,16 @@ public boolean isIn(BeginEvent event)
     {
         Stack<BeginEvent> events = getCurrentEvents();
 
-        if (events != null) {
+        if (events instanceof BeginEventStack) {
+            return ((BeginEventStack) events).matches(event);
+        } else if (events != null) {
             for (BeginEvent currentEvent : events) {
                 if (event.matches(currentEvent)) {
                     return true;
                 }
             }
         }
+
         return false;
     }
 }
@@ -21,9 +21,10 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -36,33 +37,51 @@
 import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.context.Execution;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.observation.AsyncEventListener;
+import org.xwiki.observation.BatchEventListener;
 import org.xwiki.observation.EventListener;
+import org.xwiki.observation.EventNotification;
 import org.xwiki.observation.ObservationManager;
-import org.xwiki.observation.event.AllEvent;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.jmx.JMXObservationManager;
 
 /**
  * Default implementation of the {@link ObservationManager}.
  * <p>
- * This component use synchronized for concurrent protection instead of having
- * {@link java.util.concurrent.ConcurrentHashMap} everywhere because it's more efficient since most of methods access to
- * several maps and generally do enumerations.
+ * The registrations and the dispatch table compiled from them are handled by an {@link EventListenerRegistry} so that
+ * {@link #notify(Event, Object, Object)} only does one lookup and iterates over a plain array, without any lock or
+ * allocation.
+ * <p>
+ * The {@link AsyncEventListener}s are not called directly but through a queue drained by a shared pool of threads.
+ * When events are sent in batch the {@link BatchEventListener}s receive all their matching events at the end of the
+ * batch, in one call.
+ * <p>
+ * Statistics about the notified events and the calls to the listeners can be enabled and consulted through JMX.
  *
  * @version $Id$
  */
 @Component
 @Singleton
-public class DefaultObservationManager implements ObservationManager
+public class DefaultObservationManager implements ObservationManager, Initializable, Disposable
 {
     /**
-     * @see #getListenersByEvent()
+     * The name under which the statistics MBean is registered.
+     */
+    private static final String MBEAN_NAME = "type=Observation,name=ObservationManager";
+
+    /**
+     * @see #getRegistry()
      */
-    private volatile Map<Class<? extends Event>, Map<String, RegisteredListener>> listenersByEvent;
+    private volatile EventListenerRegistry registry;
 
     /**
-     * @see #getListenersByName()
+     * The threads used to call the {@link AsyncEventListener}s.
      */
-    private volatile Map<String, EventListener> listenersByName;
+    private ExecutorService asyncExecutor;
 
     /**
      * Used to find all components implementing {@link EventListener} to register them automatically.
@@ -70,6 +89,12 @@ public class DefaultObservationManager implements ObservationManager
     @Inject
     private ComponentManager componentManager;
 
+
+    /**
+     * Used to expose the statistics. Optional since the Observation Manager is used in lightweight environments.
+     */
+    private JMXBeanRegistration jmxRegistration;
+
     /**
      * The logger to log.
      */
@@ -77,86 +102,67 @@ public class DefaultObservationManager implements ObservationManager
     private Logger logger;
 
     /**
-     * Helper class to store the list of events of a given type associated with a given listener. We need this for
-     * performance reasons and also in order to be able to add events after a listener has been registered.
+     * The statistics about notified events and listener calls.
      */
-    private static class RegisteredListener
-    {
-        /**
-         * Events of a given type associated with a given listener.
-         */
-        private List<Event> events = new ArrayList<>();
-
-        /**
-         * Listener associated with the events.
-         */
-        private EventListener listener;
-
-        /**
-         * @param listener the listener associated with the events.
-         * @param event the first event to associate with the passed listener. More events are added by calling
-         *            {@link #addEvent(Event)}
-         */
-        RegisteredListener(EventListener listener, Event event)
-        {
-            addEvent(event);
-
-            this.listener = listener;
-        }
+    private ObservationStatistics statistics;
 
-        /**
-         * @param event the event to add
-         */
-        void addEvent(Event event)
-        {
-            this.events.add(event);
-        }
+    @Override
+    public void initialize()
+    {
+        this.statistics = new ObservationStatistics(this.logger);
 
-        /**
-         * @param event the event to remove
-         */
-        void removeEvent(Event event)
-        {
-            this.events.remove(event);
+        this.jmxRegistration = getOptionalComponent(JMXBeanRegistration.class);
+        if (this.jmxRegistration != null) {
+            this.jmxRegistration.registerMBean(new JMXObservationManager(this.statistics), MBEAN_NAME);
         }
     }
 
     /**
-     * @return the registered listeners indexed on Event classes so that it's fast to find all the listeners registered
-     *         for a given event, so that {@link #notify} calls execute fast and in a fixed amount a time.
+     * @param role the role of the component
+     * @param <T> the type of the component
+     * @return the component or {@code null} if none is available
      */
-    private Map<Class<? extends Event>, Map<String, RegisteredListener>> getListenersByEvent()
+    private <T> T getOptionalComponent(Class<T> role)
     {
-        if (this.listenersByEvent == null) {
-            initializeListeners();
+        // Can be null in unit tests
+        if (this.componentManager != null && this.componentManager.hasComponent(role)) {
+            try {
+                return this.componentManager.getInstance(role);
+            } catch (ComponentLookupException e) {
+                this.logger.error("Failed to lookup component with role [{}]", role, e);
+            }
         }
 
-        return this.listenersByEvent;
+        return null;
+    }
+
+    /**
+     * @return the gathered statistics
+     */
+    public ObservationStatistics getStatistics()
+    {
+        return this.statistics;
     }
 
     /**
-     * @return the registered listeners index by listener name. It makes it fast to perform operations on already
-     *         registered listeners.
+     * @return the registered listeners and events
      */
-    private Map<String, EventListener> getListenersByName()
+    private EventListenerRegistry getRegistry()
     {
-        if (this.listenersByName == null) {
+        if (this.registry == null) {
             initializeListeners();
         }
 
-        return this.listenersByName;
+        return this.registry;
     }
 
     /**
      * Lazily initialized to allow @Inject {@link ObservationManager} in a listener.
-     *
-     * @todo Should we allow event inheritance ?
      */
     private synchronized void initializeListeners()
     {
-        if (this.listenersByName == null) {
-            this.listenersByEvent = new ConcurrentHashMap<>();
-            this.listenersByName = new ConcurrentHashMap<>();
+        if (this.registry == null) {
+            this.registry = new EventListenerRegistry();
 
             // Can be null in unit tests
             if (this.componentManager != null) {
@@ -173,12 +179,12 @@ private synchronized void initializeListeners()
     }
 
     @Override
-    public void addListener(EventListener eventListener)
+    public synchronized void addListener(EventListener eventListener)
     {
-        Map<String, EventListener> listeners = getListenersByName();
+        EventListenerRegistry listeners = getRegistry();
 
         // Remove previous listener if any
-        EventListener previousListener = listeners.get(eventListener.getName());
+        EventListener previousListener = listeners.getListener(eventListener.getName());
         if (previousListener != null) {
             removeListener(eventListener.getName());
 
@@ -190,89 +196,87 @@ public void addListener(EventListener eventListener)
                         eventListener.getName() });
         }
 
-        // Register the listener by name. If already registered, override it.
-        listeners.put(eventListener.getName(), eventListener);
-
-        // For each event defined for this listener, add it to the Event Map.
-        for (Event event : eventListener.getEvents()) {
-            // Check if this is a new Event type not already registered
-            Map<String, RegisteredListener> eventListeners = this.listenersByEvent.get(event.getClass());
-            if (eventListeners == null) {
-                // No listener registered for this event yet. Create a map to store listeners for this event.
-                eventListeners = new ConcurrentHashMap<String, RegisteredListener>();
-                this.listenersByEvent.put(event.getClass(), eventListeners);
-                // There is no RegisteredListener yet, create one
-                eventListeners.put(eventListener.getName(), new RegisteredListener(eventListener, event));
-            } else {
-                // Add an event to existing RegisteredListener object
-                RegisteredListener registeredListener = eventListeners.get(eventListener.getName());
-                if (registeredListener == null) {
-                    eventListeners.put(eventListener.getName(), new RegisteredListener(eventListener, event));
-                } else {
-                    registeredListener.addEvent(event);
-                }
-            }
+        AsyncEventListenerQueue queue = null;
+        if (eventListener instanceof AsyncEventListener) {
+            queue = new AsyncEventListenerQueue(eventListener, getAsyncExecutor(),
+                getOptionalComponent(Execution.class), this.statistics, this.logger);
         }
+
+        listeners.addListener(eventListener, queue);
     }
 
-    @Override
-    public void removeListener(String listenerName)
+    /**
+     * @return the threads used to call the {@link AsyncEventListener}s
+     */
+    private ExecutorService getAsyncExecutor()
     {
-        getListenersByName().remove(listenerName);
-        for (Map.Entry<Class<? extends Event>, Map<String, RegisteredListener>> entry : this.listenersByEvent
-            .entrySet()) {
-            entry.getValue().remove(listenerName);
-            if (entry.getValue().isEmpty()) {
-                this.listenersByEvent.remove(entry.getKey());
-            }
+        if (this.asyncExecutor == null) {
+            this.asyncExecutor = AsyncEventListenerQueue.newExecutor();
         }
+
+        return this.asyncExecutor;
     }
 
     @Override
-    public void addEvent(String listenerName, Event event)
+    public synchronized void removeListener(String listenerName)
     {
-        Map<String, RegisteredListener> listeners = getListenersByEvent().get(event.getClass());
-        if (listeners == null) {
-            listeners = new ConcurrentHashMap<>();
-            this.listenersByEvent.put(event.getClass(), listeners);
-        }
-        RegisteredListener listener = listeners.get(listenerName);
-        if (listener != null) {
-            listener.addEvent(event);
-        } else {
-            listeners.put(listenerName, new RegisteredListener(this.getListener(listenerName), event));
-        }
+        getRegistry().removeListener(listenerName);
     }
 
     @Override
-    public void removeEvent(String listenerName, Event event)
+    public synchronized void addEvent(String listenerName, Event event)
     {
-        Map<String, RegisteredListener> listeners = getListenersByEvent().get(event.getClass());
-        RegisteredListener listener = listeners.get(listenerName);
-        if (listener != null) {
-            listener.removeEvent(event);
-        }
+        getRegistry().addEvent(listenerName, event);
+    }
+
+    @Override
+    public synchronized void removeEvent(String listenerName, Event event)
+    {
+        getRegistry().removeEvent(listenerName, event);
     }
 
     @Override
     public EventListener getListener(String listenerName)
     {
-        return getListenersByName().get(listenerName);
+        return getRegistry().getListener(listenerName);
     }
 
     @Override
-    public void notify(Event event, Object source, Object data)
+    public boolean hasListener(Event event, String... ignoredListeners)
+    {
+        RegisteredListener[] listeners = getRegistry().getRegisteredListeners(event.getClass());
+
+        for (int i = 0; i < listeners.length; ++i) {
+            if (listeners[i].matches(event) && !isIgnored(listeners[i].getListener(), ignoredListeners)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isIgnored(EventListener listener, String[] ignoredListeners)
     {
-        // Find all listeners for this event
-        Map<String, RegisteredListener> regListeners = getListenersByEvent().get(event.getClass());
-        if (regListeners != null) {
-            notify(regListeners.values(), event, source, data);
+        for (String ignoredListener : ignoredListeners) {
+            if (ignoredListener.equals(listener.getName())) {
+                return true;
+            }
         }
 
-        // Find listener listening all events
-        Map<String, RegisteredListener> allEventRegListeners = this.listenersByEvent.get(AllEvent.class);
-        if (allEventRegListeners != null) {
-            notify(allEventRegListeners.values(), event, source, data);
+        return false;
+    }
+
+    @Override
+    public void notify(Event event, Object source, Object data)
+    {
+        // Find all listeners for this event, including the ones listening to all events
+        RegisteredListener[] listeners = getRegistry().getRegisteredListeners(event.getClass());
+
+        if (this.statistics.isEnabled()) {
+            this.statistics.getEventCounter(event.getClass()).incrementAndGet();
+        }
+        for (int i = 0; i < listeners.length; ++i) {
+            notify(listeners[i], event, source, data);
         }
 
         // We want this Observation Manager to be able to handle new Event Listener components being added or removed
@@ -286,33 +290,155 @@ public void notify(Event event, Object source, Object data)
     }
 
     /**
-     * Call the provided listeners matching the passed Event. The definition of <em>source</em> and <em>data</em> is
-     * purely up to the communicating classes.
+     * Call the provided listener if one of its events matches the passed Event. The definition of <em>source</em> and
+     * <em>data</em> is purely up to the communicating classes.
      *
-     * @param listeners the listeners to notify
+     * @param listener the listener to notify
      * @param event the event to pass to the registered listeners
      * @param source the source of the event (or <code>null</code>)
      * @param data the additional data related to the event (or <code>null</code>)
      */
-    private void notify(Collection<RegisteredListener> listeners, Event event, Object source, Object data)
+    private void notify(RegisteredListener listener, Event event, Object source, Object data)
     {
-        for (RegisteredListener listener : listeners) {
-            // Verify that one of the events matches and send the first matching event
-            for (Event listenerEvent : listener.events) {
-                if (listenerEvent.matches(event)) {
-                    try {
-                        listener.listener.onEvent(event, source, data);
-                    } catch (Exception e) {
-                        // protect from bad listeners
-                        this.logger.error("Failed to send event [{}] to listener [{}]", new Object[] { event,
-                            listener.listener, e });
-                    }
+        // Only send the event once even if several events of the listener match since the listener should only be
+        // called once per event.
+        if (listener.matches(event)) {
+            if (listener.getQueue() != null) {
+                listener.getQueue().submit(event, source, data);
+            } else if (this.statistics.isEnabled()) {
+                long start = System.nanoTime();
+                boolean failed = !onEvent(listener.getListener(), event, source, data);
+                this.statistics.record(listener.getStatistics(this.statistics), event, System.nanoTime() - start,
+                    failed);
+            } else {
+                onEvent(listener.getListener(), event, source, data);
+            }
+        }
+    }
+
+    @Override
+    public void notify(Collection<EventNotification> notifications)
+    {
+        // The matching notifications of each batch aware listener, indexed by listener name
+        Map<String, List<EventNotification>> batches = new LinkedHashMap<>();
+
+        EventListenerRegistry listeners = getRegistry();
+        for (EventNotification notification : notifications) {
+            notify(listeners.getRegisteredListeners(notification.getEvent().getClass()), notification, batches);
+        }
+
+        if (!batches.isEmpty()) {
+            onEvents(batches);
+        }
+    }
+
+    /**
+     * @param batches the matching notifications of each batch aware listener, indexed by listener name
+     */
+    private void onEvents(Map<String, List<EventNotification>> batches)
+    {
+        for (String listenerName : batches.keySet()) {
+            EventListener listener = getListener(listenerName);
+            if (listener instanceof BatchEventListener) {
+                onEvents((BatchEventListener) listener, batches.get(listenerName));
+            }
+        }
+    }
+
+    /**
+     * Call the listeners which don't support batches and remember the notification for the other ones.
+     *
+     * @param listeners the listeners to call for the notified event
+     * @param notification the notification
+     * @param batches the matching notifications of each batch aware listener, indexed by listener name
+     */
+    private void notify(RegisteredListener[] listeners, EventNotification notification,
+        Map<String, List<EventNotification>> batches)
+    {
+        Event event = notification.getEvent();
 
-                    // Only send the first matching event since the listener should only be called once per event.
-                    break;
+        if (this.statistics.isEnabled()) {
+            this.statistics.getEventCounter(event.getClass()).incrementAndGet();
+        }
+
+        for (int i = 0; i < listeners.length; ++i) {
+            RegisteredListener listener = listeners[i];
+            if (listener.getQueue() == null && listener.getListener() instanceof BatchEventListener) {
+                if (listener.matches(event)) {
+                    addToBatch(batches, listener.getListener().getName(), notification);
                 }
+            } else {
+                notify(listener, event, notification.getSource(), notification.getData());
             }
         }
+
+        if (event instanceof ComponentDescriptorEvent) {
+            onComponentEvent((ComponentDescriptorEvent) event, (ComponentManager) notification.getSource(),
+                (ComponentDescriptor<EventListener>) notification.getData());
+        }
+    }
+
+    /**
+     * @param batches the notifications indexed by listener name
+     * @param listenerName the name of the listener
+     * @param notification the notification to add to the batch of the listener
+     */
+    private void addToBatch(Map<String, List<EventNotification>> batches, String listenerName,
+        EventNotification notification)
+    {
+        List<EventNotification> batch = batches.get(listenerName);
+        if (batch == null) {
+            batch = new ArrayList<>();
+            batches.put(listenerName, batch);
+        }
+        batch.add(notification);
+    }
+
+    /**
+     * @param listener the listener to call
+     * @param notifications the matching notifications of the batch
+     */
+    private void onEvents(BatchEventListener listener, List<EventNotification> notifications)
+    {
+        boolean enabled = this.statistics.isEnabled();
+        long start = enabled ? System.nanoTime() : 0;
+        boolean failed = false;
+
+        try {
+            listener.onEvents(notifications);
+        } catch (Exception e) {
+            failed = true;
+
+            // protect from bad listeners
+            this.logger.error("Failed to send a batch of [{}] events to listener [{}]",
+                new Object[] { notifications.size(), listener, e });
+        }
+
+        if (enabled) {
+            this.statistics.record(this.statistics.getListenerStatistics(listener.getName()),
+                notifications.get(0).getEvent(), System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * @param listener the listener to call
+     * @param event the event to pass to the listener
+     * @param source the source of the event (or <code>null</code>)
+     * @param data the additional data related to the event (or <code>null</code>)
+     * @return false if the listener failed
+     */
+    private boolean onEvent(EventListener listener, Event event, Object source, Object data)
+    {
+        try {
+            listener.onEvent(event, source, data);
+
+            return true;
+        } catch (Exception e) {
+            // protect from bad listeners
+            this.logger.error("Failed to send event [{}] to listener [{}]", new Object[] { event, listener, e });
+
+            return false;
+        }
     }
 
     @Override
@@ -321,6 +447,19 @@ public void notify(Event event, Object source)
         notify(event, source, null);
     }
 
+    @Override
+    public synchronized void dispose()
+    {
+        if (this.asyncExecutor != null) {
+            // Let the pending events be delivered but don't wait for them
+            this.asyncExecutor.shutdown();
+        }
+
+        if (this.jmxRegistration != null) {
+            this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+        }
+    }
+
     /**
      * A Component has been modified (added or removed) and we update our cache of Event Listeners if that Component is
      * an Event Listener.
@@ -382,7 +521,7 @@ private void onEventListenerComponentRemoved(ComponentDescriptorRemovedEvent eve
         ComponentManager componentManager, ComponentDescriptor<?> descriptor)
     {
         EventListener removedEventListener = null;
-        for (EventListener eventListener : getListenersByName().values()) {
+        for (EventListener eventListener : getRegistry().getListeners()) {
             if (eventListener.getClass() == descriptor.getImplementation()) {
                 removedEventListener = eventListener;
             }
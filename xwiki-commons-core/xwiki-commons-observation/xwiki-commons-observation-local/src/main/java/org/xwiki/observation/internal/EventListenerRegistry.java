@@ -0,0 +1,329 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.event.TypeEvent;
+
+/**
+ * The listeners registered in the {@link DefaultObservationManager} and the dispatch table compiled from them.
+ * <p>
+ * Registrations are modified under this object's monitor and each modification invalidates the dispatch table which
+ * associates a concrete {@link Event} class with an immutable array of the listeners (and their events) to call for it.
+ * That way finding the listeners of a notified event is only one lookup, without any lock or allocation.
+ * <p>
+ * Registered events are indexed by class and are taken into account only for the notified events of that exact class,
+ * except for {@link TypeEvent}s which are indexed by their type and apply to all the notified events which are
+ * instances of it. {@link Event#matches(Object)} then decides. The hierarchy is resolved only once per concrete event
+ * class, when its dispatch entry is built.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class EventListenerRegistry
+{
+    /**
+     * Empty dispatch entry.
+     */
+    private static final RegisteredListener[] NO_LISTENER = new RegisteredListener[0];
+
+    /**
+     * The events registered by each listener indexed by event class and then by listener name. Only accessed while
+     * holding this object's monitor.
+     */
+    private final Map<Class<?>, Map<String, List<Event>>> listenersByEvent = new LinkedHashMap<>();
+
+    /**
+     * The registered listeners indexed by listener name. It makes it fast to perform operations on already registered
+     * listeners.
+     */
+    private final Map<String, EventListener> listenersByName = new ConcurrentHashMap<>();
+
+    /**
+     * The queues of the registered {@link org.xwiki.observation.AsyncEventListener}s indexed by listener name. Only
+     * accessed while holding this object's monitor.
+     */
+    private final Map<String, AsyncEventListenerQueue> asyncQueues = new HashMap<>();
+
+    /**
+     * The listeners to call for each concrete event class. Lazily filled by {@link #compileListeners(Class)} and
+     * replaced by an empty table each time the registrations change.
+     */
+    private volatile ConcurrentMap<Class<? extends Event>, RegisteredListener[]> dispatchTable =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Throw away the compiled dispatch entries so that they are rebuilt from the current registrations. Must be called
+     * after any modification of the registrations.
+     */
+    private void invalidateDispatchTable()
+    {
+        this.dispatchTable = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param listener the listener to register
+     * @param queue the queue to use to call the listener or {@code null} if it should be called synchronously
+     */
+    public synchronized void addListener(EventListener listener, AsyncEventListenerQueue queue)
+    {
+        // Register the listener by name. If already registered, override it.
+        this.listenersByName.put(listener.getName(), listener);
+
+        if (queue != null) {
+            this.asyncQueues.put(listener.getName(), queue);
+        }
+
+        // For each event defined for this listener, add it to the Event Map.
+        for (Event event : listener.getEvents()) {
+            registerEvent(listener.getName(), event);
+        }
+
+        invalidateDispatchTable();
+    }
+
+    /**
+     * @param listenerName the name of the listener to remove
+     */
+    public synchronized void removeListener(String listenerName)
+    {
+        this.listenersByName.remove(listenerName);
+        this.asyncQueues.remove(listenerName);
+        for (Iterator<Map<String, List<Event>>> it = this.listenersByEvent.values().iterator(); it.hasNext();) {
+            Map<String, List<Event>> eventListeners = it.next();
+            eventListeners.remove(listenerName);
+            if (eventListeners.isEmpty()) {
+                it.remove();
+            }
+        }
+
+        invalidateDispatchTable();
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @param event the event to associate with the listener
+     */
+    public synchronized void addEvent(String listenerName, Event event)
+    {
+        registerEvent(listenerName, event);
+
+        invalidateDispatchTable();
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @param event the event to remove from the listener
+     */
+    public synchronized void removeEvent(String listenerName, Event event)
+    {
+        Map<String, List<Event>> eventListeners = this.listenersByEvent.get(getEventType(event));
+        if (eventListeners != null) {
+            List<Event> events = eventListeners.get(listenerName);
+            if (events != null) {
+                events.remove(event);
+
+                invalidateDispatchTable();
+            }
+        }
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @param event the event to associate with the listener
+     */
+    private void registerEvent(String listenerName, Event event)
+    {
+        Class<?> eventType = getEventType(event);
+
+        Map<String, List<Event>> eventListeners = this.listenersByEvent.get(eventType);
+        if (eventListeners == null) {
+            // No listener registered for this event yet. Create a map to store listeners for this event.
+            eventListeners = new LinkedHashMap<>();
+            this.listenersByEvent.put(eventType, eventListeners);
+        }
+
+        List<Event> events = eventListeners.get(listenerName);
+        if (events == null) {
+            events = new ArrayList<>();
+            eventListeners.put(listenerName, events);
+        }
+        events.add(event);
+    }
+
+    /**
+     * @param event the registered event
+     * @return the type under which the event is indexed
+     */
+    private Class<?> getEventType(Event event)
+    {
+        return event instanceof TypeEvent ? ((TypeEvent) event).getType() : event.getClass();
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @return the registered listener or {@code null} if none is registered with this name
+     */
+    public EventListener getListener(String listenerName)
+    {
+        return this.listenersByName.get(listenerName);
+    }
+
+    /**
+     * @return the registered listeners
+     */
+    public Collection<EventListener> getListeners()
+    {
+        return this.listenersByName.values();
+    }
+
+    /**
+     * @param eventClass the concrete class of the event being notified
+     * @return the listeners to call for this class of events
+     */
+    public RegisteredListener[] getRegisteredListeners(Class<? extends Event> eventClass)
+    {
+        RegisteredListener[] listeners = this.dispatchTable.get(eventClass);
+        if (listeners == null) {
+            listeners = compileListeners(eventClass);
+        }
+
+        return listeners;
+    }
+
+    /**
+     * Build the dispatch entry of the passed event class from the current registrations: the listeners registered for
+     * this exact class, then the ones registered with a {@link TypeEvent} for its super classes and interfaces and
+     * finally the ones registered for {@link AllEvent}. A listener appears only once in the entry, with all its events
+     * applying to the class.
+     *
+     * @param eventClass the concrete class of the event being notified
+     * @return the listeners to call for this class of events
+     */
+    private synchronized RegisteredListener[] compileListeners(Class<? extends Event> eventClass)
+    {
+        ConcurrentMap<Class<? extends Event>, RegisteredListener[]> table = this.dispatchTable;
+
+        RegisteredListener[] listeners = table.get(eventClass);
+        if (listeners == null) {
+            Map<String, List<Event>> events = new LinkedHashMap<>();
+            for (Class<?> eventType : getEventTypes(eventClass)) {
+                // Only TypeEvents apply to the sub types of the type they are indexed under
+                addEvents(eventType, eventType != eventClass && eventType != AllEvent.class, events);
+            }
+            addEvents(AllEvent.class, false, events);
+
+            List<RegisteredListener> registeredListeners = new ArrayList<>(events.size());
+            for (Map.Entry<String, List<Event>> entry : events.entrySet()) {
+                EventListener listener = this.listenersByName.get(entry.getKey());
+                if (listener != null) {
+                    registeredListeners.add(
+                        new RegisteredListener(listener, entry.getValue(), this.asyncQueues.get(entry.getKey())));
+                }
+            }
+
+            listeners = registeredListeners.isEmpty() ? NO_LISTENER
+                : registeredListeners.toArray(new RegisteredListener[registeredListeners.size()]);
+
+            table.put(eventClass, listeners);
+        }
+
+        return listeners;
+    }
+
+    /**
+     * @param eventClass the concrete class of the event being notified
+     * @return the class, its super classes and all the interfaces they implement, the most specific first
+     */
+    private Set<Class<?>> getEventTypes(Class<?> eventClass)
+    {
+        Set<Class<?>> types = new LinkedHashSet<>();
+
+        for (Class<?> type = eventClass; type != null; type = type.getSuperclass()) {
+            types.add(type);
+        }
+        for (Class<?> type : new ArrayList<>(types)) {
+            addInterfaces(type, types);
+        }
+
+        return types;
+    }
+
+    /**
+     * @param type the type for which to add the interfaces
+     * @param types the set where to add the interfaces
+     */
+    private void addInterfaces(Class<?> type, Set<Class<?>> types)
+    {
+        for (Class<?> typeInterface : type.getInterfaces()) {
+            if (types.add(typeInterface)) {
+                addInterfaces(typeInterface, types);
+            }
+        }
+    }
+
+    /**
+     * @param eventType the type under which the events are indexed
+     * @param typeEventsOnly true if only the {@link TypeEvent}s should be added
+     * @param events the events found so far, indexed by listener name
+     */
+    private void addEvents(Class<?> eventType, boolean typeEventsOnly, Map<String, List<Event>> events)
+    {
+        Map<String, List<Event>> eventListeners = this.listenersByEvent.get(eventType);
+        if (eventListeners != null) {
+            for (Map.Entry<String, List<Event>> entry : eventListeners.entrySet()) {
+                for (Event event : entry.getValue()) {
+                    if (!typeEventsOnly || event instanceof TypeEvent) {
+                        addEvent(entry.getKey(), event, events);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @param event the event registered by the listener
+     * @param events the events found so far, indexed by listener name
+     */
+    private void addEvent(String listenerName, Event event, Map<String, List<Event>> events)
+    {
+        List<Event> listenerEvents = events.get(listenerName);
+        if (listenerEvents == null) {
+            listenerEvents = new ArrayList<>();
+            events.put(listenerName, listenerEvents);
+        }
+        listenerEvents.add(event);
+    }
+}
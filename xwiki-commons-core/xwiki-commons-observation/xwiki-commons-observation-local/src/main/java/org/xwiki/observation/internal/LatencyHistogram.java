@@ -0,0 +1,143 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations using power of two buckets (in nanoseconds). Recording a value is one atomic
+ * increment, the price being that percentiles are only precise to a factor of two.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class LatencyHistogram
+{
+    /**
+     * One bucket per possible position of the highest bit of a positive long.
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * The number of recorded durations in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The number of recorded durations.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The sum of the recorded durations.
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * The highest recorded duration.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos the duration to record in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long value = nanos > 0 ? nanos : 1;
+
+        this.buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value));
+        this.count.incrementAndGet();
+        this.total.addAndGet(value);
+
+        long currentMax = this.max.get();
+        while (value > currentMax && !this.max.compareAndSet(currentMax, value)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * @return the sum of all the recorded durations in nanoseconds
+     */
+    public long getTotal()
+    {
+        return this.total.get();
+    }
+
+    /**
+     * @return the highest recorded duration in nanoseconds
+     */
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 1 (for example 0.99)
+     * @return the upper bound in nanoseconds of the bucket containing the passed percentile, 0 if nothing has been
+     *         recorded yet
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = this.buckets.get(i);
+            recorded += counts[i];
+        }
+
+        if (recorded == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= target) {
+                // Don't return more than the maximum actually recorded
+                return Math.min(i < BUCKETS - 2 ? (1L << (i + 1)) - 1 : Long.MAX_VALUE, getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Forget all the recorded durations.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; ++i) {
+            this.buckets.set(i, 0);
+        }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of a registered listener.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ListenerStatistics
+{
+    /**
+     * The name of the listener.
+     */
+    private final String name;
+
+    /**
+     * The time spent in the listener.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * The number of times the listener thrown an exception.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param name the name of the listener
+     */
+    public ListenerStatistics(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the listener
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @param nanos the time spent in the listener in nanoseconds
+     * @param failed true if the listener thrown an exception
+     */
+    public void record(long nanos, boolean failed)
+    {
+        this.latency.record(nanos);
+        if (failed) {
+            this.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of times the listener has been called
+     */
+    public long getCalls()
+    {
+        return this.latency.getCount();
+    }
+
+    /**
+     * @return the number of times the listener thrown an exception
+     */
+    public long getErrors()
+    {
+        return this.errors.get();
+    }
+
+    /**
+     * @return the time spent in the listener
+     */
+    public LatencyHistogram getLatency()
+    {
+        return this.latency;
+    }
+
+    /**
+     * Forget the recorded calls.
+     */
+    public void reset()
+    {
+        this.latency.reset();
+        this.errors.set(0);
+    }
+}
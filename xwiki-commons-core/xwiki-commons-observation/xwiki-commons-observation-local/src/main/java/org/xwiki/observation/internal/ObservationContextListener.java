@@ -30,13 +30,13 @@
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.observation.AbstractEventListener;
-import org.xwiki.observation.event.AllEvent;
 import org.xwiki.observation.event.BeginEvent;
 import org.xwiki.observation.event.EndEvent;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.event.TypeEvent;
 
 /**
- * Listen to all events and stack {@link BeginEvent}.
+ * Listen to {@link BeginEvent}s and {@link EndEvent}s and stack {@link BeginEvent}.
  *
  * @version $Id$
  * @since 3.2M1
@@ -63,7 +63,7 @@ public class ObservationContextListener extends AbstractEventListener
      */
     public ObservationContextListener()
     {
-        super("ObservationContextListener", AllEvent.ALLEVENT);
+        super("ObservationContextListener", new TypeEvent(BeginEvent.class), new TypeEvent(EndEvent.class));
     }
 
     /**
@@ -75,7 +75,7 @@ private Stack<BeginEvent> getCurrentEvents()
 
         ExecutionContext context = this.execution.getContext();
         if (context != null) {
-            events = (Stack<BeginEvent>) context.getProperty(DefaultObservationContext.KEY_EVENTS);
+            events = (Stack<BeginEvent>) context.getProperty(DefaultObservationContext.EVENTS_KEY);
         }
 
         return events;
@@ -88,11 +88,12 @@ private void pushCurrentEvent(BeginEvent event)
     {
         ExecutionContext context = this.execution.getContext();
         if (context != null) {
-            Stack<BeginEvent> events = (Stack<BeginEvent>) context.getProperty(DefaultObservationContext.KEY_EVENTS);
+            Stack<BeginEvent> events =
+                (Stack<BeginEvent>) context.getProperty(DefaultObservationContext.EVENTS_KEY);
 
             if (events == null) {
-                events = new Stack<BeginEvent>();
-                context.setProperty(DefaultObservationContext.KEY_EVENTS, events);
+                events = new BeginEventStack();
+                context.setProperty(DefaultObservationContext.EVENTS_KEY, events);
             }
 
             events.push(event);
@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Gather statistics about the notified events and the calls to the listeners. Disabled by default, in which case the
+ * {@link DefaultObservationManager} does not call it at all.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class ObservationStatistics
+{
+    /**
+     * Used to report slow listeners.
+     */
+    private final Logger logger;
+
+    /**
+     * True if the statistics are gathered.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * The duration in nanoseconds above which a call to a listener is logged.
+     */
+    private volatile long slowListenerThreshold = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    /**
+     * The number of notifications indexed by event class.
+     */
+    private final ConcurrentMap<Class<?>, AtomicLong> events = new ConcurrentHashMap<>();
+
+    /**
+     * The statistics of the listeners indexed by listener name.
+     */
+    private final ConcurrentMap<String, ListenerStatistics> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * @param logger the logger used to report slow listeners
+     */
+    public ObservationStatistics(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    /**
+     * @return true if the statistics are gathered
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    /**
+     * @param enabled true if the statistics should be gathered
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the duration in milliseconds above which a call to a listener is logged
+     */
+    public long getSlowListenerThreshold()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.slowListenerThreshold);
+    }
+
+    /**
+     * @param threshold the duration in milliseconds above which a call to a listener is logged
+     */
+    public void setSlowListenerThreshold(long threshold)
+    {
+        this.slowListenerThreshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * @param eventClass the class of the notified event
+     * @return the counter of notifications of the passed event class
+     */
+    public AtomicLong getEventCounter(Class<?> eventClass)
+    {
+        AtomicLong counter = this.events.get(eventClass);
+        if (counter == null) {
+            counter = new AtomicLong();
+            AtomicLong previous = this.events.putIfAbsent(eventClass, counter);
+            if (previous != null) {
+                counter = previous;
+            }
+        }
+
+        return counter;
+    }
+
+    /**
+     * @param listenerName the name of the listener
+     * @return the statistics of the listener
+     */
+    public ListenerStatistics getListenerStatistics(String listenerName)
+    {
+        ListenerStatistics statistics = this.listeners.get(listenerName);
+        if (statistics == null) {
+            statistics = new ListenerStatistics(listenerName);
+            ListenerStatistics previous = this.listeners.putIfAbsent(listenerName, statistics);
+            if (previous != null) {
+                statistics = previous;
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Record a call to a listener.
+     *
+     * @param listener the statistics of the called listener, as returned by {@link #getListenerStatistics(String)}
+     * @param event the event passed to the listener
+     * @param nanos the time spent in the listener in nanoseconds
+     * @param failed true if the listener thrown an exception
+     */
+    public void record(ListenerStatistics listener, Event event, long nanos, boolean failed)
+    {
+        listener.record(nanos, failed);
+
+        if (nanos > this.slowListenerThreshold) {
+            this.logger.warn("Listener [{}] took [{}] ms to handle event [{}]",
+                new Object[] { listener.getName(), TimeUnit.NANOSECONDS.toMillis(nanos), event });
+        }
+    }
+
+    /**
+     * @return the number of notifications indexed by event class
+     */
+    public Map<Class<?>, AtomicLong> getEvents()
+    {
+        return this.events;
+    }
+
+    /**
+     * @return the statistics of all the listeners called since the last reset
+     */
+    public Collection<ListenerStatistics> getListeners()
+    {
+        return this.listeners.values();
+    }
+
+    /**
+     * Forget all the statistics.
+     */
+    public void reset()
+    {
+        for (AtomicLong counter : this.events.values()) {
+            counter.set(0);
+        }
+        for (ListenerStatistics statistics : this.listeners.values()) {
+            statistics.reset();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.util.List;
+
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Immutable snapshot of a listener and the events it registered for a given type of event, as stored in the dispatch
+ * table.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class RegisteredListener
+{
+    /**
+     * Listener associated with the events.
+     */
+    private final EventListener listener;
+
+    /**
+     * Events of a given type associated with the listener.
+     */
+    private final Event[] events;
+
+    /**
+     * The queue to use to call the listener or {@code null} if it should be called synchronously.
+     */
+    private final AsyncEventListenerQueue queue;
+
+    /**
+     * The statistics of the listener, resolved the first time a call is recorded so that next ones don't require any
+     * lookup.
+     */
+    private ListenerStatistics statistics;
+
+    /**
+     * @param listener the listener associated with the events
+     * @param events the events associated with the listener
+     * @param queue the queue to use to call the listener or {@code null} if it should be called synchronously
+     */
+    public RegisteredListener(EventListener listener, List<Event> events, AsyncEventListenerQueue queue)
+    {
+        this.listener = listener;
+        this.events = events.toArray(new Event[events.size()]);
+        this.queue = queue;
+    }
+
+    /**
+     * @return the listener associated with the events
+     */
+    public EventListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * @return the queue to use to call the listener or {@code null} if it should be called synchronously
+     */
+    public AsyncEventListenerQueue getQueue()
+    {
+        return this.queue;
+    }
+
+    /**
+     * @param event the notified event
+     * @return true if one of the events of the listener matches the passed event
+     */
+    public boolean matches(Event event)
+    {
+        for (int i = 0; i < this.events.length; ++i) {
+            if (this.events[i].matches(event)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param observationStatistics the statistics of the Observation Manager
+     * @return the statistics of the listener
+     */
+    public ListenerStatistics getStatistics(ObservationStatistics observationStatistics)
+    {
+        if (this.statistics == null) {
+            this.statistics = observationStatistics.getListenerStatistics(this.listener.getName());
+        }
+
+        return this.statistics;
+    }
+}
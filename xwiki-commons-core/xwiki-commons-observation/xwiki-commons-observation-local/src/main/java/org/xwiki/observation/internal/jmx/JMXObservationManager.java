@@ -0,0 +1,184 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal.jmx;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.xwiki.observation.internal.LatencyHistogram;
+import org.xwiki.observation.internal.ListenerStatistics;
+import org.xwiki.observation.internal.ObservationStatistics;
+
+/**
+ * Expose the {@link ObservationStatistics} of the Observation Manager.
+ *
+ * @version $Id$
+ * @since 7.4M1
+ */
+public class JMXObservationManager implements JMXObservationManagerMBean
+{
+    /**
+     * The name of the event row type and of its key column.
+     */
+    private static final String EVENT = "event";
+
+    /**
+     * The name of the listener row type and of its key column.
+     */
+    private static final String LISTENER = "listener";
+
+    /**
+     * The columns of the events table.
+     */
+    private static final String[] EVENT_COLUMNS = new String[] { EVENT, "count" };
+
+    /**
+     * The columns of the listeners table.
+     */
+    private static final String[] LISTENER_COLUMNS = new String[] { LISTENER, "calls", "errors", "totalTime",
+        "meanTime", "p50Time", "p90Time", "p99Time", "maxTime" };
+
+    /**
+     * The exposed statistics.
+     */
+    private final ObservationStatistics statistics;
+
+    /**
+     * @param statistics the statistics to expose
+     */
+    public JMXObservationManager(ObservationStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public boolean isStatisticsEnabled()
+    {
+        return this.statistics.isEnabled();
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled)
+    {
+        this.statistics.setEnabled(enabled);
+    }
+
+    @Override
+    public long getSlowListenerThreshold()
+    {
+        return this.statistics.getSlowListenerThreshold();
+    }
+
+    @Override
+    public void setSlowListenerThreshold(long threshold)
+    {
+        this.statistics.setSlowListenerThreshold(threshold);
+    }
+
+    @Override
+    public TabularData getEvents()
+    {
+        TabularData data;
+
+        try {
+            CompositeType rowType = new CompositeType(EVENT, "Number of notifications of an event class",
+                EVENT_COLUMNS, new String[] { "The event class", "The number of notifications" },
+                new OpenType<?>[] { SimpleType.STRING, SimpleType.LONG });
+            TabularType type = new TabularType("events", "Number of notifications by event class", rowType,
+                new String[] { EVENT });
+            data = new TabularDataSupport(type);
+
+            for (Map.Entry<Class<?>, AtomicLong> entry : this.statistics.getEvents().entrySet()) {
+                data.put(new CompositeDataSupport(rowType, EVENT_COLUMNS,
+                    new Object[] { entry.getKey().getName(), entry.getValue().get() }));
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather information on notified events", e);
+        }
+
+        return data;
+    }
+
+    @Override
+    public TabularData getListeners()
+    {
+        TabularData data;
+
+        try {
+            OpenType<?>[] types = new OpenType<?>[LISTENER_COLUMNS.length];
+            types[0] = SimpleType.STRING;
+            for (int i = 1; i < types.length; ++i) {
+                types[i] = SimpleType.LONG;
+            }
+
+            String[] descriptions = new String[] { "The listener name", "The number of calls",
+                "The number of failed calls", "The total time spent in the listener", "The mean duration of a call",
+                "The median duration", "The 90th percentile duration", "The 99th percentile duration",
+                "The longest call" };
+            CompositeType rowType = new CompositeType(LISTENER, "Calls to a listener (durations are in microseconds)",
+                LISTENER_COLUMNS, descriptions, types);
+            TabularType type = new TabularType("listeners", "Calls to listeners", rowType, new String[] { LISTENER });
+            data = new TabularDataSupport(type);
+
+            for (ListenerStatistics listener : this.statistics.getListeners()) {
+                data.put(new CompositeDataSupport(rowType, LISTENER_COLUMNS, toRow(listener)));
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather information on listeners", e);
+        }
+
+        return data;
+    }
+
+    /**
+     * @param listener the statistics of a listener
+     * @return the values of the listener row
+     */
+    private Object[] toRow(ListenerStatistics listener)
+    {
+        LatencyHistogram latency = listener.getLatency();
+        long calls = latency.getCount();
+
+        return new Object[] { listener.getName(), calls, listener.getErrors(), toMicros(latency.getTotal()),
+            calls > 0 ? toMicros(latency.getTotal() / calls) : 0L, toMicros(latency.getPercentile(0.5)),
+            toMicros(latency.getPercentile(0.9)), toMicros(latency.getPercentile(0.99)), toMicros(latency.getMax()) };
+    }
+
+    private long toMicros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        this.statistics.reset();
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.xwiki.observation;
 
+import java.util.Arrays;
+import java.util.Stack;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -56,7 +59,8 @@ public void test() throws Exception
         ObservationManager manager = this.mocker.getInstance(ObservationManager.class);
         Execution execution = this.mocker.getInstance(Execution.class);
 
-        when(execution.getContext()).thenReturn(new ExecutionContext());
+        ExecutionContext context = new ExecutionContext();
+        when(execution.getContext()).thenReturn(context);
 
         final BeginEvent beginEvent1 = mock(BeginEvent.class, "begin1");
         final BeginEvent beginEvent2 = mock(BeginEvent.class, "begin2");
@@ -87,6 +91,11 @@ public void test() throws Exception
         Assert.assertTrue(this.mocker.getComponentUnderTest().isIn(beginEvent1));
         Assert.assertTrue(this.mocker.getComponentUnderTest().isIn(beginEvent2));
 
+        // The current events are still exposed as a Stack under the historical property name
+        Stack<BeginEvent> events = (Stack<BeginEvent>) context.getProperty("observation.currentevents");
+        Assert.assertEquals(Arrays.asList(beginEvent1, beginEvent2), events);
+        Assert.assertSame(beginEvent2, events.peek());
+
         manager.notify(endEvent2, null);
 
         Assert.assertTrue(this.mocker.getComponentUnderTest().isIn(beginEvent1));
@@ -21,24 +21,40 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.observation.event.ActionExecutionEvent;
 import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.BeginEvent;
+import org.xwiki.observation.event.EndEvent;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.event.TypeEvent;
 import org.xwiki.observation.internal.DefaultObservationManager;
+import org.xwiki.observation.internal.ListenerStatistics;
+import org.xwiki.observation.internal.ObservationStatistics;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,6 +65,67 @@
  */
 public class ObservationManagerTest
 {
+    /**
+     * Forward each received event several times to another event through the observation manager.
+     *
+     * @version $Id$
+     */
+    @AsyncEventQueue(capacity = 1)
+    private static class ForwardingListener implements AsyncEventListener
+    {
+        private static final int FORWARD_COUNT = 10;
+
+        private final String name;
+
+        private final Event event;
+
+        private final Event forwardedEvent;
+
+        private final ObservationManager observationManager;
+
+        private final AtomicInteger budget;
+
+        private final CountDownLatch finished;
+
+        ForwardingListener(String name, Event event, Event forwardedEvent, ObservationManager observationManager,
+            AtomicInteger budget, CountDownLatch finished)
+        {
+            this.name = name;
+            this.event = event;
+            this.forwardedEvent = forwardedEvent;
+            this.observationManager = observationManager;
+            this.budget = budget;
+            this.finished = finished;
+        }
+
+        @Override
+        public String getName()
+        {
+            return this.name;
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return Arrays.asList(this.event);
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            for (int i = 0; i < FORWARD_COUNT; ++i) {
+                int remaining = this.budget.decrementAndGet();
+                if (remaining == 0) {
+                    this.finished.countDown();
+                } else if (remaining < 0) {
+                    return;
+                }
+
+                this.observationManager.notify(this.forwardedEvent, source, data);
+            }
+        }
+    }
+
     @Rule
     public final MockitoComponentMockingRule<ObservationManager> mocker =
         new MockitoComponentMockingRule<ObservationManager>(DefaultObservationManager.class);
@@ -235,4 +312,220 @@ public void testRegisterListenerForTwoEventsOfSameType() throws ComponentLookupE
         verify(listener).onEvent(eventMatcher1, "some source", "some data");
         verify(listener).onEvent(eventMatcher2, "some source", "some data");
     }
+
+    /** Verify that listeners registered or removed after a notification are taken into account. */
+    @Test
+    public void testNotifyAfterListenersChange() throws ComponentLookupException
+    {
+        final EventListener listener1 = mock(EventListener.class, "listener1");
+        final EventListener listener2 = mock(EventListener.class, "listener2");
+        final Event event = mock(Event.class, "event");
+        final Event notifyEvent = mock(Event.class, "notify");
+
+        when(listener1.getName()).thenReturn("listener 1");
+        when(listener2.getName()).thenReturn("listener 2");
+        when(listener1.getEvents()).thenReturn(Arrays.asList(event));
+        when(listener2.getEvents()).thenReturn(Arrays.asList(AllEvent.ALLEVENT));
+
+        when(event.matches(notifyEvent)).thenReturn(true);
+
+        this.mocker.getComponentUnderTest().addListener(listener1);
+        this.mocker.getComponentUnderTest().notify(notifyEvent, null);
+
+        this.mocker.getComponentUnderTest().addListener(listener2);
+        this.mocker.getComponentUnderTest().notify(notifyEvent, null);
+
+        this.mocker.getComponentUnderTest().removeListener("listener 1");
+        this.mocker.getComponentUnderTest().notify(notifyEvent, null);
+
+        verify(listener1, times(2)).onEvent(notifyEvent, null, null);
+        verify(listener2, times(2)).onEvent(notifyEvent, null, null);
+    }
+
+    @Test
+    public void testNotifyAsyncListener() throws Exception
+    {
+        final AsyncEventListener listener = mock(AsyncEventListener.class);
+        final Event event = mock(Event.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+        when(event.matches(event)).thenReturn(true);
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                latch.countDown();
+
+                return null;
+            }
+        }).when(listener).onEvent(any(Event.class), any(), any());
+
+        this.mocker.getComponentUnderTest().addListener(listener);
+        this.mocker.getComponentUnderTest().notify(event, "source1", "data1");
+        this.mocker.getComponentUnderTest().notify(event, "source2", "data2");
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onEvent(event, "source1", "data1");
+        inOrder.verify(listener).onEvent(event, "source2", "data2");
+
+        ((Disposable) this.mocker.getComponentUnderTest()).dispose();
+    }
+
+    @Test
+    public void testAsyncListenersNotifyingEachOtherWithFullQueues() throws Exception
+    {
+        ObservationManager observationManager = this.mocker.getComponentUnderTest();
+
+        Event eventA = new ActionExecutionEvent("a");
+        Event eventB = new ActionExecutionEvent("b");
+        AtomicInteger budget = new AtomicInteger(1000);
+        CountDownLatch finished = new CountDownLatch(1);
+
+        observationManager.addListener(
+            new ForwardingListener("listenerA", eventA, eventB, observationManager, budget, finished));
+        observationManager.addListener(
+            new ForwardingListener("listenerB", eventB, eventA, observationManager, budget, finished));
+
+        observationManager.notify(eventA, null, null);
+
+        // The listeners would block each other forever if the threads delivering the events were waiting for room in
+        // the queues
+        Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        ((Disposable) observationManager).dispose();
+    }
+
+    /** Verify that a listener can register to all the events of a given type. */
+    @Test
+    public void testRegisterListenerForEventType() throws ComponentLookupException
+    {
+        final EventListener listener = mock(EventListener.class);
+        final BeginEvent beginEvent = mock(BeginEvent.class);
+        final EndEvent endEvent = mock(EndEvent.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.<Event>asList(new TypeEvent(BeginEvent.class)));
+
+        this.mocker.getComponentUnderTest().addListener(listener);
+        this.mocker.getComponentUnderTest().notify(beginEvent, null);
+        this.mocker.getComponentUnderTest().notify(endEvent, null);
+
+        verify(listener).onEvent(beginEvent, null, null);
+        verify(listener, never()).onEvent(same(endEvent), any(), any());
+
+        this.mocker.getComponentUnderTest().removeEvent("mylistener", new TypeEvent(BeginEvent.class));
+        this.mocker.getComponentUnderTest().notify(beginEvent, null);
+
+        verify(listener).onEvent(beginEvent, null, null);
+    }
+
+    /** Verify that only the events registered through a {@link TypeEvent} apply to sub classes. */
+    @Test
+    public void testNotifyEventSubClass() throws ComponentLookupException
+    {
+        final EventListener listener = mock(EventListener.class);
+        final Event event = new ActionExecutionEvent("action")
+        {
+            private static final long serialVersionUID = 1L;
+        };
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.<Event>asList(new ActionExecutionEvent("action")));
+
+        this.mocker.getComponentUnderTest().addListener(listener);
+        this.mocker.getComponentUnderTest().notify(event, null);
+
+        verify(listener, never()).onEvent(same(event), any(), any());
+
+        this.mocker.getComponentUnderTest().addEvent("mylistener", new TypeEvent(ActionExecutionEvent.class));
+        this.mocker.getComponentUnderTest().notify(event, null);
+
+        verify(listener).onEvent(event, null, null);
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        final EventListener listener = mock(EventListener.class);
+        final Event event = mock(Event.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+        when(event.matches(event)).thenReturn(true);
+
+        DefaultObservationManager manager = (DefaultObservationManager) this.mocker.getComponentUnderTest();
+        ObservationStatistics statistics = manager.getStatistics();
+
+        manager.addListener(listener);
+        manager.notify(event, null);
+
+        Assert.assertTrue(statistics.getListeners().isEmpty());
+
+        statistics.setEnabled(true);
+        manager.notify(event, null);
+        manager.notify(event, null);
+
+        Assert.assertEquals(2, statistics.getEventCounter(event.getClass()).get());
+        ListenerStatistics listenerStatistics = statistics.getListenerStatistics("mylistener");
+        Assert.assertEquals(2, listenerStatistics.getCalls());
+        Assert.assertEquals(0, listenerStatistics.getErrors());
+        Assert.assertTrue(listenerStatistics.getLatency().getPercentile(0.99) <= listenerStatistics.getLatency()
+            .getMax());
+
+        statistics.reset();
+
+        Assert.assertEquals(0, statistics.getEventCounter(event.getClass()).get());
+        Assert.assertEquals(0, listenerStatistics.getCalls());
+    }
+
+    @Test
+    public void testNotifyBatch() throws Exception
+    {
+        final EventListener listener = mock(EventListener.class, "listener");
+        final BatchEventListener batchListener = mock(BatchEventListener.class, "batchListener");
+        final Event event = mock(Event.class, "event");
+        final Event event1 = mock(Event.class, "event1");
+        final Event event2 = mock(Event.class, "event2");
+
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+        when(batchListener.getName()).thenReturn("batchListener");
+        when(batchListener.getEvents()).thenReturn(Arrays.asList(event));
+        when(event.matches(any())).thenReturn(true);
+
+        this.mocker.getComponentUnderTest().addListener(listener);
+        this.mocker.getComponentUnderTest().addListener(batchListener);
+
+        EventNotification notification1 = new EventNotification(event1, "source", "data1");
+        EventNotification notification2 = new EventNotification(event2, "source", "data2");
+        this.mocker.getComponentUnderTest().notify(Arrays.asList(notification1, notification2));
+
+        InOrder inOrder = inOrder(listener, batchListener);
+        inOrder.verify(listener).onEvent(event1, "source", "data1");
+        inOrder.verify(listener).onEvent(event2, "source", "data2");
+        inOrder.verify(batchListener).onEvents(Arrays.asList(notification1, notification2));
+        verify(batchListener, never()).onEvent(any(Event.class), any(), any());
+    }
+
+    @Test
+    public void testHasListener() throws Exception
+    {
+        final EventListener listener = mock(EventListener.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.<Event>asList(new ActionExecutionEvent("action")));
+
+        this.mocker.getComponentUnderTest().addListener(listener);
+
+        Assert.assertTrue(this.mocker.getComponentUnderTest().hasListener(new ActionExecutionEvent("action")));
+        Assert.assertFalse(this.mocker.getComponentUnderTest().hasListener(new ActionExecutionEvent("other")));
+        Assert.assertFalse(
+            this.mocker.getComponentUnderTest().hasListener(new ActionExecutionEvent("action"), "mylistener"));
+    }
 }
@@ -28,6 +28,7 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextInitializer;
+import org.xwiki.context.ExecutionContextKey;
 import org.xwiki.velocity.VelocityContextFactory;
 import org.xwiki.velocity.XWikiVelocityException;
 
@@ -49,6 +50,13 @@ public class VelocityExecutionContextInitializer implements ExecutionContextInit
      */
     public static final String VELOCITY_CONTEXT_ID = "velocityContext";
 
+    /**
+     * The interned key under which is stored the Velocity Context in the Execution Context.
+     *
+     * @since 7.4M1
+     */
+    public static final ExecutionContextKey VELOCITY_CONTEXT_KEY = ExecutionContextKey.of(VELOCITY_CONTEXT_ID);
+
     /**
      * The Velocity context factory component used for creating the Velocity Context (injected automatically by the
      * Component subsystem).
@@ -60,7 +68,7 @@ public class VelocityExecutionContextInitializer implements ExecutionContextInit
     public void initialize(ExecutionContext executionContext) throws ExecutionContextException
     {
         try {
-            if (!executionContext.hasProperty(VELOCITY_CONTEXT_ID)) {
+            if (!executionContext.hasProperty(VELOCITY_CONTEXT_KEY)) {
                 VelocityContext context = this.velocityContextFactory.createContext();
                 executionContext.newProperty(VELOCITY_CONTEXT_ID)
                     .cloneValue()